@@ -14,7 +14,8 @@ public class CorsConfig {
         registry.addMapping("/api/**")
             .allowedOrigins("http://localhost:5173")
             .allowedMethods("GET","POST","PUT","PATCH","DELETE","OPTIONS")
-            .allowedHeaders("*");
+            .allowedHeaders("*")
+            .exposedHeaders("ETag");
       }
     };
   }
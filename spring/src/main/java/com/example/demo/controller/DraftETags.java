@@ -0,0 +1,114 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.DraftVersionScope;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@code ETag} / {@code If-Match} for the draft endpoints. The entity tag is the draft version as a strong tag
+ * ({@code "12"}). A mutation sent with {@code If-Match} fails with {@code 412} when the draft has moved on;
+ * without it, the edit is applied on top of whatever version is current. Reads that clients poll can answer
+ * {@code If-None-Match} with {@code 304} before building their body.
+ */
+final class DraftETags {
+    private DraftETags() {
+    }
+
+    static <T> ResponseEntity<T> respond(Supplier<T> body) {
+        return respond(null, body);
+    }
+
+    /**
+     * Runs {@code body} with the versions from {@code ifMatch} as precondition (any of them may match) and
+     * returns it with the version of the draft afterwards as {@code ETag}.
+     */
+    static <T> ResponseEntity<T> respond(String ifMatch, Supplier<T> body) {
+        try (DraftVersionScope scope = DraftVersionScope.openAnyOf(parseIfMatch(ifMatch))) {
+            T result = body.get();
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (scope.getVersion() >= 0) {
+                response.eTag(format(scope.getVersion()));
+            }
+            return response.body(result);
+        }
+    }
+
+    /**
+     * Conditional GET: runs {@code load}, and when the version of the draft it read matches {@code ifNoneMatch}
+     * answers {@code 304 Not Modified} without building the body. Responses carry {@code Cache-Control: no-cache}
+     * so browsers revalidate with the {@code ETag} on every request instead of reusing a stale body.
+     */
+    static <S, T> ResponseEntity<T> respondUnlessNotModified(
+            String ifNoneMatch,
+            Supplier<S> load,
+            Function<S, T> body
+    ) {
+        try (DraftVersionScope scope = DraftVersionScope.open(null)) {
+            S loaded = load.get();
+            long version = scope.getVersion();
+            if (version >= 0 && matchesIfNoneMatch(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(format(version))
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+            if (version >= 0) {
+                response.eTag(format(version));
+            }
+            return response.body(body.apply(loaded));
+        }
+    }
+
+    static String format(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // ヘッダなし・"*" なら null（版を確認しない）。並んだタグのどれかと一致すればよい（RFC 9110）。
+    // 読める版が無ければ空集合で、必ず 412 にする
+    static Set<Long> parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        Set<Long> versions = new LinkedHashSet<>();
+        for (String raw : ifMatch.split(",")) {
+            String tag = raw.trim();
+            if (tag.equals("*")) {
+                return null;
+            }
+            // If-Match は強い比較なので弱い ETag (W/"...") は一致しない
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(1, tag.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // 他のタグを試す
+                }
+            }
+        }
+        return versions;
+    }
+
+    // If-None-Match は弱い比較なので W/"12" も "12" と一致する
+    static boolean matchesIfNoneMatch(String ifNoneMatch, long version) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String current = format(version);
+        for (String raw : ifNoneMatch.split(",")) {
+            String tag = raw.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.demo.controller;
 
 import com.example.demo.controller.dto.ErrorResponse;
+import com.example.demo.service.exception.DraftConflictException;
 import com.example.demo.service.exception.InvalidPosExcelException;
 import com.example.demo.service.exception.NotFoundException;
+import com.example.demo.service.exception.PreconditionFailedException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +33,25 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(DraftConflictException.class)
+    public ResponseEntity<ErrorResponse> handleConflict(DraftConflictException ex, HttpServletRequest request) {
+        return withETag(
+                build(HttpStatus.CONFLICT, "conflict", ex.getMessage(), request.getRequestURI()),
+                ex.getCurrentVersion()
+        );
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailed(
+            PreconditionFailedException ex,
+            HttpServletRequest request
+    ) {
+        return withETag(
+                build(HttpStatus.PRECONDITION_FAILED, "precondition_failed", ex.getMessage(), request.getRequestURI()),
+                ex.getCurrentVersion()
+        );
+    }
+
     @ExceptionHandler({
             IllegalArgumentException.class,
             InvalidPosExcelException.class,
@@ -59,6 +80,13 @@ public class GlobalExceptionHandler {
         );
     }
 
+    // クライアントが最新の版を取り直せるように、現在の版を ETag で返す
+    private static ResponseEntity<ErrorResponse> withETag(ResponseEntity<ErrorResponse> response, long version) {
+        return ResponseEntity.status(response.getStatusCode())
+                .eTag(DraftETags.format(version))
+                .body(response.getBody());
+    }
+
     private static ResponseEntity<ErrorResponse> build(
             HttpStatus status,
             String error,
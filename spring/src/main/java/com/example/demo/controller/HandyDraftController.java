@@ -15,12 +15,15 @@ import com.example.demo.service.GetHandyCatalogUseCase;
 import com.example.demo.service.ReorderHandyCategoriesUseCase;
 import com.example.demo.service.ReorderHandyItemsUseCase;
 import com.example.demo.service.SwapHandyCategoriesUseCase;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -58,57 +61,66 @@ public class HandyDraftController {
     }
 
     @GetMapping
-    public ItemCatalogResponse getHandyCategories(@PathVariable String draftId) {
-        ItemCatalog catalog = getHandyCatalogUseCase.getHandyCatalog(draftId);
-        return ItemCatalogResponse.from(catalog);
+    public ResponseEntity<ItemCatalogResponse> getHandyCategories(@PathVariable String draftId) {
+        return DraftETags.respond(() -> ItemCatalogResponse.from(getHandyCatalogUseCase.getHandyCatalog(draftId)));
     }
 
     @PostMapping
-    public ItemCatalogResponse addHandyCategory(
+    public ResponseEntity<ItemCatalogResponse> addHandyCategory(
             @PathVariable String draftId,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody AddHandyCategoryRequest req
     ) {
         if (req == null) {
             throw new IllegalArgumentException("request body is required");
         }
-        ItemCatalog updatedCatalog = addHandyCategoryUseCase.add(
-                draftId,
-                req.description
-        );
-        return ItemCatalogResponse.from(updatedCatalog);
+        return DraftETags.respond(ifMatch, () -> {
+            ItemCatalog updatedCatalog = addHandyCategoryUseCase.add(
+                    draftId,
+                    req.description
+            );
+            return ItemCatalogResponse.from(updatedCatalog);
+        });
     }
 
     @DeleteMapping("/{categoryCode}")
-    public ItemCatalogResponse deleteHandyCategory(
+    public ResponseEntity<ItemCatalogResponse> deleteHandyCategory(
             @PathVariable String draftId,
-            @PathVariable String categoryCode
+            @PathVariable String categoryCode,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        ItemCatalog updatedCatalog = deleteHandyCategoryUseCase.delete(
-                draftId,
-                categoryCode
-        );
-        return ItemCatalogResponse.from(updatedCatalog);
+        return DraftETags.respond(ifMatch, () -> {
+            ItemCatalog updatedCatalog = deleteHandyCategoryUseCase.delete(
+                    draftId,
+                    categoryCode
+            );
+            return ItemCatalogResponse.from(updatedCatalog);
+        });
     }
 
     @PatchMapping("/swap")
-    public ItemCatalogResponse swapHandyCategories(
+    public ResponseEntity<ItemCatalogResponse> swapHandyCategories(
             @PathVariable String draftId,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody SwapHandyCategoriesRequest req
     ) {
         if (req == null) {
             throw new IllegalArgumentException("request body is required");
         }
-        ItemCatalog updatedCatalog = swapHandyCategoriesUseCase.swap(
-                draftId,
-                req.fromCategoryCode,
-                req.toCategoryCode
-        );
-        return ItemCatalogResponse.from(updatedCatalog);
+        return DraftETags.respond(ifMatch, () -> {
+            ItemCatalog updatedCatalog = swapHandyCategoriesUseCase.swap(
+                    draftId,
+                    req.fromCategoryCode,
+                    req.toCategoryCode
+            );
+            return ItemCatalogResponse.from(updatedCatalog);
+        });
     }
 
     @PatchMapping("/reorder")
-    public ItemCatalogResponse reorderHandyCategories(
+    public ResponseEntity<ItemCatalogResponse> reorderHandyCategories(
             @PathVariable String draftId,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody ReorderHandyCategoriesRequest req
     ) {
         if (req == null) {
@@ -117,18 +129,21 @@ public class HandyDraftController {
         if (req.fromIndex == null || req.toIndex == null) {
             throw new IllegalArgumentException("fromIndex and toIndex are required");
         }
-        ItemCatalog updatedCatalog = reorderHandyCategoriesUseCase.reorder(
-                draftId,
-                req.fromIndex,
-                req.toIndex
-        );
-        return ItemCatalogResponse.from(updatedCatalog);
+        return DraftETags.respond(ifMatch, () -> {
+            ItemCatalog updatedCatalog = reorderHandyCategoriesUseCase.reorder(
+                    draftId,
+                    req.fromIndex,
+                    req.toIndex
+            );
+            return ItemCatalogResponse.from(updatedCatalog);
+        });
     }
 
     @PatchMapping("/{categoryCode}/items/reorder")
-    public ItemCatalogResponse reorderHandyItems(
+    public ResponseEntity<ItemCatalogResponse> reorderHandyItems(
             @PathVariable String draftId,
             @PathVariable String categoryCode,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody ReorderHandyItemsRequest req
     ) {
         if (req == null) {
@@ -137,44 +152,52 @@ public class HandyDraftController {
         if (req.fromIndex == null || req.toIndex == null) {
             throw new IllegalArgumentException("fromIndex and toIndex are required");
         }
-        ItemCatalog updatedCatalog = reorderHandyItemsUseCase.reorder(
-                draftId,
-                categoryCode,
-                req.fromIndex,
-                req.toIndex
-        );
-        return ItemCatalogResponse.from(updatedCatalog);
+        return DraftETags.respond(ifMatch, () -> {
+            ItemCatalog updatedCatalog = reorderHandyItemsUseCase.reorder(
+                    draftId,
+                    categoryCode,
+                    req.fromIndex,
+                    req.toIndex
+            );
+            return ItemCatalogResponse.from(updatedCatalog);
+        });
     }
 
     @DeleteMapping("/{categoryCode}/items/{itemIndex}")
-    public ItemCatalogResponse deleteHandyItem(
+    public ResponseEntity<ItemCatalogResponse> deleteHandyItem(
             @PathVariable String draftId,
             @PathVariable String categoryCode,
-            @PathVariable int itemIndex
+            @PathVariable int itemIndex,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        ItemCatalog updatedCatalog = deleteHandyItemUseCase.delete(
-                draftId,
-                categoryCode,
-                itemIndex
-        );
-        return ItemCatalogResponse.from(updatedCatalog);
+        return DraftETags.respond(ifMatch, () -> {
+            ItemCatalog updatedCatalog = deleteHandyItemUseCase.delete(
+                    draftId,
+                    categoryCode,
+                    itemIndex
+            );
+            return ItemCatalogResponse.from(updatedCatalog);
+        });
     }
 
     @PostMapping("/{categoryCode}/items")
-    public ItemCatalogResponse addHandyItem(
+    public ResponseEntity<ItemCatalogResponse> addHandyItem(
             @PathVariable String draftId,
             @PathVariable String categoryCode,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody AddHandyItemRequest req
     ) {
         if (req == null) {
             throw new IllegalArgumentException("request body is required");
         }
-        ItemCatalog updatedCatalog = addHandyItemUseCase.add(
-                draftId,
-                categoryCode,
-                req.sourceCategoryCode,
-                req.itemCode
-        );
-        return ItemCatalogResponse.from(updatedCatalog);
+        return DraftETags.respond(ifMatch, () -> {
+            ItemCatalog updatedCatalog = addHandyItemUseCase.add(
+                    draftId,
+                    categoryCode,
+                    req.sourceCategoryCode,
+                    req.itemCode
+            );
+            return ItemCatalogResponse.from(updatedCatalog);
+        });
     }
 }
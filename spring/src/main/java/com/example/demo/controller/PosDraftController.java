@@ -2,8 +2,11 @@ package com.example.demo.controller;
 
 import com.example.demo.controller.dto.AddButtonRequest;
 import com.example.demo.controller.dto.AddCategoryRequest;
+import com.example.demo.controller.dto.ApplyDraftBatchRequest;
 import com.example.demo.controller.dto.CategoryStateResponse;
 import com.example.demo.controller.dto.DeleteButtonRequest;
+import com.example.demo.controller.dto.DraftCacheStatsResponse;
+import com.example.demo.controller.dto.DraftHistoryPageResponse;
 import com.example.demo.controller.dto.DraftHistoryResponse;
 import com.example.demo.controller.dto.ItemCatalogResponse;
 import com.example.demo.controller.dto.ItemMasterCatalogResponse;
@@ -19,10 +22,13 @@ import com.example.demo.model.PosConfig;
 import com.example.demo.model.PosDraft;
 import com.example.demo.service.AddButtonUseCase;
 import com.example.demo.service.AddCategoryUseCase;
+import com.example.demo.service.ApplyDraftBatchUseCase;
 import com.example.demo.service.ClearDraftHistoryUseCase;
 import com.example.demo.service.DeleteButtonUseCase;
 import com.example.demo.service.DeleteCategoryUseCase;
+import com.example.demo.service.DraftOperation;
 import com.example.demo.service.ExportPosUseCase;
+import com.example.demo.service.GetDraftCacheStatsUseCase;
 import com.example.demo.service.GetDraftHistoryUseCase;
 import com.example.demo.service.GetPageUseCase;
 import com.example.demo.service.GetItemCatalogUseCase;
@@ -41,6 +47,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
@@ -65,6 +73,8 @@ public class PosDraftController {
     private final UndoDraftUseCase undoDraftUseCase;
     private final RedoDraftUseCase redoDraftUseCase;
     private final ExportPosUseCase exportPosUseCase;
+    private final GetDraftCacheStatsUseCase getDraftCacheStatsUseCase;
+    private final ApplyDraftBatchUseCase applyDraftBatchUseCase;
 
     public PosDraftController(
             GetPageUseCase getPageUseCase,
@@ -84,7 +94,9 @@ public class PosDraftController {
             UpdateCategoryGridUseCase updateCategoryGridUseCase,
             UndoDraftUseCase undoDraftUseCase,
             RedoDraftUseCase redoDraftUseCase,
-            ExportPosUseCase exportPosUseCase
+            ExportPosUseCase exportPosUseCase,
+            GetDraftCacheStatsUseCase getDraftCacheStatsUseCase,
+            ApplyDraftBatchUseCase applyDraftBatchUseCase
     ) {
         this.getPageUseCase = getPageUseCase;
         this.getDraftHistoryUseCase = getDraftHistoryUseCase;
@@ -104,233 +116,318 @@ public class PosDraftController {
         this.undoDraftUseCase = undoDraftUseCase;
         this.redoDraftUseCase = redoDraftUseCase;
         this.exportPosUseCase = exportPosUseCase;
+        this.getDraftCacheStatsUseCase = getDraftCacheStatsUseCase;
+        this.applyDraftBatchUseCase = applyDraftBatchUseCase;
+    }
+
+    @GetMapping(value = "/cache-stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DraftCacheStatsResponse getDraftCacheStats() {
+        return DraftCacheStatsResponse.from(getDraftCacheStatsUseCase.getDraftCacheStats());
     }
 
     @GetMapping("/{draftId}/pages/{pageNumber}")
-    public PageResponse getPage(@PathVariable String draftId, @PathVariable int pageNumber) {
-        PosConfig.Page page = getPageUseCase.getPage(draftId, pageNumber);
-        return toPageResponse(page);
+    public ResponseEntity<PageResponse> getPage(@PathVariable String draftId, @PathVariable int pageNumber) {
+        return DraftETags.respond(() -> toPageResponse(getPageUseCase.getPage(draftId, pageNumber)));
     }
 
     @GetMapping("/{draftId}/history")
-    public DraftHistoryResponse getHistory(@PathVariable String draftId) {
-        PosDraft draft = getDraftHistoryUseCase.getHistory(draftId);
-        return toDraftHistoryResponse(draft);
+    public ResponseEntity<DraftHistoryResponse> getHistory(
+            @PathVariable String draftId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        return DraftETags.respondUnlessNotModified(
+                ifNoneMatch,
+                () -> getDraftHistoryUseCase.getHistory(draftId),
+                PosDraftController::toDraftHistoryResponse
+        );
+    }
+
+    @GetMapping("/{draftId}/history/entries")
+    public ResponseEntity<DraftHistoryPageResponse> getHistoryPage(
+            @PathVariable String draftId,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", defaultValue = "50") int limit,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        return DraftETags.respondUnlessNotModified(
+                ifNoneMatch,
+                () -> getDraftHistoryUseCase.getHistoryPage(draftId, cursor, limit),
+                PosDraftController::toDraftHistoryPageResponse
+        );
     }
 
     @PostMapping("/{draftId}/history/jump")
-    public CategoryStateResponse jumpHistory(
+    public ResponseEntity<CategoryStateResponse> jumpHistory(
             @PathVariable String draftId,
             @RequestParam("index") int index,
-            @RequestParam(name = "selectedPageNumber", required = false) Integer selectedPageNumber
+            @RequestParam(name = "selectedPageNumber", required = false) Integer selectedPageNumber,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        PosDraft updatedDraft = jumpDraftHistoryUseCase.jumpTo(draftId, index);
-        int resolvedSelectedPageNumber = resolveSelectedPageNumber(updatedDraft.getConfig(), selectedPageNumber);
-        return toCategoryStateResponse(updatedDraft, resolvedSelectedPageNumber);
+        return DraftETags.respond(ifMatch, () -> {
+            PosDraft updatedDraft = jumpDraftHistoryUseCase.jumpTo(draftId, index);
+            int resolvedSelectedPageNumber = resolveSelectedPageNumber(updatedDraft.getConfig(), selectedPageNumber);
+            return toCategoryStateResponse(updatedDraft, resolvedSelectedPageNumber);
+        });
     }
 
     @DeleteMapping("/{draftId}/history")
-    public DraftHistoryResponse clearHistory(@PathVariable String draftId) {
-        PosDraft updatedDraft = clearDraftHistoryUseCase.clear(draftId);
-        return toDraftHistoryResponse(updatedDraft);
+    public ResponseEntity<DraftHistoryResponse> clearHistory(
+            @PathVariable String draftId,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        return DraftETags.respond(ifMatch, () -> toDraftHistoryResponse(clearDraftHistoryUseCase.clear(draftId)));
     }
 
     @PatchMapping("/{draftId}/pages/{pageNumber}/buttons/swap")
-    public PageResponse swapButtons(
+    public ResponseEntity<PageResponse> swapButtons(
             @PathVariable String draftId,
             @PathVariable int pageNumber,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody SwapButtonsRequest req
     ) {
         if (req == null) {
             throw new IllegalArgumentException("request body is required");
         }
-        PosConfig.Page page = swapButtonsUseCase.swapButtons(
-                draftId,
-                pageNumber,
-                req.fromCol,
-                req.fromRow,
-                req.toCol,
-                req.toRow
-        );
-        return toPageResponse(page);
+        return DraftETags.respond(ifMatch, () -> {
+            PosConfig.Page page = swapButtonsUseCase.swapButtons(
+                    draftId,
+                    pageNumber,
+                    req.fromCol,
+                    req.fromRow,
+                    req.toCol,
+                    req.toRow
+            );
+            return toPageResponse(page);
+        });
     }
 
     @GetMapping("/{draftId}/item-categories")
-    public ItemCatalogResponse getItemCategories(@PathVariable String draftId) {
-        ItemCatalog catalog = getItemCatalogUseCase.getItemCatalog(draftId);
-        return ItemCatalogResponse.from(catalog);
+    public ResponseEntity<ItemCatalogResponse> getItemCategories(@PathVariable String draftId) {
+        return DraftETags.respond(() -> ItemCatalogResponse.from(getItemCatalogUseCase.getItemCatalog(draftId)));
     }
 
     @GetMapping("/{draftId}/item-master")
-    public ItemMasterCatalogResponse getItemMasterCatalog(@PathVariable String draftId) {
-        ItemMasterCatalog catalog = getItemMasterCatalogUseCase.getItemMasterCatalog(draftId);
-        return ItemMasterCatalogResponse.from(catalog);
+    public ResponseEntity<ItemMasterCatalogResponse> getItemMasterCatalog(@PathVariable String draftId) {
+        return DraftETags.respond(
+                () -> ItemMasterCatalogResponse.from(getItemMasterCatalogUseCase.getItemMasterCatalog(draftId))
+        );
     }
 
     @PatchMapping("/{draftId}/item-master/{currentItemCode}")
-    public ItemMasterCatalogResponse updateItemMaster(
+    public ResponseEntity<ItemMasterCatalogResponse> updateItemMaster(
             @PathVariable String draftId,
             @PathVariable String currentItemCode,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody UpdateItemMasterRequest req
     ) {
         if (req == null) {
             throw new IllegalArgumentException("request body is required");
         }
-        ItemMasterCatalog updated = updateItemMasterUseCase.updateItem(
-                draftId,
-                currentItemCode,
-                req.itemCode,
-                req.itemNamePrint,
-                req.unitPrice,
-                req.costPrice,
-                req.basePrice
-        );
-        return ItemMasterCatalogResponse.from(updated);
+        return DraftETags.respond(ifMatch, () -> {
+            ItemMasterCatalog updated = updateItemMasterUseCase.updateItem(
+                    draftId,
+                    currentItemCode,
+                    req.itemCode,
+                    req.itemNamePrint,
+                    req.unitPrice,
+                    req.costPrice,
+                    req.basePrice
+            );
+            return ItemMasterCatalogResponse.from(updated);
+        });
     }
 
     @PostMapping("/{draftId}/pages/{pageNumber}/buttons")
-    public PageResponse addButton(
+    public ResponseEntity<PageResponse> addButton(
             @PathVariable String draftId,
             @PathVariable int pageNumber,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody AddButtonRequest req
     ) {
         if (req == null) {
             throw new IllegalArgumentException("request body is required");
         }
-        PosConfig.Page page = addButtonUseCase.addButton(
-                draftId,
-                pageNumber,
-                req.col,
-                req.row,
-                req.categoryCode,
-                req.itemCode
-        );
-        return toPageResponse(page);
+        return DraftETags.respond(ifMatch, () -> {
+            PosConfig.Page page = addButtonUseCase.addButton(
+                    draftId,
+                    pageNumber,
+                    req.col,
+                    req.row,
+                    req.categoryCode,
+                    req.itemCode
+            );
+            return toPageResponse(page);
+        });
     }
 
     @DeleteMapping("/{draftId}/pages/{pageNumber}/buttons")
-    public PageResponse deleteButton(
+    public ResponseEntity<PageResponse> deleteButton(
             @PathVariable String draftId,
             @PathVariable int pageNumber,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody DeleteButtonRequest req
     ) {
         if (req == null) {
             throw new IllegalArgumentException("request body is required");
         }
-        PosConfig.Page page = deleteButtonUseCase.deleteButton(
-                draftId,
-                pageNumber,
-                req.buttonId
-        );
-        return toPageResponse(page);
+        return DraftETags.respond(ifMatch, () -> {
+            PosConfig.Page page = deleteButtonUseCase.deleteButton(
+                    draftId,
+                    pageNumber,
+                    req.buttonId
+            );
+            return toPageResponse(page);
+        });
     }
 
     @PatchMapping("/{draftId}/pages/{pageNumber}/buttons/unit-price")
-    public PageResponse updateUnitPrice(
+    public ResponseEntity<PageResponse> updateUnitPrice(
             @PathVariable String draftId,
             @PathVariable int pageNumber,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody UpdateUnitPriceRequest req
     ) {
         if (req == null) {
             throw new IllegalArgumentException("request body is required");
         }
-        PosConfig.Page page = updateUnitPriceUseCase.updateUnitPrice(
-                draftId,
-                pageNumber,
-                req.buttonId,
-                req.unitPrice
-        );
-        return toPageResponse(page);
+        return DraftETags.respond(ifMatch, () -> {
+            PosConfig.Page page = updateUnitPriceUseCase.updateUnitPrice(
+                    draftId,
+                    pageNumber,
+                    req.buttonId,
+                    req.unitPrice
+            );
+            return toPageResponse(page);
+        });
     }
 
     @PostMapping("/{draftId}/categories")
-    public CategoryStateResponse addCategory(
+    public ResponseEntity<CategoryStateResponse> addCategory(
             @PathVariable String draftId,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody AddCategoryRequest req
     ) {
         if (req == null) {
             throw new IllegalArgumentException("request body is required");
         }
-        PosConfig updatedConfig = addCategoryUseCase.addCategory(
-                draftId,
-                req.name,
-                req.cols,
-                req.rows,
-                req.styleKey
-        );
-        int selectedPageNumber = updatedConfig.getCategories().stream()
-                .mapToInt(PosConfig.Category::getPageNumber)
-                .max()
-                .orElseThrow();
-        return toCategoryStateResponse(updatedConfig, selectedPageNumber);
+        return DraftETags.respond(ifMatch, () -> {
+            PosConfig updatedConfig = addCategoryUseCase.addCategory(
+                    draftId,
+                    req.name,
+                    req.cols,
+                    req.rows,
+                    req.styleKey
+            );
+            int selectedPageNumber = updatedConfig.getCategories().stream()
+                    .mapToInt(PosConfig.Category::getPageNumber)
+                    .max()
+                    .orElseThrow();
+            return toCategoryStateResponse(updatedConfig, selectedPageNumber);
+        });
     }
 
     @DeleteMapping("/{draftId}/categories/{pageNumber}")
-    public CategoryStateResponse deleteCategory(
+    public ResponseEntity<CategoryStateResponse> deleteCategory(
             @PathVariable String draftId,
             @PathVariable int pageNumber,
-            @RequestParam(name = "selectedPageNumber", required = false) Integer selectedPageNumber
+            @RequestParam(name = "selectedPageNumber", required = false) Integer selectedPageNumber,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        PosConfig updatedConfig = deleteCategoryUseCase.deleteCategory(draftId, pageNumber);
-        int resolvedSelectedPageNumber = resolveSelectedPageNumber(updatedConfig, selectedPageNumber);
-        return toCategoryStateResponse(updatedConfig, resolvedSelectedPageNumber);
+        return DraftETags.respond(ifMatch, () -> {
+            PosConfig updatedConfig = deleteCategoryUseCase.deleteCategory(draftId, pageNumber);
+            int resolvedSelectedPageNumber = resolveSelectedPageNumber(updatedConfig, selectedPageNumber);
+            return toCategoryStateResponse(updatedConfig, resolvedSelectedPageNumber);
+        });
     }
 
     @PatchMapping("/{draftId}/categories/swap")
-    public CategoryStateResponse swapCategories(
+    public ResponseEntity<CategoryStateResponse> swapCategories(
             @PathVariable String draftId,
             @RequestBody SwapCategoriesRequest req,
-            @RequestParam(name = "selectedPageNumber", required = false) Integer selectedPageNumber
+            @RequestParam(name = "selectedPageNumber", required = false) Integer selectedPageNumber,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
         if (req == null) {
             throw new IllegalArgumentException("request body is required");
         }
-        PosDraft updatedDraft = swapCategoriesUseCase.swapCategories(
-                draftId,
-                req.fromPageNumber,
-                req.toPageNumber
-        );
-        int resolvedSelectedPageNumber = resolveSelectedPageNumber(updatedDraft.getConfig(), selectedPageNumber);
-        return toCategoryStateResponse(updatedDraft, resolvedSelectedPageNumber);
+        return DraftETags.respond(ifMatch, () -> {
+            PosDraft updatedDraft = swapCategoriesUseCase.swapCategories(
+                    draftId,
+                    req.fromPageNumber,
+                    req.toPageNumber
+            );
+            int resolvedSelectedPageNumber = resolveSelectedPageNumber(updatedDraft.getConfig(), selectedPageNumber);
+            return toCategoryStateResponse(updatedDraft, resolvedSelectedPageNumber);
+        });
     }
 
     @PatchMapping("/{draftId}/categories/{pageNumber}/grid")
-    public CategoryStateResponse updateCategoryGrid(
+    public ResponseEntity<CategoryStateResponse> updateCategoryGrid(
             @PathVariable String draftId,
             @PathVariable int pageNumber,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody UpdateCategoryGridRequest req
     ) {
         if (req == null) {
             throw new IllegalArgumentException("request body is required");
         }
-        PosDraft updatedDraft = updateCategoryGridUseCase.updateCategoryGrid(
-                draftId,
-                pageNumber,
-                req.cols,
-                req.rows
-        );
-        int selectedPageNumber = resolveSelectedPageNumber(updatedDraft.getConfig(), pageNumber);
-        return toCategoryStateResponse(updatedDraft, selectedPageNumber);
+        return DraftETags.respond(ifMatch, () -> {
+            PosDraft updatedDraft = updateCategoryGridUseCase.updateCategoryGrid(
+                    draftId,
+                    pageNumber,
+                    req.cols,
+                    req.rows
+            );
+            int selectedPageNumber = resolveSelectedPageNumber(updatedDraft.getConfig(), pageNumber);
+            return toCategoryStateResponse(updatedDraft, selectedPageNumber);
+        });
+    }
+
+    @PostMapping("/{draftId}/batch")
+    public ResponseEntity<CategoryStateResponse> applyBatch(
+            @PathVariable String draftId,
+            @RequestParam(name = "selectedPageNumber", required = false) Integer selectedPageNumber,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody ApplyDraftBatchRequest req
+    ) {
+        if (req == null || req.operations == null) {
+            throw new IllegalArgumentException("request body is required");
+        }
+        List<DraftOperation> operations = new ArrayList<>(req.operations.size());
+        for (int i = 0; i < req.operations.size(); i++) {
+            operations.add(toDraftOperation(i, req.operations.get(i)));
+        }
+        return DraftETags.respond(ifMatch, () -> {
+            PosDraft updatedDraft = applyDraftBatchUseCase.applyBatch(draftId, operations);
+            int resolvedSelectedPageNumber = resolveSelectedPageNumber(updatedDraft.getConfig(), selectedPageNumber);
+            return toCategoryStateResponse(updatedDraft, resolvedSelectedPageNumber);
+        });
     }
 
     @PostMapping("/{draftId}/undo")
-    public CategoryStateResponse undo(
+    public ResponseEntity<CategoryStateResponse> undo(
             @PathVariable String draftId,
-            @RequestParam(name = "selectedPageNumber", required = false) Integer selectedPageNumber
+            @RequestParam(name = "selectedPageNumber", required = false) Integer selectedPageNumber,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        PosDraft updatedDraft = undoDraftUseCase.undo(draftId);
-        int resolvedSelectedPageNumber = resolveSelectedPageNumber(updatedDraft.getConfig(), selectedPageNumber);
-        return toCategoryStateResponse(updatedDraft, resolvedSelectedPageNumber);
+        return DraftETags.respond(ifMatch, () -> {
+            PosDraft updatedDraft = undoDraftUseCase.undo(draftId);
+            int resolvedSelectedPageNumber = resolveSelectedPageNumber(updatedDraft.getConfig(), selectedPageNumber);
+            return toCategoryStateResponse(updatedDraft, resolvedSelectedPageNumber);
+        });
     }
 
     @PostMapping("/{draftId}/redo")
-    public CategoryStateResponse redo(
+    public ResponseEntity<CategoryStateResponse> redo(
             @PathVariable String draftId,
-            @RequestParam(name = "selectedPageNumber", required = false) Integer selectedPageNumber
+            @RequestParam(name = "selectedPageNumber", required = false) Integer selectedPageNumber,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        PosDraft updatedDraft = redoDraftUseCase.redo(draftId);
-        int resolvedSelectedPageNumber = resolveSelectedPageNumber(updatedDraft.getConfig(), selectedPageNumber);
-        return toCategoryStateResponse(updatedDraft, resolvedSelectedPageNumber);
+        return DraftETags.respond(ifMatch, () -> {
+            PosDraft updatedDraft = redoDraftUseCase.redo(draftId);
+            int resolvedSelectedPageNumber = resolveSelectedPageNumber(updatedDraft.getConfig(), selectedPageNumber);
+            return toCategoryStateResponse(updatedDraft, resolvedSelectedPageNumber);
+        });
     }
 
     @GetMapping(
@@ -352,6 +449,23 @@ public class PosDraftController {
                 .body(exported);
     }
 
+    private static DraftOperation toDraftOperation(int index, ApplyDraftBatchRequest.Operation op) {
+        if (op == null || op.type == null) {
+            throw new IllegalArgumentException("operations[" + index + "]: type is required");
+        }
+        return switch (op.type) {
+            case "swapButtons" -> new DraftOperation.SwapButtons(op.pageNumber, op.fromCol, op.fromRow, op.toCol, op.toRow);
+            case "addButton" -> new DraftOperation.AddButton(op.pageNumber, op.col, op.row, op.categoryCode, op.itemCode);
+            case "deleteButton" -> new DraftOperation.DeleteButton(op.pageNumber, op.buttonId);
+            case "updateUnitPrice" -> new DraftOperation.UpdateUnitPrice(op.pageNumber, op.buttonId, op.unitPrice);
+            case "addCategory" -> new DraftOperation.AddCategory(op.name, op.cols, op.rows, op.styleKey);
+            case "deleteCategory" -> new DraftOperation.DeleteCategory(op.pageNumber);
+            case "swapCategories" -> new DraftOperation.SwapCategories(op.fromPageNumber, op.toPageNumber);
+            case "updateCategoryGrid" -> new DraftOperation.UpdateCategoryGrid(op.pageNumber, op.cols, op.rows);
+            default -> throw new IllegalArgumentException("operations[" + index + "]: unknown type: " + op.type);
+        };
+    }
+
     private static PageResponse toPageResponse(PosConfig.Page page) {
         PageResponse res = new PageResponse();
         res.pageNumber = page.getPageNumber();
@@ -421,20 +535,37 @@ public class PosDraftController {
 
     private static DraftHistoryResponse toDraftHistoryResponse(PosDraft draft) {
         DraftHistoryResponse response = new DraftHistoryResponse();
-        response.entries = java.util.stream.IntStream
-                .range(0, draft.getHistoryEntries().size())
-                .mapToObj(i -> {
-                    PosDraft.HistoryEntry entry = draft.getHistoryEntries().get(i);
-                    DraftHistoryResponse.EntryDto dto = new DraftHistoryResponse.EntryDto();
-                    dto.index = i;
-                    dto.action = entry.getAction();
-                    dto.timestamp = entry.getTimestamp();
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        List<PosDraft.HistoryEntry> entries = draft.getHistoryEntries();
+        response.entries = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            response.entries.add(toHistoryEntryDto(i, entries.get(i)));
+        }
+        response.currentIndex = draft.getHistoryIndex();
+        response.canUndo = draft.canUndo();
+        response.canRedo = draft.canRedo();
+        return response;
+    }
+
+    private static DraftHistoryPageResponse toDraftHistoryPageResponse(GetDraftHistoryUseCase.HistoryPage page) {
+        PosDraft draft = page.draft();
+        DraftHistoryPageResponse response = new DraftHistoryPageResponse();
+        response.entries = new ArrayList<>(page.toIndex() - page.fromIndex());
+        for (int i = page.toIndex() - 1; i >= page.fromIndex(); i--) {
+            response.entries.add(toHistoryEntryDto(i, draft.getHistoryEntry(i)));
+        }
+        response.nextCursor = page.nextCursor();
+        response.totalCount = draft.getHistoryEntryCount();
         response.currentIndex = draft.getHistoryIndex();
         response.canUndo = draft.canUndo();
         response.canRedo = draft.canRedo();
         return response;
     }
+
+    private static DraftHistoryResponse.EntryDto toHistoryEntryDto(int index, PosDraft.HistoryEntry entry) {
+        DraftHistoryResponse.EntryDto dto = new DraftHistoryResponse.EntryDto();
+        dto.index = index;
+        dto.action = entry.getAction();
+        dto.timestamp = entry.getTimestamp();
+        return dto;
+    }
 }
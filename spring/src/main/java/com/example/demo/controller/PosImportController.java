@@ -1,8 +1,10 @@
 package com.example.demo.controller;
 
+import com.example.demo.controller.dto.ImportCacheStatsResponse;
 import com.example.demo.controller.dto.ImportResponse;
 import com.example.demo.model.PosConfig;
 import com.example.demo.model.PosDraft;
+import com.example.demo.service.GetImportCacheStatsUseCase;
 import com.example.demo.service.ImportPosUseCase;
 import com.example.demo.service.command.ImportPosCommand;
 import org.springframework.http.MediaType;
@@ -18,9 +20,14 @@ import java.util.stream.Collectors;
 public class PosImportController {
 
     private final ImportPosUseCase importUseCase;
+    private final GetImportCacheStatsUseCase getImportCacheStatsUseCase;
 
-    public PosImportController(ImportPosUseCase importUseCase) {
+    public PosImportController(
+            ImportPosUseCase importUseCase,
+            GetImportCacheStatsUseCase getImportCacheStatsUseCase
+    ) {
         this.importUseCase = importUseCase;
+        this.getImportCacheStatsUseCase = getImportCacheStatsUseCase;
     }
 
     @PostMapping(
@@ -67,6 +74,11 @@ public class PosImportController {
         return res;
     }
 
+    @GetMapping(value = "/import/cache-stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ImportCacheStatsResponse getImportCacheStats() {
+        return ImportCacheStatsResponse.from(getImportCacheStatsUseCase.getImportCacheStats());
+    }
+
     private static ImportResponse.PageDto toPageDto(PosConfig.Page page) {
         ImportResponse.PageDto dto = new ImportResponse.PageDto();
         dto.pageNumber = page.getPageNumber();
@@ -0,0 +1,33 @@
+package com.example.demo.controller.dto;
+
+import java.util.List;
+
+public class ApplyDraftBatchRequest {
+    public List<Operation> operations;
+
+    /**
+     * {@code type} is one of {@code swapButtons}, {@code addButton}, {@code deleteButton},
+     * {@code updateUnitPrice}, {@code addCategory}, {@code deleteCategory}, {@code swapCategories} and
+     * {@code updateCategoryGrid}; the other fields are the ones of the corresponding single-edit request.
+     */
+    public static class Operation {
+        public String type;
+        public int pageNumber;
+        public int fromCol;
+        public int fromRow;
+        public int toCol;
+        public int toRow;
+        public int col;
+        public int row;
+        public String categoryCode;
+        public String itemCode;
+        public String buttonId;
+        public String unitPrice;
+        public String name;
+        public int cols;
+        public int rows;
+        public int styleKey;
+        public int fromPageNumber;
+        public int toPageNumber;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.controller.dto;
+
+import com.example.demo.service.port.DraftCacheMetrics;
+
+public class DraftCacheStatsResponse {
+    public long hits;
+    public long misses;
+    public double hitRate;
+    public long evictions;
+    public int size;
+    public long residentBytes;
+    public long maxBytes;
+
+    public static DraftCacheStatsResponse from(DraftCacheMetrics.Stats stats) {
+        DraftCacheStatsResponse response = new DraftCacheStatsResponse();
+        response.hits = stats.hits();
+        response.misses = stats.misses();
+        response.hitRate = stats.hitRate();
+        response.evictions = stats.evictions();
+        response.size = stats.size();
+        response.residentBytes = stats.residentBytes();
+        response.maxBytes = stats.maxBytes();
+        return response;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.controller.dto;
+
+import java.util.List;
+
+public class DraftHistoryPageResponse {
+    // 新しい順
+    public List<DraftHistoryResponse.EntryDto> entries;
+    // 次のページの cursor（最後のページなら null）。ドラフトが変わると使えなくなる
+    public String nextCursor;
+    public int totalCount;
+    public int currentIndex;
+    public boolean canUndo;
+    public boolean canRedo;
+}
@@ -0,0 +1,21 @@
+package com.example.demo.controller.dto;
+
+import com.example.demo.service.ImportParseCache;
+
+public class ImportCacheStatsResponse {
+    public long hits;
+    public long misses;
+    public long evictions;
+    public int size;
+    public int maxEntries;
+
+    public static ImportCacheStatsResponse from(ImportParseCache.Stats stats) {
+        ImportCacheStatsResponse response = new ImportCacheStatsResponse();
+        response.hits = stats.hits();
+        response.misses = stats.misses();
+        response.evictions = stats.evictions();
+        response.size = stats.size();
+        response.maxEntries = stats.maxEntries();
+        return response;
+    }
+}
@@ -0,0 +1,839 @@
+package com.example.demo.dao;
+
+import com.example.demo.model.ItemCatalog;
+import com.example.demo.model.ItemMasterCatalog;
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.PosDraft;
+import com.example.demo.model.WorkbookContent;
+import com.example.demo.model.WorkbookLayout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written binary format for drafts and journal entries, replacing Java serialization.
+ * <p>
+ * Layout: {@code MAGIC, version, snapshotToken, draftVersion, workbookKind, [blobHash], dictionary, body, [workbook]}.
+ * The original workbook is either a reference to a {@link WorkbookBlobStore} blob (32-byte SHA-256 right after
+ * the header, so it can be read without decoding the rest) or appended raw at the end.
+ * Every string in the body is an index into the dictionary (0 = null), so repeated labels, item codes and
+ * prices are stored once.
+ * Integers are (zigzag) varints. Configs and pages shared between the current state and the change history
+ * are written once and referenced by index afterwards, so an undo history of snapshot replacements costs only
+ * the pages that actually changed.
+ * Bump {@link #FORMAT_VERSION} and keep a reader for the old version when the layout changes.
+ */
+final class DraftBinaryCodec {
+    static final int FORMAT_VERSION = 1;
+    private static final int WORKBOOK_EMBEDDED = 0;
+    private static final int WORKBOOK_BLOB = 1;
+    private static final int HASH_BYTES = 32;
+    private static final int DRAFT_MAGIC = 0x464C5044; // "FLPD"
+    private static final int CHANGE_MAGIC = 0x464C5043; // "FLPC"
+
+    // Change の種別タグ。既存の値は変えないこと
+    private static final int SWAP_BUTTONS = 1;
+    private static final int ADD_BUTTON = 2;
+    private static final int DELETE_BUTTON = 3;
+    private static final int UPDATE_UNIT_PRICE = 4;
+    private static final int UPDATE_ITEM_MASTER_ITEM = 5;
+    private static final int ADD_CATEGORY = 6;
+    private static final int DELETE_CATEGORY = 7;
+    private static final int UPDATE_CATEGORY_GRID = 8;
+    private static final int SWAP_CATEGORIES = 9;
+    private static final int REORDER_HANDY_ITEMS = 10;
+    private static final int DELETE_HANDY_ITEM = 11;
+    private static final int ADD_HANDY_ITEM = 12;
+    private static final int ADD_HANDY_CATEGORY = 13;
+    private static final int DELETE_HANDY_CATEGORY = 14;
+    private static final int REORDER_HANDY_CATEGORIES = 15;
+    private static final int SWAP_HANDY_CATEGORIES = 16;
+    private static final int SNAPSHOT_REPLACE = 17;
+    private static final int COMPOSITE = 18;
+    private static final int CONFIG_DIFF = 19;
+
+    private DraftBinaryCodec() {
+    }
+
+    record Decoded(PosDraft draft, long snapshotToken) {
+    }
+
+    // ブロブ参照を中身に解決する
+    interface BlobResolver {
+        WorkbookContent open(String contentHash) throws IOException;
+    }
+
+    private static final BlobResolver NO_BLOBS = contentHash -> {
+        throw new IOException("workbook blob store is not available: " + contentHash);
+    };
+
+    static void writeDraft(PosDraft draft, long snapshotToken, OutputStream target) throws IOException {
+        writeDraft(draft, snapshotToken, target, false);
+    }
+
+    /**
+     * With {@code workbookInBlob}, only the content hash of the workbook is written; the caller must have
+     * stored the blob already.
+     */
+    static void writeDraft(PosDraft draft, long snapshotToken, OutputStream target, boolean workbookInBlob)
+            throws IOException {
+        Encoder encoder = new Encoder();
+        encoder.writeString(draft.getDraftId());
+        encoder.writeConfig(draft.getConfig());
+        encoder.writeNullableItemCatalog(draft.getItemCatalogOrNull());
+        encoder.writeNullableItemCatalog(draft.getHandyCatalogOrNull());
+        encoder.writeNullableItemMasterCatalog(draft.getItemMasterCatalogOrNull());
+        encoder.writeNullableLayout(draft.getWorkbookLayoutOrNull());
+        encoder.writeHistoryEntry(draft.getHistoryEntries().get(0));
+        List<PosDraft.ChangeRecord> changes = draft.getChangeRecords();
+        encoder.writeVarInt(changes.size());
+        for (PosDraft.ChangeRecord changeRecord : changes) {
+            encoder.writeChangeRecord(changeRecord);
+        }
+        encoder.writeVarInt(draft.getHistoryIndex());
+
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(DRAFT_MAGIC);
+        writeVarInt(out, FORMAT_VERSION);
+        out.writeLong(snapshotToken);
+        out.writeLong(draft.getVersion());
+        WorkbookContent workbook = draft.getOriginalWorkbook();
+        if (workbookInBlob) {
+            out.writeByte(WORKBOOK_BLOB);
+            out.write(HexFormat.of().parseHex(workbook.getContentHash()));
+        } else {
+            out.writeByte(WORKBOOK_EMBEDDED);
+        }
+        encoder.writeTo(out);
+        if (!workbookInBlob) {
+            writeVarInt(out, workbook.size());
+            workbook.writeTo(out);
+        }
+        out.flush();
+    }
+
+    static Decoded readDraft(InputStream source) throws IOException {
+        return readDraft(source, NO_BLOBS);
+    }
+
+    static Decoded readDraft(InputStream source, BlobResolver blobs) throws IOException {
+        DataInputStream in = new DataInputStream(source);
+        Header header = readHeader(in);
+        WorkbookContent blob = header.blobHash() == null ? null : blobs.open(header.blobHash());
+
+        Decoder decoder = Decoder.readFrom(in);
+        String draftId = decoder.readString();
+        PosConfig config = decoder.readConfig();
+        ItemCatalog itemCatalog = decoder.readNullableItemCatalog();
+        ItemCatalog handyCatalog = decoder.readNullableItemCatalog();
+        ItemMasterCatalog itemMasterCatalog = decoder.readNullableItemMasterCatalog();
+        WorkbookLayout workbookLayout = decoder.readNullableLayout();
+        PosDraft.HistoryEntry initialEntry = decoder.readHistoryEntry();
+        int changeCount = decoder.readVarInt();
+        List<PosDraft.ChangeRecord> changes = new ArrayList<>(changeCount);
+        for (int i = 0; i < changeCount; i++) {
+            changes.add(decoder.readChangeRecord());
+        }
+        int historyIndex = decoder.readVarInt();
+
+        WorkbookContent workbook = blob != null ? blob : WorkbookContent.readFrom(in, readVarInt(in));
+        PosDraft draft = PosDraft.restore(
+                draftId,
+                config,
+                workbook,
+                itemCatalog,
+                handyCatalog,
+                itemMasterCatalog,
+                workbookLayout,
+                initialEntry,
+                changes,
+                historyIndex,
+                header.draftVersion()
+        );
+        return new Decoded(draft, header.snapshotToken());
+    }
+
+    /**
+     * Reads only the header and returns the referenced blob hash, or {@code null} when the workbook is embedded.
+     */
+    static String readBlobHash(InputStream source) throws IOException {
+        return readHeader(new DataInputStream(source)).blobHash();
+    }
+
+    private record Header(long snapshotToken, long draftVersion, String blobHash) {
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != DRAFT_MAGIC) {
+            throw new IOException("not a draft file");
+        }
+        requireVersion(readVarInt(in));
+        long snapshotToken = in.readLong();
+        long draftVersion = in.readLong();
+        int kind = in.readUnsignedByte();
+        return switch (kind) {
+            case WORKBOOK_EMBEDDED -> new Header(snapshotToken, draftVersion, null);
+            case WORKBOOK_BLOB -> new Header(
+                    snapshotToken,
+                    draftVersion,
+                    HexFormat.of().formatHex(readExactly(in, HASH_BYTES))
+            );
+            default -> throw new IOException("unknown workbook kind: " + kind);
+        };
+    }
+
+    static byte[] encodeChangeRecord(PosDraft.ChangeRecord changeRecord) throws IOException {
+        Encoder encoder = new Encoder();
+        encoder.writeChangeRecord(changeRecord);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(CHANGE_MAGIC);
+        writeVarInt(out, FORMAT_VERSION);
+        encoder.writeTo(out);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    static PosDraft.ChangeRecord decodeChangeRecord(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(source);
+        if (in.readInt() != CHANGE_MAGIC) {
+            throw new IOException("not a change record");
+        }
+        requireVersion(readVarInt(in));
+        return Decoder.readFrom(in).readChangeRecord();
+    }
+
+    private static void requireVersion(int version) throws IOException {
+        if (version != FORMAT_VERSION) {
+            throw new IOException("unsupported draft format version: " + version);
+        }
+    }
+
+    // ---- writing ----
+
+    private static final class Encoder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<PosConfig, Integer> configRefs = new IdentityHashMap<>();
+        private final Map<PosConfig.Page, Integer> pageRefs = new IdentityHashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        void writeTo(DataOutputStream out) throws IOException {
+            DraftBinaryCodec.writeVarInt(out, dictionary.size());
+            for (String value : dictionary) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                DraftBinaryCodec.writeVarInt(out, utf8.length);
+                out.write(utf8);
+            }
+            DraftBinaryCodec.writeVarInt(out, body.size());
+            body.writeTo(out);
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                body.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            body.write(value);
+        }
+
+        void writeSInt(int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        void writeBoolean(boolean value) {
+            body.write(value ? 1 : 0);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = dictionary.size();
+                ids.put(value, id);
+                dictionary.add(value);
+            }
+            writeVarInt(id + 1);
+        }
+
+        // 参照番号: 0 = この場で本体を書く、n = n-1 番目に書いたものと同一インスタンス
+        private <T> boolean writeRef(Map<T, Integer> refs, T value) {
+            Integer ref = refs.get(value);
+            if (ref != null) {
+                writeVarInt(ref + 1);
+                return true;
+            }
+            refs.put(value, refs.size());
+            writeVarInt(0);
+            return false;
+        }
+
+        void writeConfig(PosConfig config) {
+            if (writeRef(configRefs, config)) {
+                return;
+            }
+            writeVarInt(config.getCategories().size());
+            for (PosConfig.Category category : config.getCategories()) {
+                writeCategory(category);
+            }
+            writeVarInt(config.getPagesByPageNumber().size());
+            for (Map.Entry<Integer, PosConfig.Page> entry : config.getPagesByPageNumber().entrySet()) {
+                writeSInt(entry.getKey());
+                writePage(entry.getValue());
+            }
+        }
+
+        void writeCategories(List<PosConfig.Category> categories) {
+            writeVarInt(categories.size());
+            for (PosConfig.Category category : categories) {
+                writeCategory(category);
+            }
+        }
+
+        void writePageDiff(Map<Integer, PosConfig.Page> pagesByNumber) {
+            writeVarInt(pagesByNumber.size());
+            for (Map.Entry<Integer, PosConfig.Page> entry : pagesByNumber.entrySet()) {
+                writeSInt(entry.getKey());
+                writePage(entry.getValue());
+            }
+        }
+
+        void writeCategory(PosConfig.Category category) {
+            writeSInt(category.getPageNumber());
+            writeSInt(category.getCols());
+            writeSInt(category.getRows());
+            writeString(category.getName());
+            writeSInt(category.getStyleKey());
+        }
+
+        void writePage(PosConfig.Page page) {
+            if (writeRef(pageRefs, page)) {
+                return;
+            }
+            writeSInt(page.getPageNumber());
+            writeSInt(page.getCols());
+            writeSInt(page.getRows());
+            writeVarInt(page.getButtons().size());
+            for (PosConfig.Button button : page.getButtons()) {
+                writeButton(button);
+            }
+        }
+
+        void writeButton(PosConfig.Button button) {
+            writeSInt(button.getCol());
+            writeSInt(button.getRow());
+            writeString(button.getLabel());
+            writeSInt(button.getStyleKey());
+            writeString(button.getItemCode());
+            writeString(button.getUnitPrice());
+            writeString(button.getButtonId());
+        }
+
+        void writeNullableItemCatalog(ItemCatalog catalog) {
+            writeBoolean(catalog != null);
+            if (catalog == null) {
+                return;
+            }
+            writeVarInt(catalog.getCategories().size());
+            for (ItemCatalog.Category category : catalog.getCategories()) {
+                writeItemCategory(category);
+            }
+        }
+
+        void writeItemCategory(ItemCatalog.Category category) {
+            writeString(category.getCode());
+            writeString(category.getDescription());
+            writeVarInt(category.getItems().size());
+            for (ItemCatalog.Item item : category.getItems()) {
+                writeItem(item);
+            }
+        }
+
+        void writeItem(ItemCatalog.Item item) {
+            writeString(item.getItemCode());
+            writeString(item.getItemName());
+            writeString(item.getUnitPrice());
+        }
+
+        void writeNullableItemMasterCatalog(ItemMasterCatalog catalog) {
+            writeBoolean(catalog != null);
+            if (catalog == null) {
+                return;
+            }
+            writeVarInt(catalog.getItems().size());
+            for (ItemMasterCatalog.Item item : catalog.getItems()) {
+                writeItemMasterItem(item);
+            }
+        }
+
+        void writeItemMasterItem(ItemMasterCatalog.Item item) {
+            writeString(item.getItemCode());
+            writeString(item.getItemNamePrint());
+            writeString(item.getUnitPrice());
+            writeString(item.getCostPrice());
+            writeString(item.getBasePrice());
+        }
+
+        void writeNullableLayout(WorkbookLayout layout) {
+            writeBoolean(layout != null);
+            if (layout == null) {
+                return;
+            }
+            writeVarInt(layout.getSheets().size());
+            for (Map.Entry<String, WorkbookLayout.SheetHeader> sheet : layout.getSheets().entrySet()) {
+                writeString(sheet.getKey());
+                writeVarInt(sheet.getValue().getHeaderRow());
+                writeVarInt(sheet.getValue().getColumns().size());
+                for (Map.Entry<String, Integer> column : sheet.getValue().getColumns().entrySet()) {
+                    writeString(column.getKey());
+                    writeVarInt(column.getValue());
+                }
+            }
+        }
+
+        void writeHistoryEntry(PosDraft.HistoryEntry entry) {
+            writeString(entry.getAction());
+            writeString(entry.getTimestamp());
+        }
+
+        void writeChangeRecord(PosDraft.ChangeRecord changeRecord) {
+            writeHistoryEntry(changeRecord.getEntry());
+            writeChange(changeRecord.getChange());
+        }
+
+        void writeChange(PosDraft.Change change) {
+            if (change instanceof PosDraft.SwapButtonsChange c) {
+                writeVarInt(SWAP_BUTTONS);
+                writeSInt(c.getPageNumber());
+                writeSInt(c.getFromCol());
+                writeSInt(c.getFromRow());
+                writeSInt(c.getToCol());
+                writeSInt(c.getToRow());
+            } else if (change instanceof PosDraft.AddButtonChange c) {
+                writeVarInt(ADD_BUTTON);
+                writeSInt(c.getPageNumber());
+                writeButton(c.getButton());
+            } else if (change instanceof PosDraft.DeleteButtonChange c) {
+                writeVarInt(DELETE_BUTTON);
+                writeSInt(c.getPageNumber());
+                writeButton(c.getButton());
+            } else if (change instanceof PosDraft.UpdateUnitPriceChange c) {
+                writeVarInt(UPDATE_UNIT_PRICE);
+                writeSInt(c.getPageNumber());
+                writeString(c.getButtonId());
+                writeString(c.getBeforeUnitPrice());
+                writeString(c.getAfterUnitPrice());
+            } else if (change instanceof PosDraft.UpdateItemMasterItemChange c) {
+                writeVarInt(UPDATE_ITEM_MASTER_ITEM);
+                writeItemMasterItem(c.getBeforeItem());
+                writeItemMasterItem(c.getAfterItem());
+            } else if (change instanceof PosDraft.AddCategoryChange c) {
+                writeVarInt(ADD_CATEGORY);
+                writeCategory(c.getCategory());
+            } else if (change instanceof PosDraft.DeleteCategoryChange c) {
+                writeVarInt(DELETE_CATEGORY);
+                writeCategory(c.getCategory());
+                writePage(c.getPage());
+            } else if (change instanceof PosDraft.UpdateCategoryGridChange c) {
+                writeVarInt(UPDATE_CATEGORY_GRID);
+                writeSInt(c.getPageNumber());
+                writeSInt(c.getFromCols());
+                writeSInt(c.getFromRows());
+                writeSInt(c.getToCols());
+                writeSInt(c.getToRows());
+            } else if (change instanceof PosDraft.SwapCategoriesChange c) {
+                writeVarInt(SWAP_CATEGORIES);
+                writeSInt(c.getFromPageNumber());
+                writeSInt(c.getToPageNumber());
+            } else if (change instanceof PosDraft.ReorderHandyItemsChange c) {
+                writeVarInt(REORDER_HANDY_ITEMS);
+                writeString(c.getCategoryCode());
+                writeSInt(c.getFromIndex());
+                writeSInt(c.getToIndex());
+            } else if (change instanceof PosDraft.DeleteHandyItemChange c) {
+                writeVarInt(DELETE_HANDY_ITEM);
+                writeString(c.getCategoryCode());
+                writeSInt(c.getItemIndex());
+                writeItem(c.getDeletedItem());
+            } else if (change instanceof PosDraft.AddHandyItemChange c) {
+                writeVarInt(ADD_HANDY_ITEM);
+                writeString(c.getCategoryCode());
+                writeSInt(c.getItemIndex());
+                writeItem(c.getAddedItem());
+            } else if (change instanceof PosDraft.AddHandyCategoryChange c) {
+                writeVarInt(ADD_HANDY_CATEGORY);
+                writeSInt(c.getCategoryIndex());
+                writeItemCategory(c.getCategory());
+            } else if (change instanceof PosDraft.DeleteHandyCategoryChange c) {
+                writeVarInt(DELETE_HANDY_CATEGORY);
+                writeSInt(c.getCategoryIndex());
+                writeItemCategory(c.getCategory());
+            } else if (change instanceof PosDraft.ReorderHandyCategoriesChange c) {
+                writeVarInt(REORDER_HANDY_CATEGORIES);
+                writeSInt(c.getFromIndex());
+                writeSInt(c.getToIndex());
+            } else if (change instanceof PosDraft.SwapHandyCategoriesChange c) {
+                writeVarInt(SWAP_HANDY_CATEGORIES);
+                writeString(c.getFromCategoryCode());
+                writeString(c.getToCategoryCode());
+            } else if (change instanceof PosDraft.SnapshotReplaceChange c) {
+                writeVarInt(SNAPSHOT_REPLACE);
+                writeConfig(c.getBeforeConfig());
+                writeConfig(c.getAfterConfig());
+            } else if (change instanceof PosDraft.ConfigDiffChange c) {
+                writeVarInt(CONFIG_DIFF);
+                writeBoolean(c.getBeforeCategories() != null);
+                if (c.getBeforeCategories() != null) {
+                    writeCategories(c.getBeforeCategories());
+                    writeCategories(c.getAfterCategories());
+                }
+                writePageDiff(c.getBeforePages());
+                writePageDiff(c.getAfterPages());
+            } else if (change instanceof PosDraft.CompositeChange c) {
+                writeVarInt(COMPOSITE);
+                writeVarInt(c.getChanges().size());
+                for (PosDraft.Change part : c.getChanges()) {
+                    writeChange(part);
+                }
+            } else {
+                throw new IllegalArgumentException("unsupported change type: " + change.getClass().getName());
+            }
+        }
+    }
+
+    // ---- reading ----
+
+    private static final class Decoder {
+        private final String[] dictionary;
+        private final byte[] body;
+        private final List<PosConfig> configs = new ArrayList<>();
+        private final List<PosConfig.Page> pages = new ArrayList<>();
+        private int pos;
+
+        private Decoder(String[] dictionary, byte[] body) {
+            this.dictionary = dictionary;
+            this.body = body;
+        }
+
+        static Decoder readFrom(DataInputStream in) throws IOException {
+            int count = DraftBinaryCodec.readVarInt(in);
+            String[] dictionary = new String[count];
+            for (int i = 0; i < count; i++) {
+                dictionary[i] = new String(readExactly(in, DraftBinaryCodec.readVarInt(in)), StandardCharsets.UTF_8);
+            }
+            return new Decoder(dictionary, readExactly(in, DraftBinaryCodec.readVarInt(in)));
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (pos >= body.length) {
+                    throw new EOFException("draft body truncated");
+                }
+                int b = body[pos++] & 0xFF;
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("malformed varint");
+        }
+
+        int readSInt() throws IOException {
+            int raw = readVarInt();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        boolean readBoolean() throws IOException {
+            if (pos >= body.length) {
+                throw new EOFException("draft body truncated");
+            }
+            return body[pos++] != 0;
+        }
+
+        String readString() throws IOException {
+            int id = readVarInt();
+            if (id == 0) {
+                return null;
+            }
+            if (id > dictionary.length) {
+                throw new IOException("string id out of range: " + id);
+            }
+            return dictionary[id - 1];
+        }
+
+        private <T> T readRef(List<T> seen) throws IOException {
+            int ref = readVarInt();
+            if (ref == 0) {
+                return null;
+            }
+            if (ref > seen.size()) {
+                throw new IOException("object reference out of range: " + ref);
+            }
+            return seen.get(ref - 1);
+        }
+
+        PosConfig readConfig() throws IOException {
+            PosConfig shared = readRef(configs);
+            if (shared != null) {
+                return shared;
+            }
+            int slot = configs.size();
+            configs.add(null);
+            int categoryCount = readVarInt();
+            List<PosConfig.Category> categories = new ArrayList<>(categoryCount);
+            for (int i = 0; i < categoryCount; i++) {
+                categories.add(readCategory());
+            }
+            int pageCount = readVarInt();
+            Map<Integer, PosConfig.Page> pagesByNumber = new LinkedHashMap<>();
+            for (int i = 0; i < pageCount; i++) {
+                int pageNumber = readSInt();
+                pagesByNumber.put(pageNumber, readPage());
+            }
+            PosConfig config = new PosConfig(List.copyOf(categories), Collections.unmodifiableMap(pagesByNumber));
+            configs.set(slot, config);
+            return config;
+        }
+
+        PosConfig.Category readCategory() throws IOException {
+            return new PosConfig.Category(readSInt(), readSInt(), readSInt(), readString(), readSInt());
+        }
+
+        PosConfig.Page readPage() throws IOException {
+            PosConfig.Page shared = readRef(pages);
+            if (shared != null) {
+                return shared;
+            }
+            int pageNumber = readSInt();
+            int cols = readSInt();
+            int rows = readSInt();
+            int buttonCount = readVarInt();
+            List<PosConfig.Button> buttons = new ArrayList<>(buttonCount);
+            for (int i = 0; i < buttonCount; i++) {
+                buttons.add(readButton());
+            }
+            PosConfig.Page page = new PosConfig.Page(pageNumber, cols, rows, List.copyOf(buttons));
+            pages.add(page);
+            return page;
+        }
+
+        PosConfig.Button readButton() throws IOException {
+            return new PosConfig.Button(
+                    readSInt(),
+                    readSInt(),
+                    readString(),
+                    readSInt(),
+                    readString(),
+                    readString(),
+                    readString()
+            );
+        }
+
+        ItemCatalog readNullableItemCatalog() throws IOException {
+            if (!readBoolean()) {
+                return null;
+            }
+            int count = readVarInt();
+            List<ItemCatalog.Category> categories = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                categories.add(readItemCategory());
+            }
+            return new ItemCatalog(categories);
+        }
+
+        ItemCatalog.Category readItemCategory() throws IOException {
+            String code = readString();
+            String description = readString();
+            int count = readVarInt();
+            List<ItemCatalog.Item> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(readItem());
+            }
+            return new ItemCatalog.Category(code, description, items);
+        }
+
+        ItemCatalog.Item readItem() throws IOException {
+            return new ItemCatalog.Item(readString(), readString(), readString());
+        }
+
+        ItemMasterCatalog readNullableItemMasterCatalog() throws IOException {
+            if (!readBoolean()) {
+                return null;
+            }
+            int count = readVarInt();
+            List<ItemMasterCatalog.Item> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(readItemMasterItem());
+            }
+            return new ItemMasterCatalog(items);
+        }
+
+        ItemMasterCatalog.Item readItemMasterItem() throws IOException {
+            return new ItemMasterCatalog.Item(readString(), readString(), readString(), readString(), readString());
+        }
+
+        WorkbookLayout readNullableLayout() throws IOException {
+            if (!readBoolean()) {
+                return null;
+            }
+            int sheetCount = readVarInt();
+            Map<String, WorkbookLayout.SheetHeader> sheets = new LinkedHashMap<>();
+            for (int i = 0; i < sheetCount; i++) {
+                String sheetName = readString();
+                int headerRow = readVarInt();
+                int columnCount = readVarInt();
+                Map<String, Integer> columns = new LinkedHashMap<>();
+                for (int c = 0; c < columnCount; c++) {
+                    String name = readString();
+                    columns.put(name, readVarInt());
+                }
+                sheets.put(sheetName, new WorkbookLayout.SheetHeader(headerRow, columns));
+            }
+            return new WorkbookLayout(sheets);
+        }
+
+        PosDraft.HistoryEntry readHistoryEntry() throws IOException {
+            return new PosDraft.HistoryEntry(readString(), readString());
+        }
+
+        PosDraft.ChangeRecord readChangeRecord() throws IOException {
+            PosDraft.HistoryEntry entry = readHistoryEntry();
+            return PosDraft.ChangeRecord.restore(readChange(), entry);
+        }
+
+        PosDraft.Change readChange() throws IOException {
+            int tag = readVarInt();
+            return switch (tag) {
+                case SWAP_BUTTONS -> new PosDraft.SwapButtonsChange(
+                        readSInt(),
+                        readSInt(),
+                        readSInt(),
+                        readSInt(),
+                        readSInt()
+                );
+                case ADD_BUTTON -> new PosDraft.AddButtonChange(readSInt(), readButton());
+                case DELETE_BUTTON -> new PosDraft.DeleteButtonChange(readSInt(), readButton());
+                case UPDATE_UNIT_PRICE -> new PosDraft.UpdateUnitPriceChange(
+                        readSInt(),
+                        readString(),
+                        readString(),
+                        readString()
+                );
+                case UPDATE_ITEM_MASTER_ITEM -> new PosDraft.UpdateItemMasterItemChange(
+                        readItemMasterItem(),
+                        readItemMasterItem()
+                );
+                case ADD_CATEGORY -> new PosDraft.AddCategoryChange(readCategory());
+                case DELETE_CATEGORY -> new PosDraft.DeleteCategoryChange(readCategory(), readPage());
+                case UPDATE_CATEGORY_GRID -> new PosDraft.UpdateCategoryGridChange(
+                        readSInt(),
+                        readSInt(),
+                        readSInt(),
+                        readSInt(),
+                        readSInt()
+                );
+                case SWAP_CATEGORIES -> new PosDraft.SwapCategoriesChange(readSInt(), readSInt());
+                case REORDER_HANDY_ITEMS -> new PosDraft.ReorderHandyItemsChange(readString(), readSInt(), readSInt());
+                case DELETE_HANDY_ITEM -> new PosDraft.DeleteHandyItemChange(readString(), readSInt(), readItem());
+                case ADD_HANDY_ITEM -> new PosDraft.AddHandyItemChange(readString(), readSInt(), readItem());
+                case ADD_HANDY_CATEGORY -> new PosDraft.AddHandyCategoryChange(readSInt(), readItemCategory());
+                case DELETE_HANDY_CATEGORY -> new PosDraft.DeleteHandyCategoryChange(readSInt(), readItemCategory());
+                case REORDER_HANDY_CATEGORIES -> new PosDraft.ReorderHandyCategoriesChange(readSInt(), readSInt());
+                case SWAP_HANDY_CATEGORIES -> new PosDraft.SwapHandyCategoriesChange(readString(), readString());
+                case SNAPSHOT_REPLACE -> new PosDraft.SnapshotReplaceChange(readConfig(), readConfig());
+                case COMPOSITE -> readCompositeChange();
+                case CONFIG_DIFF -> readConfigDiffChange();
+                default -> throw new IOException("unknown change tag: " + tag);
+            };
+        }
+
+        private PosDraft.Change readConfigDiffChange() throws IOException {
+            List<PosConfig.Category> beforeCategories = null;
+            List<PosConfig.Category> afterCategories = null;
+            if (readBoolean()) {
+                beforeCategories = readCategories();
+                afterCategories = readCategories();
+            }
+            Map<Integer, PosConfig.Page> beforePages = readPageDiff();
+            return new PosDraft.ConfigDiffChange(beforeCategories, afterCategories, beforePages, readPageDiff());
+        }
+
+        private List<PosConfig.Category> readCategories() throws IOException {
+            int count = readVarInt();
+            List<PosConfig.Category> categories = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                categories.add(readCategory());
+            }
+            return List.copyOf(categories);
+        }
+
+        private Map<Integer, PosConfig.Page> readPageDiff() throws IOException {
+            int count = readVarInt();
+            Map<Integer, PosConfig.Page> pagesByNumber = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                int pageNumber = readSInt();
+                pagesByNumber.put(pageNumber, readPage());
+            }
+            return pagesByNumber;
+        }
+
+        private PosDraft.Change readCompositeChange() throws IOException {
+            int count = readVarInt();
+            List<PosDraft.Change> changes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                changes.add(readChange());
+            }
+            return new PosDraft.CompositeChange(changes);
+        }
+    }
+
+    // ---- varint helpers ----
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private static byte[] readExactly(DataInputStream in, int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("negative length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
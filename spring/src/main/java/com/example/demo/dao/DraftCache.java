@@ -0,0 +1,81 @@
+package com.example.demo.dao;
+
+import com.example.demo.model.PosDraft;
+import com.example.demo.service.port.DraftCacheMetrics;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory drafts bounded by estimated retained bytes ({@link DraftSizeEstimator}), evicting the least
+ * recently used draft first. Evicted drafts stay on disk and are reloaded by the repository on the next lookup.
+ * The most recently stored draft is kept even if it alone exceeds the budget.
+ */
+final class DraftCache {
+    private final long maxBytes;
+    // アクセス順。先頭が最も古い
+    private final LinkedHashMap<String, Weighted> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private record Weighted(PosDraft draft, long bytes) {
+    }
+
+    DraftCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    synchronized PosDraft get(String draftId) {
+        Weighted entry = entries.get(draftId);
+        if (entry == null) {
+            misses += 1;
+            return null;
+        }
+        hits += 1;
+        return entry.draft();
+    }
+
+    // ヒット・ミスに数えない参照（保存時の差分元など）
+    synchronized PosDraft peek(String draftId) {
+        Weighted entry = entries.get(draftId);
+        return entry == null ? null : entry.draft();
+    }
+
+    synchronized boolean contains(String draftId) {
+        return entries.containsKey(draftId);
+    }
+
+    /**
+     * Stores {@code draft} and returns the draft previously cached under the same id, or {@code null}.
+     */
+    PosDraft put(PosDraft draft) {
+        // 見積もりはロックの外で
+        long bytes = DraftSizeEstimator.estimate(draft);
+        synchronized (this) {
+            Weighted previous = entries.put(draft.getDraftId(), new Weighted(draft, bytes));
+            residentBytes += bytes;
+            if (previous != null) {
+                residentBytes -= previous.bytes();
+            }
+            evictOverBudget();
+            return previous == null ? null : previous.draft();
+        }
+    }
+
+    synchronized DraftCacheMetrics.Stats stats() {
+        return new DraftCacheMetrics.Stats(hits, misses, evictions, entries.size(), residentBytes, maxBytes);
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, Weighted>> eldest = entries.entrySet().iterator();
+        while (residentBytes > maxBytes && entries.size() > 1) {
+            Weighted evicted = eldest.next().getValue();
+            eldest.remove();
+            residentBytes -= evicted.bytes();
+            evictions += 1;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo.dao;
+
+import com.example.demo.model.PosDraft;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.UnaryOperator;
+
+/**
+ * Single writer per draft. Updates are queued in the mailbox of the draft's lock stripe; whichever caller gets
+ * the stripe lock applies every queued update in order to the latest version of its draft and persists each
+ * changed draft with one save (flat combining), then hands every caller the draft its own update produced.
+ * <p>
+ * Updates of the same draft never interleave, so none is lost, and a burst of edits on one draft costs one
+ * write. Drafts on different stripes are updated fully in parallel; there is no global lock.
+ */
+final class DraftCommandExecutor {
+    // 1回の取り出しで処理する上限。負荷が続いても取り出した呼び出し元だけが延々と処理し続けないようにする
+    static final int MAX_BATCH = 64;
+
+    interface Store {
+        // 無ければ null
+        PosDraft load(String draftId);
+
+        void save(PosDraft draft);
+    }
+
+    private final Store store;
+    private final Stripe[] stripes;
+
+    DraftCommandExecutor(Store store, int stripeCount) {
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("stripe count must be a power of two: " + stripeCount);
+        }
+        this.store = store;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Applies {@code mutation} to the latest version of the draft and saves the result. Returns empty when the
+     * draft does not exist. An exception thrown by the mutation is rethrown here and nothing is saved for it;
+     * the other updates in the same batch are not affected.
+     */
+    Optional<PosDraft> submit(String draftId, UnaryOperator<PosDraft> mutation) {
+        Stripe stripe = stripeFor(draftId);
+        Command command = new Command(draftId, mutation);
+        stripe.mailbox.add(command);
+        synchronized (stripe) {
+            // 前の取り出し役が既に処理していれば待つだけで済む
+            while (!command.done) {
+                drain(stripe);
+            }
+        }
+        return command.result();
+    }
+
+    /**
+     * The lock of the stripe {@code draftId} belongs to. Other writes of the draft (plain saves, compare-and-set)
+     * hold it so they do not interleave with a batch.
+     */
+    Object lockFor(String draftId) {
+        return stripeFor(draftId);
+    }
+
+    // テスト用：取り出し待ちの件数
+    int queuedCount(String draftId) {
+        return stripeFor(draftId).mailbox.size();
+    }
+
+    // stripe のロックを持って呼ぶ
+    private void drain(Stripe stripe) {
+        Map<String, List<Command>> byDraft = new LinkedHashMap<>();
+        Command next;
+        int taken = 0;
+        while (taken < MAX_BATCH && (next = stripe.mailbox.poll()) != null) {
+            byDraft.computeIfAbsent(next.draftId, key -> new ArrayList<>()).add(next);
+            taken++;
+        }
+        for (Map.Entry<String, List<Command>> entry : byDraft.entrySet()) {
+            applyBatch(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void applyBatch(String draftId, List<Command> commands) {
+        PosDraft current;
+        try {
+            current = store.load(draftId);
+        } catch (RuntimeException | Error ex) {
+            commands.forEach(command -> command.fail(ex));
+            return;
+        }
+        if (current == null) {
+            commands.forEach(command -> command.complete(null));
+            return;
+        }
+
+        PosDraft loaded = current;
+        List<Command> applied = new ArrayList<>(commands.size());
+        for (Command command : commands) {
+            try {
+                current = command.mutation.apply(current);
+                command.produced = current;
+                applied.add(command);
+            } catch (RuntimeException | Error ex) {
+                command.fail(ex);
+            }
+        }
+        if (applied.isEmpty()) {
+            return;
+        }
+        if (current != loaded) {
+            try {
+                store.save(current);
+            } catch (RuntimeException | Error ex) {
+                applied.forEach(command -> command.fail(ex));
+                return;
+            }
+        }
+        applied.forEach(command -> command.complete(command.produced));
+    }
+
+    private Stripe stripeFor(String draftId) {
+        int hash = draftId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static final class Stripe {
+        private final Queue<Command> mailbox = new ConcurrentLinkedQueue<>();
+    }
+
+    // 結果はストライプのロックの中で書き、同じロックの中で読む
+    private static final class Command {
+        private final String draftId;
+        private final UnaryOperator<PosDraft> mutation;
+        private PosDraft produced;
+        private PosDraft result;
+        // 取り出し役のスレッドで起きた例外を、呼び出し元のスレッドで投げ直す
+        private Throwable failure;
+        private boolean done;
+
+        private Command(String draftId, UnaryOperator<PosDraft> mutation) {
+            this.draftId = draftId;
+            this.mutation = mutation;
+        }
+
+        private void complete(PosDraft draft) {
+            result = draft;
+            done = true;
+        }
+
+        private void fail(Throwable ex) {
+            failure = ex;
+            done = true;
+        }
+
+        private Optional<PosDraft> result() {
+            if (failure instanceof RuntimeException ex) {
+                throw ex;
+            }
+            if (failure instanceof Error error) {
+                throw error;
+            }
+            return Optional.ofNullable(result);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.demo.dao;
+
+import com.example.demo.model.PosDraft;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the edits made after a draft snapshot was written.
+ * <p>
+ * File layout: {@code MAGIC, snapshotToken} followed by frames of {@code length, crc32, payload}, where the
+ * payload is one {@link Entry} (a change record in {@link DraftBinaryCodec} format, a history index, or the
+ * draft version reached by the preceding entries).
+ * The token ties the journal to the snapshot it extends, so a journal left behind by an interrupted
+ * compaction is never replayed onto the newer snapshot.
+ * A torn last frame (crash during append) is ignored on replay.
+ */
+final class DraftJournal {
+    private static final Logger log = LoggerFactory.getLogger(DraftJournal.class);
+    private static final int MAGIC = 0x464A5232; // "FJR2"
+    private static final int TAG_APPEND_CHANGE = 1;
+    private static final int TAG_MOVE_HISTORY = 2;
+    private static final int TAG_SET_VERSION = 3;
+
+    private DraftJournal() {
+    }
+
+    sealed interface Entry permits AppendChange, MoveHistory, SetVersion {
+        PosDraft replay(PosDraft draft);
+    }
+
+    // 新しい変更を1件追加（applyChange）
+    record AppendChange(PosDraft.ChangeRecord changeRecord) implements Entry {
+        @Override
+        public PosDraft replay(PosDraft draft) {
+            return draft.applyChangeRecord(changeRecord);
+        }
+    }
+
+    // undo / redo / 履歴ジャンプ
+    record MoveHistory(int historyIndex) implements Entry {
+        @Override
+        public PosDraft replay(PosDraft draft) {
+            return draft.jumpToHistoryIndex(historyIndex);
+        }
+    }
+
+    // 再生で数えた版と保存時の版を揃える（ジャンプや複数回の編集をまとめて書いた場合）
+    record SetVersion(long version) implements Entry {
+        @Override
+        public PosDraft replay(PosDraft draft) {
+            return draft.withVersion(version);
+        }
+    }
+
+    record Replayed(PosDraft draft, int entryCount) {
+    }
+
+    /**
+     * Describes {@code next} as journal entries on top of {@code previous}: optionally a move back to where the
+     * histories diverge, the change records added since, and a final history move. Several edits made between
+     * two saves (write-behind) become several entries. Returns an empty list when nothing changed, and
+     * {@code null} when a full snapshot is needed (first save, cleared history, catalogs loaded from the
+     * workbook, ...).
+     */
+    static List<Entry> diff(PosDraft previous, PosDraft next) {
+        if (previous == null) {
+            return null;
+        }
+        if (previous == next) {
+            return List.of();
+        }
+        if (!sameBase(previous, next)) {
+            return null;
+        }
+
+        List<PosDraft.ChangeRecord> before = previous.getChangeRecords();
+        List<PosDraft.ChangeRecord> after = next.getChangeRecords();
+        if (sameRecords(before, after)) {
+            List<Entry> entries = new ArrayList<>();
+            if (previous.getHistoryIndex() != next.getHistoryIndex()) {
+                entries.add(new MoveHistory(next.getHistoryIndex()));
+            }
+            PosDraft replayed = entries.isEmpty() ? previous : entries.get(0).replay(previous);
+            return withVersion(replayed, entries, next);
+        }
+
+        // 履歴上限で先頭が切り詰められていても、after の先頭が before のどこにあるかで分岐点を求める
+        int offset = after.isEmpty() ? -1 : indexOfSame(before, after.get(0));
+        if (offset < 0) {
+            offset = 0;
+        }
+        int common = 0;
+        while (offset + common < before.size()
+                && common < after.size()
+                && before.get(offset + common) == after.get(common)) {
+            common++;
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        if (previous.getHistoryIndex() != offset + common) {
+            entries.add(new MoveHistory(offset + common));
+        }
+        for (int i = common; i < after.size(); i++) {
+            entries.add(new AppendChange(after.get(i)));
+        }
+        if (next.getHistoryIndex() != after.size()) {
+            entries.add(new MoveHistory(next.getHistoryIndex()));
+        }
+
+        // 切り詰めも含めて同じ履歴になるかを、履歴リストだけ再生して確かめる
+        PosDraft replayed = previous;
+        for (Entry entry : entries) {
+            replayed = entry.replay(replayed);
+        }
+        if (!sameRecords(replayed.getChangeRecords(), after) || replayed.getHistoryIndex() != next.getHistoryIndex()) {
+            return null;
+        }
+        return withVersion(replayed, entries, next);
+    }
+
+    private static List<Entry> withVersion(PosDraft replayed, List<Entry> entries, PosDraft next) {
+        if (replayed.getVersion() != next.getVersion()) {
+            entries.add(new SetVersion(next.getVersion()));
+        }
+        return entries;
+    }
+
+    /**
+     * Appends {@code entries} in one write. With {@code fsync}, the journal is forced to disk before returning.
+     * A failed write is truncated away so that frames appended later are still replayed.
+     */
+    static void append(Path journal, long snapshotToken, List<Entry> entries, boolean fsync) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        boolean fresh = !Files.exists(journal);
+        if (fresh) {
+            out.writeInt(MAGIC);
+            out.writeLong(snapshotToken);
+        }
+        for (Entry entry : entries) {
+            byte[] payload = serialize(entry);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+        }
+        out.flush();
+
+        try (FileChannel channel = FileChannel.open(
+                journal,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND
+        )) {
+            long size = channel.size();
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+            } catch (IOException ex) {
+                try {
+                    channel.truncate(size);
+                } catch (IOException truncateEx) {
+                    ex.addSuppressed(truncateEx);
+                }
+                throw ex;
+            }
+        } catch (IOException ex) {
+            // ヘッダーごと書けなかった新しいジャーナルは残さない
+            if (fresh) {
+                try {
+                    Files.deleteIfExists(journal);
+                } catch (IOException deleteEx) {
+                    ex.addSuppressed(deleteEx);
+                }
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Replays the journal onto {@code snapshot}. A missing journal, or one written for a different snapshot,
+     * replays nothing.
+     */
+    static Replayed replay(Path journal, long snapshotToken, PosDraft snapshot) throws IOException {
+        if (!Files.exists(journal)) {
+            return new Replayed(snapshot, 0);
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(journal))) {
+            int magic = in.readInt();
+            if (magic != MAGIC) {
+                log.warn("Ignore journal with unknown format: {}", journal);
+                return new Replayed(snapshot, 0);
+            }
+            if (in.readLong() != snapshotToken) {
+                log.warn("Ignore stale journal: {}", journal);
+                return new Replayed(snapshot, 0);
+            }
+
+            PosDraft draft = snapshot;
+            int count = 0;
+            while (true) {
+                Entry entry = readEntry(in, journal);
+                if (entry == null) {
+                    return new Replayed(draft, count);
+                }
+                draft = entry.replay(draft);
+                count++;
+            }
+        } catch (EOFException ex) {
+            log.warn("Ignore truncated journal header: {}", journal);
+            return new Replayed(snapshot, 0);
+        }
+    }
+
+    private static Entry readEntry(DataInputStream in, Path journal) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException ex) {
+            return null;
+        }
+        try {
+            int expectedCrc = in.readInt();
+            if (length < 0) {
+                throw new EOFException();
+            }
+            byte[] payload = in.readNBytes(length);
+            if (payload.length != length) {
+                throw new EOFException();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != expectedCrc) {
+                log.warn("Stop replay at corrupted journal frame: {}", journal);
+                return null;
+            }
+            return deserialize(payload);
+        } catch (EOFException ex) {
+            log.warn("Stop replay at truncated journal frame: {}", journal);
+            return null;
+        }
+    }
+
+    private static byte[] serialize(Entry entry) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        if (entry instanceof AppendChange append) {
+            out.writeByte(TAG_APPEND_CHANGE);
+            out.write(DraftBinaryCodec.encodeChangeRecord(append.changeRecord()));
+        } else if (entry instanceof MoveHistory move) {
+            out.writeByte(TAG_MOVE_HISTORY);
+            out.writeInt(move.historyIndex());
+        } else if (entry instanceof SetVersion setVersion) {
+            out.writeByte(TAG_SET_VERSION);
+            out.writeLong(setVersion.version());
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private static Entry deserialize(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int tag = in.readUnsignedByte();
+        return switch (tag) {
+            case TAG_APPEND_CHANGE -> new AppendChange(DraftBinaryCodec.decodeChangeRecord(in));
+            case TAG_MOVE_HISTORY -> new MoveHistory(in.readInt());
+            case TAG_SET_VERSION -> new SetVersion(in.readLong());
+            default -> throw new IOException("unknown journal entry tag: " + tag);
+        };
+    }
+
+    private static boolean sameBase(PosDraft previous, PosDraft next) {
+        return previous.getDraftId().equals(next.getDraftId())
+                && previous.getOriginalWorkbook() == next.getOriginalWorkbook()
+                && previous.getWorkbookLayoutOrNull() == next.getWorkbookLayoutOrNull()
+                && sameInitialEntry(previous, next)
+                && (previous.getItemCatalogOrNull() == null) == (next.getItemCatalogOrNull() == null)
+                && (previous.getHandyCatalogOrNull() == null) == (next.getHandyCatalogOrNull() == null)
+                && (previous.getItemMasterCatalogOrNull() == null) == (next.getItemMasterCatalogOrNull() == null);
+    }
+
+    // 最初の履歴だけを見る（履歴一覧は作らない）
+    private static boolean sameInitialEntry(PosDraft previous, PosDraft next) {
+        PosDraft.HistoryEntry left = previous.getHistoryEntry(0);
+        PosDraft.HistoryEntry right = next.getHistoryEntry(0);
+        return Objects.equals(left.getAction(), right.getAction())
+                && Objects.equals(left.getTimestamp(), right.getTimestamp());
+    }
+
+    private static int indexOfSame(List<PosDraft.ChangeRecord> records, PosDraft.ChangeRecord target) {
+        for (int i = 0; i < records.size(); i++) {
+            if (records.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean sameRecords(List<PosDraft.ChangeRecord> left, List<PosDraft.ChangeRecord> right) {
+        if (left.size() != right.size()) {
+            return false;
+        }
+        for (int i = 0; i < left.size(); i++) {
+            if (left.get(i) != right.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.demo.dao;
+
+import com.example.demo.model.ItemCatalog;
+import com.example.demo.model.ItemMasterCatalog;
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.PosDraft;
+import com.example.demo.model.WorkbookLayout;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rough estimate of the heap retained by one draft, used to weigh entries in {@link DraftCache}.
+ * <p>
+ * Object sizes assume a 64-bit JVM with compressed oops; strings are counted as two bytes per char.
+ * Configs and pages shared between the current state and the undo history are counted once, as in memory.
+ * The estimate only needs to be proportional to the real footprint, not exact.
+ */
+final class DraftSizeEstimator {
+    private static final long OBJECT = 16;
+    private static final long REFERENCE = 4;
+    private static final long STRING = 40;
+    private static final long MAP_ENTRY = 48;
+    private static final long ARRAY = 16;
+
+    private final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long bytes;
+
+    private DraftSizeEstimator() {
+    }
+
+    static long estimate(PosDraft draft) {
+        DraftSizeEstimator estimator = new DraftSizeEstimator();
+        estimator.draft(draft);
+        return estimator.bytes;
+    }
+
+    private void draft(PosDraft draft) {
+        bytes += OBJECT + 12 * REFERENCE;
+        // マップしたブロブはヒープ外で、ドラフト間でも共有されるので数えない
+        if (!draft.getOriginalWorkbook().isMapped()) {
+            bytes += ARRAY + draft.getOriginalWorkbook().size();
+        }
+        string(draft.getDraftId());
+        config(draft.getConfig());
+        itemCatalog(draft.getItemCatalogOrNull());
+        itemCatalog(draft.getHandyCatalogOrNull());
+        itemMasterCatalog(draft.getItemMasterCatalogOrNull());
+        layout(draft.getWorkbookLayoutOrNull());
+        for (PosDraft.HistoryEntry entry : draft.getHistoryEntries()) {
+            bytes += OBJECT + 2 * REFERENCE;
+            string(entry.getAction());
+            string(entry.getTimestamp());
+        }
+        for (PosDraft.ChangeRecord changeRecord : draft.getChangeRecords()) {
+            bytes += OBJECT + 2 * REFERENCE;
+            change(changeRecord.getChange());
+        }
+    }
+
+    private void change(PosDraft.Change change) {
+        bytes += OBJECT + 6 * REFERENCE;
+        if (change instanceof PosDraft.SnapshotReplaceChange c) {
+            config(c.getBeforeConfig());
+            config(c.getAfterConfig());
+        } else if (change instanceof PosDraft.ConfigDiffChange c) {
+            categories(c.getBeforeCategories());
+            categories(c.getAfterCategories());
+            pageDiff(c.getBeforePages());
+            pageDiff(c.getAfterPages());
+        } else if (change instanceof PosDraft.AddButtonChange c) {
+            button(c.getButton());
+        } else if (change instanceof PosDraft.DeleteButtonChange c) {
+            button(c.getButton());
+        } else if (change instanceof PosDraft.UpdateUnitPriceChange c) {
+            string(c.getButtonId());
+            string(c.getBeforeUnitPrice());
+            string(c.getAfterUnitPrice());
+        } else if (change instanceof PosDraft.UpdateItemMasterItemChange c) {
+            itemMasterItem(c.getBeforeItem());
+            itemMasterItem(c.getAfterItem());
+        } else if (change instanceof PosDraft.AddCategoryChange c) {
+            category(c.getCategory());
+        } else if (change instanceof PosDraft.DeleteCategoryChange c) {
+            category(c.getCategory());
+            page(c.getPage());
+        } else if (change instanceof PosDraft.DeleteHandyItemChange c) {
+            item(c.getDeletedItem());
+        } else if (change instanceof PosDraft.AddHandyItemChange c) {
+            item(c.getAddedItem());
+        } else if (change instanceof PosDraft.AddHandyCategoryChange c) {
+            itemCategory(c.getCategory());
+        } else if (change instanceof PosDraft.DeleteHandyCategoryChange c) {
+            itemCategory(c.getCategory());
+        } else if (change instanceof PosDraft.CompositeChange c) {
+            bytes += ARRAY + c.getChanges().size() * REFERENCE;
+            for (PosDraft.Change part : c.getChanges()) {
+                change(part);
+            }
+        }
+    }
+
+    private void config(PosConfig config) {
+        if (config == null || !seen.add(config)) {
+            return;
+        }
+        bytes += OBJECT + 2 * REFERENCE;
+        bytes += ARRAY + config.getCategories().size() * REFERENCE;
+        for (PosConfig.Category category : config.getCategories()) {
+            category(category);
+        }
+        bytes += ARRAY + config.getPagesByPageNumber().size() * MAP_ENTRY;
+        for (PosConfig.Page page : config.getPagesByPageNumber().values()) {
+            page(page);
+        }
+    }
+
+    private void categories(List<PosConfig.Category> categories) {
+        if (categories == null) {
+            return;
+        }
+        bytes += ARRAY + categories.size() * REFERENCE;
+        for (PosConfig.Category category : categories) {
+            category(category);
+        }
+    }
+
+    private void pageDiff(Map<Integer, PosConfig.Page> pagesByNumber) {
+        bytes += ARRAY + pagesByNumber.size() * MAP_ENTRY;
+        for (PosConfig.Page page : pagesByNumber.values()) {
+            page(page);
+        }
+    }
+
+    private void category(PosConfig.Category category) {
+        if (!seen.add(category)) {
+            return;
+        }
+        bytes += OBJECT + 5 * REFERENCE;
+        string(category.getName());
+    }
+
+    private void page(PosConfig.Page page) {
+        if (page == null || !seen.add(page)) {
+            return;
+        }
+        bytes += OBJECT + 4 * REFERENCE;
+        bytes += ARRAY + page.getButtons().size() * REFERENCE;
+        for (PosConfig.Button button : page.getButtons()) {
+            button(button);
+        }
+    }
+
+    private void button(PosConfig.Button button) {
+        if (!seen.add(button)) {
+            return;
+        }
+        bytes += OBJECT + 7 * REFERENCE;
+        string(button.getLabel());
+        string(button.getItemCode());
+        string(button.getUnitPrice());
+        string(button.getButtonId());
+    }
+
+    private void itemCatalog(ItemCatalog catalog) {
+        if (catalog == null || !seen.add(catalog)) {
+            return;
+        }
+        bytes += OBJECT + REFERENCE + ARRAY + catalog.getCategories().size() * REFERENCE;
+        for (ItemCatalog.Category category : catalog.getCategories()) {
+            itemCategory(category);
+        }
+    }
+
+    private void itemCategory(ItemCatalog.Category category) {
+        if (!seen.add(category)) {
+            return;
+        }
+        bytes += OBJECT + 3 * REFERENCE + ARRAY + category.getItems().size() * REFERENCE;
+        string(category.getCode());
+        string(category.getDescription());
+        for (ItemCatalog.Item item : category.getItems()) {
+            item(item);
+        }
+    }
+
+    private void item(ItemCatalog.Item item) {
+        if (!seen.add(item)) {
+            return;
+        }
+        bytes += OBJECT + 3 * REFERENCE;
+        string(item.getItemCode());
+        string(item.getItemName());
+        string(item.getUnitPrice());
+    }
+
+    private void itemMasterCatalog(ItemMasterCatalog catalog) {
+        if (catalog == null || !seen.add(catalog)) {
+            return;
+        }
+        bytes += OBJECT + REFERENCE + ARRAY + catalog.getItems().size() * REFERENCE;
+        for (ItemMasterCatalog.Item item : catalog.getItems()) {
+            itemMasterItem(item);
+        }
+    }
+
+    private void itemMasterItem(ItemMasterCatalog.Item item) {
+        if (!seen.add(item)) {
+            return;
+        }
+        bytes += OBJECT + 5 * REFERENCE;
+        string(item.getItemCode());
+        string(item.getItemNamePrint());
+        string(item.getUnitPrice());
+        string(item.getCostPrice());
+        string(item.getBasePrice());
+    }
+
+    private void layout(WorkbookLayout layout) {
+        if (layout == null) {
+            return;
+        }
+        for (WorkbookLayout.SheetHeader header : layout.getSheets().values()) {
+            bytes += MAP_ENTRY + OBJECT + 2 * REFERENCE + header.getColumns().size() * MAP_ENTRY;
+        }
+    }
+
+    private void string(String value) {
+        if (value != null) {
+            bytes += STRING + 2L * value.length();
+        }
+    }
+}
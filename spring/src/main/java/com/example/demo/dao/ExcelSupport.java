@@ -1,6 +1,8 @@
 package com.example.demo.dao;
 
+import com.example.demo.model.WorkbookLayout;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Row;
@@ -10,6 +12,7 @@ import org.apache.poi.ss.usermodel.Workbook;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 
 final class ExcelSupport {
     private ExcelSupport() {
@@ -29,6 +32,8 @@ final class ExcelSupport {
     }
 
     static final class ExcelUtil {
+        private static final short GENERAL_FORMAT = 0;
+
         private final DataFormatter fmt = new DataFormatter(Locale.ROOT);
         private final FormulaEvaluator eval;
 
@@ -38,11 +43,39 @@ final class ExcelSupport {
 
         String str(Cell cell) {
             if (cell == null) return null;
+            CellType type = cell.getCellType();
+            if (type == CellType.FORMULA) {
+                // 評価結果は FormulaEvaluator 側にキャッシュされる
+                type = eval.evaluateFormulaCell(cell);
+            }
+            String plain = plainValue(cell, type);
+            if (plain != null) return plain.trim();
             return fmt.formatCellValue(cell, eval).trim();
         }
+
+        // DataFormatter と同じ結果になる単純なセルだけを直接読む。それ以外は null を返してフォーマッタに任せる
+        private static String plainValue(Cell cell, CellType type) {
+            switch (type) {
+                case STRING:
+                    return cell.getStringCellValue();
+                case BLANK:
+                    return "";
+                case NUMERIC:
+                    if (cell.getCellStyle().getDataFormat() != GENERAL_FORMAT) return null;
+                    double value = cell.getNumericCellValue();
+                    // General 書式は 1E10 以上を指数表記にするので、その手前までを整数として扱う
+                    if (value != Math.rint(value) || Math.abs(value) >= 1e10) return null;
+                    if (value == 0 && Double.doubleToRawLongBits(value) != 0) return null;
+                    return Long.toString((long) value);
+                default:
+                    return null;
+            }
+        }
     }
 
     static final class HeaderMap {
+        static final int HEADER_SCAN_LAST_ROW = 20;
+
         final Map<String, Integer> col;
         final int dataStartRow;
 
@@ -61,36 +94,56 @@ final class ExcelSupport {
             return col.get(name);
         }
 
+        WorkbookLayout.SheetHeader toSheetHeader() {
+            return new WorkbookLayout.SheetHeader(dataStartRow - 1, col);
+        }
+
+        static HeaderMap of(WorkbookLayout.SheetHeader sheetHeader) {
+            return new HeaderMap(sheetHeader.getColumns(), sheetHeader.getHeaderRow() + 1);
+        }
+
         static HeaderMap from(Sheet sheet, ExcelUtil u, String... headerCandidates) {
             int headerRow = findHeaderRow(sheet, u, headerCandidates);
             Row hr = sheet.getRow(headerRow);
             if (hr == null) throw new IllegalArgumentException("Header row not found: " + sheet.getSheetName());
 
-            Map<String, Integer> map = new HashMap<>();
+            Map<Integer, String> cells = new TreeMap<>();
             for (int c = 0; c < hr.getLastCellNum(); c++) {
-                String h = u.str(hr.getCell(c));
+                cells.put(c, u.str(hr.getCell(c)));
+            }
+            return fromCells(cells, headerRow);
+        }
+
+        static HeaderMap fromCells(Map<Integer, String> headerCells, int headerRow) {
+            Map<String, Integer> map = new HashMap<>();
+            for (Map.Entry<Integer, String> cell : headerCells.entrySet()) {
+                String h = cell.getValue();
                 if (h == null) continue;
                 String key = h.trim();
-                if (!key.isEmpty()) map.put(key, c);
+                if (!key.isEmpty()) map.put(key, cell.getKey());
             }
             return new HeaderMap(map, headerRow + 1);
         }
 
+        static boolean isHeaderCell(String value, String... headerCandidates) {
+            if (value == null || headerCandidates == null) return false;
+            String t = value.trim();
+            for (String candidate : headerCandidates) {
+                if (candidate != null && !candidate.isBlank() && t.equals(candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         static int findHeaderRow(Sheet sheet, ExcelUtil u, String... headerCandidates) {
-            int max = Math.min(sheet.getLastRowNum(), 20);
+            int max = Math.min(sheet.getLastRowNum(), HEADER_SCAN_LAST_ROW);
             for (int r = 0; r <= max; r++) {
                 Row row = sheet.getRow(r);
                 if (row == null) continue;
                 for (int c = 0; c < row.getLastCellNum(); c++) {
-                    String v = u.str(row.getCell(c));
-                    if (v == null) continue;
-                    String t = v.trim();
-                    if (headerCandidates != null) {
-                        for (String candidate : headerCandidates) {
-                            if (candidate != null && !candidate.isBlank() && t.equals(candidate)) {
-                                return r;
-                            }
-                        }
+                    if (isHeaderCell(u.str(row.getCell(c)), headerCandidates)) {
+                        return r;
                     }
                 }
             }
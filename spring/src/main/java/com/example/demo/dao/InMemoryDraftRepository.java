@@ -1,14 +1,25 @@
 package com.example.demo.dao;
 
+import com.example.demo.model.HistoryPolicy;
 import com.example.demo.model.PosDraft;
+import com.example.demo.model.WorkbookContent;
+import com.example.demo.service.port.DraftCacheMetrics;
 import com.example.demo.service.port.DraftRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
@@ -16,40 +27,347 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.UnaryOperator;
 
 @Repository
-public class InMemoryDraftRepository implements DraftRepository {
+public class InMemoryDraftRepository implements DraftRepository, DraftCacheMetrics {
     private static final Logger log = LoggerFactory.getLogger(InMemoryDraftRepository.class);
+    private static final String DRAFT_EXT = "draft";
+    private static final String LEGACY_EXT = "ser";
+    private static final int LOCK_STRIPES = 64;
 
-    private final ConcurrentHashMap<String, PosDraft> store = new ConcurrentHashMap<>();
+    private final DraftCache cache;
+    // 保存済みドラフトの索引（ファイル名ベース）。起動時はこれだけを作り、中身は findById で初めて読む
+    private final ConcurrentHashMap<String, ManifestEntry> manifest = new ConcurrentHashMap<>();
+    // スナップショットごとのトークンと、その後ジャーナルに追記した件数（manifest と同じくファイル名ベース）
+    private final ConcurrentHashMap<String, Long> snapshotTokens = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> journalCounts = new ConcurrentHashMap<>();
+    // write-behind でまだファイルに書いていないドラフト。キーは draftId
+    private final ConcurrentHashMap<String, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    // ファイル操作（保存・読込・圧縮）はこのロックで直列化する。write-behind の save はこれを待たない
+    private final Object fileLock = new Object();
+    // ドラフトごとの単一ライター。同じドラフトへの更新・保存だけを直列化し、別ドラフト（別ストライプ）は待たない
+    private final DraftCommandExecutor executor = new DraftCommandExecutor(new DraftCommandExecutor.Store() {
+        @Override
+        public PosDraft load(String draftId) {
+            return findById(draftId).orElse(null);
+        }
+
+        @Override
+        public void save(PosDraft draft) {
+            saveLocked(shareWorkbook(draft));
+        }
+    }, LOCK_STRIPES);
+    // 取込元 Excel はドラフトファイルに埋め込まず、内容ハッシュごとに1つだけ保存して共有する
+    private final WorkbookBlobStore blobs;
+    // ファイル名ベースの draftId → スナップショットが参照しているブロブ
+    private final ConcurrentHashMap<String, String> blobHashes = new ConcurrentHashMap<>();
     private final Path storageDir;
+    private final boolean journalEnabled;
+    private final int compactEvery;
+    private final boolean fsync;
+    // チェックポイントは保存しないので、読み込んだドラフトにはここで付け直す
+    private final HistoryPolicy historyPolicy;
+    private final ScheduledExecutorService flusher;
 
+    @Autowired
     public InMemoryDraftRepository(
-            @Value("${draft.storage.dir:${java.io.tmpdir}/flippers-drafts}") String storageDirPath
+            @Value("${draft.storage.dir:${java.io.tmpdir}/flippers-drafts}") String storageDirPath,
+            @Value("${draft.storage.journal.enabled:true}") boolean journalEnabled,
+            @Value("${draft.storage.journal.compact-every:50}") int compactEvery,
+            @Value("${draft.storage.warmup-count:0}") int warmupCount,
+            @Value("${draft.cache.max-bytes:268435456}") long cacheMaxBytes,
+            @Value("${draft.storage.write-behind.enabled:false}") boolean writeBehind,
+            @Value("${draft.storage.write-behind.flush-interval-ms:500}") long flushIntervalMillis,
+            @Value("${draft.storage.fsync:false}") boolean fsync,
+            HistoryPolicy historyPolicy
     ) {
         this.storageDir = Paths.get(storageDirPath);
+        this.cache = new DraftCache(cacheMaxBytes);
+        this.journalEnabled = journalEnabled;
+        this.compactEvery = Math.max(1, compactEvery);
+        this.fsync = fsync;
+        this.historyPolicy = historyPolicy;
         initializeStorage();
-        loadExistingDrafts();
+        this.blobs = new WorkbookBlobStore(storageDir.resolve("blobs"), fsync);
+        indexExistingDrafts();
+        int collected = blobs.collectGarbage();
+        if (collected > 0) {
+            log.info("Deleted {} unreferenced workbook blobs", collected);
+        }
+        if (warmupCount > 0 && !manifest.isEmpty()) {
+            Thread warmup = new Thread(() -> warmUp(warmupCount), "draft-warmup");
+            warmup.setDaemon(true);
+            warmup.start();
+        }
+        if (writeBehind) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "draft-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = Math.max(1, flushIntervalMillis);
+            flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    // 同期書込み・fsync なし（テスト用）
+    InMemoryDraftRepository(
+            String storageDirPath,
+            boolean journalEnabled,
+            int compactEvery,
+            int warmupCount,
+            long cacheMaxBytes
+    ) {
+        this(storageDirPath, journalEnabled, compactEvery, warmupCount, cacheMaxBytes, false, 0, false);
     }
 
+    // 既定の履歴ポリシー（テスト用）
+    InMemoryDraftRepository(
+            String storageDirPath,
+            boolean journalEnabled,
+            int compactEvery,
+            int warmupCount,
+            long cacheMaxBytes,
+            boolean writeBehind,
+            long flushIntervalMillis,
+            boolean fsync
+    ) {
+        this(
+                storageDirPath,
+                journalEnabled,
+                compactEvery,
+                warmupCount,
+                cacheMaxBytes,
+                writeBehind,
+                flushIntervalMillis,
+                fsync,
+                HistoryPolicy.DEFAULT
+        );
+    }
+
+    // persisted: ファイルに書かれている版（未保存の新規ドラフトなら null）、latest: メモリ上の最新版
+    private record PendingWrite(PosDraft persisted, PosDraft latest) {
+    }
+
+    // draftId に対応するスナップショット（.draft、無ければ旧形式の .ser）と、ジャーナル込みのサイズ・最終更新
+    private record ManifestEntry(Path snapshot, long size, long lastModified) {
+        ManifestEntry appended(long bytes, long now) {
+            return new ManifestEntry(snapshot, size + bytes, Math.max(lastModified, now));
+        }
+    }
+
+    /**
+     * With the journal enabled, edits, undo, redo and history jumps on top of the last saved state are appended
+     * to the draft's journal; anything else, and every {@code compactEvery} journal entries, rewrites the snapshot.
+     * <p>
+     * In write-behind mode the draft only becomes visible in memory here. The flusher later writes the newest
+     * version of each changed draft, so several quick edits cost one journal append.
+     */
     @Override
     public void save(PosDraft draft) {
-        store.put(draft.getDraftId(), draft);
-        writeDraftFile(draft);
+        synchronized (lockFor(draft.getDraftId())) {
+            saveLocked(shareWorkbook(draft));
+        }
+    }
+
+    /**
+     * Saves {@code draft} only if the stored draft is still at {@code expectedVersion}. The check and the save
+     * are atomic with respect to other writes of the same draft; drafts on other lock stripes are not blocked.
+     */
+    @Override
+    public boolean save(PosDraft draft, long expectedVersion) {
+        synchronized (lockFor(draft.getDraftId())) {
+            PosDraft current = findById(draft.getDraftId()).orElse(null);
+            if (current == null || current.getVersion() != expectedVersion) {
+                return false;
+            }
+            saveLocked(shareWorkbook(draft));
+            return true;
+        }
+    }
+
+    /**
+     * Applies {@code mutation} to the latest version of the draft through the draft's single-writer mailbox.
+     * Updates queued for the same draft while another one is being written are applied together and saved
+     * once (one journal append).
+     */
+    @Override
+    public Optional<PosDraft> update(String draftId, UnaryOperator<PosDraft> mutation) {
+        return executor.submit(draftId, mutation);
+    }
+
+    private void saveLocked(PosDraft draft) {
+        if (flusher != null) {
+            synchronized (this) {
+                PosDraft previous = cache.put(draft);
+                pendingWrites.compute(
+                        draft.getDraftId(),
+                        (key, pending) -> new PendingWrite(pending == null ? previous : pending.persisted(), draft)
+                );
+            }
+            return;
+        }
+        synchronized (fileLock) {
+            // 書けてからキャッシュに入れる。失敗した版を次の保存の差分元にしない
+            persist(cache.peek(draft.getDraftId()), draft);
+            cache.put(draft);
+        }
+    }
+
+    private Object lockFor(String draftId) {
+        return executor.lockFor(draftId);
+    }
+
+    // 取込直後のヒープ上の Excel を、ブロブをマップした共有インスタンスに差し替える（初回保存時だけファイルを書く）
+    private PosDraft shareWorkbook(PosDraft draft) {
+        if (draft.getOriginalWorkbook().isMapped()) {
+            return draft;
+        }
+        synchronized (fileLock) {
+            return shareWorkbookLocked(draft);
+        }
+    }
+
+    private PosDraft shareWorkbookLocked(PosDraft draft) {
+        try {
+            return draft.withOriginalWorkbook(blobs.store(draft.getOriginalWorkbook()));
+        } catch (IOException ex) {
+            throw new IllegalStateException("failed to store workbook blob: " + draft.getDraftId(), ex);
+        }
+    }
+
+    /**
+     * Writes every draft changed since the last flush. Called by the flusher and on shutdown;
+     * a draft that fails to write stays pending and is retried on the next flush.
+     */
+    void flush() {
+        // 書き終わるまで pendingWrites に残す。追い出されたドラフトも書いている間は findById から見える
+        List<PendingWrite> batch = new ArrayList<>(pendingWrites.values());
+        IllegalStateException failure = null;
+        for (PendingWrite write : batch) {
+            try {
+                synchronized (fileLock) {
+                    persist(write.persisted(), write.latest());
+                }
+                written(write);
+            } catch (IllegalStateException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
     }
 
     @Override
     public Optional<PosDraft> findById(String draftId) {
-        PosDraft cached = store.get(draftId);
+        PosDraft cached = cache.get(draftId);
         if (cached != null) {
             return Optional.of(cached);
         }
+        // 追い出されていても、まだ書いていない最新版はここにある
+        PendingWrite pending = pendingWrites.get(draftId);
+        if (pending != null) {
+            return Optional.of(pending.latest());
+        }
+        if (!manifest.containsKey(sanitize(draftId))) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(load(draftId));
+    }
+
+    /**
+     * Loads the {@code count} most recently modified drafts that are not in memory yet.
+     * Runs on a background thread at startup when {@code draft.storage.warmup-count} is positive.
+     */
+    void warmUp(int count) {
+        List<String> recent = manifest.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(
+                        Comparator.comparingLong(ManifestEntry::lastModified).reversed()
+                ))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+        for (String draftId : recent) {
+            try {
+                load(draftId);
+            } catch (Exception ex) {
+                log.warn("Failed to warm up draft: {}", draftId, ex);
+            }
+        }
+        log.info("Warmed up {} of {} drafts", recent.size(), manifest.size());
+    }
 
-        Optional<PosDraft> loaded = readDraftFile(draftPath(draftId));
-        loaded.ifPresent(d -> store.put(d.getDraftId(), d));
-        return loaded;
+    @Override
+    public DraftCacheMetrics.Stats getDraftCacheStats() {
+        return cache.stats();
+    }
+
+    boolean isLoaded(String draftId) {
+        return cache.contains(draftId);
+    }
+
+    // ファイル書込みを止めて、書込み中の状態を作る（テスト用）
+    Object fileLock() {
+        return fileLock;
+    }
+
+    // 書込みと同じロックで読む。ジャーナル再生後の圧縮がスナップショットを書き換えるため
+    private PosDraft load(String draftId) {
+        synchronized (fileLock) {
+            return loadLocked(draftId);
+        }
+    }
+
+    private PosDraft loadLocked(String draftId) {
+        PosDraft cached = cache.peek(draftId);
+        if (cached != null) {
+            return cached;
+        }
+        PendingWrite pending = pendingWrites.get(draftId);
+        if (pending != null) {
+            return pending.latest();
+        }
+        ManifestEntry entry = manifest.get(sanitize(draftId));
+        if (entry == null) {
+            return null;
+        }
+        Optional<PosDraft> loaded = readDraftFile(entry.snapshot());
+        if (loaded.isEmpty()) {
+            manifest.remove(sanitize(draftId));
+            return null;
+        }
+        PosDraft draft = loaded.get();
+        cache.put(draft);
+        return draft;
     }
 
     private void initializeStorage() {
@@ -60,30 +378,123 @@ public class InMemoryDraftRepository implements DraftRepository {
         }
     }
 
-    private void loadExistingDrafts() {
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(storageDir, "*.ser")) {
+    // ファイル属性だけを見る。デシリアライズはしない
+    private void indexExistingDrafts() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(storageDir, "*.{" + DRAFT_EXT + "," + LEGACY_EXT + "}")) {
             for (Path path : stream) {
-                Optional<PosDraft> draft = readDraftFile(path);
-                draft.ifPresent(d -> store.put(d.getDraftId(), d));
+                if (isLegacy(path) && Files.exists(path.resolveSibling(baseName(path) + "." + DRAFT_EXT))) {
+                    continue;
+                }
+                String key = baseName(path);
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                ManifestEntry entry = new ManifestEntry(
+                        path,
+                        attributes.size(),
+                        attributes.lastModifiedTime().toMillis()
+                );
+                Path journal = storageDir.resolve(key + ".journal");
+                if (Files.exists(journal)) {
+                    BasicFileAttributes journalAttributes = Files.readAttributes(journal, BasicFileAttributes.class);
+                    entry = entry.appended(journalAttributes.size(), journalAttributes.lastModifiedTime().toMillis());
+                }
+                manifest.put(key, entry);
+                if (!isLegacy(path)) {
+                    countBlobReference(key, path);
+                }
             }
         } catch (Exception ex) {
-            throw new IllegalStateException("failed to load drafts from storage: " + storageDir, ex);
+            throw new IllegalStateException("failed to index drafts in storage: " + storageDir, ex);
+        }
+        log.info("Indexed {} drafts in {}", manifest.size(), storageDir);
+    }
+
+    // ヘッダーだけ読む
+    private void countBlobReference(String key, Path path) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 128)) {
+            String hash = DraftBinaryCodec.readBlobHash(in);
+            if (hash != null) {
+                blobHashes.put(key, hash);
+                blobs.retain(hash);
+            }
+        } catch (IOException ex) {
+            log.warn("Failed to read draft header: {}", path, ex);
         }
     }
 
+    // fileLock を持って呼ぶ
+    private void persist(PosDraft previous, PosDraft draft) {
+        String draftId = draft.getDraftId();
+        Long snapshotToken = snapshotTokens.get(sanitize(draftId));
+        if (journalEnabled && snapshotToken != null && journalCounts.getOrDefault(sanitize(draftId), 0) < compactEvery) {
+            List<DraftJournal.Entry> entries = DraftJournal.diff(previous, draft);
+            if (entries != null) {
+                if (!entries.isEmpty()) {
+                    appendJournal(draftId, snapshotToken, entries);
+                }
+                return;
+            }
+        }
+        writeDraftFile(draft);
+    }
+
+    // 書けた分を外す。書いている間に新しい版が保存されていれば、書込み元だけを今書いた版に進める
+    private void written(PendingWrite write) {
+        pendingWrites.computeIfPresent(
+                write.latest().getDraftId(),
+                (key, current) -> current == write ? null : new PendingWrite(write.latest(), current.latest())
+        );
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception ex) {
+            log.warn("Failed to flush drafts, will retry", ex);
+        }
+    }
+
+    private void appendJournal(String draftId, long snapshotToken, List<DraftJournal.Entry> entries) {
+        Path journal = journalPath(draftId);
+        long appended;
+        try {
+            long before = Files.exists(journal) ? Files.size(journal) : 0L;
+            DraftJournal.append(journal, snapshotToken, entries, fsync);
+            appended = Files.size(journal) - before;
+        } catch (Exception ex) {
+            // ジャーナルの末尾が信用できないので、次の保存はスナップショットを書き直す
+            journalCounts.put(sanitize(draftId), compactEvery);
+            throw new IllegalStateException("failed to append draft journal: " + journal, ex);
+        }
+        journalCounts.merge(sanitize(draftId), entries.size(), Integer::sum);
+        long now = System.currentTimeMillis();
+        manifest.computeIfPresent(sanitize(draftId), (key, current) -> current.appended(appended, now));
+    }
+
     private void writeDraftFile(PosDraft draft) {
         Path target = draftPath(draft.getDraftId());
         Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long snapshotToken = newSnapshotToken();
+        String blobHash = draft.getOriginalWorkbook().getContentHash();
+        try {
+            // 参照先のブロブが無ければ（GC 済みなど）ここで書き直す
+            blobs.store(draft.getOriginalWorkbook());
+        } catch (IOException ex) {
+            throw new IllegalStateException("failed to store workbook blob: " + draft.getDraftId(), ex);
+        }
 
-        try (ObjectOutputStream out = new ObjectOutputStream(
-                Files.newOutputStream(
-                        temp,
-                        StandardOpenOption.CREATE,
-                        StandardOpenOption.TRUNCATE_EXISTING,
-                        StandardOpenOption.WRITE
-                )
+        try (FileChannel channel = FileChannel.open(
+                temp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
         )) {
-            out.writeObject(draft);
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            DraftBinaryCodec.writeDraft(draft, snapshotToken, out, true);
+            out.flush();
+            if (fsync) {
+                // 置き換える前に中身をディスクへ
+                channel.force(false);
+            }
         } catch (Exception ex) {
             throw new IllegalStateException("failed to write draft file: " + target, ex);
         }
@@ -99,27 +510,122 @@ public class InMemoryDraftRepository implements DraftRepository {
         } catch (Exception ex) {
             throw new IllegalStateException("failed to move draft file: " + target, ex);
         }
+
+        // 新しいスナップショットが置かれてから古いジャーナルを消す。消す前に落ちてもトークン不一致で再生されない
+        snapshotTokens.put(sanitize(draft.getDraftId()), snapshotToken);
+        journalCounts.remove(sanitize(draft.getDraftId()));
+        manifest.put(sanitize(draft.getDraftId()), new ManifestEntry(target, sizeOf(target), System.currentTimeMillis()));
+        String previousBlobHash = blobHashes.put(sanitize(draft.getDraftId()), blobHash);
+        if (!blobHash.equals(previousBlobHash)) {
+            blobs.retain(blobHash);
+            if (previousBlobHash != null) {
+                blobs.release(previousBlobHash);
+            }
+        }
+        try {
+            Files.deleteIfExists(journalPath(draft.getDraftId()));
+            Files.deleteIfExists(legacyDraftPath(draft.getDraftId()));
+        } catch (Exception ex) {
+            log.warn("Failed to delete superseded draft files: {}", draft.getDraftId(), ex);
+        }
     }
 
     private Optional<PosDraft> readDraftFile(Path path) {
         if (!Files.exists(path)) {
             return Optional.empty();
         }
-        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(path))) {
-            Object obj = in.readObject();
-            if (obj instanceof PosDraft draft) {
-                return Optional.of(draft);
+        boolean legacy = isLegacy(path);
+        PosDraft snapshot;
+        long snapshotToken;
+        try {
+            DraftBinaryCodec.Decoded decoded = legacy ? readLegacyDraftFile(path) : readBinaryDraftFile(path);
+            if (decoded == null) {
+                log.warn("Skip non-draft file: {}", path);
+                return Optional.empty();
             }
-            log.warn("Skip non-draft file: {}", path);
-            return Optional.empty();
+            snapshot = decoded.draft().withHistoryPolicy(historyPolicy);
+            snapshotToken = decoded.snapshotToken();
         } catch (Exception ex) {
             log.warn("Skip unreadable draft file: {}", path, ex);
             return Optional.empty();
         }
+        snapshotTokens.put(sanitize(snapshot.getDraftId()), snapshotToken);
+        boolean embedded = !snapshot.getOriginalWorkbook().isMapped();
+        if (embedded) {
+            snapshot = shareWorkbookLocked(snapshot);
+        }
+
+        Path journal = journalPath(snapshot.getDraftId());
+        if (!Files.exists(journal)) {
+            if (embedded) {
+                // 旧形式（Java シリアライズの .ser、Excel 埋め込みの .draft）は読み込んだ時点で移行する
+                writeDraftFile(snapshot);
+            }
+            return Optional.of(snapshot);
+        }
+        try {
+            DraftJournal.Replayed replayed = DraftJournal.replay(journal, snapshotToken, snapshot);
+            // 再生した状態をスナップショットにまとめ、壊れた末尾があればここで捨てる
+            writeDraftFile(replayed.draft());
+            return Optional.of(replayed.draft());
+        } catch (Exception ex) {
+            log.warn("Skip unreadable draft journal, using snapshot only: {}", journal, ex);
+            return Optional.of(snapshot);
+        }
+    }
+
+    private DraftBinaryCodec.Decoded readBinaryDraftFile(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            return DraftBinaryCodec.readDraft(in, blobs::open);
+        }
+    }
+
+    private static DraftBinaryCodec.Decoded readLegacyDraftFile(Path path) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            Object obj = in.readObject();
+            if (!(obj instanceof PosDraft draft)) {
+                return null;
+            }
+            // .ser にはジャーナルがないのでトークンは使わない
+            return new DraftBinaryCodec.Decoded(draft, 0L);
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException ex) {
+            return 0L;
+        }
+    }
+
+    private static long newSnapshotToken() {
+        long token;
+        do {
+            token = ThreadLocalRandom.current().nextLong();
+        } while (token == 0L);
+        return token;
     }
 
     private Path draftPath(String draftId) {
-        return storageDir.resolve(sanitize(draftId) + ".ser");
+        return storageDir.resolve(sanitize(draftId) + "." + DRAFT_EXT);
+    }
+
+    private Path legacyDraftPath(String draftId) {
+        return storageDir.resolve(sanitize(draftId) + "." + LEGACY_EXT);
+    }
+
+    private static boolean isLegacy(Path path) {
+        return path.getFileName().toString().endsWith("." + LEGACY_EXT);
+    }
+
+    private static String baseName(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.substring(0, fileName.lastIndexOf('.'));
+    }
+
+    private Path journalPath(String draftId) {
+        return storageDir.resolve(sanitize(draftId) + ".journal");
     }
 
     private static String sanitize(String raw) {
@@ -4,7 +4,10 @@ import com.example.demo.dao.ExcelSupport.ExcelUtil;
 import com.example.demo.dao.ExcelSupport.HeaderMap;
 import com.example.demo.model.ItemCatalog;
 import com.example.demo.model.ItemMasterCatalog;
+import com.example.demo.model.Money;
 import com.example.demo.model.PosConfig;
+import com.example.demo.model.WorkbookContent;
+import com.example.demo.model.WorkbookLayout;
 import com.example.demo.service.port.PosConfigExporter;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
@@ -13,8 +16,8 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -49,14 +52,36 @@ public class PoiPosConfigExporter implements PosConfigExporter {
             ItemCatalog handyCatalog,
             ItemMasterCatalog itemMasterCatalog
     ) throws Exception {
-        try (Workbook wb = new XSSFWorkbook(new ByteArrayInputStream(originalExcelBytes))) {
+        return export(originalExcelBytes, config, handyCatalog, itemMasterCatalog, null);
+    }
+
+    @Override
+    public byte[] export(
+            byte[] originalExcelBytes,
+            PosConfig config,
+            ItemCatalog handyCatalog,
+            ItemMasterCatalog itemMasterCatalog,
+            WorkbookLayout workbookLayout
+    ) throws Exception {
+        return export(WorkbookContent.of(originalExcelBytes), config, handyCatalog, itemMasterCatalog, workbookLayout);
+    }
+
+    @Override
+    public byte[] export(
+            WorkbookContent original,
+            PosConfig config,
+            ItemCatalog handyCatalog,
+            ItemMasterCatalog itemMasterCatalog,
+            WorkbookLayout workbookLayout
+    ) throws Exception {
+        try (InputStream in = original.openStream(); Workbook wb = new XSSFWorkbook(in)) {
             Sheet btn = requireSheet(wb, SHEET_BUTTON);
             Sheet menu = requireSheet(wb, SHEET_MENU);
             Sheet item = requireSheet(wb, SHEET_ITEM);
             ExcelUtil u = new ExcelUtil(wb);
-            HeaderMap btnHm = HeaderMap.from(btn, u, "PageNumber");
-            HeaderMap menuHm = HeaderMap.from(menu, u, "PageNumber");
-            HeaderMap itemHm = HeaderMap.from(item, u, "ItemCode", "UnitPrice");
+            HeaderMap btnHm = headerMap(workbookLayout, btn, u, SHEET_BUTTON, "PageNumber");
+            HeaderMap menuHm = headerMap(workbookLayout, menu, u, SHEET_MENU, "PageNumber");
+            HeaderMap itemHm = headerMap(workbookLayout, item, u, SHEET_ITEM, "ItemCode", "UnitPrice");
 
             int bPage = btnHm.require("PageNumber");
             int bCol = btnHm.require("ButtonColumnNumber");
@@ -123,8 +148,8 @@ public class PoiPosConfigExporter implements PosConfigExporter {
                 setNumericOrString(row, iUnitPrice, unitPrice);
             }
 
-            applyHandyCategoryDisplayLevels(wb, u, handyCatalog);
-            applyHandyDisplayLevels(wb, u, handyCatalog);
+            applyHandyCategoryDisplayLevels(wb, u, handyCatalog, workbookLayout);
+            applyHandyDisplayLevels(wb, u, handyCatalog, workbookLayout);
 
             try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
                 wb.write(out);
@@ -226,7 +251,12 @@ public class PoiPosConfigExporter implements PosConfigExporter {
         }
     }
 
-    private static void applyHandyCategoryDisplayLevels(Workbook wb, ExcelUtil u, ItemCatalog handyCatalog) {
+    private static void applyHandyCategoryDisplayLevels(
+            Workbook wb,
+            ExcelUtil u,
+            ItemCatalog handyCatalog,
+            WorkbookLayout workbookLayout
+    ) {
         if (handyCatalog == null) {
             return;
         }
@@ -236,7 +266,7 @@ public class PoiPosConfigExporter implements PosConfigExporter {
             return;
         }
 
-        HeaderMap categoryHm = HeaderMap.from(categoryMaster, u, "CategoryCode", "DisplayLevel");
+        HeaderMap categoryHm = headerMap(workbookLayout, categoryMaster, u, SHEET_CATEGORY, "CategoryCode", "DisplayLevel");
         int hCategoryCode = categoryHm.require("CategoryCode");
         int hDisplayLevel = categoryHm.require("DisplayLevel");
         Integer hDescription = ExcelSupport.firstExisting(
@@ -306,7 +336,12 @@ public class PoiPosConfigExporter implements PosConfigExporter {
         }
     }
 
-    private static void applyHandyDisplayLevels(Workbook wb, ExcelUtil u, ItemCatalog handyCatalog) {
+    private static void applyHandyDisplayLevels(
+            Workbook wb,
+            ExcelUtil u,
+            ItemCatalog handyCatalog,
+            WorkbookLayout workbookLayout
+    ) {
         if (handyCatalog == null) {
             return;
         }
@@ -316,7 +351,15 @@ public class PoiPosConfigExporter implements PosConfigExporter {
             return;
         }
 
-        HeaderMap itemCategoryHm = HeaderMap.from(itemCategory, u, "CategoryCode", "ItemCode", "DisplayLevel");
+        HeaderMap itemCategoryHm = headerMap(
+                workbookLayout,
+                itemCategory,
+                u,
+                SHEET_ITEM_CATEGORY,
+                "CategoryCode",
+                "ItemCode",
+                "DisplayLevel"
+        );
         int hCategoryCode = itemCategoryHm.require("CategoryCode");
         int hItemCode = itemCategoryHm.require("ItemCode");
         int hDisplayLevel = itemCategoryHm.require("DisplayLevel");
@@ -605,14 +648,15 @@ public class PoiPosConfigExporter implements PosConfigExporter {
         cell.setCellValue(value == null ? "" : value);
     }
 
+    // 価格は書き出すときにだけ数値として解釈する。数値でなければ文字列のまま書く
     private static void setNumericOrString(Row row, int colIndex, String value) {
-        String normalized = value.trim().replace(",", "");
+        Money amount = Money.parseOrNull(value);
         Cell cell = row.getCell(colIndex);
         if (cell == null) {
             cell = row.createCell(colIndex);
         }
-        if (normalized.matches("^\\d+(\\.\\d+)?$")) {
-            cell.setCellValue(Double.parseDouble(normalized));
+        if (amount != null) {
+            cell.setCellValue(amount.toDouble());
         } else {
             cell.setCellValue(value);
         }
@@ -624,6 +668,21 @@ public class PoiPosConfigExporter implements PosConfigExporter {
         cell.setBlank();
     }
 
+    // 取込時のヘッダー位置が残っていれば再探索しない
+    private static HeaderMap headerMap(
+            WorkbookLayout workbookLayout,
+            Sheet sheet,
+            ExcelUtil u,
+            String sheetName,
+            String... headerCandidates
+    ) {
+        WorkbookLayout.SheetHeader sheetHeader = workbookLayout == null ? null : workbookLayout.findSheet(sheetName);
+        if (sheetHeader != null) {
+            return HeaderMap.of(sheetHeader);
+        }
+        return HeaderMap.from(sheet, u, headerCandidates);
+    }
+
     private static Sheet requireSheet(Workbook wb, String name) {
         Sheet s = wb.getSheet(name);
         if (s == null) throw new IllegalArgumentException("Sheet not found: " + name);
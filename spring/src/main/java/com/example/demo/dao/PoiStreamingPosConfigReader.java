@@ -0,0 +1,249 @@
+package com.example.demo.dao;
+
+import com.example.demo.dao.ExcelSupport.HeaderMap;
+import com.example.demo.dao.PosConfigSheets.SheetHandler;
+import com.example.demo.dao.PosConfigSheets.SheetSource;
+import com.example.demo.model.PosConfigSource;
+import com.example.demo.service.port.PosConfigReader;
+import com.example.demo.service.port.PosConfigReader.Part;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SAX (event model) reader: sheets are streamed row by row, so only the parsed values are kept in memory.
+ * Each sheet part has its own stream and is parsed on its own task (a small pool owned by this reader),
+ * and sheets not needed for the requested parts are never opened.
+ * Produces the same {@link PosConfigSource} as {@link PoiPosConfigReader}.
+ */
+@Component
+@ConditionalOnProperty(name = "pos.reader.mode", havingValue = "streaming")
+public class PoiStreamingPosConfigReader implements PosConfigReader {
+
+    // 同時に読むシートは最大7枚。ブロックする解析を JVM 共通の ForkJoinPool に載せないよう専用のスレッドで読む
+    private static final int PARSE_THREADS = Math.min(7, Runtime.getRuntime().availableProcessors());
+
+    private final ThreadPoolExecutor executor = newParseExecutor();
+
+    private static ThreadPoolExecutor newParseExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                PARSE_THREADS,
+                PARSE_THREADS,
+                30,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pos-sheet-reader-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        // 取込のないときはスレッドを残さない
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    @Override
+    public PosConfigSource read(InputStream in) throws Exception {
+        return read(in, Part.all());
+    }
+
+    @Override
+    public PosConfigSource read(InputStream in, Set<Part> parts) throws Exception {
+        // OPCPackage.open(InputStream) would unzip every part into memory; a temp file keeps it on disk.
+        Path tempFile = Files.createTempFile("flippers-import-", ".xlsx");
+        try {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            try (OPCPackage pkg = OPCPackage.open(tempFile.toFile(), PackageAccess.READ)) {
+                return read(pkg, parts);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private PosConfigSource read(OPCPackage pkg, Set<Part> parts) throws Exception {
+        XSSFReader xssfReader = new XSSFReader(pkg);
+        ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+        StylesTable styles = xssfReader.getStylesTable();
+
+        // XSSFWorkbook#getSheet は大文字小文字を区別しないので合わせる
+        Map<String, PackagePart> sheetParts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+        while (it.hasNext()) {
+            it.next().close();
+            sheetParts.putIfAbsent(it.getSheetName(), it.getSheetPart());
+        }
+
+        return PosConfigSheets.parseAll(executor, new SheetSource() {
+            @Override
+            public boolean hasSheet(String sheetName) {
+                return sheetParts.containsKey(sheetName);
+            }
+
+            @Override
+            public void parse(SheetHandler<?> handler) throws Exception {
+                new SheetReader(styles, sharedStrings).read(sheetParts.get(handler.sheetName()), handler);
+            }
+        }, parts);
+    }
+
+    private static final class SheetReader {
+        private final StylesTable styles;
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final DataFormatter fmt = new DataFormatter(Locale.ROOT);
+
+        SheetReader(StylesTable styles, ReadOnlySharedStringsTable sharedStrings) {
+            this.styles = styles;
+            this.sharedStrings = sharedStrings;
+        }
+
+        void read(PackagePart part, SheetHandler<?> handler) throws Exception {
+            RowDispatcher dispatcher = new RowDispatcher(handler);
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(styles, sharedStrings, dispatcher, fmt, false));
+            try (InputStream sheetData = part.getInputStream()) {
+                parser.parse(new InputSource(sheetData));
+            }
+            dispatcher.finish();
+        }
+    }
+
+    /**
+     * Mirrors {@link HeaderMap#from}: rows up to {@link HeaderMap#HEADER_SCAN_LAST_ROW} are buffered
+     * until the header row is known, every later row is handed straight to the sheet handler.
+     */
+    private static final class RowDispatcher implements SheetContentsHandler {
+        private final SheetHandler<?> handler;
+        private final List<BufferedRow> pending = new ArrayList<>();
+        private BufferedRow current;
+        private boolean headerFound;
+
+        RowDispatcher(SheetHandler<?> handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            current = new BufferedRow(rowNum);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (current == null || formattedValue == null) return;
+            int col = new CellReference(cellReference).getCol();
+            current.cells.put(col, formattedValue.trim());
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            BufferedRow row = current;
+            current = null;
+            if (row == null) return;
+
+            if (headerFound) {
+                dispatch(row);
+                return;
+            }
+            if (row.rowIndex > HeaderMap.HEADER_SCAN_LAST_ROW) {
+                useHeaderRow(0);
+                dispatch(row);
+                return;
+            }
+            if (isHeaderRow(row)) {
+                pending.clear();
+                header(row);
+                return;
+            }
+            pending.add(row);
+        }
+
+        void finish() {
+            if (!headerFound) {
+                useHeaderRow(0);
+            }
+        }
+
+        private boolean isHeaderRow(BufferedRow row) {
+            for (String value : row.cells.values()) {
+                if (HeaderMap.isHeaderCell(value, handler.headerCandidates())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // 候補ヘッダーが見つからなかった場合は DOM 版と同じく 0 行目をヘッダーとして扱う
+        private void useHeaderRow(int headerRow) {
+            BufferedRow header = null;
+            Iterator<BufferedRow> rows = pending.iterator();
+            while (rows.hasNext()) {
+                BufferedRow row = rows.next();
+                if (row.rowIndex <= headerRow) {
+                    if (row.rowIndex == headerRow) header = row;
+                    rows.remove();
+                }
+            }
+            if (header == null) throw new IllegalArgumentException("Header row not found: " + handler.sheetName());
+            header(header);
+            for (BufferedRow row : pending) {
+                dispatch(row);
+            }
+            pending.clear();
+        }
+
+        private void header(BufferedRow row) {
+            handler.header(HeaderMap.fromCells(row.cells, row.rowIndex));
+            headerFound = true;
+        }
+
+        private void dispatch(BufferedRow row) {
+            handler.row(row.rowIndex, row.cells::get);
+        }
+    }
+
+    private static final class BufferedRow {
+        final int rowIndex;
+        final Map<Integer, String> cells = new TreeMap<>();
+
+        BufferedRow(int rowIndex) {
+            this.rowIndex = rowIndex;
+        }
+    }
+}
@@ -0,0 +1,645 @@
+package com.example.demo.dao;
+
+import com.example.demo.dao.ExcelSupport.HeaderMap;
+import com.example.demo.model.ItemCatalog;
+import com.example.demo.model.ItemMasterCatalog;
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.PosConfigSource;
+import com.example.demo.model.WorkbookLayout;
+import com.example.demo.service.port.PosConfigReader.Part;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Row-level parsing of the POS workbook sheets, shared by the DOM and the streaming readers.
+ * Each sheet is consumed by its own {@link SheetHandler}; {@link #parseAll} joins the results.
+ */
+final class PosConfigSheets {
+    static final String SHEET_MENU = "PresetMenuMaster";
+    static final String SHEET_BUTTON = "PresetMenuButtonMaster";
+    static final String SHEET_ITEM = "ItemMaster";
+    static final String SHEET_MD_HIERARCHY = "MDHierarchyMaster";
+    static final String SHEET_POS_ITEM = "POSItemMaster";
+    static final String SHEET_CATEGORY_MASTER = "CategoryMaster";
+    static final String SHEET_ITEM_CATEGORY_MASTER = "ItemCategoryMaster";
+
+    private PosConfigSheets() {
+    }
+
+    interface RowCells {
+        String str(int col);
+    }
+
+    interface SheetSource {
+        boolean hasSheet(String sheetName);
+
+        void parse(SheetHandler<?> handler) throws Exception;
+    }
+
+    abstract static class SheetHandler<T> {
+        private final String sheetName;
+        private final String[] headerCandidates;
+
+        SheetHandler(String sheetName, String... headerCandidates) {
+            this.sheetName = sheetName;
+            this.headerCandidates = headerCandidates;
+        }
+
+        String sheetName() {
+            return sheetName;
+        }
+
+        String[] headerCandidates() {
+            return headerCandidates;
+        }
+
+        private HeaderMap headerMap;
+
+        final void header(HeaderMap headerMap) {
+            this.headerMap = headerMap;
+            bindColumns(headerMap);
+        }
+
+        HeaderMap headerMap() {
+            return headerMap;
+        }
+
+        abstract void bindColumns(HeaderMap headerMap);
+
+        abstract void row(int rowIndex, RowCells row);
+
+        abstract T result();
+    }
+
+    /**
+     * Parses the sheets needed for {@code parts}, one task per sheet on {@code executor}, and joins the results
+     * once all of them are done. With a multi-threaded executor the import takes about as long as the largest
+     * sheet.
+     */
+    static PosConfigSource parseAll(Executor executor, SheetSource source, Set<Part> parts) throws Exception {
+        boolean withPosConfig = parts.contains(Part.POS_CONFIG);
+        boolean withItemCatalog = parts.contains(Part.ITEM_CATALOG);
+        boolean withItemSheet = !parts.isEmpty();
+
+        MenuSheet menuSheet = withPosConfig ? new MenuSheet() : null;
+        ButtonSheet buttonSheet = withPosConfig ? new ButtonSheet() : null;
+        ItemSheet itemSheet = withItemSheet ? new ItemSheet() : null;
+        MdHierarchySheet mdSheet = withItemCatalog ? new MdHierarchySheet() : null;
+        PosItemSheet posItemSheet = withItemCatalog ? new PosItemSheet() : null;
+
+        List<SheetHandler<?>> handlers = new ArrayList<>();
+        for (SheetHandler<?> handler : Arrays.asList(menuSheet, buttonSheet, itemSheet, mdSheet, posItemSheet)) {
+            if (handler == null) continue;
+            if (!source.hasSheet(handler.sheetName())) {
+                throw new IllegalArgumentException("Sheet not found: " + handler.sheetName());
+            }
+            handlers.add(handler);
+        }
+
+        // ハンディ用シートは任意。両方揃っている場合のみ読む
+        boolean withHandy = parts.contains(Part.HANDY_CATALOG)
+                && source.hasSheet(SHEET_CATEGORY_MASTER)
+                && source.hasSheet(SHEET_ITEM_CATEGORY_MASTER);
+        CategoryMasterSheet categorySheet = withHandy ? new CategoryMasterSheet() : null;
+        ItemCategoryMasterSheet itemCategorySheet = withHandy ? new ItemCategoryMasterSheet() : null;
+        if (withHandy) {
+            handlers.add(categorySheet);
+            handlers.add(itemCategorySheet);
+        }
+        runAll(executor, source, handlers);
+
+        Map<String, WorkbookLayout.SheetHeader> headers = new LinkedHashMap<>();
+        for (SheetHandler<?> handler : handlers) {
+            headers.put(handler.sheetName(), handler.headerMap().toSheetHeader());
+        }
+
+        return assemble(
+                new WorkbookLayout(headers),
+                withPosConfig ? menuSheet.result() : List.of(),
+                withPosConfig ? buttonSheet.result() : List.of(),
+                withItemSheet ? itemSheet.result() : new ItemSheet.Result(Map.of(), List.of()),
+                withItemCatalog ? mdSheet.result() : Map.of(),
+                withItemCatalog ? posItemSheet.result() : Map.of(),
+                withHandy ? categorySheet.result() : null,
+                withHandy ? itemCategorySheet.result() : null
+        );
+    }
+
+    private static void runAll(Executor executor, SheetSource source, List<SheetHandler<?>> handlers) throws Exception {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(handlers.size());
+        for (SheetHandler<?> handler : handlers) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    source.parse(handler);
+                } catch (Exception ex) {
+                    throw new CompletionException(ex);
+                }
+            }, executor));
+        }
+
+        // 失敗したタスクがあっても全タスクの終了を待ち、シート順で最初のエラーを返す
+        CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                .exceptionally(ex -> null)
+                .join();
+        for (CompletableFuture<Void> task : tasks) {
+            try {
+                task.join();
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+                if (cause instanceof Exception e) throw e;
+                if (cause instanceof Error e) throw e;
+                throw ex;
+            }
+        }
+    }
+
+    private static PosConfigSource assemble(
+            WorkbookLayout workbookLayout,
+            List<PosConfig.Category> categories,
+            List<ButtonRow> buttonRows,
+            ItemSheet.Result items,
+            Map<String, String> categoryDescriptionByCode,
+            Map<String, LinkedHashSet<String>> itemCodesByCategoryCode,
+            Map<String, HandyCategoryMeta> handyCategoryByCode,
+            Map<String, List<HandyItemRef>> handyItemsByCategoryCode
+    ) {
+        Map<String, ItemInfo> itemInfoByItemCode = items.itemInfoByItemCode();
+
+        List<ItemCatalog.Category> itemCategories = new ArrayList<>();
+        Set<String> appendedCategoryCodes = new HashSet<>();
+        for (Map.Entry<String, String> entry : categoryDescriptionByCode.entrySet()) {
+            String categoryCode = entry.getKey();
+            LinkedHashSet<String> itemCodes = itemCodesByCategoryCode.get(categoryCode);
+            if (itemCodes == null || itemCodes.isEmpty()) continue;
+
+            itemCategories.add(toItemCategory(
+                    categoryCode,
+                    entry.getValue(),
+                    itemCodes,
+                    itemInfoByItemCode
+            ));
+            appendedCategoryCodes.add(categoryCode);
+        }
+        for (Map.Entry<String, LinkedHashSet<String>> entry : itemCodesByCategoryCode.entrySet()) {
+            String categoryCode = entry.getKey();
+            if (appendedCategoryCodes.contains(categoryCode)) continue;
+
+            itemCategories.add(toItemCategory(
+                    categoryCode,
+                    categoryCode,
+                    entry.getValue(),
+                    itemInfoByItemCode
+            ));
+        }
+        ItemCatalog itemCatalog = new ItemCatalog(itemCategories);
+
+        ItemCatalog handyCatalog = ItemCatalog.empty();
+        if (handyCategoryByCode != null && handyItemsByCategoryCode != null) {
+            handyCatalog = toHandyCatalog(handyCategoryByCode, handyItemsByCategoryCode, itemInfoByItemCode);
+        }
+
+        List<PosConfigSource.PageButton> pageButtons = new ArrayList<>(buttonRows.size());
+        for (ButtonRow buttonRow : buttonRows) {
+            ItemInfo info = itemInfoByItemCode.get(buttonRow.itemCode());
+            String unitPrice = info == null ? "" : info.unitPrice();
+            pageButtons.add(
+                    new PosConfigSource.PageButton(
+                            buttonRow.page(),
+                            new PosConfig.Button(
+                                    buttonRow.col(),
+                                    buttonRow.row(),
+                                    buttonRow.description(),
+                                    buttonRow.styleKey(),
+                                    buttonRow.itemCode(),
+                                    unitPrice,
+                                    buttonRowId(buttonRow.rowIndex())
+                            )
+                    )
+            );
+        }
+
+        return new PosConfigSource(
+                categories,
+                pageButtons,
+                itemCatalog,
+                handyCatalog,
+                new ItemMasterCatalog(items.itemMasterItems()),
+                workbookLayout
+        );
+    }
+
+    private static ItemCatalog toHandyCatalog(
+            Map<String, HandyCategoryMeta> handyCategoryByCode,
+            Map<String, List<HandyItemRef>> handyItemsByCategoryCode,
+            Map<String, ItemInfo> itemInfoByItemCode
+    ) {
+        List<HandyCategoryMeta> sortedHandyCategories = new ArrayList<>(handyCategoryByCode.values());
+        sortedHandyCategories.sort(
+                Comparator.comparingInt(HandyCategoryMeta::displayLevel)
+                        .thenComparing(HandyCategoryMeta::categoryCode)
+        );
+
+        for (String categoryCode : handyItemsByCategoryCode.keySet()) {
+            if (handyCategoryByCode.containsKey(categoryCode)) {
+                continue;
+            }
+            sortedHandyCategories.add(new HandyCategoryMeta(categoryCode, categoryCode, Integer.MAX_VALUE));
+        }
+
+        List<ItemCatalog.Category> handyCategories = new ArrayList<>();
+        for (HandyCategoryMeta meta : sortedHandyCategories) {
+            List<HandyItemRef> handyItems = new ArrayList<>(
+                    handyItemsByCategoryCode.getOrDefault(meta.categoryCode(), List.of())
+            );
+            handyItems.sort(
+                    Comparator.comparingInt(HandyItemRef::displayLevel)
+                            .thenComparingLong(HandyItemRef::sequence)
+            );
+            List<String> itemCodes = handyItems.stream()
+                    .map(HandyItemRef::itemCode)
+                    .toList();
+            handyCategories.add(
+                    toItemCategory(
+                            meta.categoryCode(),
+                            meta.description(),
+                            itemCodes,
+                            itemInfoByItemCode
+                    )
+            );
+        }
+        return new ItemCatalog(handyCategories);
+    }
+
+    // PresetMenuMaster: PageNumber, ButtonColumnCount, ButtonRowCount, Description, StyleKey
+    static final class MenuSheet extends SheetHandler<List<PosConfig.Category>> {
+        private final List<PosConfig.Category> categories = new ArrayList<>();
+        private int mPage;
+        private int mCols;
+        private int mRows;
+        private int mDesc;
+        private int mStyle;
+
+        MenuSheet() {
+            super(SHEET_MENU, "PageNumber");
+        }
+
+        @Override
+        void bindColumns(HeaderMap hm) {
+            mPage = hm.require("PageNumber");
+            mCols = hm.require("ButtonColumnCount");
+            mRows = hm.require("ButtonRowCount");
+            mDesc = hm.require("Description");
+            mStyle = hm.require("StyleKey");
+        }
+
+        @Override
+        void row(int rowIndex, RowCells row) {
+            String pageS = row.str(mPage);
+            if (isBlank(pageS)) return;
+
+            int page = parseIntStrict(pageS, "PresetMenuMaster.PageNumber");
+            int cols = parseIntStrict(row.str(mCols), "PresetMenuMaster.ButtonColumnCount");
+            int rows = parseIntStrict(row.str(mRows), "PresetMenuMaster.ButtonRowCount");
+            String desc = nonNull(row.str(mDesc));
+            int style = parseIntStrict(row.str(mStyle), "PresetMenuMaster.StyleKey");
+
+            categories.add(new PosConfig.Category(page, cols, rows, desc, style));
+        }
+
+        @Override
+        List<PosConfig.Category> result() {
+            return categories;
+        }
+    }
+
+    // PresetMenuButtonMaster: PageNumber, ButtonColumnNumber, ButtonRowNumber, Description, StyleKey, SettingData
+    static final class ButtonSheet extends SheetHandler<List<ButtonRow>> {
+        private final List<ButtonRow> buttons = new ArrayList<>();
+        private int bPage;
+        private int bCol;
+        private int bRow;
+        private int bDesc;
+        private int bStyle;
+        private int bSet;
+
+        ButtonSheet() {
+            super(SHEET_BUTTON, "PageNumber");
+        }
+
+        @Override
+        void bindColumns(HeaderMap hm) {
+            bPage = hm.require("PageNumber");
+            bCol = hm.require("ButtonColumnNumber");
+            bRow = hm.require("ButtonRowNumber");
+            bDesc = hm.require("Description");
+            bStyle = hm.require("StyleKey");
+            bSet = hm.require("SettingData");
+        }
+
+        @Override
+        void row(int rowIndex, RowCells row) {
+            String pageS = row.str(bPage);
+            if (isBlank(pageS)) return;
+
+            int page = parseIntStrict(pageS, "PresetMenuButtonMaster.PageNumber");
+            int col = parseIntStrict(row.str(bCol), "PresetMenuButtonMaster.ButtonColumnNumber");
+            int rowNo = parseIntStrict(row.str(bRow), "PresetMenuButtonMaster.ButtonRowNumber");
+            String desc = nonNull(row.str(bDesc));
+            int style = parseIntStrict(row.str(bStyle), "PresetMenuButtonMaster.StyleKey");
+            String itemCode = nonNull(row.str(bSet)); // SettingData
+
+            buttons.add(new ButtonRow(page, col, rowNo, desc, style, itemCode, rowIndex));
+        }
+
+        @Override
+        List<ButtonRow> result() {
+            return buttons;
+        }
+    }
+
+    static final class ItemSheet extends SheetHandler<ItemSheet.Result> {
+        private final Map<String, ItemInfo> itemInfoByItemCode = new LinkedHashMap<>();
+        private final List<ItemMasterCatalog.Item> itemMasterItems = new ArrayList<>();
+        private int iCode;
+        private Integer iName;
+        private Integer iNamePrint;
+        private int iUnitPrice;
+        private Integer iCostPrice;
+        private Integer iBasePrice;
+
+        ItemSheet() {
+            super(SHEET_ITEM, "ItemCode", "UnitPrice");
+        }
+
+        @Override
+        void bindColumns(HeaderMap hm) {
+            iCode = hm.require("ItemCode");
+            iName = hm.get("ItemName");
+            iNamePrint = hm.get("ItemNamePrint");
+            iUnitPrice = hm.require("UnitPrice");
+            iCostPrice = hm.get("CostPrice");
+            iBasePrice = hm.get("BasePrice");
+        }
+
+        @Override
+        void row(int rowIndex, RowCells row) {
+            String itemCode = nonNull(row.str(iCode));
+            if (isBlank(itemCode)) return;
+
+            String itemName = "";
+            if (iName != null) {
+                itemName = nonNull(row.str(iName));
+            }
+            if (isBlank(itemName) && iNamePrint != null) {
+                itemName = nonNull(row.str(iNamePrint));
+            }
+            String itemNamePrint = iNamePrint == null ? "" : nonNull(row.str(iNamePrint));
+            if (isBlank(itemNamePrint)) {
+                itemNamePrint = itemName;
+            }
+            itemNamePrint = normalizeItemName(itemNamePrint, itemCode);
+            String unitPrice = nonNull(row.str(iUnitPrice));
+            String costPrice = iCostPrice == null ? "" : nonNull(row.str(iCostPrice));
+            String basePrice = iBasePrice == null ? "" : nonNull(row.str(iBasePrice));
+            itemInfoByItemCode.put(itemCode, new ItemInfo(itemName, unitPrice));
+            itemMasterItems.add(
+                    new ItemMasterCatalog.Item(itemCode, itemNamePrint, unitPrice, costPrice, basePrice)
+            );
+        }
+
+        @Override
+        Result result() {
+            return new Result(itemInfoByItemCode, itemMasterItems);
+        }
+
+        record Result(Map<String, ItemInfo> itemInfoByItemCode, List<ItemMasterCatalog.Item> itemMasterItems) {
+        }
+    }
+
+    static final class MdHierarchySheet extends SheetHandler<Map<String, String>> {
+        private final Map<String, String> categoryDescriptionByCode = new LinkedHashMap<>();
+        private int hCode;
+        private int hDesc;
+
+        MdHierarchySheet() {
+            super(SHEET_MD_HIERARCHY, "MDHierarchyCode");
+        }
+
+        @Override
+        void bindColumns(HeaderMap hm) {
+            hCode = hm.require("MDHierarchyCode");
+            hDesc = hm.require("Description");
+        }
+
+        @Override
+        void row(int rowIndex, RowCells row) {
+            String categoryCode = nonNull(row.str(hCode));
+            if (isBlank(categoryCode)) return;
+
+            String categoryDescription = nonNull(row.str(hDesc));
+            categoryDescriptionByCode.put(categoryCode, categoryDescription);
+        }
+
+        @Override
+        Map<String, String> result() {
+            return categoryDescriptionByCode;
+        }
+    }
+
+    static final class PosItemSheet extends SheetHandler<Map<String, LinkedHashSet<String>>> {
+        private final Map<String, LinkedHashSet<String>> itemCodesByCategoryCode = new LinkedHashMap<>();
+        private int pCode;
+        private int pItemCode;
+
+        PosItemSheet() {
+            super(SHEET_POS_ITEM, "MDHierarchyCode", "ItemCode");
+        }
+
+        @Override
+        void bindColumns(HeaderMap hm) {
+            pCode = hm.require("MDHierarchyCode");
+            pItemCode = hm.require("ItemCode");
+        }
+
+        @Override
+        void row(int rowIndex, RowCells row) {
+            String categoryCode = nonNull(row.str(pCode));
+            String itemCode = nonNull(row.str(pItemCode));
+            if (isBlank(categoryCode) || isBlank(itemCode)) return;
+
+            itemCodesByCategoryCode
+                    .computeIfAbsent(categoryCode, k -> new LinkedHashSet<>())
+                    .add(itemCode);
+        }
+
+        @Override
+        Map<String, LinkedHashSet<String>> result() {
+            return itemCodesByCategoryCode;
+        }
+    }
+
+    static final class CategoryMasterSheet extends SheetHandler<Map<String, HandyCategoryMeta>> {
+        private final Map<String, HandyCategoryMeta> handyCategoryByCode = new LinkedHashMap<>();
+        private int cCode;
+        private int cDisplayLevel;
+        private Integer cDescription;
+
+        CategoryMasterSheet() {
+            super(SHEET_CATEGORY_MASTER, "CategoryCode", "DisplayLevel");
+        }
+
+        @Override
+        void bindColumns(HeaderMap hm) {
+            cCode = hm.require("CategoryCode");
+            cDisplayLevel = hm.require("DisplayLevel");
+            cDescription = ExcelSupport.firstExisting(
+                    hm,
+                    "Description",
+                    "CategoryName",
+                    "CategoryDescription"
+            );
+        }
+
+        @Override
+        void row(int rowIndex, RowCells row) {
+            String categoryCode = nonNull(row.str(cCode));
+            if (isBlank(categoryCode)) return;
+
+            String displayLevelRaw = nonNull(row.str(cDisplayLevel));
+            if (isBlank(displayLevelRaw)) return;
+            int displayLevel = parseIntStrict(displayLevelRaw, "CategoryMaster.DisplayLevel");
+
+            String description = cDescription == null
+                    ? categoryCode
+                    : nonNull(row.str(cDescription));
+            if (isBlank(description)) {
+                description = categoryCode;
+            }
+
+            HandyCategoryMeta current = handyCategoryByCode.get(categoryCode);
+            if (current == null || displayLevel < current.displayLevel()) {
+                handyCategoryByCode.put(
+                        categoryCode,
+                        new HandyCategoryMeta(categoryCode, description, displayLevel)
+                );
+            }
+        }
+
+        @Override
+        Map<String, HandyCategoryMeta> result() {
+            return handyCategoryByCode;
+        }
+    }
+
+    static final class ItemCategoryMasterSheet extends SheetHandler<Map<String, List<HandyItemRef>>> {
+        private final Map<String, List<HandyItemRef>> handyItemsByCategoryCode = new LinkedHashMap<>();
+        private long itemSequence = 0L;
+        private int icCategoryCode;
+        private int icItemCode;
+        private int icDisplayLevel;
+
+        ItemCategoryMasterSheet() {
+            super(SHEET_ITEM_CATEGORY_MASTER, "CategoryCode", "ItemCode");
+        }
+
+        @Override
+        void bindColumns(HeaderMap hm) {
+            icCategoryCode = hm.require("CategoryCode");
+            icItemCode = hm.require("ItemCode");
+            icDisplayLevel = hm.require("DisplayLevel");
+        }
+
+        @Override
+        void row(int rowIndex, RowCells row) {
+            String categoryCode = nonNull(row.str(icCategoryCode));
+            String itemCode = nonNull(row.str(icItemCode));
+            if (isBlank(categoryCode) || isBlank(itemCode)) return;
+
+            int displayLevel = parseIntStrict(
+                    nonNull(row.str(icDisplayLevel)),
+                    "ItemCategoryMaster.DisplayLevel"
+            );
+
+            handyItemsByCategoryCode
+                    .computeIfAbsent(categoryCode, k -> new ArrayList<>())
+                    .add(new HandyItemRef(itemCode, displayLevel, itemSequence));
+            itemSequence += 1;
+        }
+
+        @Override
+        Map<String, List<HandyItemRef>> result() {
+            return handyItemsByCategoryCode;
+        }
+    }
+
+    // ---- helpers ----
+    static boolean isBlank(String s) { return s == null || s.trim().isEmpty(); }
+    static String nonNull(String s) { return s == null ? "" : s; }
+    private static String buttonRowId(int zeroBasedRowIndex) {
+        return SHEET_BUTTON + "#R" + (zeroBasedRowIndex + 1);
+    }
+
+    private static ItemCatalog.Category toItemCategory(
+            String categoryCode,
+            String categoryDescription,
+            Collection<String> itemCodes,
+            Map<String, ItemInfo> itemInfoByItemCode
+    ) {
+        List<ItemCatalog.Item> items = new ArrayList<>();
+        for (String itemCode : itemCodes) {
+            ItemInfo info = itemInfoByItemCode.get(itemCode);
+            String itemName = info == null ? itemCode : normalizeItemName(info.itemName(), itemCode);
+            String unitPrice = info == null ? "" : info.unitPrice();
+            items.add(new ItemCatalog.Item(itemCode, itemName, unitPrice));
+        }
+        String normalizedDescription = isBlank(categoryDescription) ? categoryCode : categoryDescription;
+        return new ItemCatalog.Category(categoryCode, normalizedDescription, items);
+    }
+
+    private static String normalizeItemName(String itemName, String fallback) {
+        return isBlank(itemName) ? fallback : itemName;
+    }
+
+    private static int parseIntStrict(String s, String field) {
+        if (s == null) throw new IllegalArgumentException("Missing value: " + field);
+        String t = s.trim();
+        if (t.endsWith(".0")) t = t.substring(0, t.length() - 2);
+        if (!isAsciiInteger(t)) throw new IllegalArgumentException("Not an int (" + field + "): " + s);
+        return Integer.parseInt(t);
+    }
+
+    // "^-?\\d+$" と同じ判定（行ごとの正規表現コンパイルを避ける）
+    private static boolean isAsciiInteger(String t) {
+        int start = t.startsWith("-") ? 1 : 0;
+        if (t.length() == start) return false;
+        for (int i = start; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    record ButtonRow(int page, int col, int row, String description, int styleKey, String itemCode, int rowIndex) {
+    }
+
+    record ItemInfo(String itemName, String unitPrice) {
+    }
+
+    record HandyCategoryMeta(String categoryCode, String description, int displayLevel) {
+    }
+
+    record HandyItemRef(String itemCode, int displayLevel, long sequence) {
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.dao;
+
+import com.example.demo.model.WorkbookContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Original workbooks stored once per content, as {@code <dir>/<sha256>}, and shared by every draft that was
+ * imported from the same file.
+ * <p>
+ * Blobs are read through read-only memory-mapped buffers, so the bytes live in the page cache instead of the
+ * heap, and all drafts using a blob share one {@link WorkbookContent} instance. The store counts how many
+ * persisted drafts reference each blob; {@link #collectGarbage()} deletes blobs nobody references.
+ * Callers serialize writes, reference changes and garbage collection (the draft repository's file lock).
+ */
+final class WorkbookBlobStore {
+    private static final Logger log = LoggerFactory.getLogger(WorkbookBlobStore.class);
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path dir;
+    private final boolean fsync;
+    private final Map<String, WorkbookContent> mapped = new ConcurrentHashMap<>();
+    private final Map<String, Integer> referenceCounts = new ConcurrentHashMap<>();
+
+    WorkbookBlobStore(Path dir, boolean fsync) {
+        this.dir = dir;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException ex) {
+            throw new IllegalStateException("failed to create workbook blob directory: " + dir, ex);
+        }
+    }
+
+    /**
+     * Makes sure the blob for {@code content} exists and returns the shared mapped handle for it.
+     */
+    WorkbookContent store(WorkbookContent content) throws IOException {
+        String hash = content.getContentHash();
+        Path path = blobPath(hash);
+        if (!Files.exists(path)) {
+            write(content, path);
+        }
+        return open(hash);
+    }
+
+    WorkbookContent open(String hash) throws IOException {
+        if (!HASH.matcher(hash).matches()) {
+            throw new IOException("invalid blob hash: " + hash);
+        }
+        WorkbookContent cached = mapped.get(hash);
+        if (cached != null) {
+            return cached;
+        }
+        try (FileChannel channel = FileChannel.open(blobPath(hash), StandardOpenOption.READ)) {
+            // マップはチャネルを閉じても有効
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            WorkbookContent content = WorkbookContent.mapped(buffer, hash);
+            WorkbookContent raced = mapped.putIfAbsent(hash, content);
+            return raced != null ? raced : content;
+        } catch (NoSuchFileException ex) {
+            throw new IOException("workbook blob not found: " + hash, ex);
+        }
+    }
+
+    void retain(String hash) {
+        referenceCounts.merge(hash, 1, Integer::sum);
+    }
+
+    void release(String hash) {
+        Integer remaining = referenceCounts.computeIfPresent(hash, (key, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null) {
+            delete(hash);
+        }
+    }
+
+    int referenceCount(String hash) {
+        return referenceCounts.getOrDefault(hash, 0);
+    }
+
+    /**
+     * Deletes every blob with no references, e.g. left behind by a crash between writing a blob and the draft
+     * snapshot that points to it. Only call once all persisted drafts have been counted.
+     */
+    int collectGarbage() {
+        int deleted = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                String hash = path.getFileName().toString();
+                if (HASH.matcher(hash).matches() && !referenceCounts.containsKey(hash)) {
+                    if (delete(hash)) {
+                        deleted++;
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Failed to collect unreferenced workbook blobs in {}", dir, ex);
+        }
+        return deleted;
+    }
+
+    private boolean delete(String hash) {
+        // 既にマップ済みのバッファはファイルを消しても読める。新しく開くことはなくなる
+        mapped.remove(hash);
+        try {
+            return Files.deleteIfExists(blobPath(hash));
+        } catch (IOException ex) {
+            log.warn("Failed to delete workbook blob: {}", hash, ex);
+            return false;
+        }
+    }
+
+    private void write(WorkbookContent content, Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(
+                temp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        )) {
+            OutputStream out = Channels.newOutputStream(channel);
+            content.writeTo(out);
+            out.flush();
+            if (fsync) {
+                channel.force(false);
+            }
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path blobPath(String hash) {
+        return dir.resolve(hash);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.model;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The change records of a draft's undo history, oldest first, with their estimated sizes so retention can be
+ * limited by count and by bytes ({@link HistoryPolicy}).
+ *
+ * <p>A persistent deque over {@link PersistentVector}: appending, cutting off the redo branch and dropping the
+ * oldest records return a new history sharing everything else with the old one, in O(log n) without copying.
+ * The total size of any version is O(log n) too, from the running sums kept per record. Serializes as a plain
+ * {@code List.copyOf} list.
+ */
+final class ChangeHistory extends AbstractList<PosDraft.ChangeRecord> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final ChangeHistory EMPTY = new ChangeHistory(PersistentVector.empty());
+
+    private final transient PersistentVector<Slot> slots;
+
+    private ChangeHistory(PersistentVector<Slot> slots) {
+        this.slots = slots;
+    }
+
+    static ChangeHistory empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns {@code records} itself when it already is a change history, otherwise a copy (O(n) estimates).
+     */
+    static ChangeHistory copyOf(List<PosDraft.ChangeRecord> records) {
+        if (records instanceof ChangeHistory history) {
+            return history;
+        }
+        ChangeHistory history = empty();
+        if (records != null) {
+            for (PosDraft.ChangeRecord changeRecord : records) {
+                history = history.append(changeRecord);
+            }
+        }
+        return history;
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    @Override
+    public PosDraft.ChangeRecord get(int index) {
+        return slots.get(index).changeRecord();
+    }
+
+    @Override
+    public Iterator<PosDraft.ChangeRecord> iterator() {
+        Iterator<Slot> iterator = slots.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public PosDraft.ChangeRecord next() {
+                return iterator.next().changeRecord();
+            }
+        };
+    }
+
+    /**
+     * Estimated heap retained by the records of this history.
+     */
+    long estimatedBytes() {
+        return slots.isEmpty() ? 0 : slots.get(slots.size() - 1).endBytes() - slots.get(0).startBytes();
+    }
+
+    ChangeHistory append(PosDraft.ChangeRecord changeRecord) {
+        long startBytes = slots.isEmpty() ? 0 : slots.get(slots.size() - 1).endBytes();
+        return new ChangeHistory(slots.append(
+                new Slot(changeRecord, startBytes, startBytes + ChangeSizeEstimator.estimate(changeRecord))
+        ));
+    }
+
+    /**
+     * Keeps the first {@code count} records, e.g. to cut off the redo branch before an edit.
+     */
+    ChangeHistory truncate(int count) {
+        PersistentVector<Slot> kept = slots.take(count);
+        return kept == slots ? this : new ChangeHistory(kept);
+    }
+
+    ChangeHistory dropFirst(int count) {
+        PersistentVector<Slot> kept = slots.drop(count);
+        return kept == slots ? this : new ChangeHistory(kept);
+    }
+
+    /**
+     * How many of the oldest records to drop so the history fits {@code policy}. The newest record is always
+     * kept, so the last edit stays undoable even when it alone exceeds the byte budget.
+     */
+    int excess(HistoryPolicy policy) {
+        int size = slots.size();
+        if (size == 0) {
+            return 0;
+        }
+        // 件数は最初の履歴（インポートなど）も含めて数える
+        int count = Math.max(0, size + 1 - policy.maxEntries());
+        if (policy.maxBytes() > 0 && estimatedBytes() > policy.maxBytes()) {
+            // 累計は単調増加なので、残す範囲が予算に収まる最初の記録を二分探索する
+            long minStart = slots.get(size - 1).endBytes() - policy.maxBytes();
+            int first = -(slots.search(slot -> slot.startBytes() < minStart ? -1 : 1) + 1);
+            count = Math.max(count, first);
+        }
+        return Math.min(count, size - 1);
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return List.copyOf(this);
+    }
+
+    // startBytes / endBytes: 最初に追加した記録からの推定バイト数の累計（この記録の前と後）
+    private record Slot(PosDraft.ChangeRecord changeRecord, long startBytes, long endBytes) {
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.model;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rough heap retained by one history record, for the byte budget of {@link ChangeHistory}. A config diff counts
+ * both sides of the parts it holds; a legacy snapshot change only counts the pages and categories it does not
+ * share with the config it replaced, since the unchanged ones are held by the neighbouring states anyway.
+ * Same object sizes as the repository's draft estimate; the result only needs to be proportional to the real
+ * footprint.
+ */
+final class ChangeSizeEstimator {
+    private static final long OBJECT = 16;
+    private static final long REFERENCE = 4;
+    private static final long STRING = 40;
+    private static final long MAP_ENTRY = 48;
+    private static final long ARRAY = 16;
+
+    private ChangeSizeEstimator() {
+    }
+
+    static long estimate(PosDraft.ChangeRecord changeRecord) {
+        PosDraft.HistoryEntry entry = changeRecord.getEntry();
+        return OBJECT + 2 * REFERENCE
+                + OBJECT + 2 * REFERENCE + string(entry.getAction()) + string(entry.getTimestamp())
+                + change(changeRecord.getChange());
+    }
+
+    private static long change(PosDraft.Change change) {
+        long bytes = OBJECT + 6 * REFERENCE;
+        if (change instanceof PosDraft.SnapshotReplaceChange c) {
+            bytes += changedParts(c.getBeforeConfig(), c.getAfterConfig());
+        } else if (change instanceof PosDraft.ConfigDiffChange c) {
+            bytes += categories(c.getBeforeCategories()) + categories(c.getAfterCategories())
+                    + pageDiff(c.getBeforePages()) + pageDiff(c.getAfterPages());
+        } else if (change instanceof PosDraft.AddButtonChange c) {
+            bytes += button(c.getButton());
+        } else if (change instanceof PosDraft.DeleteButtonChange c) {
+            bytes += button(c.getButton());
+        } else if (change instanceof PosDraft.UpdateUnitPriceChange c) {
+            bytes += string(c.getButtonId()) + string(c.getBeforeUnitPrice()) + string(c.getAfterUnitPrice());
+        } else if (change instanceof PosDraft.UpdateItemMasterItemChange c) {
+            bytes += itemMasterItem(c.getBeforeItem()) + itemMasterItem(c.getAfterItem());
+        } else if (change instanceof PosDraft.AddCategoryChange c) {
+            bytes += category(c.getCategory());
+        } else if (change instanceof PosDraft.DeleteCategoryChange c) {
+            bytes += category(c.getCategory()) + page(c.getPage());
+        } else if (change instanceof PosDraft.DeleteHandyItemChange c) {
+            bytes += item(c.getDeletedItem());
+        } else if (change instanceof PosDraft.AddHandyItemChange c) {
+            bytes += item(c.getAddedItem());
+        } else if (change instanceof PosDraft.AddHandyCategoryChange c) {
+            bytes += itemCategory(c.getCategory());
+        } else if (change instanceof PosDraft.DeleteHandyCategoryChange c) {
+            bytes += itemCategory(c.getCategory());
+        } else if (change instanceof PosDraft.CompositeChange c) {
+            bytes += ARRAY + c.getChanges().size() * REFERENCE;
+            for (PosDraft.Change part : c.getChanges()) {
+                bytes += change(part);
+            }
+        }
+        return bytes;
+    }
+
+    private static long changedParts(PosConfig before, PosConfig after) {
+        if (before == after) {
+            return 0;
+        }
+        long bytes = OBJECT + 2 * REFERENCE + ARRAY + after.getCategories().size() * REFERENCE;
+        Set<PosConfig.Category> beforeCategories = Collections.newSetFromMap(new IdentityHashMap<>());
+        beforeCategories.addAll(before.getCategories());
+        for (PosConfig.Category category : after.getCategories()) {
+            if (!beforeCategories.contains(category)) {
+                bytes += category(category);
+            }
+        }
+        Map<Integer, PosConfig.Page> beforePages = before.getPagesByPageNumber();
+        for (Map.Entry<Integer, PosConfig.Page> entry : after.getPagesByPageNumber().entrySet()) {
+            if (beforePages.get(entry.getKey()) != entry.getValue()) {
+                bytes += MAP_ENTRY + page(entry.getValue());
+            }
+        }
+        return bytes;
+    }
+
+    private static long categories(List<PosConfig.Category> categories) {
+        if (categories == null) {
+            return 0;
+        }
+        long bytes = ARRAY + categories.size() * REFERENCE;
+        for (PosConfig.Category category : categories) {
+            bytes += category(category);
+        }
+        return bytes;
+    }
+
+    private static long pageDiff(Map<Integer, PosConfig.Page> pagesByNumber) {
+        long bytes = 0;
+        for (PosConfig.Page page : pagesByNumber.values()) {
+            bytes += MAP_ENTRY + page(page);
+        }
+        return bytes;
+    }
+
+    private static long category(PosConfig.Category category) {
+        return OBJECT + 5 * REFERENCE + string(category.getName());
+    }
+
+    private static long page(PosConfig.Page page) {
+        long bytes = OBJECT + 4 * REFERENCE + ARRAY + page.getButtons().size() * REFERENCE;
+        for (PosConfig.Button button : page.getButtons()) {
+            bytes += button(button);
+        }
+        return bytes;
+    }
+
+    private static long button(PosConfig.Button button) {
+        return OBJECT + 7 * REFERENCE
+                + string(button.getLabel())
+                + string(button.getItemCode())
+                + string(button.getUnitPrice())
+                + string(button.getButtonId());
+    }
+
+    private static long itemCategory(ItemCatalog.Category category) {
+        long bytes = OBJECT + 3 * REFERENCE + ARRAY + category.getItems().size() * REFERENCE
+                + string(category.getCode())
+                + string(category.getDescription());
+        for (ItemCatalog.Item item : category.getItems()) {
+            bytes += item(item);
+        }
+        return bytes;
+    }
+
+    private static long item(ItemCatalog.Item item) {
+        return OBJECT + 3 * REFERENCE
+                + string(item.getItemCode())
+                + string(item.getItemName())
+                + string(item.getUnitPrice());
+    }
+
+    private static long itemMasterItem(ItemMasterCatalog.Item item) {
+        return OBJECT + 5 * REFERENCE
+                + string(item.getItemCode())
+                + string(item.getItemNamePrint())
+                + string(item.getUnitPrice())
+                + string(item.getCostPrice())
+                + string(item.getBasePrice());
+    }
+
+    private static long string(String value) {
+        return value == null ? 0 : STRING + 2L * value.length();
+    }
+}
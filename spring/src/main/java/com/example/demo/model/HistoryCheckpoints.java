@@ -0,0 +1,108 @@
+package com.example.demo.model;
+
+import java.util.Map;
+
+/**
+ * Draft states materialized at every {@link HistoryPolicy#checkpointInterval()}-th history position, so a jump
+ * replays changes from the nearest checkpoint instead of undoing or redoing every step from the current state.
+ * Immutable and shared between draft versions; checkpoints share their unchanged pages with each other and with
+ * the drafts they came from. Never persisted.
+ */
+final class HistoryCheckpoints {
+    private final HistoryPolicy policy;
+    // 先頭から切り捨てた履歴の数。キーは切り捨て前から数えた位置（base + historyIndex）なので、
+    // 切り捨てても残ったチェックポイントの位置がずれない
+    private final long base;
+    private final PersistentSortedMap<Long, PosDraft.State> states;
+
+    private HistoryCheckpoints(HistoryPolicy policy, long base, PersistentSortedMap<Long, PosDraft.State> states) {
+        this.policy = policy;
+        this.base = base;
+        this.states = states;
+    }
+
+    static HistoryCheckpoints empty(HistoryPolicy policy) {
+        return new HistoryCheckpoints(policy, 0, PersistentSortedMap.empty());
+    }
+
+    HistoryPolicy policy() {
+        return policy;
+    }
+
+    int size() {
+        return states.size();
+    }
+
+    /**
+     * Whether the state at {@code historyIndex} should be recorded and is not yet.
+     */
+    boolean isDue(int historyIndex) {
+        long position = base + historyIndex;
+        return policy.maxCheckpoints() > 0
+                && position % policy.checkpointInterval() == 0
+                && !states.containsKey(position);
+    }
+
+    HistoryCheckpoints record(int historyIndex, PosDraft.State state) {
+        if (!isDue(historyIndex)) {
+            return this;
+        }
+        long position = base + historyIndex;
+        PersistentSortedMap<Long, PosDraft.State> next = states.with(position, state);
+        // 予算を超えたら、記録した位置から遠い端を落とす
+        while (next.size() > policy.maxCheckpoints()) {
+            long first = next.firstEntry().getKey();
+            long last = next.lastEntry().getKey();
+            next = next.without(position - first >= last - position ? first : last);
+        }
+        return new HistoryCheckpoints(policy, base, next);
+    }
+
+    /**
+     * Drops the checkpoints after {@code historyIndex}, i.e. on the redo branch that an edit discards.
+     */
+    HistoryCheckpoints truncateAfter(int historyIndex) {
+        PersistentSortedMap<Long, PosDraft.State> next = states.headMap(base + historyIndex, true);
+        return next == states ? this : new HistoryCheckpoints(policy, base, next);
+    }
+
+    /**
+     * Follows the history dropping its {@code count} oldest changes.
+     */
+    HistoryCheckpoints dropFirst(int count) {
+        if (count <= 0) {
+            return this;
+        }
+        long nextBase = base + count;
+        return new HistoryCheckpoints(policy, nextBase, states.tailMap(nextBase, true));
+    }
+
+    /**
+     * Forgets every checkpoint, e.g. when a catalog is loaded and the recorded states no longer match what
+     * replaying the history from them would produce.
+     */
+    HistoryCheckpoints cleared() {
+        return states.isEmpty() ? this : new HistoryCheckpoints(policy, base, PersistentSortedMap.empty());
+    }
+
+    /**
+     * The checkpoint closest to {@code historyIndex}, or null when there is none.
+     */
+    Checkpoint nearest(int historyIndex) {
+        long position = base + historyIndex;
+        Map.Entry<Long, PosDraft.State> floor = states.floorEntry(position);
+        Map.Entry<Long, PosDraft.State> ceiling = states.ceilingEntry(position);
+        Map.Entry<Long, PosDraft.State> nearest;
+        if (floor == null) {
+            nearest = ceiling;
+        } else if (ceiling == null) {
+            nearest = floor;
+        } else {
+            nearest = position - floor.getKey() <= ceiling.getKey() - position ? floor : ceiling;
+        }
+        return nearest == null ? null : new Checkpoint((int) (nearest.getKey() - base), nearest.getValue());
+    }
+
+    record Checkpoint(int historyIndex, PosDraft.State state) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.model;
+
+/**
+ * How a draft keeps its undo history in memory.
+ *
+ * @param maxEntries           retention by count: at most this many history entries, the initial one included;
+ *                             the oldest changes are dropped first
+ * @param maxBytes             retention by size: at most this many estimated bytes of change records, the oldest
+ *                             dropped first but the newest always kept; 0 disables the limit
+ * @param checkpointInterval   the draft state is materialized at every history position that is a multiple of
+ *                             this, so a history jump replays at most {@code checkpointInterval - 1} changes
+ * @param maxCheckpoints       memory budget: at most this many checkpoints per draft, dropping the one farthest
+ *                             from the current position first; 0 disables checkpoints
+ * @param coalesceWindowMillis an edit with the same action as the last one, made within this many milliseconds
+ *                             of it, is merged into the last record when the change supports it (see
+ *                             {@link PosDraft.Change#coalesce}); 0 disables merging
+ */
+public record HistoryPolicy(
+        int maxEntries,
+        long maxBytes,
+        int checkpointInterval,
+        int maxCheckpoints,
+        long coalesceWindowMillis
+) {
+    public static final HistoryPolicy DEFAULT = new HistoryPolicy(100, 16L * 1024 * 1024, 10, 16);
+
+    public HistoryPolicy {
+        if (maxEntries < 2) {
+            throw new IllegalArgumentException("maxEntries must be at least 2: " + maxEntries);
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("checkpointInterval must be positive: " + checkpointInterval);
+        }
+        if (maxCheckpoints < 0) {
+            throw new IllegalArgumentException("maxCheckpoints must not be negative: " + maxCheckpoints);
+        }
+        if (coalesceWindowMillis < 0) {
+            throw new IllegalArgumentException("coalesceWindowMillis must not be negative: " + coalesceWindowMillis);
+        }
+    }
+
+    // 編集をまとめない
+    public HistoryPolicy(int maxEntries, long maxBytes, int checkpointInterval, int maxCheckpoints) {
+        this(maxEntries, maxBytes, checkpointInterval, maxCheckpoints, 0);
+    }
+}
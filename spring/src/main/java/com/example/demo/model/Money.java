@@ -0,0 +1,156 @@
+package com.example.demo.model;
+
+import java.io.Serializable;
+
+/**
+ * Non-negative fixed-point amount, {@code minorUnits / 10^scale}. The scale is the one the text was written
+ * with, so {@code "100.50"} formats back as {@code "100.50"}.
+ *
+ * <p>Accepts the same text as the former {@code ^\d+(\.\d+)?$} check after trimming and removing commas, as long
+ * as the minor units fit in a {@code long} and there are at most 18 decimals. {@link #parse} and
+ * {@link #parseOrNull} scan the text once without a regex.
+ */
+public final class Money implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_SCALE = 18;
+    private static final long[] POW10 = new long[MAX_SCALE + 1];
+    // これ未満の整数は double で正確に表せる
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private final long minorUnits;
+    private final int scale;
+
+    private Money(long minorUnits, int scale) {
+        this.minorUnits = minorUnits;
+        this.scale = scale;
+    }
+
+    public static Money of(long minorUnits, int scale) {
+        if (minorUnits < 0) {
+            throw new IllegalArgumentException("minorUnits must not be negative: " + minorUnits);
+        }
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("scale out of range: " + scale);
+        }
+        return new Money(minorUnits, scale);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code text} is not a plain decimal number
+     */
+    public static Money parse(String text) {
+        Money money = parseOrNull(text);
+        if (money == null) {
+            throw new IllegalArgumentException("not a plain decimal number: " + text);
+        }
+        return money;
+    }
+
+    /**
+     * Returns null for null, blank or non-numeric text (e.g. a price cell formatted as {@code "¥100"}).
+     */
+    public static Money parseOrNull(String text) {
+        if (text == null) {
+            return null;
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        long minorUnits = 0;
+        int digits = 0;
+        int scale = -1; // 小数点より前は -1
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == ',') {
+                continue;
+            }
+            if (c == '.') {
+                if (scale >= 0 || digits == 0) {
+                    return null;
+                }
+                scale = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            if (minorUnits > (Long.MAX_VALUE - (c - '0')) / 10) {
+                return null;
+            }
+            minorUnits = minorUnits * 10 + (c - '0');
+            digits++;
+            if (scale >= 0 && ++scale > MAX_SCALE) {
+                return null;
+            }
+        }
+        if (digits == 0 || scale == 0) {
+            return null;
+        }
+        return new Money(minorUnits, Math.max(scale, 0));
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public double toDouble() {
+        if (minorUnits < EXACT_DOUBLE_LIMIT) {
+            // 割る数・割られる数とも正確なので、1回の割り算で最も近い double になる
+            return scale == 0 ? minorUnits : minorUnits / (double) POW10[scale];
+        }
+        return Double.parseDouble(toPlainString());
+    }
+
+    public String toPlainString() {
+        String digits = Long.toString(minorUnits);
+        if (scale == 0) {
+            return digits;
+        }
+        StringBuilder sb = new StringBuilder(Math.max(digits.length(), scale + 1) + 1);
+        if (digits.length() <= scale) {
+            sb.append("0.");
+            sb.append("0".repeat(scale - digits.length()));
+            sb.append(digits);
+        } else {
+            sb.append(digits, 0, digits.length() - scale);
+            sb.append('.');
+            sb.append(digits, digits.length() - scale, digits.length());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Money other && minorUnits == other.minorUnits && scale == other.scale;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + scale;
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.demo.model;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable map iterated in key order whose {@link #with} / {@link #without} return a new map sharing all
+ * untouched structure with the old one. Lookups and edits are O(log n); see {@link PersistentVector}.
+ * Serializes as an unmodifiable {@link LinkedHashMap}.
+ */
+final class PersistentSortedMap<K extends Comparable<? super K>, V> extends AbstractMap<K, V> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final PersistentSortedMap<?, ?> EMPTY = new PersistentSortedMap<>(PersistentVector.empty());
+
+    // キー順に並べたエントリ
+    private final transient PersistentVector<Map.Entry<K, V>> entries;
+
+    private PersistentSortedMap(PersistentVector<Map.Entry<K, V>> entries) {
+        this.entries = entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+        return (PersistentSortedMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns {@code map} itself when it already is a persistent sorted map, otherwise a copy (O(n log n)).
+     */
+    @SuppressWarnings("unchecked")
+    static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentSortedMap<?, ?> persistent) {
+            return (PersistentSortedMap<K, V>) persistent;
+        }
+        if (map == null || map.isEmpty()) {
+            return empty();
+        }
+        List<Map.Entry<K, V>> sorted = new ArrayList<>(map.size());
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            sorted.add(new SimpleImmutableEntry<>(
+                    Objects.requireNonNull(entry.getKey()),
+                    Objects.requireNonNull(entry.getValue())
+            ));
+        }
+        sorted.sort(Map.Entry.comparingByKey());
+        return new PersistentSortedMap<>(PersistentVector.copyOf(sorted));
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : entries.get(index).getValue();
+    }
+
+    PersistentSortedMap<K, V> with(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        int index = indexOf(key);
+        if (index >= 0) {
+            if (entries.get(index).getValue() == value) {
+                return this;
+            }
+            return new PersistentSortedMap<>(entries.replace(index, new SimpleImmutableEntry<>(key, value)));
+        }
+        return new PersistentSortedMap<>(entries.insert(-(index + 1), new SimpleImmutableEntry<>(key, value)));
+    }
+
+    PersistentSortedMap<K, V> without(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? this : new PersistentSortedMap<>(entries.removeAt(index));
+    }
+
+    Map.Entry<K, V> firstEntry() {
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    Map.Entry<K, V> lastEntry() {
+        return entries.isEmpty() ? null : entries.get(entries.size() - 1);
+    }
+
+    /**
+     * The entry with the greatest key at or below {@code key}, or null.
+     */
+    Map.Entry<K, V> floorEntry(K key) {
+        int index = upperBound(key) - 1;
+        return index < 0 ? null : entries.get(index);
+    }
+
+    /**
+     * The entry with the least key at or above {@code key}, or null.
+     */
+    Map.Entry<K, V> ceilingEntry(K key) {
+        int index = lowerBound(key);
+        return index >= entries.size() ? null : entries.get(index);
+    }
+
+    /**
+     * Entries with keys below {@code toKey} (or equal to it when {@code inclusive}); O(log n).
+     */
+    PersistentSortedMap<K, V> headMap(K toKey, boolean inclusive) {
+        PersistentVector<Map.Entry<K, V>> head = entries.take(inclusive ? upperBound(toKey) : lowerBound(toKey));
+        return head == entries ? this : new PersistentSortedMap<>(head);
+    }
+
+    /**
+     * Entries with keys above {@code fromKey} (or equal to it when {@code inclusive}); O(log n).
+     */
+    PersistentSortedMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        PersistentVector<Map.Entry<K, V>> tail = entries.drop(inclusive ? lowerBound(fromKey) : upperBound(fromKey));
+        return tail == entries ? this : new PersistentSortedMap<>(tail);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return entries.iterator();
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private int indexOf(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        K target = (K) key;
+        return entries.search(entry -> entry.getKey().compareTo(target));
+    }
+
+    // key 以上の最初の位置
+    private int lowerBound(K key) {
+        return -(entries.search(entry -> entry.getKey().compareTo(key) < 0 ? -1 : 1) + 1);
+    }
+
+    // key より大きい最初の位置
+    private int upperBound(K key) {
+        return -(entries.search(entry -> entry.getKey().compareTo(key) <= 0 ? -1 : 1) + 1);
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(this));
+    }
+}
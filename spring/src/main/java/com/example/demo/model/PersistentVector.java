@@ -0,0 +1,311 @@
+package com.example.demo.model;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Immutable list whose edits return a new list sharing all untouched structure with the old one.
+ *
+ * <p>Backed by a size-annotated AVL tree ordered by position. {@link #get}, {@link #replace}, {@link #insert},
+ * {@link #removeAt}, {@link #append}, {@link #take} and {@link #drop} are O(log n) in time and allocation.
+ * The {@link List} mutators throw {@link UnsupportedOperationException} like {@link List#copyOf}. Elements must
+ * not be null. Serializes as a plain {@code List.copyOf} list.
+ */
+final class PersistentVector<E> extends AbstractList<E> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(null);
+
+    private final transient Node<E> root;
+
+    private PersistentVector(Node<E> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    /**
+     * Returns {@code elements} itself when it already is a persistent vector, otherwise a balanced copy (O(n)).
+     */
+    @SuppressWarnings("unchecked")
+    static <E> PersistentVector<E> copyOf(Collection<? extends E> elements) {
+        if (elements instanceof PersistentVector<?> vector) {
+            return (PersistentVector<E>) vector;
+        }
+        if (elements == null || elements.isEmpty()) {
+            return empty();
+        }
+        Object[] array = elements.toArray();
+        for (Object element : array) {
+            Objects.requireNonNull(element);
+        }
+        return new PersistentVector<>(build((E[]) array, 0, array.length));
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public E get(int index) {
+        Objects.checkIndex(index, size());
+        Node<E> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    PersistentVector<E> replace(int index, E element) {
+        Objects.checkIndex(index, size());
+        Objects.requireNonNull(element);
+        return new PersistentVector<>(replace(root, index, element));
+    }
+
+    PersistentVector<E> insert(int index, E element) {
+        Objects.checkIndex(index, size() + 1);
+        Objects.requireNonNull(element);
+        Split<E> split = split(root, index);
+        return new PersistentVector<>(join(split.left, element, split.right));
+    }
+
+    PersistentVector<E> append(E element) {
+        return insert(size(), element);
+    }
+
+    PersistentVector<E> removeAt(int index) {
+        Objects.checkIndex(index, size());
+        return new PersistentVector<>(remove(root, index));
+    }
+
+    /**
+     * The first {@code count} elements.
+     */
+    PersistentVector<E> take(int count) {
+        if (count >= size()) {
+            return this;
+        }
+        return count <= 0 ? empty() : new PersistentVector<>(split(root, count).left);
+    }
+
+    /**
+     * All but the first {@code count} elements.
+     */
+    PersistentVector<E> drop(int count) {
+        if (count <= 0) {
+            return this;
+        }
+        return count >= size() ? empty() : new PersistentVector<>(split(root, count).right);
+    }
+
+    /**
+     * Binary search over a vector sorted by the order {@code comparison} probes: it returns a negative number,
+     * zero or a positive number when the element sorts before, at or after the target. Same result convention
+     * as {@link java.util.Collections#binarySearch}.
+     */
+    int search(ToIntFunction<? super E> comparison) {
+        Node<E> node = root;
+        int offset = 0;
+        while (node != null) {
+            int cmp = comparison.applyAsInt(node.value);
+            if (cmp < 0) {
+                offset += size(node.left) + 1;
+                node = node.right;
+            } else if (cmp > 0) {
+                node = node.left;
+            } else {
+                return offset + size(node.left);
+            }
+        }
+        return -(offset + 1);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            // 左端まで降りた経路。次に返す要素が先頭
+            private final Deque<Node<E>> path = new ArrayDeque<>();
+
+            {
+                descendLeft(root);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<E> node = path.pop();
+                descendLeft(node.right);
+                return node.value;
+            }
+
+            private void descendLeft(Node<E> node) {
+                while (node != null) {
+                    path.push(node);
+                    node = node.left;
+                }
+            }
+        };
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return List.copyOf(this);
+    }
+
+    // ---- AVL tree ----
+
+    private static final class Node<E> {
+        final Node<E> left;
+        final E value;
+        final Node<E> right;
+        final int size;
+        final int height;
+
+        Node(Node<E> left, E value, Node<E> right) {
+            this.left = left;
+            this.value = value;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    private record Split<E>(Node<E> left, Node<E> right) {
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static <E> Node<E> build(E[] elements, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node<>(build(elements, from, mid), elements[mid], build(elements, mid + 1, to));
+    }
+
+    private static <E> Node<E> replace(Node<E> node, int index, E element) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return new Node<>(replace(node.left, index, element), node.value, node.right);
+        }
+        if (index > leftSize) {
+            return new Node<>(node.left, node.value, replace(node.right, index - leftSize - 1, element));
+        }
+        return new Node<>(node.left, element, node.right);
+    }
+
+    private static <E> Node<E> remove(Node<E> node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return join(remove(node.left, index), node.value, node.right);
+        }
+        if (index > leftSize) {
+            return join(node.left, node.value, remove(node.right, index - leftSize - 1));
+        }
+        return concat(node.left, node.right);
+    }
+
+    private static <E> Split<E> split(Node<E> node, int index) {
+        if (node == null) {
+            return new Split<>(null, null);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            Split<E> split = split(node.left, index);
+            return new Split<>(split.left, join(split.right, node.value, node.right));
+        }
+        Split<E> split = split(node.right, index - leftSize - 1);
+        return new Split<>(join(node.left, node.value, split.left), split.right);
+    }
+
+    private static <E> Node<E> concat(Node<E> left, Node<E> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        Split<E> split = split(left, left.size - 1);
+        return join(split.left, split.right.value, right);
+    }
+
+    // 高さの差がいくらあっても、低い側の高さ分だけ降りて繋ぐ（O(高さの差)）
+    private static <E> Node<E> join(Node<E> left, E value, Node<E> right) {
+        if (height(left) > height(right) + 1) {
+            return joinRight(left, value, right);
+        }
+        if (height(right) > height(left) + 1) {
+            return joinLeft(left, value, right);
+        }
+        return new Node<>(left, value, right);
+    }
+
+    private static <E> Node<E> joinRight(Node<E> left, E value, Node<E> right) {
+        Node<E> inner = left.right;
+        Node<E> joined = height(inner) <= height(right) + 1
+                ? new Node<>(inner, value, right)
+                : joinRight(inner, value, right);
+        if (height(joined) <= height(left.left) + 1) {
+            return new Node<>(left.left, left.value, joined);
+        }
+        if (height(joined.left) > height(joined.right)) {
+            joined = rotateRight(joined);
+        }
+        return rotateLeft(new Node<>(left.left, left.value, joined));
+    }
+
+    private static <E> Node<E> joinLeft(Node<E> left, E value, Node<E> right) {
+        Node<E> inner = right.left;
+        Node<E> joined = height(inner) <= height(left) + 1
+                ? new Node<>(left, value, inner)
+                : joinLeft(left, value, inner);
+        if (height(joined) <= height(right.right) + 1) {
+            return new Node<>(joined, right.value, right.right);
+        }
+        if (height(joined.right) > height(joined.left)) {
+            joined = rotateLeft(joined);
+        }
+        return rotateRight(new Node<>(joined, right.value, right.right));
+    }
+
+    private static <E> Node<E> rotateLeft(Node<E> node) {
+        Node<E> pivot = node.right;
+        return new Node<>(new Node<>(node.left, node.value, pivot.left), pivot.value, pivot.right);
+    }
+
+    private static <E> Node<E> rotateRight(Node<E> node) {
+        Node<E> pivot = node.left;
+        return new Node<>(pivot.left, pivot.value, new Node<>(pivot.right, node.value, node.right));
+    }
+}
@@ -1,24 +1,39 @@
 package com.example.demo.model;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 
 public class PosConfig implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private final List<Category> categories;               // 上段
-    private final Map<Integer, Page> pagesByPageNumber;    // 下段（pageNumberごと）
+    // 版の間で構造を共有する永続コレクション（Java 直列化では通常の List / Map として書き出される）
+    private final List<Category> categories;               // 上段（pageNumber順）
+    private final Map<Integer, Page> pagesByPageNumber;    // 下段（pageNumberごと、pageNumber順）
+    // buttonId / itemCode からページを引く索引。ボタン構成が変わらない編集では次の版へそのまま引き継ぐ
+    private transient volatile ButtonIndex buttonIndex;
 
+    // カテゴリは pageNumber 順に並べ直す（同じ pageNumber の間の並びは保つ）
     public PosConfig(List<Category> categories, Map<Integer, Page> pagesByPageNumber) {
+        this(sortedByPageNumber(categories), PersistentSortedMap.copyOf(pagesByPageNumber), null);
+    }
+
+    private PosConfig(
+            PersistentVector<Category> categories,
+            PersistentSortedMap<Integer, Page> pagesByPageNumber,
+            ButtonIndex buttonIndex
+    ) {
         this.categories = categories;
         this.pagesByPageNumber = pagesByPageNumber;
+        this.buttonIndex = buttonIndex;
     }
 
     public List<Category> getCategories() { return categories; }
@@ -39,9 +54,10 @@ public class PosConfig implements Serializable {
         }
 
         Page swappedPage = page.swapButtons(fromCol, fromRow, toCol, toRow);
-        Map<Integer, Page> updatedPages = new LinkedHashMap<>(pagesByPageNumber);
-        updatedPages.put(pageNumber, swappedPage);
-        return new PosConfig(categories, Collections.unmodifiableMap(updatedPages));
+        if (swappedPage == page) {
+            return this;
+        }
+        return new PosConfig(categoryVector(), pageMap().with(pageNumber, swappedPage), buttonIndex);
     }
 
     public PosConfig addButton(
@@ -67,9 +83,11 @@ public class PosConfig implements Serializable {
 
         Button newButton = new Button(col, row, label, styleKey, itemCode, unitPrice, buttonId);
         Page updatedPage = page.addButton(newButton);
-        Map<Integer, Page> updatedPages = new LinkedHashMap<>(pagesByPageNumber);
-        updatedPages.put(pageNumber, updatedPage);
-        return new PosConfig(categories, Collections.unmodifiableMap(updatedPages));
+        return new PosConfig(
+                categoryVector(),
+                pageMap().with(pageNumber, updatedPage),
+                buttonIndex().withButton(pageNumber, newButton)
+        );
     }
 
     public PosConfig deleteButton(int pageNumber, String buttonId) {
@@ -81,10 +99,14 @@ public class PosConfig implements Serializable {
             throw new IllegalArgumentException("buttonId is required");
         }
 
+        Button deleted = page.findButton(buttonId);
         Page updatedPage = page.deleteButton(buttonId);
-        Map<Integer, Page> updatedPages = new LinkedHashMap<>(pagesByPageNumber);
-        updatedPages.put(pageNumber, updatedPage);
-        return new PosConfig(categories, Collections.unmodifiableMap(updatedPages));
+        ButtonIndex current = buttonIndex;
+        return new PosConfig(
+                categoryVector(),
+                pageMap().with(pageNumber, updatedPage),
+                current == null ? null : current.withoutButton(pageNumber, deleted)
+        );
     }
 
     public PosConfig updateUnitPrice(int pageNumber, String buttonId, String unitPrice) {
@@ -96,13 +118,7 @@ public class PosConfig implements Serializable {
             throw new IllegalArgumentException("buttonId is required");
         }
 
-        Button target = null;
-        for (Button button : page.getButtons()) {
-            if (buttonId.equals(button.getButtonId())) {
-                target = button;
-                break;
-            }
-        }
+        Button target = page.findButton(buttonId);
         if (target == null) {
             throw new IllegalArgumentException("button not found: " + buttonId);
         }
@@ -110,26 +126,57 @@ public class PosConfig implements Serializable {
             throw new IllegalArgumentException("itemCode is empty for button: " + buttonId);
         }
 
+        // 同じ商品のボタンがあるページだけを作り直し、他のページはそのまま共有する（同じ価格なら this）
+        PersistentSortedMap<Integer, Page> currentPages = pageMap();
+        PersistentSortedMap<Integer, Page> updatedPages = currentPages;
         String targetItemCode = target.getItemCode();
-        Map<Integer, Page> updatedPages = new LinkedHashMap<>();
-        for (Map.Entry<Integer, Page> entry : pagesByPageNumber.entrySet()) {
-            Page oldPage = entry.getValue();
-            List<Button> updatedButtons = new ArrayList<>(oldPage.getButtons().size());
-            for (Button button : oldPage.getButtons()) {
-                if (targetItemCode.equals(button.getItemCode())) {
-                    updatedButtons.add(button.withUnitPrice(unitPrice));
-                } else {
-                    updatedButtons.add(button);
-                }
-            }
-            updatedPages.put(entry.getKey(), new Page(
-                    oldPage.getPageNumber(),
-                    oldPage.getCols(),
-                    oldPage.getRows(),
-                    List.copyOf(updatedButtons)
+        for (Integer affectedPageNumber : buttonIndex().buttonIdsOf(targetItemCode).keySet()) {
+            Page oldPage = updatedPages.get(affectedPageNumber);
+            updatedPages = updatedPages.with(affectedPageNumber, oldPage.replaceButtons(button ->
+                    targetItemCode.equals(button.getItemCode()) && !Objects.equals(unitPrice, button.getUnitPrice())
+                            ? button.withUnitPrice(unitPrice)
+                            : button
             ));
         }
-        return new PosConfig(categories, Collections.unmodifiableMap(updatedPages));
+        if (updatedPages == currentPages) {
+            return this;
+        }
+        return new PosConfig(categoryVector(), updatedPages, buttonIndex);
+    }
+
+    /**
+     * Points every button of item {@code fromItemCode} to {@code toItemCode} with {@code toUnitPrice}.
+     * Only pages holding such a button are rebuilt; returns {@code this} when no button changes.
+     */
+    public PosConfig rewriteItem(String fromItemCode, String toItemCode, String toUnitPrice) {
+        PersistentSortedMap<Integer, Page> currentPages = pageMap();
+        PersistentSortedMap<Integer, Page> updatedPages = currentPages;
+        for (Integer affectedPageNumber : buttonIndex().buttonIdsOf(fromItemCode).keySet()) {
+            Page oldPage = updatedPages.get(affectedPageNumber);
+            updatedPages = updatedPages.with(affectedPageNumber, oldPage.replaceButtons(button ->
+                    !fromItemCode.equals(button.getItemCode())
+                            || Objects.equals(toItemCode, button.getItemCode())
+                            && Objects.equals(toUnitPrice, button.getUnitPrice())
+                            ? button
+                            : new Button(
+                                    button.getCol(),
+                                    button.getRow(),
+                                    button.getLabel(),
+                                    button.getStyleKey(),
+                                    toItemCode,
+                                    toUnitPrice,
+                                    button.getButtonId()
+                            )
+            ));
+        }
+        if (updatedPages == currentPages) {
+            return this;
+        }
+        return new PosConfig(
+                categoryVector(),
+                updatedPages,
+                buttonIndex().withItemCodeMoved(fromItemCode, toItemCode)
+        );
     }
 
     public PosConfig addCategory(String name, int cols, int rows, int styleKey) {
@@ -144,45 +191,27 @@ public class PosConfig implements Serializable {
             throw new IllegalArgumentException("rows must be positive");
         }
 
-        int nextPageNumber = 1;
-        for (Category category : categories) {
-            if (category.getPageNumber() >= nextPageNumber) {
-                nextPageNumber = category.getPageNumber() + 1;
-            }
-        }
-
-        List<Category> updatedCategories = new ArrayList<>(categories);
-        updatedCategories.add(new Category(nextPageNumber, cols, rows, normalizedName, styleKey));
-        updatedCategories.sort(Comparator.comparingInt(Category::getPageNumber));
+        // categories は pageNumber 順なので末尾が最大
+        int nextPageNumber = categories.isEmpty() ? 1 : Math.max(1, categories.get(categories.size() - 1).getPageNumber() + 1);
 
-        Map<Integer, Page> updatedPages = new LinkedHashMap<>(pagesByPageNumber);
-        updatedPages.put(nextPageNumber, new Page(nextPageNumber, cols, rows, List.of()));
         return new PosConfig(
-                List.copyOf(updatedCategories),
-                Collections.unmodifiableMap(updatedPages)
+                insertCategory(categoryVector(), new Category(nextPageNumber, cols, rows, normalizedName, styleKey)),
+                pageMap().with(nextPageNumber, new Page(nextPageNumber, cols, rows, List.of())),
+                buttonIndex
         );
     }
 
     public PosConfig deleteCategory(int pageNumber) {
-        boolean exists = false;
-        List<Category> updatedCategories = new ArrayList<>();
-        for (Category category : categories) {
-            if (category.getPageNumber() == pageNumber) {
-                exists = true;
-                continue;
-            }
-            updatedCategories.add(category);
-        }
-        if (!exists) {
+        PersistentVector<Category> updatedCategories = categoryVector();
+        int first = firstCategoryIndex(updatedCategories, pageNumber);
+        if (first >= updatedCategories.size() || updatedCategories.get(first).getPageNumber() != pageNumber) {
             throw new IllegalArgumentException("category(page) not found: " + pageNumber);
         }
+        while (first < updatedCategories.size() && updatedCategories.get(first).getPageNumber() == pageNumber) {
+            updatedCategories = updatedCategories.removeAt(first);
+        }
 
-        Map<Integer, Page> updatedPages = new LinkedHashMap<>(pagesByPageNumber);
-        updatedPages.remove(pageNumber);
-        return new PosConfig(
-                List.copyOf(updatedCategories),
-                Collections.unmodifiableMap(updatedPages)
-        );
+        return new PosConfig(updatedCategories, pageMap().without(pageNumber), null);
     }
 
     public PosConfig restoreCategory(Category category, Page page) {
@@ -199,10 +228,10 @@ public class PosConfig implements Serializable {
         if (pagesByPageNumber.containsKey(pageNumber)) {
             throw new IllegalArgumentException("page already exists: " + pageNumber);
         }
-        for (Category existing : categories) {
-            if (existing.getPageNumber() == pageNumber) {
-                throw new IllegalArgumentException("category(page) already exists: " + pageNumber);
-            }
+        PersistentVector<Category> currentCategories = categoryVector();
+        int first = firstCategoryIndex(currentCategories, pageNumber);
+        if (first < currentCategories.size() && currentCategories.get(first).getPageNumber() == pageNumber) {
+            throw new IllegalArgumentException("category(page) already exists: " + pageNumber);
         }
         for (Button button : page.getButtons()) {
             if (button.getCol() < 1 || button.getCol() > page.getCols()) {
@@ -213,15 +242,10 @@ public class PosConfig implements Serializable {
             }
         }
 
-        List<Category> updatedCategories = new ArrayList<>(categories);
-        updatedCategories.add(category);
-        updatedCategories.sort(Comparator.comparingInt(Category::getPageNumber));
-
-        Map<Integer, Page> updatedPages = new LinkedHashMap<>(pagesByPageNumber);
-        updatedPages.put(pageNumber, page);
         return new PosConfig(
-                List.copyOf(updatedCategories),
-                Collections.unmodifiableMap(updatedPages)
+                insertCategory(currentCategories, category),
+                pageMap().with(pageNumber, page),
+                null
         );
     }
 
@@ -246,25 +270,21 @@ public class PosConfig implements Serializable {
             }
         }
 
-        boolean categoryFound = false;
-        List<Category> updatedCategories = new ArrayList<>(categories.size());
-        for (Category category : categories) {
-            if (category.getPageNumber() == pageNumber) {
-                categoryFound = true;
-                updatedCategories.add(new Category(
-                        category.getPageNumber(),
-                        cols,
-                        rows,
-                        category.getName(),
-                        category.getStyleKey()
-                ));
-            } else {
-                updatedCategories.add(category);
-            }
-        }
-        if (!categoryFound) {
+        PersistentVector<Category> updatedCategories = categoryVector();
+        int first = firstCategoryIndex(updatedCategories, pageNumber);
+        if (first >= updatedCategories.size() || updatedCategories.get(first).getPageNumber() != pageNumber) {
             throw new IllegalArgumentException("category(page) not found: " + pageNumber);
         }
+        for (int i = first; i < updatedCategories.size() && updatedCategories.get(i).getPageNumber() == pageNumber; i++) {
+            Category category = updatedCategories.get(i);
+            updatedCategories = updatedCategories.replace(i, new Category(
+                    category.getPageNumber(),
+                    cols,
+                    rows,
+                    category.getName(),
+                    category.getStyleKey()
+            ));
+        }
 
         PosConfig.Page updatedPage = new PosConfig.Page(
                 page.getPageNumber(),
@@ -272,12 +292,7 @@ public class PosConfig implements Serializable {
                 rows,
                 page.getButtons()
         );
-        Map<Integer, Page> updatedPages = new LinkedHashMap<>(pagesByPageNumber);
-        updatedPages.put(pageNumber, updatedPage);
-        return new PosConfig(
-                List.copyOf(updatedCategories),
-                Collections.unmodifiableMap(updatedPages)
-        );
+        return new PosConfig(updatedCategories, pageMap().with(pageNumber, updatedPage), buttonIndex);
     }
 
     public PosConfig swapCategories(int fromPageNumber, int toPageNumber) {
@@ -285,19 +300,13 @@ public class PosConfig implements Serializable {
             return this;
         }
 
-        Category fromCategory = null;
-        Category toCategory = null;
-        for (Category category : categories) {
-            if (category.getPageNumber() == fromPageNumber) {
-                fromCategory = category;
-            } else if (category.getPageNumber() == toPageNumber) {
-                toCategory = category;
-            }
-        }
-        if (fromCategory == null) {
+        PersistentVector<Category> currentCategories = categoryVector();
+        List<Category> fromCategories = categoriesOf(currentCategories, fromPageNumber);
+        List<Category> toCategories = categoriesOf(currentCategories, toPageNumber);
+        if (fromCategories.isEmpty()) {
             throw new IllegalArgumentException("category(page) not found: " + fromPageNumber);
         }
-        if (toCategory == null) {
+        if (toCategories.isEmpty()) {
             throw new IllegalArgumentException("category(page) not found: " + toPageNumber);
         }
 
@@ -310,53 +319,121 @@ public class PosConfig implements Serializable {
             throw new IllegalArgumentException("page not found: " + toPageNumber);
         }
 
-        List<Category> updatedCategories = new ArrayList<>(categories.size());
-        for (Category category : categories) {
-            if (category.getPageNumber() == fromPageNumber) {
-                updatedCategories.add(new Category(
-                        toPageNumber,
-                        category.getCols(),
-                        category.getRows(),
-                        category.getName(),
-                        category.getStyleKey()
-                ));
-            } else if (category.getPageNumber() == toPageNumber) {
-                updatedCategories.add(new Category(
-                        fromPageNumber,
-                        category.getCols(),
-                        category.getRows(),
-                        category.getName(),
-                        category.getStyleKey()
-                ));
-            } else {
-                updatedCategories.add(category);
-            }
-        }
-        updatedCategories.sort(Comparator.comparingInt(Category::getPageNumber));
-
-        Map<Integer, Page> updatedPages = new LinkedHashMap<>(pagesByPageNumber);
-        updatedPages.put(
-                fromPageNumber,
-                new Page(fromPageNumber, toPage.getCols(), toPage.getRows(), toPage.getButtons())
-        );
-        updatedPages.put(
-                toPageNumber,
-                new Page(toPageNumber, fromPage.getCols(), fromPage.getRows(), fromPage.getButtons())
-        );
+        // 両方の pageNumber の区間を抜き、番号を付け替えて pageNumber 順の位置へ入れ直す
+        PersistentVector<Category> updatedCategories = currentCategories;
+        int fromFirst = firstCategoryIndex(currentCategories, fromPageNumber);
+        int toFirst = firstCategoryIndex(currentCategories, toPageNumber);
+        if (fromFirst > toFirst) {
+            updatedCategories = removeCategories(updatedCategories, fromFirst, fromCategories.size());
+            updatedCategories = removeCategories(updatedCategories, toFirst, toCategories.size());
+        } else {
+            updatedCategories = removeCategories(updatedCategories, toFirst, toCategories.size());
+            updatedCategories = removeCategories(updatedCategories, fromFirst, fromCategories.size());
+        }
+        for (Category category : fromCategories) {
+            updatedCategories = insertCategory(updatedCategories, category.withPageNumber(toPageNumber));
+        }
+        for (Category category : toCategories) {
+            updatedCategories = insertCategory(updatedCategories, category.withPageNumber(fromPageNumber));
+        }
 
-        return new PosConfig(
-                List.copyOf(updatedCategories),
-                Collections.unmodifiableMap(updatedPages)
-        );
+        PersistentSortedMap<Integer, Page> updatedPages = pageMap()
+                .with(fromPageNumber, new Page(fromPageNumber, toPage.getCols(), toPage.getRows(), toPage.getButtons()))
+                .with(toPageNumber, new Page(toPageNumber, fromPage.getCols(), fromPage.getRows(), fromPage.getButtons()));
+
+        return new PosConfig(updatedCategories, updatedPages, null);
+    }
+
+    /**
+     * Replaces the listed pages and, when {@code categories} is not null, the whole category list. A page
+     * number in {@code pageNumbers} without an entry in {@code pages} is removed. Untouched pages are shared.
+     */
+    public PosConfig withChangedParts(List<Category> categories, Set<Integer> pageNumbers, Map<Integer, Page> pages) {
+        PersistentSortedMap<Integer, Page> updatedPages = pageMap();
+        for (Integer pageNumber : pageNumbers) {
+            Page page = pages.get(pageNumber);
+            updatedPages = page == null ? updatedPages.without(pageNumber) : updatedPages.with(pageNumber, page);
+        }
+        PersistentVector<Category> updatedCategories = categories == null
+                ? categoryVector()
+                : sortedByPageNumber(categories);
+        if (updatedPages == pagesByPageNumber && updatedCategories == this.categories) {
+            return this;
+        }
+        return new PosConfig(updatedCategories, updatedPages, updatedPages == pagesByPageNumber ? buttonIndex : null);
     }
 
     private boolean hasButtonId(String buttonId) {
-        for (Page page : pagesByPageNumber.values()) {
-            for (Button button : page.getButtons()) {
-                if (buttonId.equals(button.getButtonId())) return true;
+        return buttonIndex().pageNumberOf(buttonId) != null;
+    }
+
+    // 引き継げなかった版（カテゴリの削除・復元・入れ替え後、デシリアライズ後）では最初に使うときに作る
+    private ButtonIndex buttonIndex() {
+        ButtonIndex current = buttonIndex;
+        if (current == null) {
+            current = ButtonIndex.build(pagesByPageNumber);
+            buttonIndex = current;
+        }
+        return current;
+    }
+
+    // 通常は永続コレクションそのもの（readResolve でも写し直す）
+    private PersistentVector<Category> categoryVector() {
+        return PersistentVector.copyOf(categories);
+    }
+
+    private PersistentSortedMap<Integer, Page> pageMap() {
+        return PersistentSortedMap.copyOf(pagesByPageNumber);
+    }
+
+    // 二分探索（firstCategoryIndex）と addCategory は pageNumber 順を前提にする。並んでいれば O(n) の確認だけ
+    private static PersistentVector<Category> sortedByPageNumber(List<Category> categories) {
+        if (categories == null) {
+            return PersistentVector.empty();
+        }
+        int previous = Integer.MIN_VALUE;
+        for (Category category : categories) {
+            if (category.getPageNumber() < previous) {
+                List<Category> sorted = new ArrayList<>(categories);
+                sorted.sort(Comparator.comparingInt(Category::getPageNumber));
+                return PersistentVector.copyOf(sorted);
             }
+            previous = category.getPageNumber();
+        }
+        return PersistentVector.copyOf(categories);
+    }
+
+    // pageNumber 以上の最初のカテゴリの位置
+    private static int firstCategoryIndex(PersistentVector<Category> categories, int pageNumber) {
+        return -(categories.search(category -> category.getPageNumber() < pageNumber ? -1 : 1) + 1);
+    }
+
+    // 同じ pageNumber のカテゴリがあればその後ろへ入れる（安定ソートと同じ並び）
+    private static PersistentVector<Category> insertCategory(PersistentVector<Category> categories, Category category) {
+        return categories.insert(firstCategoryIndex(categories, category.getPageNumber() + 1), category);
+    }
+
+    private static List<Category> categoriesOf(PersistentVector<Category> categories, int pageNumber) {
+        List<Category> matched = new ArrayList<>(1);
+        for (int i = firstCategoryIndex(categories, pageNumber);
+             i < categories.size() && categories.get(i).getPageNumber() == pageNumber;
+             i++) {
+            matched.add(categories.get(i));
+        }
+        return matched;
+    }
+
+    private static PersistentVector<Category> removeCategories(PersistentVector<Category> categories, int from, int count) {
+        PersistentVector<Category> updated = categories;
+        for (int i = 0; i < count; i++) {
+            updated = updated.removeAt(from);
         }
-        return false;
+        return updated;
+    }
+
+    // Java 直列化から戻した版は通常の List / Map を持つので、並びを確かめて永続コレクションへ写す
+    private Object readResolve() throws ObjectStreamException {
+        return new PosConfig(categories, pagesByPageNumber);
     }
 
     public static PosConfig fromSource(PosConfigSource source) {
@@ -370,7 +447,7 @@ public class PosConfig implements Serializable {
                     .add(pageButton.getButton());
         }
 
-        Map<Integer, Page> pages = new LinkedHashMap<>();
+        Map<Integer, Page> pages = new HashMap<>();
         for (Category category : sortedCategories) {
             pages.putIfAbsent(
                     category.getPageNumber(),
@@ -383,10 +460,131 @@ public class PosConfig implements Serializable {
             );
         }
 
-        return new PosConfig(
-                List.copyOf(sortedCategories),
-                Collections.unmodifiableMap(new LinkedHashMap<>(pages))
-        );
+        return new PosConfig(sortedCategories, pages);
+    }
+
+    /**
+     * buttonId → page number and itemCode → (page number → buttonIds) over the whole config. Never mutated:
+     * edits that add, remove or re-point a button derive a new index sharing everything else with the old one.
+     */
+    private static final class ButtonIndex {
+        private final PersistentSortedMap<String, Integer> pageNumbersByButtonId;
+        private final PersistentSortedMap<String, PersistentSortedMap<Integer, Set<String>>> buttonIdsByItemCode;
+
+        private ButtonIndex(
+                PersistentSortedMap<String, Integer> pageNumbersByButtonId,
+                PersistentSortedMap<String, PersistentSortedMap<Integer, Set<String>>> buttonIdsByItemCode
+        ) {
+            this.pageNumbersByButtonId = pageNumbersByButtonId;
+            this.buttonIdsByItemCode = buttonIdsByItemCode;
+        }
+
+        private static ButtonIndex build(Map<Integer, Page> pages) {
+            Map<String, Integer> pageNumbersByButtonId = new HashMap<>();
+            Map<String, Map<Integer, Set<String>>> buttonIdsByItemCode = new HashMap<>();
+            for (Page page : pages.values()) {
+                for (Button button : page.getButtons()) {
+                    if (button.getButtonId() != null) {
+                        pageNumbersByButtonId.putIfAbsent(button.getButtonId(), page.getPageNumber());
+                    }
+                    if (button.getItemCode() != null) {
+                        Set<String> buttonIds = buttonIdsByItemCode
+                                .computeIfAbsent(button.getItemCode(), k -> new HashMap<>())
+                                .computeIfAbsent(page.getPageNumber(), k -> new HashSet<>());
+                        if (button.getButtonId() != null) {
+                            buttonIds.add(button.getButtonId());
+                        }
+                    }
+                }
+            }
+
+            Map<String, PersistentSortedMap<Integer, Set<String>>> byItemCode = new HashMap<>();
+            for (Map.Entry<String, Map<Integer, Set<String>>> entry : buttonIdsByItemCode.entrySet()) {
+                Map<Integer, Set<String>> byPage = new HashMap<>();
+                entry.getValue().forEach((pageNumber, buttonIds) -> byPage.put(pageNumber, Set.copyOf(buttonIds)));
+                byItemCode.put(entry.getKey(), PersistentSortedMap.copyOf(byPage));
+            }
+            return new ButtonIndex(PersistentSortedMap.copyOf(pageNumbersByButtonId), PersistentSortedMap.copyOf(byItemCode));
+        }
+
+        private Integer pageNumberOf(String buttonId) {
+            return buttonId == null ? null : pageNumbersByButtonId.get(buttonId);
+        }
+
+        private Map<Integer, Set<String>> buttonIdsOf(String itemCode) {
+            if (itemCode == null) {
+                return Map.of();
+            }
+            return buttonIdsByItemCode.getOrDefault(itemCode, PersistentSortedMap.empty());
+        }
+
+        private ButtonIndex withButton(int pageNumber, Button button) {
+            String buttonId = button.getButtonId();
+            PersistentSortedMap<String, Integer> byButtonId = pageNumbersByButtonId;
+            if (buttonId != null && !byButtonId.containsKey(buttonId)) {
+                byButtonId = byButtonId.with(buttonId, pageNumber);
+            }
+            return new ButtonIndex(byButtonId, withButtonIds(button.getItemCode(), pageNumber, buttonIds -> {
+                Set<String> updated = new HashSet<>(buttonIds);
+                if (buttonId != null) {
+                    updated.add(buttonId);
+                }
+                return updated;
+            }));
+        }
+
+        private ButtonIndex withoutButton(int pageNumber, Button button) {
+            if (button == null) {
+                return this;
+            }
+            String buttonId = button.getButtonId();
+            PersistentSortedMap<String, Integer> byButtonId = pageNumbersByButtonId;
+            if (Integer.valueOf(pageNumber).equals(byButtonId.get(buttonId))) {
+                byButtonId = byButtonId.without(buttonId);
+            }
+            return new ButtonIndex(byButtonId, withButtonIds(button.getItemCode(), pageNumber, buttonIds -> {
+                Set<String> updated = new HashSet<>(buttonIds);
+                updated.remove(buttonId);
+                return updated.isEmpty() ? null : updated;
+            }));
+        }
+
+        private ButtonIndex withItemCodeMoved(String fromItemCode, String toItemCode) {
+            if (Objects.equals(fromItemCode, toItemCode) || fromItemCode == null) {
+                return this;
+            }
+            PersistentSortedMap<Integer, Set<String>> moved = buttonIdsByItemCode.get(fromItemCode);
+            if (moved == null) {
+                return this;
+            }
+            PersistentSortedMap<String, PersistentSortedMap<Integer, Set<String>>> byItemCode =
+                    buttonIdsByItemCode.without(fromItemCode);
+            if (toItemCode != null) {
+                PersistentSortedMap<Integer, Set<String>> target = byItemCode.getOrDefault(toItemCode, PersistentSortedMap.empty());
+                for (Map.Entry<Integer, Set<String>> entry : moved.entrySet()) {
+                    Set<String> buttonIds = new HashSet<>(target.getOrDefault(entry.getKey(), Set.of()));
+                    buttonIds.addAll(entry.getValue());
+                    target = target.with(entry.getKey(), Set.copyOf(buttonIds));
+                }
+                byItemCode = byItemCode.with(toItemCode, target);
+            }
+            return new ButtonIndex(pageNumbersByButtonId, byItemCode);
+        }
+
+        // update が null を返したらそのページを索引から外す
+        private PersistentSortedMap<String, PersistentSortedMap<Integer, Set<String>>> withButtonIds(
+                String itemCode,
+                int pageNumber,
+                UnaryOperator<Set<String>> update
+        ) {
+            if (itemCode == null) {
+                return buttonIdsByItemCode;
+            }
+            PersistentSortedMap<Integer, Set<String>> pages = buttonIdsByItemCode.getOrDefault(itemCode, PersistentSortedMap.empty());
+            Set<String> updated = update.apply(pages.getOrDefault(pageNumber, Set.of()));
+            pages = updated == null ? pages.without(pageNumber) : pages.with(pageNumber, Set.copyOf(updated));
+            return pages.isEmpty() ? buttonIdsByItemCode.without(itemCode) : buttonIdsByItemCode.with(itemCode, pages);
+        }
     }
 
     // ---- Value-like domain classes ----
@@ -412,6 +610,10 @@ public class PosConfig implements Serializable {
         public int getRows() { return rows; }
         public String getName() { return name; }
         public int getStyleKey() { return styleKey; }
+
+        public Category withPageNumber(int newPageNumber) {
+            return new Category(newPageNumber, cols, rows, name, styleKey);
+        }
     }
 
     public static class Page implements Serializable {
@@ -421,12 +623,19 @@ public class PosConfig implements Serializable {
         private final int cols;
         private final int rows;
         private final List<Button> buttons;
+        // ボタン一覧は不変なので、索引は最初に必要になったときに一度だけ作る（直列化しない）
+        private transient volatile Index index;
 
         public Page(int pageNumber, int cols, int rows, List<Button> buttons) {
+            this(pageNumber, cols, rows, buttons, null);
+        }
+
+        private Page(int pageNumber, int cols, int rows, List<Button> buttons, Index index) {
             this.pageNumber = pageNumber;
             this.cols = cols;
             this.rows = rows;
             this.buttons = buttons;
+            this.index = index;
         }
 
         public int getPageNumber() { return pageNumber; }
@@ -434,6 +643,26 @@ public class PosConfig implements Serializable {
         public int getRows() { return rows; }
         public List<Button> getButtons() { return buttons; }
 
+        /**
+         * The button at the cell, or {@code null} when the cell is empty.
+         */
+        public Button findButtonAt(int col, int row) {
+            int slot = index().slotAt(col, row);
+            return slot < 0 ? null : buttons.get(slot);
+        }
+
+        /**
+         * The button with {@code buttonId}, or {@code null} when it is not on this page.
+         */
+        public Button findButton(String buttonId) {
+            int slot = index().slotOf(buttonId);
+            return slot < 0 ? null : buttons.get(slot);
+        }
+
+        public boolean isOccupied(int col, int row) {
+            return index().slotAt(col, row) >= 0;
+        }
+
         public Page swapButtons(int fromCol, int fromRow, int toCol, int toRow) {
             if (fromCol == toCol && fromRow == toRow) {
                 return this;
@@ -445,17 +674,9 @@ public class PosConfig implements Serializable {
                 throw new IllegalArgumentException("target row out of range: " + toRow);
             }
 
-            int fromIndex = -1;
-            int toIndex = -1;
-            for (int i = 0; i < buttons.size(); i++) {
-                Button button = buttons.get(i);
-                if (button.getCol() == fromCol && button.getRow() == fromRow) {
-                    fromIndex = i;
-                } else if (button.getCol() == toCol && button.getRow() == toRow) {
-                    toIndex = i;
-                }
-            }
-
+            Index index = index();
+            int fromIndex = index.slotAt(fromCol, fromRow);
+            int toIndex = index.slotAt(toCol, toRow);
             if (fromIndex < 0) {
                 throw new IllegalArgumentException("source button not found: (" + fromCol + "," + fromRow + ")");
             }
@@ -482,10 +703,8 @@ public class PosConfig implements Serializable {
             if (row < 1 || row > rows) {
                 throw new IllegalArgumentException("row out of range: " + row);
             }
-            for (Button b : buttons) {
-                if (b.getCol() == col && b.getRow() == row) {
-                    throw new IllegalArgumentException("cell is already occupied: (" + col + "," + row + ")");
-                }
+            if (isOccupied(col, row)) {
+                throw new IllegalArgumentException("cell is already occupied: (" + col + "," + row + ")");
             }
 
             List<Button> updated = new ArrayList<>(buttons);
@@ -494,14 +713,7 @@ public class PosConfig implements Serializable {
         }
 
         public Page deleteButton(String buttonId) {
-            int deleteIndex = -1;
-            for (int i = 0; i < buttons.size(); i++) {
-                Button button = buttons.get(i);
-                if (buttonId.equals(button.getButtonId())) {
-                    deleteIndex = i;
-                    break;
-                }
-            }
+            int deleteIndex = index().slotOf(buttonId);
             if (deleteIndex < 0) {
                 throw new IllegalArgumentException("button not found: " + buttonId);
             }
@@ -510,6 +722,104 @@ public class PosConfig implements Serializable {
             updated.remove(deleteIndex);
             return new Page(pageNumber, cols, rows, List.copyOf(updated));
         }
+
+        /**
+         * Replaces every button by {@code replacement}, which must keep its cell and buttonId. Returns
+         * {@code this} when {@code replacement} returns every button unchanged.
+         */
+        Page replaceButtons(UnaryOperator<Button> replacement) {
+            List<Button> updated = null;
+            for (int slot = 0; slot < buttons.size(); slot++) {
+                Button before = buttons.get(slot);
+                Button after = replacement.apply(before);
+                if (after != before) {
+                    if (updated == null) {
+                        updated = new ArrayList<>(buttons);
+                    }
+                    updated.set(slot, after);
+                }
+            }
+            if (updated == null) {
+                return this;
+            }
+            // マスと buttonId は変わらないので索引をそのまま使える
+            return new Page(pageNumber, cols, rows, List.copyOf(updated), index);
+        }
+
+        // 同時に作られても同じ内容になるだけなので、ロックはしない
+        private Index index() {
+            Index current = index;
+            if (current == null) {
+                current = new Index(cols, rows, buttons);
+                index = current;
+            }
+            return current;
+        }
+
+        /**
+         * Cell → slot (position in {@code buttons}) as a dense {@code cols × rows} array, and buttonId → slot.
+         * Buttons outside the grid (possible in imported data) are kept in a small side map.
+         */
+        private static final class Index {
+            private final int cols;
+            private final int rows;
+            // slot + 1。0 は空きマス
+            private final int[] cells;
+            private final Map<String, Integer> slotsByButtonId;
+            private final Map<Long, Integer> offGridSlots;
+
+            private Index(int cols, int rows, List<Button> buttons) {
+                this.cols = Math.max(cols, 0);
+                this.rows = Math.max(rows, 0);
+                this.cells = new int[this.cols * this.rows];
+                this.slotsByButtonId = new HashMap<>(Math.max(16, buttons.size() * 2));
+                Map<Long, Integer> offGrid = null;
+                for (int slot = 0; slot < buttons.size(); slot++) {
+                    Button button = buttons.get(slot);
+                    // 同じマスに複数ある壊れたデータでは、従来の線形探索と同じく後のボタンを使う
+                    if (inGrid(button.getCol(), button.getRow())) {
+                        cells[cellOf(button.getCol(), button.getRow())] = slot + 1;
+                    } else {
+                        if (offGrid == null) {
+                            offGrid = new HashMap<>();
+                        }
+                        offGrid.put(offGridKey(button.getCol(), button.getRow()), slot);
+                    }
+                    if (button.getButtonId() != null) {
+                        slotsByButtonId.putIfAbsent(button.getButtonId(), slot);
+                    }
+                }
+                this.offGridSlots = offGrid == null ? Map.of() : offGrid;
+            }
+
+            private int slotAt(int col, int row) {
+                if (inGrid(col, row)) {
+                    return cells[cellOf(col, row)] - 1;
+                }
+                Integer slot = offGridSlots.get(offGridKey(col, row));
+                return slot == null ? -1 : slot;
+            }
+
+            private int slotOf(String buttonId) {
+                if (buttonId == null) {
+                    return -1;
+                }
+                Integer slot = slotsByButtonId.get(buttonId);
+                return slot == null ? -1 : slot;
+            }
+
+            private boolean inGrid(int col, int row) {
+                return col >= 1 && col <= cols && row >= 1 && row <= rows;
+            }
+
+            private int cellOf(int col, int row) {
+                return (row - 1) * cols + (col - 1);
+            }
+
+            private static long offGridKey(int col, int row) {
+                return ((long) col << 32) | (row & 0xFFFFFFFFL);
+            }
+        }
     }
 
     public static class Button implements Serializable {
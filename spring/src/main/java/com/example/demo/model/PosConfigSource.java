@@ -9,6 +9,7 @@ public class PosConfigSource {
     private final ItemCatalog itemCatalog;
     private final ItemCatalog handyCatalog;
     private final ItemMasterCatalog itemMasterCatalog;
+    private final WorkbookLayout workbookLayout;
 
     public PosConfigSource(List<PosConfig.Category> categories, List<PageButton> pageButtons) {
         this(categories, pageButtons, ItemCatalog.empty(), ItemCatalog.empty(), ItemMasterCatalog.empty());
@@ -37,12 +38,24 @@ public class PosConfigSource {
             ItemCatalog itemCatalog,
             ItemCatalog handyCatalog,
             ItemMasterCatalog itemMasterCatalog
+    ) {
+        this(categories, pageButtons, itemCatalog, handyCatalog, itemMasterCatalog, WorkbookLayout.empty());
+    }
+
+    public PosConfigSource(
+            List<PosConfig.Category> categories,
+            List<PageButton> pageButtons,
+            ItemCatalog itemCatalog,
+            ItemCatalog handyCatalog,
+            ItemMasterCatalog itemMasterCatalog,
+            WorkbookLayout workbookLayout
     ) {
         this.categories = List.copyOf(Objects.requireNonNull(categories));
         this.pageButtons = List.copyOf(Objects.requireNonNull(pageButtons));
         this.itemCatalog = Objects.requireNonNull(itemCatalog);
         this.handyCatalog = Objects.requireNonNull(handyCatalog);
         this.itemMasterCatalog = Objects.requireNonNull(itemMasterCatalog);
+        this.workbookLayout = Objects.requireNonNull(workbookLayout);
     }
 
     public List<PosConfig.Category> getCategories() {
@@ -65,6 +78,10 @@ public class PosConfigSource {
         return itemMasterCatalog;
     }
 
+    public WorkbookLayout getWorkbookLayout() {
+        return workbookLayout;
+    }
+
     public static class PageButton {
         private final int pageNumber;
         private final PosConfig.Button button;
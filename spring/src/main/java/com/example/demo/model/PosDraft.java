@@ -2,28 +2,40 @@ package com.example.demo.model;
 
 import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class PosDraft implements Serializable {
     private static final long serialVersionUID = 1L;
-    private static final int HISTORY_LIMIT = 100;
 
     private final String draftId;
     private final PosConfig config;
+    // 版をまたいで共有する。originalExcelBytes は既存の .ser との互換のための直列化形式で、同じ配列を指す
+    // （ブロブをマップした中身なら null。直列化するときは writeReplace でヒープへコピーする）
+    private final transient WorkbookContent originalWorkbook;
     private final byte[] originalExcelBytes;
     private final ItemCatalog itemCatalog;
     private final ItemCatalog handyCatalog;
     private final ItemMasterCatalog itemMasterCatalog;
+    private final WorkbookLayout workbookLayout;
     private final String initialAction;
     private final String initialTimestamp;
     private final List<ChangeRecord> changes;
     private final int historyIndex;
+    // 楽観的排他制御用。履歴を動かす操作（編集・undo・redo・ジャンプ・履歴削除）ごとに増える
+    private final long version;
+    // 履歴ジャンプ用に途中の状態を間引いて持つ。版をまたいで共有し、直列化しない
+    private final transient HistoryCheckpoints checkpoints;
 
     public PosDraft(String draftId, PosConfig config, byte[] originalExcelBytes) {
         this(draftId, config, originalExcelBytes, null, null, null, "インポート");
@@ -62,43 +74,122 @@ public class PosDraft implements Serializable {
             ItemCatalog handyCatalog,
             ItemMasterCatalog itemMasterCatalog,
             String initialAction
+    ) {
+        this(draftId, config, originalExcelBytes, itemCatalog, handyCatalog, itemMasterCatalog, null, initialAction);
+    }
+
+    public PosDraft(
+            String draftId,
+            PosConfig config,
+            byte[] originalExcelBytes,
+            ItemCatalog itemCatalog,
+            ItemCatalog handyCatalog,
+            ItemMasterCatalog itemMasterCatalog,
+            WorkbookLayout workbookLayout,
+            String initialAction
+    ) {
+        this(
+                draftId,
+                config,
+                WorkbookContent.of(originalExcelBytes),
+                itemCatalog,
+                handyCatalog,
+                itemMasterCatalog,
+                workbookLayout,
+                initialAction
+        );
+    }
+
+    public PosDraft(
+            String draftId,
+            PosConfig config,
+            WorkbookContent originalWorkbook,
+            ItemCatalog itemCatalog,
+            ItemCatalog handyCatalog,
+            ItemMasterCatalog itemMasterCatalog,
+            WorkbookLayout workbookLayout,
+            String initialAction
     ) {
         this(
                 draftId,
                 config,
-                originalExcelBytes,
+                originalWorkbook,
                 itemCatalog,
                 handyCatalog,
                 itemMasterCatalog,
+                workbookLayout,
                 initialAction,
                 OffsetDateTime.now().toString(),
                 null,
-                -1
+                -1,
+                0,
+                null
         );
     }
 
     private PosDraft(
             String draftId,
             PosConfig config,
-            byte[] originalExcelBytes,
+            WorkbookContent originalWorkbook,
             ItemCatalog itemCatalog,
             ItemCatalog handyCatalog,
             ItemMasterCatalog itemMasterCatalog,
+            WorkbookLayout workbookLayout,
             String initialAction,
             String initialTimestamp,
             List<ChangeRecord> changes,
-            int historyIndex
+            int historyIndex,
+            long version,
+            HistoryCheckpoints checkpoints
     ) {
         this.draftId = Objects.requireNonNull(draftId);
         this.config = Objects.requireNonNull(config);
-        this.originalExcelBytes = Objects.requireNonNull(originalExcelBytes).clone();
+        this.originalWorkbook = Objects.requireNonNull(originalWorkbook);
+        this.originalExcelBytes = originalWorkbook.bytes();
         this.itemCatalog = itemCatalog;
         this.handyCatalog = handyCatalog;
         this.itemMasterCatalog = itemMasterCatalog;
+        this.workbookLayout = workbookLayout;
         this.initialAction = normalizeInitialAction(initialAction);
         this.initialTimestamp = normalizeTimestamp(initialTimestamp);
         this.changes = normalizeChanges(changes);
         this.historyIndex = normalizeHistoryIndex(historyIndex, this.changes.size());
+        this.version = version;
+        HistoryCheckpoints current = checkpoints == null ? HistoryCheckpoints.empty(HistoryPolicy.DEFAULT) : checkpoints;
+        this.checkpoints = current.isDue(this.historyIndex) ? current.record(this.historyIndex, state()) : current;
+    }
+
+    /**
+     * Rebuilds a draft from its persisted parts without touching the history timestamps.
+     */
+    public static PosDraft restore(
+            String draftId,
+            PosConfig config,
+            WorkbookContent originalWorkbook,
+            ItemCatalog itemCatalog,
+            ItemCatalog handyCatalog,
+            ItemMasterCatalog itemMasterCatalog,
+            WorkbookLayout workbookLayout,
+            HistoryEntry initialEntry,
+            List<ChangeRecord> changes,
+            int historyIndex,
+            long version
+    ) {
+        return new PosDraft(
+                draftId,
+                config,
+                originalWorkbook,
+                itemCatalog,
+                handyCatalog,
+                itemMasterCatalog,
+                workbookLayout,
+                initialEntry.getAction(),
+                initialEntry.getTimestamp(),
+                changes,
+                historyIndex,
+                version,
+                null
+        );
     }
 
     public String getDraftId() {
@@ -109,8 +200,13 @@ public class PosDraft implements Serializable {
         return config;
     }
 
+    public WorkbookContent getOriginalWorkbook() {
+        return originalWorkbook;
+    }
+
+    // 呼び出しごとに全体をコピーする。読むだけなら getOriginalWorkbook() を使う
     public byte[] getOriginalExcelBytes() {
-        return originalExcelBytes.clone();
+        return originalWorkbook.toByteArray();
     }
 
     public ItemCatalog getItemCatalogOrNull() {
@@ -125,6 +221,10 @@ public class PosDraft implements Serializable {
         return itemMasterCatalog;
     }
 
+    public WorkbookLayout getWorkbookLayoutOrNull() {
+        return workbookLayout;
+    }
+
     public List<HistoryEntry> getHistoryEntries() {
         List<HistoryEntry> entries = new ArrayList<>(changes.size() + 1);
         entries.add(new HistoryEntry(initialAction, initialTimestamp));
@@ -134,10 +234,79 @@ public class PosDraft implements Serializable {
         return List.copyOf(entries);
     }
 
+    /**
+     * Number of history entries, the initial one included; same as {@code getHistoryEntries().size()}.
+     */
+    public int getHistoryEntryCount() {
+        return changes.size() + 1;
+    }
+
+    /**
+     * One history entry without building the whole list (O(log n)); index 0 is the initial entry.
+     */
+    public HistoryEntry getHistoryEntry(int index) {
+        Objects.checkIndex(index, getHistoryEntryCount());
+        if (index == 0) {
+            return new HistoryEntry(initialAction, initialTimestamp);
+        }
+        return changes.get(index - 1).getEntry();
+    }
+
+    public List<ChangeRecord> getChangeRecords() {
+        return changes;
+    }
+
     public int getHistoryIndex() {
         return historyIndex;
     }
 
+    /**
+     * Monotonically increasing version of the draft, used for optimistic concurrency control. Every operation
+     * that moves the history (edit, undo, redo, history jump, clearing the history) increments it; caching
+     * catalogs or swapping the workbook handle does not.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public HistoryPolicy getHistoryPolicy() {
+        return checkpoints.policy();
+    }
+
+    /**
+     * Estimated heap retained by the change records of the history, the quantity limited by
+     * {@link HistoryPolicy#maxBytes()}.
+     */
+    public long getHistoryBytes() {
+        return ChangeHistory.copyOf(changes).estimatedBytes();
+    }
+
+    /**
+     * Same draft keeping its in-memory history by {@code policy}. The policy is not persisted, so the repository
+     * applies its configured one whenever it loads a draft. Retention limits take effect with the next edit.
+     */
+    public PosDraft withHistoryPolicy(HistoryPolicy policy) {
+        Objects.requireNonNull(policy);
+        if (policy.equals(checkpoints.policy())) {
+            return this;
+        }
+        return new PosDraft(
+                draftId,
+                config,
+                originalWorkbook,
+                itemCatalog,
+                handyCatalog,
+                itemMasterCatalog,
+                workbookLayout,
+                initialAction,
+                initialTimestamp,
+                changes,
+                historyIndex,
+                version,
+                HistoryCheckpoints.empty(policy)
+        );
+    }
+
     public boolean canUndo() {
         return historyIndex > 0;
     }
@@ -152,86 +321,120 @@ public class PosDraft implements Serializable {
 
     public PosDraft applyNewConfig(PosConfig nextConfig, String action) {
         Objects.requireNonNull(nextConfig);
-        return applyChange(new SnapshotReplaceChange(config, nextConfig), action);
+        return applyChange(ConfigDiffChange.between(config, nextConfig), action);
     }
 
+    /**
+     * Records a new edit. An edit that changes nothing returns this draft (no history entry, no new version).
+     * Within {@link HistoryPolicy#coalesceWindowMillis()} of the last edit, with the same action and nothing to
+     * redo, an edit the last change can {@link Change#coalesce} with replaces the last record instead of adding one;
+     * when the merged change undoes the last one (a price set back, an item dragged back), the last record is
+     * dropped.
+     */
     public PosDraft applyChange(Change change, String action) {
         Objects.requireNonNull(change);
+        // 設定全体の差し替えは変わった部分だけを履歴に残す
+        if (change instanceof SnapshotReplaceChange snapshot) {
+            change = ConfigDiffChange.between(snapshot.getBeforeConfig(), snapshot.getAfterConfig());
+        }
+        State current = state();
+        State next = current.apply(change);
+        if (next.sameAs(current)) {
+            return this;
+        }
 
-        PosConfig nextConfig = change.apply(config);
-        ItemCatalog nextItemCatalog = change.applyItemCatalog(itemCatalog);
-        ItemCatalog nextHandyCatalog = change.applyHandyCatalog(handyCatalog);
-        ItemMasterCatalog nextItemMasterCatalog = change.applyItemMasterCatalog(itemMasterCatalog);
-        List<ChangeRecord> nextChanges = new ArrayList<>(changes.subList(0, historyIndex));
-        nextChanges.add(new ChangeRecord(change, HistoryEntry.of(action)));
+        ChangeRecord changeRecord = new ChangeRecord(change, HistoryEntry.of(action));
+        Change merged = coalesceWithLast(changeRecord);
+        if (merged == null) {
+            return append(changeRecord, next);
+        }
+        // 直前の記録を置き換える。直前より前の状態とチェックポイントはそのまま使える
+        int lastIndex = historyIndex - 1;
+        ChangeHistory kept = ChangeHistory.copyOf(changes).truncate(lastIndex);
+        HistoryCheckpoints keptCheckpoints = checkpoints.truncateAfter(lastIndex);
+        // まとめた結果が何も変えない（元に戻した）なら、直前の記録ごと消す
+        State base = current.undo(changes.get(lastIndex).getChange());
+        if (base.apply(merged).sameAs(base)) {
+            return withState(base, kept, lastIndex, keptCheckpoints);
+        }
+        ChangeHistory nextChanges = kept.append(ChangeRecord.restore(merged, changeRecord.getEntry()));
+        return withState(next, nextChanges, historyIndex, keptCheckpoints);
+    }
+
+    // 直前の編集とまとめた Change。まとめられなければ null
+    private Change coalesceWithLast(ChangeRecord changeRecord) {
+        long window = checkpoints.policy().coalesceWindowMillis();
+        if (window == 0 || historyIndex == 0 || historyIndex != changes.size()) {
+            return null;
+        }
+        ChangeRecord last = changes.get(historyIndex - 1);
+        if (!last.getEntry().getAction().equals(changeRecord.getEntry().getAction())) {
+            return null;
+        }
+        try {
+            Duration elapsed = Duration.between(
+                    OffsetDateTime.parse(last.getEntry().getTimestamp()),
+                    OffsetDateTime.parse(changeRecord.getEntry().getTimestamp())
+            );
+            if (elapsed.isNegative() || elapsed.toMillis() > window) {
+                return null;
+            }
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+        return last.getChange().coalesce(changeRecord.getChange());
+    }
+
+    /**
+     * Re-applies a change that was already recorded, keeping its original history entry.
+     * Used when a draft is rebuilt from a snapshot plus journaled changes.
+     */
+    public PosDraft applyChangeRecord(ChangeRecord changeRecord) {
+        Objects.requireNonNull(changeRecord);
+        return append(changeRecord, state().apply(changeRecord.getChange()));
+    }
+
+    // next は changeRecord を今の状態に適用した結果（呼び出し元で計算済みのものを渡し、二度適用しない）
+    private PosDraft append(ChangeRecord changeRecord, State next) {
+        // redo 側を切り捨てて追加し、保持の上限（件数・推定バイト数）を超えた古い側を落とす
+        // （どれも変わらない部分は前の版と共有する）
+        ChangeHistory nextChanges = ChangeHistory.copyOf(changes)
+                .truncate(historyIndex)
+                .append(changeRecord);
+        HistoryCheckpoints nextCheckpoints = checkpoints.truncateAfter(historyIndex);
 
         int nextHistoryIndex = nextChanges.size();
-        int removeCount = Math.max(0, (nextChanges.size() + 1) - HISTORY_LIMIT);
+        int removeCount = nextChanges.excess(checkpoints.policy());
         if (removeCount > 0) {
-            nextChanges = new ArrayList<>(nextChanges.subList(removeCount, nextChanges.size()));
+            nextChanges = nextChanges.dropFirst(removeCount);
             nextHistoryIndex -= removeCount;
+            nextCheckpoints = nextCheckpoints.dropFirst(removeCount);
         }
 
-        return new PosDraft(
-                draftId,
-                nextConfig,
-                originalExcelBytes,
-                nextItemCatalog,
-                nextHandyCatalog,
-                nextItemMasterCatalog,
-                initialAction,
-                initialTimestamp,
-                nextChanges,
-                nextHistoryIndex
-        );
+        return withState(next, nextChanges, nextHistoryIndex, nextCheckpoints);
     }
 
     public PosDraft undo() {
         if (!canUndo()) {
             throw new IllegalArgumentException("undo not available");
         }
-        ChangeRecord changeRecord = changes.get(historyIndex - 1);
-        PosConfig previousConfig = changeRecord.getChange().undo(config);
-        ItemCatalog previousItemCatalog = changeRecord.getChange().undoItemCatalog(itemCatalog);
-        ItemCatalog previousHandyCatalog = changeRecord.getChange().undoHandyCatalog(handyCatalog);
-        ItemMasterCatalog previousItemMasterCatalog = changeRecord.getChange().undoItemMasterCatalog(itemMasterCatalog);
-        return new PosDraft(
-                draftId,
-                previousConfig,
-                originalExcelBytes,
-                previousItemCatalog,
-                previousHandyCatalog,
-                previousItemMasterCatalog,
-                initialAction,
-                initialTimestamp,
-                changes,
-                historyIndex - 1
-        );
+        State previous = state().undo(changes.get(historyIndex - 1).getChange());
+        return withState(previous, changes, historyIndex - 1, checkpoints);
     }
 
     public PosDraft redo() {
         if (!canRedo()) {
             throw new IllegalArgumentException("redo not available");
         }
-        ChangeRecord changeRecord = changes.get(historyIndex);
-        PosConfig nextConfig = changeRecord.getChange().apply(config);
-        ItemCatalog nextItemCatalog = changeRecord.getChange().applyItemCatalog(itemCatalog);
-        ItemCatalog nextHandyCatalog = changeRecord.getChange().applyHandyCatalog(handyCatalog);
-        ItemMasterCatalog nextItemMasterCatalog = changeRecord.getChange().applyItemMasterCatalog(itemMasterCatalog);
-        return new PosDraft(
-                draftId,
-                nextConfig,
-                originalExcelBytes,
-                nextItemCatalog,
-                nextHandyCatalog,
-                nextItemMasterCatalog,
-                initialAction,
-                initialTimestamp,
-                changes,
-                historyIndex + 1
-        );
+        State next = state().apply(changes.get(historyIndex).getChange());
+        return withState(next, changes, historyIndex + 1, checkpoints);
     }
 
+    /**
+     * Moves to {@code targetIndex} starting from whichever is closer, the current state or the nearest
+     * checkpoint, so at most {@link HistoryPolicy#checkpointInterval()} - 1 changes are replayed once the
+     * positions around the target have been visited. Checkpoint positions passed on the way are recorded.
+     */
     public PosDraft jumpToHistoryIndex(int targetIndex) {
         if (targetIndex < 0 || targetIndex > changes.size()) {
             throw new IllegalArgumentException("history index out of range: " + targetIndex);
@@ -240,14 +443,24 @@ public class PosDraft implements Serializable {
             return this;
         }
 
-        PosDraft current = this;
-        while (current.historyIndex < targetIndex) {
-            current = current.redo();
-        }
-        while (current.historyIndex > targetIndex) {
-            current = current.undo();
+        int index = historyIndex;
+        State state = state();
+        HistoryCheckpoints.Checkpoint nearest = checkpoints.nearest(targetIndex);
+        if (nearest != null && Math.abs(nearest.historyIndex() - targetIndex) < Math.abs(historyIndex - targetIndex)) {
+            index = nearest.historyIndex();
+            state = nearest.state();
+        }
+        HistoryCheckpoints nextCheckpoints = checkpoints;
+        while (index != targetIndex) {
+            state = index < targetIndex
+                    ? state.apply(changes.get(index++).getChange())
+                    : state.undo(changes.get(--index).getChange());
+            if (nextCheckpoints.isDue(index)) {
+                nextCheckpoints = nextCheckpoints.record(index, state);
+            }
         }
-        return current;
+        // 何段戻っても1回の操作として版を1つだけ進める
+        return withState(state, changes, targetIndex, nextCheckpoints);
     }
 
     public PosDraft clearHistory() {
@@ -258,14 +471,17 @@ public class PosDraft implements Serializable {
         return new PosDraft(
                 draftId,
                 config,
-                originalExcelBytes,
+                originalWorkbook,
                 itemCatalog,
                 handyCatalog,
                 itemMasterCatalog,
+                workbookLayout,
                 action,
                 OffsetDateTime.now().toString(),
                 List.of(),
-                -1
+                -1,
+                version + 1,
+                HistoryCheckpoints.empty(checkpoints.policy())
         );
     }
 
@@ -276,14 +492,18 @@ public class PosDraft implements Serializable {
         return new PosDraft(
                 draftId,
                 config,
-                originalExcelBytes,
+                originalWorkbook,
                 nextItemCatalog,
                 handyCatalog,
                 itemMasterCatalog,
+                workbookLayout,
                 initialAction,
                 initialTimestamp,
                 changes,
-                historyIndex
+                historyIndex,
+                version,
+                // 読み込む前の状態から記録したチェックポイントは、ここから再生すると読み込んだ内容を失う
+                checkpoints.cleared()
         );
     }
 
@@ -294,14 +514,46 @@ public class PosDraft implements Serializable {
         return new PosDraft(
                 draftId,
                 config,
-                originalExcelBytes,
+                originalWorkbook,
                 itemCatalog,
                 nextHandyCatalog,
                 itemMasterCatalog,
+                workbookLayout,
+                initialAction,
+                initialTimestamp,
+                changes,
+                historyIndex,
+                version,
+                // 読み込む前の状態から記録したチェックポイントは、ここから再生すると読み込んだ内容を失う
+                checkpoints.cleared()
+        );
+    }
+
+    /**
+     * Swaps the workbook for another handle with the same content, e.g. the shared memory-mapped blob.
+     */
+    public PosDraft withOriginalWorkbook(WorkbookContent nextWorkbook) {
+        Objects.requireNonNull(nextWorkbook);
+        if (nextWorkbook == originalWorkbook) {
+            return this;
+        }
+        if (!nextWorkbook.getContentHash().equals(originalWorkbook.getContentHash())) {
+            throw new IllegalArgumentException("workbook content differs");
+        }
+        return new PosDraft(
+                draftId,
+                config,
+                nextWorkbook,
+                itemCatalog,
+                handyCatalog,
+                itemMasterCatalog,
+                workbookLayout,
                 initialAction,
                 initialTimestamp,
                 changes,
-                historyIndex
+                historyIndex,
+                version,
+                checkpoints
         );
     }
 
@@ -312,14 +564,64 @@ public class PosDraft implements Serializable {
         return new PosDraft(
                 draftId,
                 config,
-                originalExcelBytes,
+                originalWorkbook,
                 itemCatalog,
                 handyCatalog,
                 nextItemMasterCatalog,
+                workbookLayout,
                 initialAction,
                 initialTimestamp,
                 changes,
-                historyIndex
+                historyIndex,
+                version,
+                // 読み込む前の状態から記録したチェックポイントは、ここから再生すると読み込んだ内容を失う
+                checkpoints.cleared()
+        );
+    }
+
+    /**
+     * Same draft with another version number. Only for rebuilding persisted drafts; edits get their version
+     * from the operation that produced them.
+     */
+    public PosDraft withVersion(long nextVersion) {
+        if (nextVersion == version) {
+            return this;
+        }
+        return new PosDraft(
+                draftId,
+                config,
+                originalWorkbook,
+                itemCatalog,
+                handyCatalog,
+                itemMasterCatalog,
+                workbookLayout,
+                initialAction,
+                initialTimestamp,
+                changes,
+                historyIndex,
+                nextVersion,
+                checkpoints
+        );
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        if (originalExcelBytes != null) {
+            return this;
+        }
+        return new PosDraft(
+                draftId,
+                config,
+                WorkbookContent.of(originalWorkbook.toByteArray()),
+                itemCatalog,
+                handyCatalog,
+                itemMasterCatalog,
+                workbookLayout,
+                initialAction,
+                initialTimestamp,
+                changes,
+                historyIndex,
+                version,
+                checkpoints
         );
     }
 
@@ -327,22 +629,50 @@ public class PosDraft implements Serializable {
         return new PosDraft(
                 draftId,
                 config,
-                originalExcelBytes,
+                WorkbookContent.adopt(originalExcelBytes),
                 itemCatalog,
                 handyCatalog,
                 itemMasterCatalog,
+                workbookLayout,
                 initialAction,
                 initialTimestamp,
                 changes,
-                historyIndex
+                historyIndex,
+                version,
+                null
+        );
+    }
+
+    private State state() {
+        return new State(config, itemCatalog, handyCatalog, itemMasterCatalog);
+    }
+
+    // 履歴を動かす操作の結果。版は1つ進める
+    private PosDraft withState(
+            State state,
+            List<ChangeRecord> nextChanges,
+            int nextHistoryIndex,
+            HistoryCheckpoints nextCheckpoints
+    ) {
+        return new PosDraft(
+                draftId,
+                state.config(),
+                originalWorkbook,
+                state.itemCatalog(),
+                state.handyCatalog(),
+                state.itemMasterCatalog(),
+                workbookLayout,
+                initialAction,
+                initialTimestamp,
+                nextChanges,
+                nextHistoryIndex,
+                version + 1,
+                nextCheckpoints
         );
     }
 
     private static List<ChangeRecord> normalizeChanges(List<ChangeRecord> changes) {
-        if (changes == null || changes.isEmpty()) {
-            return List.of();
-        }
-        return List.copyOf(changes);
+        return ChangeHistory.copyOf(changes);
     }
 
     private static int normalizeHistoryIndex(int historyIndex, int changeCount) {
@@ -394,6 +724,14 @@ public class PosDraft implements Serializable {
         default ItemMasterCatalog undoItemMasterCatalog(ItemMasterCatalog itemMasterCatalog) {
             return itemMasterCatalog;
         }
+
+        /**
+         * One change equivalent to this change followed by {@code next}, or null when they cannot be merged
+         * into one history record.
+         */
+        default Change coalesce(Change next) {
+            return null;
+        }
     }
 
     public static class SwapButtonsChange implements Change {
@@ -413,6 +751,26 @@ public class PosDraft implements Serializable {
             this.toRow = toRow;
         }
 
+        public int getPageNumber() {
+            return pageNumber;
+        }
+
+        public int getFromCol() {
+            return fromCol;
+        }
+
+        public int getFromRow() {
+            return fromRow;
+        }
+
+        public int getToCol() {
+            return toCol;
+        }
+
+        public int getToRow() {
+            return toRow;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config.swapButtons(pageNumber, fromCol, fromRow, toCol, toRow);
@@ -435,6 +793,14 @@ public class PosDraft implements Serializable {
             this.button = Objects.requireNonNull(button);
         }
 
+        public int getPageNumber() {
+            return pageNumber;
+        }
+
+        public PosConfig.Button getButton() {
+            return button;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config.addButton(
@@ -466,6 +832,14 @@ public class PosDraft implements Serializable {
             this.button = Objects.requireNonNull(button);
         }
 
+        public int getPageNumber() {
+            return pageNumber;
+        }
+
+        public PosConfig.Button getButton() {
+            return button;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config.deleteButton(pageNumber, button.getButtonId());
@@ -501,6 +875,22 @@ public class PosDraft implements Serializable {
             this.afterUnitPrice = afterUnitPrice == null ? "" : afterUnitPrice;
         }
 
+        public int getPageNumber() {
+            return pageNumber;
+        }
+
+        public String getButtonId() {
+            return buttonId;
+        }
+
+        public String getBeforeUnitPrice() {
+            return beforeUnitPrice;
+        }
+
+        public String getAfterUnitPrice() {
+            return afterUnitPrice;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config.updateUnitPrice(pageNumber, buttonId, afterUnitPrice);
@@ -510,6 +900,15 @@ public class PosDraft implements Serializable {
         public PosConfig undo(PosConfig config) {
             return config.updateUnitPrice(pageNumber, buttonId, beforeUnitPrice);
         }
+
+        // 同じボタンの価格の打ち直しは、最初の価格から最後の価格への1件にする
+        @Override
+        public Change coalesce(Change next) {
+            if (next instanceof UpdateUnitPriceChange c && c.pageNumber == pageNumber && c.buttonId.equals(buttonId)) {
+                return new UpdateUnitPriceChange(pageNumber, buttonId, beforeUnitPrice, c.afterUnitPrice);
+            }
+            return null;
+        }
     }
 
     public static class UpdateItemMasterItemChange implements Change {
@@ -523,6 +922,14 @@ public class PosDraft implements Serializable {
             this.afterItem = Objects.requireNonNull(afterItem);
         }
 
+        public ItemMasterCatalog.Item getBeforeItem() {
+            return beforeItem;
+        }
+
+        public ItemMasterCatalog.Item getAfterItem() {
+            return afterItem;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return rewriteConfigByItemMaster(config, beforeItem, afterItem);
@@ -573,6 +980,10 @@ public class PosDraft implements Serializable {
             this.category = Objects.requireNonNull(category);
         }
 
+        public PosConfig.Category getCategory() {
+            return category;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             PosConfig.Page emptyPage = new PosConfig.Page(
@@ -604,6 +1015,14 @@ public class PosDraft implements Serializable {
             }
         }
 
+        public PosConfig.Category getCategory() {
+            return category;
+        }
+
+        public PosConfig.Page getPage() {
+            return page;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config.deleteCategory(category.getPageNumber());
@@ -632,6 +1051,26 @@ public class PosDraft implements Serializable {
             this.toRows = toRows;
         }
 
+        public int getPageNumber() {
+            return pageNumber;
+        }
+
+        public int getFromCols() {
+            return fromCols;
+        }
+
+        public int getFromRows() {
+            return fromRows;
+        }
+
+        public int getToCols() {
+            return toCols;
+        }
+
+        public int getToRows() {
+            return toRows;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config.updateCategoryGrid(pageNumber, toCols, toRows);
@@ -654,6 +1093,14 @@ public class PosDraft implements Serializable {
             this.toPageNumber = toPageNumber;
         }
 
+        public int getFromPageNumber() {
+            return fromPageNumber;
+        }
+
+        public int getToPageNumber() {
+            return toPageNumber;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config.swapCategories(fromPageNumber, toPageNumber);
@@ -678,6 +1125,18 @@ public class PosDraft implements Serializable {
             this.toIndex = toIndex;
         }
 
+        public String getCategoryCode() {
+            return categoryCode;
+        }
+
+        public int getFromIndex() {
+            return fromIndex;
+        }
+
+        public int getToIndex() {
+            return toIndex;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config;
@@ -697,6 +1156,17 @@ public class PosDraft implements Serializable {
         public ItemCatalog undoHandyCatalog(ItemCatalog handyCatalog) {
             return reorderHandyItemsByIndex(handyCatalog, categoryCode, toIndex, fromIndex);
         }
+
+        // ドラッグ中の移動の連続（a→b, b→c）は a→c の1件にする
+        @Override
+        public Change coalesce(Change next) {
+            if (next instanceof ReorderHandyItemsChange c
+                    && c.categoryCode.equals(categoryCode)
+                    && c.fromIndex == toIndex) {
+                return new ReorderHandyItemsChange(categoryCode, fromIndex, c.toIndex);
+            }
+            return null;
+        }
     }
 
     public static class DeleteHandyItemChange implements Change {
@@ -712,6 +1182,18 @@ public class PosDraft implements Serializable {
             this.deletedItem = Objects.requireNonNull(deletedItem);
         }
 
+        public String getCategoryCode() {
+            return categoryCode;
+        }
+
+        public int getItemIndex() {
+            return itemIndex;
+        }
+
+        public ItemCatalog.Item getDeletedItem() {
+            return deletedItem;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config;
@@ -746,6 +1228,18 @@ public class PosDraft implements Serializable {
             this.addedItem = Objects.requireNonNull(addedItem);
         }
 
+        public String getCategoryCode() {
+            return categoryCode;
+        }
+
+        public int getItemIndex() {
+            return itemIndex;
+        }
+
+        public ItemCatalog.Item getAddedItem() {
+            return addedItem;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config;
@@ -778,6 +1272,14 @@ public class PosDraft implements Serializable {
             this.category = Objects.requireNonNull(category);
         }
 
+        public int getCategoryIndex() {
+            return categoryIndex;
+        }
+
+        public ItemCatalog.Category getCategory() {
+            return category;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config;
@@ -810,6 +1312,14 @@ public class PosDraft implements Serializable {
             this.category = Objects.requireNonNull(category);
         }
 
+        public int getCategoryIndex() {
+            return categoryIndex;
+        }
+
+        public ItemCatalog.Category getCategory() {
+            return category;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config;
@@ -842,6 +1352,14 @@ public class PosDraft implements Serializable {
             this.toIndex = toIndex;
         }
 
+        public int getFromIndex() {
+            return fromIndex;
+        }
+
+        public int getToIndex() {
+            return toIndex;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config;
@@ -874,6 +1392,14 @@ public class PosDraft implements Serializable {
             this.toCategoryCode = toCategoryCode == null ? "" : toCategoryCode.trim();
         }
 
+        public String getFromCategoryCode() {
+            return fromCategoryCode;
+        }
+
+        public String getToCategoryCode() {
+            return toCategoryCode;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return config;
@@ -1092,50 +1618,7 @@ public class PosDraft implements Serializable {
         if (config == null) {
             return null;
         }
-        String fromCode = fromItem.getItemCode();
-        String toCode = toItem.getItemCode();
-        String toUnitPrice = toItem.getUnitPrice();
-
-        boolean changed = false;
-        Map<Integer, PosConfig.Page> updatedPages = new LinkedHashMap<>();
-        for (Map.Entry<Integer, PosConfig.Page> entry : config.getPagesByPageNumber().entrySet()) {
-            PosConfig.Page page = entry.getValue();
-            boolean pageChanged = false;
-            List<PosConfig.Button> updatedButtons = new ArrayList<>(page.getButtons().size());
-            for (PosConfig.Button button : page.getButtons()) {
-                if (!fromCode.equals(button.getItemCode())) {
-                    updatedButtons.add(button);
-                    continue;
-                }
-                PosConfig.Button rewritten = new PosConfig.Button(
-                        button.getCol(),
-                        button.getRow(),
-                        button.getLabel(),
-                        button.getStyleKey(),
-                        toCode,
-                        toUnitPrice,
-                        button.getButtonId()
-                );
-                updatedButtons.add(rewritten);
-                if (!sameButton(button, rewritten)) {
-                    pageChanged = true;
-                }
-            }
-            if (pageChanged) {
-                changed = true;
-                updatedPages.put(
-                        entry.getKey(),
-                        new PosConfig.Page(page.getPageNumber(), page.getCols(), page.getRows(), List.copyOf(updatedButtons))
-                );
-            } else {
-                updatedPages.put(entry.getKey(), page);
-            }
-        }
-
-        if (!changed) {
-            return config;
-        }
-        return new PosConfig(config.getCategories(), Collections.unmodifiableMap(updatedPages));
+        return config.rewriteItem(fromItem.getItemCode(), toItem.getItemCode(), toItem.getUnitPrice());
     }
 
     private static ItemCatalog rewriteCatalogByItemMaster(
@@ -1226,16 +1709,6 @@ public class PosDraft implements Serializable {
         return new ItemMasterCatalog(updatedItems);
     }
 
-    private static boolean sameButton(PosConfig.Button left, PosConfig.Button right) {
-        return left.getCol() == right.getCol()
-                && left.getRow() == right.getRow()
-                && left.getStyleKey() == right.getStyleKey()
-                && Objects.equals(left.getLabel(), right.getLabel())
-                && Objects.equals(left.getItemCode(), right.getItemCode())
-                && Objects.equals(left.getUnitPrice(), right.getUnitPrice())
-                && Objects.equals(left.getButtonId(), right.getButtonId());
-    }
-
     private static boolean sameCatalogItem(ItemCatalog.Item left, ItemCatalog.Item right) {
         return Objects.equals(left.getItemCode(), right.getItemCode())
                 && Objects.equals(left.getItemName(), right.getItemName())
@@ -1250,17 +1723,230 @@ public class PosDraft implements Serializable {
                 && Objects.equals(left.getBasePrice(), right.getBasePrice());
     }
 
-    private static class SnapshotReplaceChange implements Change {
+    /**
+     * Several changes applied in order as one edit: one history entry, and undo reverts all of them.
+     */
+    public static class CompositeChange implements Change {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Change> changes;
+
+        public CompositeChange(List<Change> changes) {
+            if (changes == null || changes.isEmpty()) {
+                throw new IllegalArgumentException("changes are required");
+            }
+            this.changes = List.copyOf(changes);
+        }
+
+        public List<Change> getChanges() {
+            return changes;
+        }
+
+        @Override
+        public PosConfig apply(PosConfig config) {
+            PosConfig result = config;
+            for (Change change : changes) {
+                result = change.apply(result);
+            }
+            return result;
+        }
+
+        @Override
+        public PosConfig undo(PosConfig config) {
+            PosConfig result = config;
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                result = changes.get(i).undo(result);
+            }
+            return result;
+        }
+
+        @Override
+        public ItemCatalog applyItemCatalog(ItemCatalog itemCatalog) {
+            ItemCatalog result = itemCatalog;
+            for (Change change : changes) {
+                result = change.applyItemCatalog(result);
+            }
+            return result;
+        }
+
+        @Override
+        public ItemCatalog undoItemCatalog(ItemCatalog itemCatalog) {
+            ItemCatalog result = itemCatalog;
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                result = changes.get(i).undoItemCatalog(result);
+            }
+            return result;
+        }
+
+        @Override
+        public ItemCatalog applyHandyCatalog(ItemCatalog handyCatalog) {
+            ItemCatalog result = handyCatalog;
+            for (Change change : changes) {
+                result = change.applyHandyCatalog(result);
+            }
+            return result;
+        }
+
+        @Override
+        public ItemCatalog undoHandyCatalog(ItemCatalog handyCatalog) {
+            ItemCatalog result = handyCatalog;
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                result = changes.get(i).undoHandyCatalog(result);
+            }
+            return result;
+        }
+
+        @Override
+        public ItemMasterCatalog applyItemMasterCatalog(ItemMasterCatalog itemMasterCatalog) {
+            ItemMasterCatalog result = itemMasterCatalog;
+            for (Change change : changes) {
+                result = change.applyItemMasterCatalog(result);
+            }
+            return result;
+        }
+
+        @Override
+        public ItemMasterCatalog undoItemMasterCatalog(ItemMasterCatalog itemMasterCatalog) {
+            ItemMasterCatalog result = itemMasterCatalog;
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                result = changes.get(i).undoItemMasterCatalog(result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A whole-config edit stored as only the parts that differ: the pages that were replaced, added or removed,
+     * and the category list when any category changed. Parts are compared by identity, which is enough because
+     * config edits share everything they do not touch.
+     */
+    public static class ConfigDiffChange implements Change {
+        private static final long serialVersionUID = 1L;
+
+        private final List<PosConfig.Category> beforeCategories; // カテゴリが変わっていなければ null
+        private final List<PosConfig.Category> afterCategories;
+        private final Map<Integer, PosConfig.Page> beforePages;  // 変わったページだけ。無いキーは追加・削除
+        private final Map<Integer, PosConfig.Page> afterPages;
+        private final Set<Integer> pageNumbers;
+
+        public ConfigDiffChange(
+                List<PosConfig.Category> beforeCategories,
+                List<PosConfig.Category> afterCategories,
+                Map<Integer, PosConfig.Page> beforePages,
+                Map<Integer, PosConfig.Page> afterPages
+        ) {
+            if ((beforeCategories == null) != (afterCategories == null)) {
+                throw new IllegalArgumentException("both or neither category lists are required");
+            }
+            this.beforeCategories = beforeCategories;
+            this.afterCategories = afterCategories;
+            this.beforePages = Collections.unmodifiableMap(new LinkedHashMap<>(beforePages));
+            this.afterPages = Collections.unmodifiableMap(new LinkedHashMap<>(afterPages));
+            Set<Integer> numbers = new TreeSet<>(beforePages.keySet());
+            numbers.addAll(afterPages.keySet());
+            this.pageNumbers = Collections.unmodifiableSet(numbers);
+        }
+
+        public static ConfigDiffChange between(PosConfig before, PosConfig after) {
+            Map<Integer, PosConfig.Page> beforePages = new LinkedHashMap<>();
+            Map<Integer, PosConfig.Page> afterPages = new LinkedHashMap<>();
+            Map<Integer, PosConfig.Page> oldPages = before.getPagesByPageNumber();
+            Map<Integer, PosConfig.Page> newPages = after.getPagesByPageNumber();
+            if (oldPages != newPages) {
+                for (Map.Entry<Integer, PosConfig.Page> entry : oldPages.entrySet()) {
+                    PosConfig.Page next = newPages.get(entry.getKey());
+                    if (next != entry.getValue()) {
+                        beforePages.put(entry.getKey(), entry.getValue());
+                        if (next != null) {
+                            afterPages.put(entry.getKey(), next);
+                        }
+                    }
+                }
+                for (Map.Entry<Integer, PosConfig.Page> entry : newPages.entrySet()) {
+                    if (!oldPages.containsKey(entry.getKey())) {
+                        afterPages.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            boolean categoriesChanged = !sameElements(before.getCategories(), after.getCategories());
+            return new ConfigDiffChange(
+                    categoriesChanged ? before.getCategories() : null,
+                    categoriesChanged ? after.getCategories() : null,
+                    beforePages,
+                    afterPages
+            );
+        }
+
+        private static boolean sameElements(List<PosConfig.Category> left, List<PosConfig.Category> right) {
+            if (left == right) {
+                return true;
+            }
+            if (left.size() != right.size()) {
+                return false;
+            }
+            Iterator<PosConfig.Category> rightIterator = right.iterator();
+            for (PosConfig.Category category : left) {
+                if (category != rightIterator.next()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public List<PosConfig.Category> getBeforeCategories() {
+            return beforeCategories;
+        }
+
+        public List<PosConfig.Category> getAfterCategories() {
+            return afterCategories;
+        }
+
+        public Map<Integer, PosConfig.Page> getBeforePages() {
+            return beforePages;
+        }
+
+        public Map<Integer, PosConfig.Page> getAfterPages() {
+            return afterPages;
+        }
+
+        public boolean isEmpty() {
+            return beforeCategories == null && pageNumbers.isEmpty();
+        }
+
+        @Override
+        public PosConfig apply(PosConfig config) {
+            return config.withChangedParts(afterCategories, pageNumbers, afterPages);
+        }
+
+        @Override
+        public PosConfig undo(PosConfig config) {
+            return config.withChangedParts(beforeCategories, pageNumbers, beforePages);
+        }
+    }
+
+    /**
+     * Whole before/after configs. Still read from drafts and journals written before edits were recorded as
+     * {@link ConfigDiffChange}; {@link #applyChange} stores new ones as a diff.
+     */
+    public static class SnapshotReplaceChange implements Change {
         private static final long serialVersionUID = 1L;
 
         private final PosConfig beforeConfig;
         private final PosConfig afterConfig;
 
-        private SnapshotReplaceChange(PosConfig beforeConfig, PosConfig afterConfig) {
+        public SnapshotReplaceChange(PosConfig beforeConfig, PosConfig afterConfig) {
             this.beforeConfig = Objects.requireNonNull(beforeConfig);
             this.afterConfig = Objects.requireNonNull(afterConfig);
         }
 
+        public PosConfig getBeforeConfig() {
+            return beforeConfig;
+        }
+
+        public PosConfig getAfterConfig() {
+            return afterConfig;
+        }
+
         @Override
         public PosConfig apply(PosConfig config) {
             return afterConfig;
@@ -1272,7 +1958,7 @@ public class PosDraft implements Serializable {
         }
     }
 
-    private static class ChangeRecord implements Serializable {
+    public static final class ChangeRecord implements Serializable {
         private static final long serialVersionUID = 1L;
 
         private final Change change;
@@ -1283,15 +1969,53 @@ public class PosDraft implements Serializable {
             this.entry = Objects.requireNonNull(entry);
         }
 
-        private Change getChange() {
+        public static ChangeRecord restore(Change change, HistoryEntry entry) {
+            return new ChangeRecord(change, entry);
+        }
+
+        public Change getChange() {
             return change;
         }
 
-        private HistoryEntry getEntry() {
+        public HistoryEntry getEntry() {
             return entry;
         }
     }
 
+    // 履歴で変わる部分。チェックポイントとして保持する
+    record State(
+            PosConfig config,
+            ItemCatalog itemCatalog,
+            ItemCatalog handyCatalog,
+            ItemMasterCatalog itemMasterCatalog
+    ) {
+        State apply(Change change) {
+            return new State(
+                    change.apply(config),
+                    change.applyItemCatalog(itemCatalog),
+                    change.applyHandyCatalog(handyCatalog),
+                    change.applyItemMasterCatalog(itemMasterCatalog)
+            );
+        }
+
+        State undo(Change change) {
+            return new State(
+                    change.undo(config),
+                    change.undoItemCatalog(itemCatalog),
+                    change.undoHandyCatalog(handyCatalog),
+                    change.undoItemMasterCatalog(itemMasterCatalog)
+            );
+        }
+
+        // 変わらない部分は同じインスタンスのまま返るので、参照で比べれば足りる
+        boolean sameAs(State other) {
+            return config == other.config
+                    && itemCatalog == other.itemCatalog
+                    && handyCatalog == other.handyCatalog
+                    && itemMasterCatalog == other.itemMasterCatalog;
+        }
+    }
+
     private record HandyCategoryContext(
             List<ItemCatalog.Category> categories,
             int categoryIndex,
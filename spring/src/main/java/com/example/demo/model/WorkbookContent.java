@@ -0,0 +1,183 @@
+package com.example.demo.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+
+// 取込元 Excel の中身。不変なのでドラフトの全バージョンで同じインスタンスを共有し、バイト列はコピーしない
+// ヒープ上の配列か、ブロブストアのファイルをマップした読み取り専用バッファ（ヒープ外）のどちらかで持つ
+public final class WorkbookContent implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int COPY_CHUNK = 64 * 1024;
+
+    private final byte[] bytes;
+    private final transient ByteBuffer buffer;
+    private transient volatile String contentHash;
+
+    private WorkbookContent(byte[] bytes) {
+        this.bytes = Objects.requireNonNull(bytes);
+        this.buffer = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    private WorkbookContent(ByteBuffer buffer, String contentHash) {
+        this.bytes = null;
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.contentHash = Objects.requireNonNull(contentHash);
+    }
+
+    /**
+     * Copies {@code bytes} once; later changes to the caller's array are not visible.
+     */
+    public static WorkbookContent of(byte[] bytes) {
+        return new WorkbookContent(Objects.requireNonNull(bytes).clone());
+    }
+
+    /**
+     * Reads exactly {@code size} bytes from {@code in} into a new content without an extra copy.
+     */
+    public static WorkbookContent readFrom(InputStream in, int size) throws IOException {
+        byte[] bytes = in.readNBytes(size);
+        if (bytes.length != size) {
+            throw new EOFException("workbook content truncated: " + bytes.length + "/" + size);
+        }
+        return new WorkbookContent(bytes);
+    }
+
+    /**
+     * Wraps a buffer that is never modified afterwards, typically a memory-mapped blob whose file name is
+     * {@code contentHash}. The hash is trusted, not recomputed.
+     */
+    public static WorkbookContent mapped(ByteBuffer buffer, String contentHash) {
+        return new WorkbookContent(Objects.requireNonNull(buffer), contentHash);
+    }
+
+    // 呼び出し元が以後配列を触らない場合だけ使う（デシリアライズ直後など）
+    static WorkbookContent adopt(byte[] bytes) {
+        return new WorkbookContent(bytes);
+    }
+
+    // ヒープ上の配列。マップしたバッファなら null
+    byte[] bytes() {
+        return bytes;
+    }
+
+    public boolean isMapped() {
+        return bytes == null;
+    }
+
+    public int size() {
+        return buffer.capacity();
+    }
+
+    public InputStream openStream() {
+        if (bytes != null) {
+            return new ByteArrayInputStream(bytes);
+        }
+        return new BufferInputStream(buffer.duplicate());
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        if (bytes != null) {
+            out.write(bytes);
+            return;
+        }
+        ByteBuffer source = buffer.duplicate();
+        byte[] chunk = new byte[Math.min(COPY_CHUNK, source.remaining())];
+        while (source.hasRemaining()) {
+            int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+
+    public ByteBuffer asReadOnlyBuffer() {
+        return buffer.duplicate();
+    }
+
+    public byte[] toByteArray() {
+        if (bytes != null) {
+            return bytes.clone();
+        }
+        byte[] copy = new byte[size()];
+        buffer.duplicate().get(copy);
+        return copy;
+    }
+
+    /**
+     * SHA-256 of the content as lower-case hex, computed on first use.
+     */
+    public String getContentHash() {
+        String hash = contentHash;
+        if (hash == null) {
+            hash = sha256Hex(bytes);
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    public static String sha256Hex(byte[] bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(bytes));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    // マップしたバッファはそのまま直列化できないのでヒープへコピーして書く
+    private Object writeReplace() throws ObjectStreamException {
+        return bytes != null ? this : new WorkbookContent(toByteArray());
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+        return new WorkbookContent(bytes);
+    }
+
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer source;
+
+        private BufferInputStream(ByteBuffer source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() {
+            return source.hasRemaining() ? source.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            Objects.checkFromIndexSize(offset, length, target.length);
+            if (length == 0) {
+                return 0;
+            }
+            if (!source.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, source.remaining());
+            source.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, source.remaining()));
+            source.position(source.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return source.remaining();
+        }
+    }
+}
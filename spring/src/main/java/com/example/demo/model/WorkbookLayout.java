@@ -0,0 +1,49 @@
+package com.example.demo.model;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+
+// 取込時に見つけた各シートのヘッダー行と列位置。エクスポート時のヘッダー再探索を省くために保持する
+public class WorkbookLayout implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, SheetHeader> sheets;
+
+    public WorkbookLayout(Map<String, SheetHeader> sheets) {
+        this.sheets = Map.copyOf(Objects.requireNonNull(sheets));
+    }
+
+    public Map<String, SheetHeader> getSheets() {
+        return sheets;
+    }
+
+    public SheetHeader findSheet(String sheetName) {
+        if (sheetName == null) return null;
+        return sheets.get(sheetName);
+    }
+
+    public static WorkbookLayout empty() {
+        return new WorkbookLayout(Map.of());
+    }
+
+    public static class SheetHeader implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int headerRow;
+        private final Map<String, Integer> columns;
+
+        public SheetHeader(int headerRow, Map<String, Integer> columns) {
+            this.headerRow = headerRow;
+            this.columns = Map.copyOf(Objects.requireNonNull(columns));
+        }
+
+        public int getHeaderRow() {
+            return headerRow;
+        }
+
+        public Map<String, Integer> getColumns() {
+            return columns;
+        }
+    }
+}
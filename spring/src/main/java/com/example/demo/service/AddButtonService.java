@@ -7,8 +7,6 @@ import com.example.demo.service.port.DraftRepository;
 import com.example.demo.service.port.PosConfigReader;
 import org.springframework.stereotype.Service;
 
-import java.util.UUID;
-
 @Service
 public class AddButtonService implements AddButtonUseCase {
 
@@ -30,44 +28,16 @@ public class AddButtonService implements AddButtonUseCase {
             String itemCode
     ) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
-        PosConfig.Page currentPage = DraftServiceSupport.requirePage(draft, pageNumber);
+        DraftServiceSupport.requirePage(draft, pageNumber);
 
         ItemCatalog catalog = DraftServiceSupport.loadItemCatalog(draft, reader, draftRepository);
-        ItemCatalog.Category category = catalog.findCategory(categoryCode);
-        if (category == null) {
-            throw new IllegalArgumentException("category not found: " + categoryCode);
-        }
-
-        ItemCatalog.Item item = category.findItem(itemCode);
-        if (item == null) {
-            throw new IllegalArgumentException("item not found in category: " + itemCode);
-        }
-
-        int styleKey = DraftServiceSupport.resolveStyleKey(draft.getConfig(), currentPage, pageNumber);
-        String label = item.getItemName() == null || item.getItemName().isBlank()
-                ? item.getItemCode()
-                : item.getItemName();
-        String newButtonId = "PresetMenuButtonMaster#NEW-" + UUID.randomUUID();
-
-        PosConfig.Button newButton = new PosConfig.Button(
-                col,
-                row,
-                label,
-                styleKey,
-                item.getItemCode(),
-                item.getUnitPrice(),
-                newButtonId
-        );
-        PosDraft.Change change = new PosDraft.AddButtonChange(pageNumber, newButton);
-        String categoryName = DraftServiceSupport.resolveCategoryName(draft.getConfig(), pageNumber);
-        String itemName = DraftServiceSupport.resolveItemName(item.getItemName(), item.getItemCode());
-        String action = DraftServiceSupport.formatButtonAction("ボタン追加", categoryName, itemName);
+        PosDraftEdits.Edit edit = PosDraftEdits.addButton(draft, catalog, pageNumber, col, row, categoryCode, itemCode);
         PosDraft updatedDraft = DraftServiceSupport.saveDraftWithChange(
                 draftRepository,
                 draft,
-                change,
+                edit.change(),
                 catalog,
-                action
+                edit.action()
         );
         return updatedDraft.getConfig().getPage(pageNumber);
     }
@@ -6,6 +6,7 @@ import com.example.demo.service.port.DraftRepository;
 import com.example.demo.service.port.PosConfigReader;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,8 +25,14 @@ public class AddHandyItemService implements AddHandyItemUseCase {
     @Override
     public ItemCatalog add(String draftId, String handyCategoryCode, String sourceCategoryCode, String itemCode) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
-        ItemCatalog handyCatalog = DraftServiceSupport.loadHandyCatalog(draft, reader, draftRepository);
-        ItemCatalog itemCatalog = DraftServiceSupport.loadItemCatalog(draft, reader, draftRepository);
+        PosDraft loadedDraft = DraftServiceSupport.loadCatalogs(
+                draft,
+                reader,
+                draftRepository,
+                EnumSet.of(PosConfigReader.Part.HANDY_CATALOG, PosConfigReader.Part.ITEM_CATALOG)
+        );
+        ItemCatalog handyCatalog = loadedDraft.getHandyCatalogOrNull();
+        ItemCatalog itemCatalog = loadedDraft.getItemCatalogOrNull();
 
         String normalizedHandyCategoryCode = normalizeRequired(handyCategoryCode, "handyCategoryCode");
         String normalizedSourceCategoryCode = normalizeRequired(sourceCategoryCode, "sourceCategoryCode");
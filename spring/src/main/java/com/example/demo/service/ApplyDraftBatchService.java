@@ -0,0 +1,98 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ItemCatalog;
+import com.example.demo.model.PosDraft;
+import com.example.demo.service.exception.NotFoundException;
+import com.example.demo.service.port.DraftRepository;
+import com.example.demo.service.port.PosConfigReader;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies an ordered list of POS edits as one {@link PosDraft.CompositeChange}: every operation is validated
+ * against the draft as left by the operations before it, then all of them are saved at once with a single
+ * history entry. If any operation is invalid nothing is saved.
+ */
+@Service
+public class ApplyDraftBatchService implements ApplyDraftBatchUseCase {
+    static final int MAX_OPERATIONS = 500;
+
+    private final DraftRepository draftRepository;
+    private final PosConfigReader reader;
+
+    public ApplyDraftBatchService(DraftRepository draftRepository, PosConfigReader reader) {
+        this.draftRepository = draftRepository;
+        this.reader = reader;
+    }
+
+    @Override
+    public PosDraft applyBatch(String draftId, List<DraftOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("operations are required");
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("too many operations: " + operations.size() + " (max " + MAX_OPERATIONS + ")");
+        }
+
+        PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
+        ItemCatalog catalog = draft.getItemCatalogOrNull();
+        if (operations.stream().anyMatch(DraftOperation.AddButton.class::isInstance)) {
+            catalog = DraftServiceSupport.loadItemCatalog(draft, reader, draftRepository);
+        }
+
+        // 保存前に全件を順に検証する。各操作は前の操作を適用した後のドラフトに対して組み立てる
+        PosDraft staged = draft.withItemCatalog(catalog);
+        List<PosDraft.Change> changes = new ArrayList<>(operations.size());
+        PosDraftEdits.Edit lastEdit = null;
+        for (int i = 0; i < operations.size(); i++) {
+            try {
+                lastEdit = prepare(staged, catalog, operations.get(i));
+                staged = staged.applyChange(lastEdit.change(), lastEdit.action());
+            } catch (NotFoundException ex) {
+                throw new NotFoundException("operations[" + i + "]: " + ex.getMessage());
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("operations[" + i + "]: " + ex.getMessage(), ex);
+            }
+            changes.add(lastEdit.change());
+        }
+
+        String action = changes.size() == 1 ? lastEdit.action() : "一括編集 (" + changes.size() + "件)";
+        return DraftServiceSupport.saveDraftWithChange(
+                draftRepository,
+                draft,
+                new PosDraft.CompositeChange(changes),
+                catalog,
+                action
+        );
+    }
+
+    private static PosDraftEdits.Edit prepare(PosDraft draft, ItemCatalog catalog, DraftOperation operation) {
+        if (operation instanceof DraftOperation.SwapButtons op) {
+            return PosDraftEdits.swapButtons(draft, op.pageNumber(), op.fromCol(), op.fromRow(), op.toCol(), op.toRow());
+        }
+        if (operation instanceof DraftOperation.AddButton op) {
+            return PosDraftEdits.addButton(draft, catalog, op.pageNumber(), op.col(), op.row(), op.categoryCode(), op.itemCode());
+        }
+        if (operation instanceof DraftOperation.DeleteButton op) {
+            return PosDraftEdits.deleteButton(draft, op.pageNumber(), op.buttonId());
+        }
+        if (operation instanceof DraftOperation.UpdateUnitPrice op) {
+            return PosDraftEdits.updateUnitPrice(draft, op.pageNumber(), op.buttonId(), op.unitPrice());
+        }
+        if (operation instanceof DraftOperation.AddCategory op) {
+            return PosDraftEdits.addCategory(draft, op.name(), op.cols(), op.rows(), op.styleKey());
+        }
+        if (operation instanceof DraftOperation.DeleteCategory op) {
+            return PosDraftEdits.deleteCategory(draft, op.pageNumber());
+        }
+        if (operation instanceof DraftOperation.SwapCategories op) {
+            return PosDraftEdits.swapCategories(draft, op.fromPageNumber(), op.toPageNumber());
+        }
+        if (operation instanceof DraftOperation.UpdateCategoryGrid op) {
+            return PosDraftEdits.updateCategoryGrid(draft, op.pageNumber(), op.cols(), op.rows());
+        }
+        throw new IllegalArgumentException("operation is required");
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.demo.service;
+
+import com.example.demo.model.PosDraft;
+
+import java.util.List;
+
+public interface ApplyDraftBatchUseCase {
+    PosDraft applyBatch(String draftId, List<DraftOperation> operations);
+}
@@ -17,7 +17,6 @@ public class ClearDraftHistoryService implements ClearDraftHistoryUseCase {
     public PosDraft clear(String draftId) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
         PosDraft updatedDraft = draft.clearHistory();
-        draftRepository.save(updatedDraft);
-        return updatedDraft;
+        return DraftServiceSupport.saveIfUnchanged(draftRepository, draft, updatedDraft);
     }
 }
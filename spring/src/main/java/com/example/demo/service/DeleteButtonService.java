@@ -17,18 +17,12 @@ public class DeleteButtonService implements DeleteButtonUseCase {
     @Override
     public PosConfig.Page deleteButton(String draftId, int pageNumber, String buttonId) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
-        PosConfig.Page currentPage = DraftServiceSupport.requirePage(draft, pageNumber);
-        PosConfig.Button targetButton = DraftServiceSupport.requireButton(currentPage, buttonId);
-
-        PosDraft.Change change = new PosDraft.DeleteButtonChange(pageNumber, targetButton);
-        String categoryName = DraftServiceSupport.resolveCategoryName(draft.getConfig(), pageNumber);
-        String buttonName = DraftServiceSupport.resolveButtonName(targetButton);
-        String action = DraftServiceSupport.formatButtonAction("ボタン削除", categoryName, buttonName);
+        PosDraftEdits.Edit edit = PosDraftEdits.deleteButton(draft, pageNumber, buttonId);
         PosDraft updatedDraft = DraftServiceSupport.saveDraftWithChange(
                 draftRepository,
                 draft,
-                change,
-                action
+                edit.change(),
+                edit.action()
         );
         return updatedDraft.getConfig().getPage(pageNumber);
     }
@@ -17,15 +17,12 @@ public class DeleteCategoryService implements DeleteCategoryUseCase {
     @Override
     public PosConfig deleteCategory(String draftId, int pageNumber) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
-        PosConfig.Category targetCategory = DraftServiceSupport.requireCategory(draft, pageNumber);
-        PosConfig.Page targetPage = DraftServiceSupport.requirePage(draft, pageNumber);
-
-        PosDraft.Change change = new PosDraft.DeleteCategoryChange(targetCategory, targetPage);
+        PosDraftEdits.Edit edit = PosDraftEdits.deleteCategory(draft, pageNumber);
         PosDraft updatedDraft = DraftServiceSupport.saveDraftWithChange(
                 draftRepository,
                 draft,
-                change,
-                "カテゴリ削除"
+                edit.change(),
+                edit.action()
         );
         return updatedDraft.getConfig();
     }
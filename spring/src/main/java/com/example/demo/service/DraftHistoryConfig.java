@@ -0,0 +1,22 @@
+package com.example.demo.service;
+
+import com.example.demo.model.HistoryPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// 新規ドラフト（インポート）と読み込んだドラフトに共通で使う履歴の持ち方
+@Configuration
+public class DraftHistoryConfig {
+
+    @Bean
+    public HistoryPolicy draftHistoryPolicy(
+            @Value("${draft.history.max-entries:100}") int maxEntries,
+            @Value("${draft.history.max-bytes:16777216}") long maxBytes,
+            @Value("${draft.history.checkpoint-interval:10}") int checkpointInterval,
+            @Value("${draft.history.max-checkpoints:16}") int maxCheckpoints,
+            @Value("${draft.history.coalesce-window-ms:1000}") long coalesceWindowMillis
+    ) {
+        return new HistoryPolicy(maxEntries, maxBytes, checkpointInterval, maxCheckpoints, coalesceWindowMillis);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.service;
+
+/**
+ * One POS edit of a batch, with the same parameters as the corresponding single-edit use case.
+ */
+public interface DraftOperation {
+
+    record SwapButtons(int pageNumber, int fromCol, int fromRow, int toCol, int toRow) implements DraftOperation {
+    }
+
+    record AddButton(int pageNumber, int col, int row, String categoryCode, String itemCode) implements DraftOperation {
+    }
+
+    record DeleteButton(int pageNumber, String buttonId) implements DraftOperation {
+    }
+
+    record UpdateUnitPrice(int pageNumber, String buttonId, String unitPrice) implements DraftOperation {
+    }
+
+    record AddCategory(String name, int cols, int rows, int styleKey) implements DraftOperation {
+    }
+
+    record DeleteCategory(int pageNumber) implements DraftOperation {
+    }
+
+    record SwapCategories(int fromPageNumber, int toPageNumber) implements DraftOperation {
+    }
+
+    record UpdateCategoryGrid(int pageNumber, int cols, int rows) implements DraftOperation {
+    }
+}
@@ -2,23 +2,31 @@ package com.example.demo.service;
 
 import com.example.demo.model.ItemCatalog;
 import com.example.demo.model.ItemMasterCatalog;
+import com.example.demo.model.Money;
 import com.example.demo.model.PosConfig;
 import com.example.demo.model.PosConfigSource;
 import com.example.demo.model.PosDraft;
+import com.example.demo.service.exception.DraftConflictException;
 import com.example.demo.service.exception.NotFoundException;
+import com.example.demo.service.exception.PreconditionFailedException;
 import com.example.demo.service.port.DraftRepository;
 import com.example.demo.service.port.PosConfigReader;
+import com.example.demo.service.port.PosConfigReader.Part;
 
-import java.io.ByteArrayInputStream;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 
 final class DraftServiceSupport {
     private DraftServiceSupport() {
     }
 
     static PosDraft requireDraft(DraftRepository draftRepository, String draftId) {
-        return draftRepository
+        PosDraft draft = draftRepository
                 .findById(draftId)
                 .orElseThrow(() -> new NotFoundException("draft not found: " + draftId));
+        checkExpectedVersion(draft);
+        return draft;
     }
 
     static PosConfig.Page requirePage(PosDraft draft, int pageNumber) {
@@ -59,8 +67,28 @@ final class DraftServiceSupport {
             String action
     ) {
         PosDraft baseDraft = draft.withItemCatalog(itemCatalog);
-        PosDraft updatedDraft = baseDraft.applyNewConfig(updatedConfig, action);
-        draftRepository.save(updatedDraft);
+        // 丸ごと置き換える変更は新しい版に適用し直すと他の編集を消すので、再試行しない
+        saveIfUnchanged(draftRepository, baseDraft, baseDraft.applyNewConfig(updatedConfig, action));
+    }
+
+    /**
+     * Saves {@code updatedDraft} if nobody saved the draft since {@code draft} was read, otherwise fails with
+     * {@link DraftConflictException} (or {@link PreconditionFailedException} when the client sent
+     * {@code If-Match}). For operations that only make sense on the version the user saw: undo, redo,
+     * history jumps and clearing the history.
+     */
+    static PosDraft saveIfUnchanged(DraftRepository draftRepository, PosDraft draft, PosDraft updatedDraft) {
+        Set<Long> expectedVersions = expectedVersionsOrNull();
+        return update(draftRepository, draft.getDraftId(), latestDraft -> {
+            requireExpectedVersion(latestDraft, expectedVersions);
+            if (latestDraft.getVersion() != draft.getVersion()) {
+                throw new DraftConflictException(
+                        "draft was changed concurrently: " + draft.getDraftId(),
+                        latestDraft.getVersion()
+                );
+            }
+            return updatedDraft;
+        });
     }
 
     static PosDraft saveDraftWithChange(
@@ -71,8 +99,29 @@ final class DraftServiceSupport {
             String action
     ) {
         PosDraft baseDraft = draft.withItemCatalog(itemCatalog);
-        PosDraft updatedDraft = baseDraft.applyChange(change, action);
-        draftRepository.save(updatedDraft);
+        Set<Long> expectedVersions = expectedVersionsOrNull();
+        // ドラフトの単一ライターが最新版に適用する。読んだ後に別の編集が入っていれば、その上に同じ Change だけを適用する
+        return update(draftRepository, draft.getDraftId(), latestDraft -> {
+            requireExpectedVersion(latestDraft, expectedVersions);
+            try {
+                return carryCatalogs(baseDraft, latestDraft).applyChange(change, action);
+            } catch (IllegalArgumentException ex) {
+                if (latestDraft.getVersion() == baseDraft.getVersion()) {
+                    throw ex;
+                }
+                throw new DraftConflictException(
+                        "edit no longer applies to the concurrently changed draft: " + ex.getMessage(),
+                        latestDraft.getVersion()
+                );
+            }
+        });
+    }
+
+    private static PosDraft update(DraftRepository draftRepository, String draftId, UnaryOperator<PosDraft> mutation) {
+        PosDraft updatedDraft = draftRepository
+                .update(draftId, mutation)
+                .orElseThrow(() -> new NotFoundException("draft not found: " + draftId));
+        recordSaved(updatedDraft);
         return updatedDraft;
     }
 
@@ -92,106 +141,136 @@ final class DraftServiceSupport {
     }
 
     static ItemCatalog loadItemCatalog(PosDraft draft, PosConfigReader reader, DraftRepository draftRepository) {
-        ItemCatalog cached = draft.getItemCatalogOrNull();
-        if (cached != null) {
-            return cached;
+        return loadCatalogs(draft, reader, draftRepository, EnumSet.of(Part.ITEM_CATALOG))
+                .getItemCatalogOrNull();
+    }
+
+    static ItemCatalog loadHandyCatalog(PosDraft draft, PosConfigReader reader, DraftRepository draftRepository) {
+        return loadCatalogs(draft, reader, draftRepository, EnumSet.of(Part.HANDY_CATALOG))
+                .getHandyCatalogOrNull();
+    }
+
+    static ItemMasterCatalog loadItemMasterCatalog(
+            PosDraft draft,
+            PosConfigReader reader,
+            DraftRepository draftRepository
+    ) {
+        return loadCatalogs(draft, reader, draftRepository, EnumSet.of(Part.ITEM_MASTER_CATALOG))
+                .getItemMasterCatalogOrNull();
+    }
+
+    /**
+     * Makes sure the requested catalogs are cached on the draft. Only the missing parts are read
+     * from the original workbook, so a cache miss costs the sheets of those parts only.
+     */
+    static PosDraft loadCatalogs(
+            PosDraft draft,
+            PosConfigReader reader,
+            DraftRepository draftRepository,
+            Set<Part> parts
+    ) {
+        if (missingCatalogs(draft, parts).isEmpty()) {
+            return draft;
         }
 
         PosDraft latestDraft = draftRepository.findById(draft.getDraftId()).orElse(draft);
-        ItemCatalog latestCached = latestDraft.getItemCatalogOrNull();
-        if (latestCached != null) {
-            return latestCached;
+        Set<Part> missing = missingCatalogs(latestDraft, parts);
+        if (missing.isEmpty()) {
+            return latestDraft;
+        }
+        // どのパートでも ItemMaster は読むので、未キャッシュなら商品マスタも併せて取り込む
+        if (latestDraft.getItemMasterCatalogOrNull() == null) {
+            missing.add(Part.ITEM_MASTER_CATALOG);
         }
 
-        try (ByteArrayInputStream in = new ByteArrayInputStream(latestDraft.getOriginalExcelBytes())) {
-            PosConfigSource source = reader.read(in);
-            ItemCatalog loaded = source.getItemCatalog();
-            PosDraft cachedDraft = latestDraft.withItemCatalog(loaded);
-            if (cachedDraft.getHandyCatalogOrNull() == null) {
+        try {
+            PosConfigSource source = reader.read(latestDraft.getOriginalWorkbook(), missing);
+            PosDraft cachedDraft = latestDraft;
+            if (missing.contains(Part.ITEM_CATALOG)) {
+                cachedDraft = cachedDraft.withItemCatalog(source.getItemCatalog());
+            }
+            if (missing.contains(Part.HANDY_CATALOG)) {
                 cachedDraft = cachedDraft.withHandyCatalog(source.getHandyCatalog());
             }
-            if (cachedDraft.getItemMasterCatalogOrNull() == null) {
+            if (missing.contains(Part.ITEM_MASTER_CATALOG)) {
                 cachedDraft = cachedDraft.withItemMasterCatalog(source.getItemMasterCatalog());
             }
-            if (cachedDraft != latestDraft) {
-                draftRepository.save(cachedDraft);
-            }
-            return loaded;
+            // 版は変わらない。間に別の編集が保存されていたら上書きせず、読んだカタログはこのリクエストでだけ使う
+            draftRepository.save(cachedDraft, latestDraft.getVersion());
+            return cachedDraft;
         } catch (IllegalArgumentException ex) {
             throw ex;
         } catch (Exception ex) {
-            throw new IllegalStateException("failed to read item catalog", ex);
+            throw new IllegalStateException("failed to read catalogs " + missing, ex);
         }
     }
 
-    static ItemCatalog loadHandyCatalog(PosDraft draft, PosConfigReader reader, DraftRepository draftRepository) {
-        ItemCatalog cached = draft.getHandyCatalogOrNull();
-        if (cached != null) {
-            return cached;
+    // 新しい版でまだ読み込んでいないカタログは、読み込み済みの古い版のもの（同じ取込元から読んだ内容）を引き継ぐ
+    private static PosDraft carryCatalogs(PosDraft from, PosDraft to) {
+        PosDraft result = to;
+        if (result.getItemCatalogOrNull() == null) {
+            result = result.withItemCatalog(from.getItemCatalogOrNull());
         }
-
-        PosDraft latestDraft = draftRepository.findById(draft.getDraftId()).orElse(draft);
-        ItemCatalog latestCached = latestDraft.getHandyCatalogOrNull();
-        if (latestCached != null) {
-            return latestCached;
+        if (result.getHandyCatalogOrNull() == null) {
+            result = result.withHandyCatalog(from.getHandyCatalogOrNull());
         }
+        if (result.getItemMasterCatalogOrNull() == null) {
+            result = result.withItemMasterCatalog(from.getItemMasterCatalogOrNull());
+        }
+        return result;
+    }
 
-        try (ByteArrayInputStream in = new ByteArrayInputStream(latestDraft.getOriginalExcelBytes())) {
-            PosConfigSource source = reader.read(in);
-            ItemCatalog loaded = source.getHandyCatalog();
-            PosDraft cachedDraft = latestDraft.withHandyCatalog(loaded);
-            if (cachedDraft.getItemCatalogOrNull() == null) {
-                cachedDraft = cachedDraft.withItemCatalog(source.getItemCatalog());
-            }
-            if (cachedDraft.getItemMasterCatalogOrNull() == null) {
-                cachedDraft = cachedDraft.withItemMasterCatalog(source.getItemMasterCatalog());
-            }
-            if (cachedDraft != latestDraft) {
-                draftRepository.save(cachedDraft);
-            }
-            return loaded;
-        } catch (IllegalArgumentException ex) {
-            throw ex;
-        } catch (Exception ex) {
-            throw new IllegalStateException("failed to read handy catalog", ex);
+    // If-Match で版が指定されていれば一致を確かめ、クライアントに返す版（ETag）を記録する
+    private static void checkExpectedVersion(PosDraft draft) {
+        DraftVersionScope scope = DraftVersionScope.currentOrNull();
+        if (scope == null) {
+            return;
         }
+        requireExpectedVersion(draft, scope.expectedVersionsOrNull());
+        scope.read(draft.getVersion());
     }
 
-    static ItemMasterCatalog loadItemMasterCatalog(
-            PosDraft draft,
-            PosConfigReader reader,
-            DraftRepository draftRepository
-    ) {
-        ItemMasterCatalog cached = draft.getItemMasterCatalogOrNull();
-        if (cached != null) {
-            return cached;
+    // 更新は別スレッドで適用されることがあるので、期待する版は呼び出し元のスレッドで取り出しておく
+    private static Set<Long> expectedVersionsOrNull() {
+        DraftVersionScope scope = DraftVersionScope.currentOrNull();
+        return scope == null ? null : scope.expectedVersionsOrNull();
+    }
+
+    // If-Match に並んだ版のどれかと一致すればよい
+    private static void requireExpectedVersion(PosDraft draft, Set<Long> expectedVersions) {
+        if (expectedVersions != null && !expectedVersions.contains(draft.getVersion())) {
+            throw new PreconditionFailedException(
+                    "draft version mismatch: expected " + describe(expectedVersions) + ", current " + draft.getVersion(),
+                    draft.getVersion()
+            );
         }
+    }
 
-        PosDraft latestDraft = draftRepository.findById(draft.getDraftId()).orElse(draft);
-        ItemMasterCatalog latestCached = latestDraft.getItemMasterCatalogOrNull();
-        if (latestCached != null) {
-            return latestCached;
+    private static String describe(Set<Long> expectedVersions) {
+        return expectedVersions.size() == 1
+                ? String.valueOf(expectedVersions.iterator().next())
+                : "one of " + expectedVersions.stream().sorted().toList();
+    }
+
+    private static void recordSaved(PosDraft draft) {
+        DraftVersionScope scope = DraftVersionScope.currentOrNull();
+        if (scope != null) {
+            scope.saved(draft.getVersion());
         }
+    }
 
-        try (ByteArrayInputStream in = new ByteArrayInputStream(latestDraft.getOriginalExcelBytes())) {
-            PosConfigSource source = reader.read(in);
-            ItemMasterCatalog loaded = source.getItemMasterCatalog();
-            PosDraft cachedDraft = latestDraft.withItemMasterCatalog(loaded);
-            if (cachedDraft.getItemCatalogOrNull() == null) {
-                cachedDraft = cachedDraft.withItemCatalog(source.getItemCatalog());
-            }
-            if (cachedDraft.getHandyCatalogOrNull() == null) {
-                cachedDraft = cachedDraft.withHandyCatalog(source.getHandyCatalog());
-            }
-            if (cachedDraft != latestDraft) {
-                draftRepository.save(cachedDraft);
-            }
-            return loaded;
-        } catch (IllegalArgumentException ex) {
-            throw ex;
-        } catch (Exception ex) {
-            throw new IllegalStateException("failed to read item master catalog", ex);
+    private static Set<Part> missingCatalogs(PosDraft draft, Set<Part> parts) {
+        Set<Part> missing = EnumSet.noneOf(Part.class);
+        if (parts.contains(Part.ITEM_CATALOG) && draft.getItemCatalogOrNull() == null) {
+            missing.add(Part.ITEM_CATALOG);
         }
+        if (parts.contains(Part.HANDY_CATALOG) && draft.getHandyCatalogOrNull() == null) {
+            missing.add(Part.HANDY_CATALOG);
+        }
+        if (parts.contains(Part.ITEM_MASTER_CATALOG) && draft.getItemMasterCatalogOrNull() == null) {
+            missing.add(Part.ITEM_MASTER_CATALOG);
+        }
+        return missing;
     }
 
     static int resolveStyleKey(PosConfig config, PosConfig.Page page, int pageNumber) {
@@ -219,12 +298,11 @@ final class DraftServiceSupport {
         if (buttonId == null || buttonId.isBlank()) {
             throw new IllegalArgumentException("buttonId is required");
         }
-        for (PosConfig.Button button : page.getButtons()) {
-            if (buttonId.equals(button.getButtonId())) {
-                return button;
-            }
+        PosConfig.Button button = page.findButton(buttonId);
+        if (button == null) {
+            throw new IllegalArgumentException("button not found: " + buttonId);
         }
-        throw new IllegalArgumentException("button not found: " + buttonId);
+        return button;
     }
 
     static String resolveButtonName(PosConfig.Button button) {
@@ -263,7 +341,7 @@ final class DraftServiceSupport {
         if (normalized.isEmpty()) {
             throw new IllegalArgumentException("unitPrice is required");
         }
-        if (!normalized.matches("^\\d+(\\.\\d+)?$")) {
+        if (Money.parseOrNull(normalized) == null) {
             throw new IllegalArgumentException("unitPrice must be numeric");
         }
         return normalized;
@@ -0,0 +1,80 @@
+package com.example.demo.service;
+
+import java.util.Set;
+
+/**
+ * Optimistic-concurrency state of one request, bound to the current thread.
+ * <p>
+ * A controller opens a scope around a use case call with the versions from the client's {@code If-Match}
+ * header (any of them may match), or {@code null} when the client sent none. The draft services check that
+ * version when they read and save the draft ({@code 412} on mismatch) and record the version the client sees
+ * afterwards, which the controller returns as the {@code ETag}. Without an expected version, an edit that loses a race against
+ * another save is replayed on top of the newer version instead.
+ */
+public final class DraftVersionScope implements AutoCloseable {
+    private static final ThreadLocal<DraftVersionScope> CURRENT = new ThreadLocal<>();
+
+    private final DraftVersionScope outer;
+    private Set<Long> expectedVersions;
+    private long version = -1;
+
+    private DraftVersionScope(Set<Long> expectedVersions, DraftVersionScope outer) {
+        this.expectedVersions = expectedVersions == null ? null : Set.copyOf(expectedVersions);
+        this.outer = outer;
+    }
+
+    public static DraftVersionScope open(Long expectedVersion) {
+        return openAnyOf(expectedVersion == null ? null : Set.of(expectedVersion));
+    }
+
+    /**
+     * Opens a scope that accepts any of {@code expectedVersions}; {@code null} checks nothing and an empty set
+     * matches no version.
+     */
+    public static DraftVersionScope openAnyOf(Set<Long> expectedVersions) {
+        DraftVersionScope scope = new DraftVersionScope(expectedVersions, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    // スコープ外（サービスを直接呼ぶテストなど）なら null
+    static DraftVersionScope currentOrNull() {
+        return CURRENT.get();
+    }
+
+    Set<Long> expectedVersionsOrNull() {
+        return expectedVersions;
+    }
+
+    // 一致を確かめた後に呼ぶ。以降の保存は読んだこの版を前提にする
+    void read(long draftVersion) {
+        version = draftVersion;
+        if (expectedVersions != null) {
+            expectedVersions = Set.of(draftVersion);
+        }
+    }
+
+    // 保存後は、同じリクエスト内の次の操作がこの版を前提にする
+    void saved(long draftVersion) {
+        version = draftVersion;
+        if (expectedVersions != null) {
+            expectedVersions = Set.of(draftVersion);
+        }
+    }
+
+    /**
+     * Version of the draft last read or saved in this scope, or {@code -1} when no draft was touched.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void close() {
+        if (outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(outer);
+        }
+    }
+}
@@ -24,10 +24,11 @@ public class ExportPosService implements ExportPosUseCase {
                 .orElseThrow(() -> new NotFoundException("draft not found: " + draftId));
         try {
             return exporter.export(
-                    draft.getOriginalExcelBytes(),
+                    draft.getOriginalWorkbook(),
                     draft.getConfig(),
                     draft.getHandyCatalogOrNull(),
-                    draft.getItemMasterCatalogOrNull()
+                    draft.getItemMasterCatalogOrNull(),
+                    draft.getWorkbookLayoutOrNull()
             );
         } catch (IllegalArgumentException ex) {
             throw ex;
@@ -0,0 +1,18 @@
+package com.example.demo.service;
+
+import com.example.demo.service.port.DraftCacheMetrics;
+import org.springframework.stereotype.Service;
+
+@Service
+public class GetDraftCacheStatsService implements GetDraftCacheStatsUseCase {
+    private final DraftCacheMetrics draftCacheMetrics;
+
+    public GetDraftCacheStatsService(DraftCacheMetrics draftCacheMetrics) {
+        this.draftCacheMetrics = draftCacheMetrics;
+    }
+
+    @Override
+    public DraftCacheMetrics.Stats getDraftCacheStats() {
+        return draftCacheMetrics.getDraftCacheStats();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.demo.service;
+
+import com.example.demo.service.port.DraftCacheMetrics;
+
+public interface GetDraftCacheStatsUseCase {
+    DraftCacheMetrics.Stats getDraftCacheStats();
+}
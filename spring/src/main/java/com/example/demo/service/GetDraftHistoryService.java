@@ -1,11 +1,13 @@
 package com.example.demo.service;
 
 import com.example.demo.model.PosDraft;
+import com.example.demo.service.exception.DraftConflictException;
 import com.example.demo.service.port.DraftRepository;
 import org.springframework.stereotype.Service;
 
 @Service
 public class GetDraftHistoryService implements GetDraftHistoryUseCase {
+    static final int MAX_PAGE_SIZE = 200;
 
     private final DraftRepository draftRepository;
 
@@ -17,4 +19,50 @@ public class GetDraftHistoryService implements GetDraftHistoryUseCase {
     public PosDraft getHistory(String draftId) {
         return DraftServiceSupport.requireDraft(draftRepository, draftId);
     }
+
+    @Override
+    public HistoryPage getHistoryPage(String draftId, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE + ": " + limit);
+        }
+        Cursor position = cursor == null ? null : Cursor.parse(cursor);
+        PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
+        int count = draft.getHistoryEntryCount();
+        // 履歴位置は編集（古い履歴の切り捨て、undo 後の編集）でずれるので、発行した版のままでなければ続きを返さない
+        if (position != null && (position.version() != draft.getVersion() || position.index() > count)) {
+            throw new DraftConflictException(
+                    "draft history changed since the cursor was issued: " + draftId,
+                    draft.getVersion()
+            );
+        }
+        int toIndex = position == null ? count : position.index();
+        int fromIndex = Math.max(0, toIndex - limit);
+        String nextCursor = fromIndex > 0 ? new Cursor(draft.getVersion(), fromIndex).format() : null;
+        return new HistoryPage(draft, fromIndex, toIndex, nextCursor);
+    }
+
+    // 「版-履歴位置」。クライアントには中身を見せない文字列として渡す
+    record Cursor(long version, int index) {
+        static Cursor parse(String raw) {
+            int separator = raw.indexOf('-');
+            try {
+                if (separator > 0) {
+                    Cursor cursor = new Cursor(
+                            Long.parseLong(raw.substring(0, separator)),
+                            Integer.parseInt(raw.substring(separator + 1))
+                    );
+                    if (cursor.version() >= 0 && cursor.index() >= 0) {
+                        return cursor;
+                    }
+                }
+            } catch (NumberFormatException ignored) {
+                // 下で不正な cursor として扱う
+            }
+            throw new IllegalArgumentException("invalid cursor: " + raw);
+        }
+
+        String format() {
+            return version + "-" + index;
+        }
+    }
 }
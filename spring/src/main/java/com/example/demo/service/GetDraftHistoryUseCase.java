@@ -4,4 +4,15 @@ import com.example.demo.model.PosDraft;
 
 public interface GetDraftHistoryUseCase {
     PosDraft getHistory(String draftId);
+
+    /**
+     * Up to {@code limit} history entries below {@code cursor} (from the newest when null), newest first.
+     * A cursor is only valid for the draft version it was issued for; once the draft changed, it is rejected
+     * with {@code 409} and paging starts again from the newest entry.
+     */
+    HistoryPage getHistoryPage(String draftId, String cursor, int limit);
+
+    // draft の履歴位置 [fromIndex, toIndex)。続きが無ければ nextCursor は null
+    record HistoryPage(PosDraft draft, int fromIndex, int toIndex, String nextCursor) {
+    }
 }
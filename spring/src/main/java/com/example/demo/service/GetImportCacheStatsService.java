@@ -0,0 +1,17 @@
+package com.example.demo.service;
+
+import org.springframework.stereotype.Service;
+
+@Service
+public class GetImportCacheStatsService implements GetImportCacheStatsUseCase {
+    private final ImportParseCache parseCache;
+
+    public GetImportCacheStatsService(ImportParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
+
+    @Override
+    public ImportParseCache.Stats getImportCacheStats() {
+        return parseCache.stats();
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.demo.service;
+
+public interface GetImportCacheStatsUseCase {
+    ImportParseCache.Stats getImportCacheStats();
+}
@@ -0,0 +1,70 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ItemCatalog;
+import com.example.demo.model.ItemMasterCatalog;
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.WorkbookLayout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 同じブックの再インポートでパースを省くための、内容ハッシュをキーにした LRU キャッシュ
+@Component
+public class ImportParseCache {
+
+    private final int maxEntries;
+    private final Map<String, ParsedWorkbook> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ImportParseCache(@Value("${pos.import.parse-cache.max-entries:8}") int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ParsedWorkbook> eldest) {
+                if (size() > ImportParseCache.this.maxEntries) {
+                    evictions += 1;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized ParsedWorkbook get(String contentHash) {
+        ParsedWorkbook cached = entries.get(contentHash);
+        if (cached == null) {
+            misses += 1;
+        } else {
+            hits += 1;
+        }
+        return cached;
+    }
+
+    public synchronized void put(String contentHash, ParsedWorkbook parsed) {
+        if (maxEntries == 0) {
+            return;
+        }
+        entries.put(contentHash, parsed);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), maxEntries);
+    }
+
+    // PosConfig / 各カタログは変更のたびに新しいインスタンスを返すので、ドラフト間で共有してよい
+    public record ParsedWorkbook(
+            PosConfig config,
+            ItemCatalog itemCatalog,
+            ItemCatalog handyCatalog,
+            ItemMasterCatalog itemMasterCatalog,
+            WorkbookLayout workbookLayout
+    ) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size, int maxEntries) {
+    }
+}
@@ -1,17 +1,19 @@
 package com.example.demo.service;
 
-import com.example.demo.model.ItemCatalog;
-import com.example.demo.model.ItemMasterCatalog;
+import com.example.demo.model.HistoryPolicy;
 import com.example.demo.model.PosConfig;
 import com.example.demo.model.PosConfigSource;
 import com.example.demo.model.PosDraft;
+import com.example.demo.model.WorkbookContent;
+import com.example.demo.service.ImportParseCache.ParsedWorkbook;
 import com.example.demo.service.command.ImportPosCommand;
 import com.example.demo.service.exception.InvalidPosExcelException;
 import com.example.demo.service.port.DraftRepository;
 import com.example.demo.service.port.PosConfigReader;
+import com.example.demo.service.port.PosConfigReader.Part;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
 import java.util.UUID;
 
 @Service
@@ -19,39 +21,66 @@ public class ImportPosService implements ImportPosUseCase {
 
     private final PosConfigReader reader;
     private final DraftRepository draftRepository;
+    private final ImportParseCache parseCache;
+    private final HistoryPolicy historyPolicy;
 
-    public ImportPosService(PosConfigReader reader, DraftRepository draftRepository) {
+    @Autowired
+    public ImportPosService(
+            PosConfigReader reader,
+            DraftRepository draftRepository,
+            ImportParseCache parseCache,
+            HistoryPolicy historyPolicy
+    ) {
         this.reader = reader;
         this.draftRepository = draftRepository;
+        this.parseCache = parseCache;
+        this.historyPolicy = historyPolicy;
+    }
+
+    public ImportPosService(PosConfigReader reader, DraftRepository draftRepository, ImportParseCache parseCache) {
+        this(reader, draftRepository, parseCache, HistoryPolicy.DEFAULT);
     }
 
     @Override
     public PosDraft importExcel(ImportPosCommand command) {
-        byte[] excelBytes = command.excelBytes();
-        ParsedDraft parsedDraft = parseDraft(excelBytes);
+        WorkbookContent content = WorkbookContent.of(command.excelBytes());
+        ParsedWorkbook parsed = parseCached(content);
         String draftId = "dft_" + UUID.randomUUID();
         PosDraft draft = new PosDraft(
                 draftId,
-                parsedDraft.config(),
-                excelBytes,
-                parsedDraft.itemCatalog(),
-                parsedDraft.handyCatalog(),
-                parsedDraft.itemMasterCatalog(),
+                parsed.config(),
+                content,
+                parsed.itemCatalog(),
+                parsed.handyCatalog(),
+                parsed.itemMasterCatalog(),
+                parsed.workbookLayout(),
                 "インポート"
-        );
+        ).withHistoryPolicy(historyPolicy);
         draftRepository.save(draft);
         return draft;
     }
 
-    private ParsedDraft parseDraft(byte[] excelBytes) {
-        try (ByteArrayInputStream in = new ByteArrayInputStream(excelBytes)) {
-            PosConfigSource source = reader.read(in);
+    private ParsedWorkbook parseCached(WorkbookContent content) {
+        String contentHash = content.getContentHash();
+        ParsedWorkbook cached = parseCache.get(contentHash);
+        if (cached != null) {
+            return cached;
+        }
+        ParsedWorkbook parsed = parseDraft(content);
+        parseCache.put(contentHash, parsed);
+        return parsed;
+    }
+
+    private ParsedWorkbook parseDraft(WorkbookContent content) {
+        try {
+            PosConfigSource source = reader.read(content, Part.all());
             PosConfig config = PosConfig.fromSource(source);
-            return new ParsedDraft(
+            return new ParsedWorkbook(
                     config,
                     source.getItemCatalog(),
                     source.getHandyCatalog(),
-                    source.getItemMasterCatalog()
+                    source.getItemMasterCatalog(),
+                    source.getWorkbookLayout()
             );
         } catch (IllegalArgumentException ex) {
             throw new InvalidPosExcelException(ex.getMessage(), ex);
@@ -59,12 +88,4 @@ public class ImportPosService implements ImportPosUseCase {
             throw new InvalidPosExcelException("failed to parse excel file", ex);
         }
     }
-
-    private record ParsedDraft(
-            PosConfig config,
-            ItemCatalog itemCatalog,
-            ItemCatalog handyCatalog,
-            ItemMasterCatalog itemMasterCatalog
-    ) {
-    }
 }
@@ -17,7 +17,6 @@ public class JumpDraftHistoryService implements JumpDraftHistoryUseCase {
     public PosDraft jumpTo(String draftId, int historyIndex) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
         PosDraft updatedDraft = draft.jumpToHistoryIndex(historyIndex);
-        draftRepository.save(updatedDraft);
-        return updatedDraft;
+        return DraftServiceSupport.saveIfUnchanged(draftRepository, draft, updatedDraft);
     }
 }
@@ -0,0 +1,172 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ItemCatalog;
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.PosDraft;
+
+import java.util.UUID;
+
+/**
+ * Builds the {@link PosDraft.Change} and history action of each POS edit from the draft it applies to.
+ * Shared by the single-edit services and the batch service so both validate an edit the same way.
+ */
+final class PosDraftEdits {
+    private PosDraftEdits() {
+    }
+
+    record Edit(PosDraft.Change change, String action) {
+    }
+
+    static Edit swapButtons(PosDraft draft, int pageNumber, int fromCol, int fromRow, int toCol, int toRow) {
+        DraftServiceSupport.requirePage(draft, pageNumber);
+        return new Edit(
+                new PosDraft.SwapButtonsChange(pageNumber, fromCol, fromRow, toCol, toRow),
+                "ボタン入れ替え"
+        );
+    }
+
+    static Edit addButton(
+            PosDraft draft,
+            ItemCatalog catalog,
+            int pageNumber,
+            int col,
+            int row,
+            String categoryCode,
+            String itemCode
+    ) {
+        PosConfig.Page currentPage = DraftServiceSupport.requirePage(draft, pageNumber);
+        ItemCatalog.Category category = catalog.findCategory(categoryCode);
+        if (category == null) {
+            throw new IllegalArgumentException("category not found: " + categoryCode);
+        }
+
+        ItemCatalog.Item item = category.findItem(itemCode);
+        if (item == null) {
+            throw new IllegalArgumentException("item not found in category: " + itemCode);
+        }
+
+        int styleKey = DraftServiceSupport.resolveStyleKey(draft.getConfig(), currentPage, pageNumber);
+        String label = item.getItemName() == null || item.getItemName().isBlank()
+                ? item.getItemCode()
+                : item.getItemName();
+        String newButtonId = "PresetMenuButtonMaster#NEW-" + UUID.randomUUID();
+
+        PosConfig.Button newButton = new PosConfig.Button(
+                col,
+                row,
+                label,
+                styleKey,
+                item.getItemCode(),
+                item.getUnitPrice(),
+                newButtonId
+        );
+        String categoryName = DraftServiceSupport.resolveCategoryName(draft.getConfig(), pageNumber);
+        String itemName = DraftServiceSupport.resolveItemName(item.getItemName(), item.getItemCode());
+        return new Edit(
+                new PosDraft.AddButtonChange(pageNumber, newButton),
+                DraftServiceSupport.formatButtonAction("ボタン追加", categoryName, itemName)
+        );
+    }
+
+    static Edit deleteButton(PosDraft draft, int pageNumber, String buttonId) {
+        PosConfig.Page currentPage = DraftServiceSupport.requirePage(draft, pageNumber);
+        PosConfig.Button targetButton = DraftServiceSupport.requireButton(currentPage, buttonId);
+
+        String categoryName = DraftServiceSupport.resolveCategoryName(draft.getConfig(), pageNumber);
+        String buttonName = DraftServiceSupport.resolveButtonName(targetButton);
+        return new Edit(
+                new PosDraft.DeleteButtonChange(pageNumber, targetButton),
+                DraftServiceSupport.formatButtonAction("ボタン削除", categoryName, buttonName)
+        );
+    }
+
+    static Edit updateUnitPrice(PosDraft draft, int pageNumber, String buttonId, String unitPrice) {
+        PosConfig.Page currentPage = DraftServiceSupport.requirePage(draft, pageNumber);
+        PosConfig.Button targetButton = DraftServiceSupport.requireButton(currentPage, buttonId);
+
+        String normalizedUnitPrice = DraftServiceSupport.normalizeUnitPrice(unitPrice);
+        return new Edit(
+                new PosDraft.UpdateUnitPriceChange(
+                        pageNumber,
+                        buttonId,
+                        targetButton.getUnitPrice(),
+                        normalizedUnitPrice
+                ),
+                "価格変更"
+        );
+    }
+
+    static Edit addCategory(PosDraft draft, String name, int cols, int rows, int styleKey) {
+        int resolvedCols = cols;
+        int resolvedRows = rows;
+        int resolvedStyleKey = styleKey;
+        PosConfig.Category defaultCategory = draft.getConfig().firstCategoryOrNull();
+        if (resolvedCols <= 0 && defaultCategory != null) {
+            resolvedCols = defaultCategory.getCols();
+        }
+        if (resolvedRows <= 0 && defaultCategory != null) {
+            resolvedRows = defaultCategory.getRows();
+        }
+        if (resolvedStyleKey <= 0 && defaultCategory != null) {
+            resolvedStyleKey = defaultCategory.getStyleKey();
+        }
+        if (resolvedCols <= 0) {
+            resolvedCols = 5;
+        }
+        if (resolvedRows <= 0) {
+            resolvedRows = 5;
+        }
+        if (resolvedStyleKey <= 0) {
+            resolvedStyleKey = 1;
+        }
+
+        String normalizedName = name == null ? "" : name.trim();
+        if (normalizedName.isEmpty()) {
+            throw new IllegalArgumentException("category name is required");
+        }
+        int nextPageNumber = draft.getConfig().getCategories().stream()
+                .mapToInt(PosConfig.Category::getPageNumber)
+                .max()
+                .orElse(0) + 1;
+        PosConfig.Category newCategory = new PosConfig.Category(
+                nextPageNumber,
+                resolvedCols,
+                resolvedRows,
+                normalizedName,
+                resolvedStyleKey
+        );
+        return new Edit(new PosDraft.AddCategoryChange(newCategory), "カテゴリ追加");
+    }
+
+    static Edit deleteCategory(PosDraft draft, int pageNumber) {
+        PosConfig.Category targetCategory = DraftServiceSupport.requireCategory(draft, pageNumber);
+        PosConfig.Page targetPage = DraftServiceSupport.requirePage(draft, pageNumber);
+        return new Edit(new PosDraft.DeleteCategoryChange(targetCategory, targetPage), "カテゴリ削除");
+    }
+
+    static Edit swapCategories(PosDraft draft, int fromPageNumber, int toPageNumber) {
+        PosConfig.Category fromCategory = DraftServiceSupport.requireCategory(draft, fromPageNumber);
+        PosConfig.Category toCategory = DraftServiceSupport.requireCategory(draft, toPageNumber);
+        return new Edit(
+                new PosDraft.SwapCategoriesChange(fromPageNumber, toPageNumber),
+                "カテゴリ入れ替え (" + fromCategory.getName() + " <-> " + toCategory.getName() + ")"
+        );
+    }
+
+    static Edit updateCategoryGrid(PosDraft draft, int pageNumber, int cols, int rows) {
+        PosConfig.Page currentPage = DraftServiceSupport.requirePage(draft, pageNumber);
+        String categoryName = DraftServiceSupport.resolveCategoryName(draft.getConfig(), pageNumber);
+        return new Edit(
+                new PosDraft.UpdateCategoryGridChange(
+                        pageNumber,
+                        currentPage.getCols(),
+                        currentPage.getRows(),
+                        cols,
+                        rows
+                ),
+                "グリッド変更 (" + categoryName + "、"
+                        + currentPage.getCols() + "x" + currentPage.getRows()
+                        + " -> " + cols + "x" + rows + ")"
+        );
+    }
+}
@@ -17,7 +17,6 @@ public class RedoDraftService implements RedoDraftUseCase {
     public PosDraft redo(String draftId) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
         PosDraft updatedDraft = draft.redo();
-        draftRepository.save(updatedDraft);
-        return updatedDraft;
+        return DraftServiceSupport.saveIfUnchanged(draftRepository, draft, updatedDraft);
     }
 }
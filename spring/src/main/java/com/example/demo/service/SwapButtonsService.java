@@ -24,14 +24,12 @@ public class SwapButtonsService implements SwapButtonsUseCase {
             int toRow
     ) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
-        DraftServiceSupport.requirePage(draft, pageNumber);
-
-        PosDraft.Change change = new PosDraft.SwapButtonsChange(pageNumber, fromCol, fromRow, toCol, toRow);
+        PosDraftEdits.Edit edit = PosDraftEdits.swapButtons(draft, pageNumber, fromCol, fromRow, toCol, toRow);
         PosDraft updatedDraft = DraftServiceSupport.saveDraftWithChange(
                 draftRepository,
                 draft,
-                change,
-                "ボタン入れ替え"
+                edit.change(),
+                edit.action()
         );
         return updatedDraft.getConfig().getPage(pageNumber);
     }
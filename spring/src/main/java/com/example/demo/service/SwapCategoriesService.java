@@ -1,6 +1,5 @@
 package com.example.demo.service;
 
-import com.example.demo.model.PosConfig;
 import com.example.demo.model.PosDraft;
 import com.example.demo.service.port.DraftRepository;
 import org.springframework.stereotype.Service;
@@ -17,16 +16,12 @@ public class SwapCategoriesService implements SwapCategoriesUseCase {
     @Override
     public PosDraft swapCategories(String draftId, int fromPageNumber, int toPageNumber) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
-        PosConfig.Category fromCategory = DraftServiceSupport.requireCategory(draft, fromPageNumber);
-        PosConfig.Category toCategory = DraftServiceSupport.requireCategory(draft, toPageNumber);
-
-        PosDraft.Change change = new PosDraft.SwapCategoriesChange(fromPageNumber, toPageNumber);
-        String action = "カテゴリ入れ替え (" + fromCategory.getName() + " <-> " + toCategory.getName() + ")";
+        PosDraftEdits.Edit edit = PosDraftEdits.swapCategories(draft, fromPageNumber, toPageNumber);
         return DraftServiceSupport.saveDraftWithChange(
                 draftRepository,
                 draft,
-                change,
-                action
+                edit.change(),
+                edit.action()
         );
     }
 }
@@ -17,7 +17,6 @@ public class UndoDraftService implements UndoDraftUseCase {
     public PosDraft undo(String draftId) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
         PosDraft updatedDraft = draft.undo();
-        draftRepository.save(updatedDraft);
-        return updatedDraft;
+        return DraftServiceSupport.saveIfUnchanged(draftRepository, draft, updatedDraft);
     }
 }
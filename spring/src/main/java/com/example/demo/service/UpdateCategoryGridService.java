@@ -1,6 +1,5 @@
 package com.example.demo.service;
 
-import com.example.demo.model.PosConfig;
 import com.example.demo.model.PosDraft;
 import com.example.demo.service.port.DraftRepository;
 import org.springframework.stereotype.Service;
@@ -17,25 +16,12 @@ public class UpdateCategoryGridService implements UpdateCategoryGridUseCase {
     @Override
     public PosDraft updateCategoryGrid(String draftId, int pageNumber, int cols, int rows) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
-        PosConfig.Page currentPage = DraftServiceSupport.requirePage(draft, pageNumber);
-
-        PosDraft.Change change = new PosDraft.UpdateCategoryGridChange(
-                pageNumber,
-                currentPage.getCols(),
-                currentPage.getRows(),
-                cols,
-                rows
-        );
-        String categoryName = DraftServiceSupport.resolveCategoryName(draft.getConfig(), pageNumber);
-        String action = "グリッド変更 (" + categoryName + "、"
-                + currentPage.getCols() + "x" + currentPage.getRows()
-                + " -> " + cols + "x" + rows + ")";
-
+        PosDraftEdits.Edit edit = PosDraftEdits.updateCategoryGrid(draft, pageNumber, cols, rows);
         return DraftServiceSupport.saveDraftWithChange(
                 draftRepository,
                 draft,
-                change,
-                action
+                edit.change(),
+                edit.action()
         );
     }
 }
@@ -1,6 +1,7 @@
 package com.example.demo.service;
 
 import com.example.demo.model.ItemMasterCatalog;
+import com.example.demo.model.Money;
 import com.example.demo.model.PosDraft;
 import com.example.demo.service.port.DraftRepository;
 import com.example.demo.service.port.PosConfigReader;
@@ -28,8 +29,13 @@ public class UpdateItemMasterService implements UpdateItemMasterUseCase {
             String basePrice
     ) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
-        DraftServiceSupport.loadItemMasterCatalog(draft, reader, draftRepository);
-        PosDraft latestDraft = draftRepository.findById(draft.getDraftId()).orElse(draft);
+        // 商品マスタの変更は商品カタログ・ハンディカタログにも反映するので、3つとも揃えてから適用する
+        PosDraft latestDraft = DraftServiceSupport.loadCatalogs(
+                draft,
+                reader,
+                draftRepository,
+                PosConfigReader.Part.all()
+        );
 
         ItemMasterCatalog catalog = latestDraft.getItemMasterCatalogOrNull();
         if (catalog == null) {
@@ -110,7 +116,7 @@ public class UpdateItemMasterService implements UpdateItemMasterUseCase {
         if (normalized.isEmpty()) {
             return "";
         }
-        if (!normalized.matches("^\\d+(\\.\\d+)?$")) {
+        if (Money.parseOrNull(normalized) == null) {
             throw new IllegalArgumentException(fieldName + " must be numeric");
         }
         return normalized;
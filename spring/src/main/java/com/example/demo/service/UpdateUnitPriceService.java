@@ -17,21 +17,12 @@ public class UpdateUnitPriceService implements UpdateUnitPriceUseCase {
     @Override
     public PosConfig.Page updateUnitPrice(String draftId, int pageNumber, String buttonId, String unitPrice) {
         PosDraft draft = DraftServiceSupport.requireDraft(draftRepository, draftId);
-        PosConfig.Page currentPage = DraftServiceSupport.requirePage(draft, pageNumber);
-        PosConfig.Button targetButton = DraftServiceSupport.requireButton(currentPage, buttonId);
-
-        String normalizedUnitPrice = DraftServiceSupport.normalizeUnitPrice(unitPrice);
-        PosDraft.Change change = new PosDraft.UpdateUnitPriceChange(
-                pageNumber,
-                buttonId,
-                targetButton.getUnitPrice(),
-                normalizedUnitPrice
-        );
+        PosDraftEdits.Edit edit = PosDraftEdits.updateUnitPrice(draft, pageNumber, buttonId, unitPrice);
         PosDraft updatedDraft = DraftServiceSupport.saveDraftWithChange(
                 draftRepository,
                 draft,
-                change,
-                "価格変更"
+                edit.change(),
+                edit.action()
         );
         return updatedDraft.getConfig().getPage(pageNumber);
     }
@@ -0,0 +1,15 @@
+package com.example.demo.service.exception;
+
+// 同じドラフトへの同時編集を解決できなかった（409）
+public class DraftConflictException extends RuntimeException {
+    private final long currentVersion;
+
+    public DraftConflictException(String message, long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
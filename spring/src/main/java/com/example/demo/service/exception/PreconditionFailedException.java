@@ -0,0 +1,15 @@
+package com.example.demo.service.exception;
+
+// If-Match で指定された版と現在の版が違う（412）
+public class PreconditionFailedException extends RuntimeException {
+    private final long currentVersion;
+
+    public PreconditionFailedException(String message, long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
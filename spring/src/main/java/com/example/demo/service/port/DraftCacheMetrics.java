@@ -0,0 +1,19 @@
+package com.example.demo.service.port;
+
+public interface DraftCacheMetrics {
+    Stats getDraftCacheStats();
+
+    record Stats(
+            long hits,
+            long misses,
+            long evictions,
+            int size,
+            long residentBytes,
+            long maxBytes
+    ) {
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
@@ -3,8 +3,46 @@ package com.example.demo.service.port;
 import com.example.demo.model.PosDraft;
 
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 public interface DraftRepository {
     void save(PosDraft draft);
+
+    /**
+     * Compare-and-set save: stores {@code draft} only if the stored draft still has {@code expectedVersion}.
+     * Returns {@code false} without saving when another edit was saved in between or the draft is gone.
+     * <p>
+     * The default implementation is not atomic; repositories shared between threads must override it.
+     */
+    default boolean save(PosDraft draft, long expectedVersion) {
+        Optional<PosDraft> current = findById(draft.getDraftId());
+        if (current.isEmpty() || current.get().getVersion() != expectedVersion) {
+            return false;
+        }
+        save(draft);
+        return true;
+    }
+
+    /**
+     * Applies {@code mutation} to the latest stored version of the draft and saves the result, without
+     * interleaving with other updates of the same draft. Returns the saved draft, or empty when the draft does
+     * not exist. An exception thrown by the mutation is propagated and nothing is saved.
+     * <p>
+     * The mutation may run more than once, or on another thread, so it must not depend on thread-local state.
+     * The default implementation re-runs it on the newer version until its compare-and-set save succeeds.
+     */
+    default Optional<PosDraft> update(String draftId, UnaryOperator<PosDraft> mutation) {
+        while (true) {
+            Optional<PosDraft> current = findById(draftId);
+            if (current.isEmpty()) {
+                return Optional.empty();
+            }
+            PosDraft updated = mutation.apply(current.get());
+            if (updated == current.get() || save(updated, current.get().getVersion())) {
+                return Optional.of(updated);
+            }
+        }
+    }
+
     Optional<PosDraft> findById(String draftId);
 }
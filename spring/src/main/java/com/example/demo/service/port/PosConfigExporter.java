@@ -3,6 +3,8 @@ package com.example.demo.service.port;
 import com.example.demo.model.ItemCatalog;
 import com.example.demo.model.ItemMasterCatalog;
 import com.example.demo.model.PosConfig;
+import com.example.demo.model.WorkbookContent;
+import com.example.demo.model.WorkbookLayout;
 
 public interface PosConfigExporter {
     byte[] export(byte[] originalExcelBytes, PosConfig config) throws Exception;
@@ -19,4 +21,24 @@ public interface PosConfigExporter {
     ) throws Exception {
         return export(originalExcelBytes, config, handyCatalog);
     }
+
+    default byte[] export(
+            byte[] originalExcelBytes,
+            PosConfig config,
+            ItemCatalog handyCatalog,
+            ItemMasterCatalog itemMasterCatalog,
+            WorkbookLayout workbookLayout
+    ) throws Exception {
+        return export(originalExcelBytes, config, handyCatalog, itemMasterCatalog);
+    }
+
+    default byte[] export(
+            WorkbookContent original,
+            PosConfig config,
+            ItemCatalog handyCatalog,
+            ItemMasterCatalog itemMasterCatalog,
+            WorkbookLayout workbookLayout
+    ) throws Exception {
+        return export(original.toByteArray(), config, handyCatalog, itemMasterCatalog, workbookLayout);
+    }
 }
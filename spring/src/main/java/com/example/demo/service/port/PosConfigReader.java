@@ -1,9 +1,40 @@
 package com.example.demo.service.port;
 
 import com.example.demo.model.PosConfigSource;
+import com.example.demo.model.WorkbookContent;
 
 import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.Set;
 
 public interface PosConfigReader {
     PosConfigSource read(InputStream in) throws Exception;
+
+    /**
+     * Reads only the sheets needed for {@code parts}. Parts that were not requested may come back empty.
+     */
+    default PosConfigSource read(InputStream in, Set<Part> parts) throws Exception {
+        return read(in);
+    }
+
+    default PosConfigSource read(WorkbookContent content, Set<Part> parts) throws Exception {
+        try (InputStream in = content.openStream()) {
+            return read(in, parts);
+        }
+    }
+
+    enum Part {
+        // PresetMenuMaster, PresetMenuButtonMaster (+ ItemMaster for unit prices)
+        POS_CONFIG,
+        // MDHierarchyMaster, POSItemMaster (+ ItemMaster)
+        ITEM_CATALOG,
+        // CategoryMaster, ItemCategoryMaster (+ ItemMaster)
+        HANDY_CATALOG,
+        // ItemMaster
+        ITEM_MASTER_CATALOG;
+
+        public static Set<Part> all() {
+            return EnumSet.allOf(Part.class);
+        }
+    }
 }
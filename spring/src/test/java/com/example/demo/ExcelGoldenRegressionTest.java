@@ -2,9 +2,13 @@ package com.example.demo;
 
 import com.example.demo.dao.PoiPosConfigExporter;
 import com.example.demo.dao.PoiPosConfigReader;
+import com.example.demo.dao.PoiStreamingPosConfigReader;
 import com.example.demo.model.ItemCatalog;
+import com.example.demo.model.ItemMasterCatalog;
 import com.example.demo.model.PosConfig;
 import com.example.demo.model.PosConfigSource;
+import com.example.demo.model.WorkbookLayout;
+import com.example.demo.service.port.PosConfigReader;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.FormulaError;
@@ -15,18 +19,25 @@ import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.ss.util.NumberToTextConverter;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ExcelGoldenRegressionTest {
@@ -35,11 +46,11 @@ class ExcelGoldenRegressionTest {
     private static final Path GOLDEN_DIR = Path.of("src", "test", "resources", "golden");
     private static final boolean UPDATE_GOLDEN = Boolean.getBoolean("updateGolden");
 
-    @Test
-    void export_without_edits_matches_golden_snapshot() throws Exception {
+    @ParameterizedTest
+    @MethodSource("readers")
+    void export_without_edits_matches_golden_snapshot(PosConfigReader reader) throws Exception {
         byte[] originalBytes = Files.readAllBytes(ORIGINAL);
 
-        PoiPosConfigReader reader = new PoiPosConfigReader();
         PosConfigSource source = reader.read(new ByteArrayInputStream(originalBytes));
         PosConfig config = PosConfig.fromSource(source);
 
@@ -49,11 +60,11 @@ class ExcelGoldenRegressionTest {
         assertOrUpdateGolden("no-edits.snap.txt", snapshotWorkbook(exported));
     }
 
-    @Test
-    void pos_edits_match_golden_snapshot() throws Exception {
+    @ParameterizedTest
+    @MethodSource("readers")
+    void pos_edits_match_golden_snapshot(PosConfigReader reader) throws Exception {
         byte[] originalBytes = Files.readAllBytes(ORIGINAL);
 
-        PoiPosConfigReader reader = new PoiPosConfigReader();
         PosConfigSource source = reader.read(new ByteArrayInputStream(originalBytes));
         PosConfig updatedConfig = applyPosScenario(PosConfig.fromSource(source));
 
@@ -63,11 +74,11 @@ class ExcelGoldenRegressionTest {
         assertOrUpdateGolden("pos-edits.snap.txt", snapshotWorkbook(exported));
     }
 
-    @Test
-    void handy_edits_match_golden_snapshot() throws Exception {
+    @ParameterizedTest
+    @MethodSource("readers")
+    void handy_edits_match_golden_snapshot(PosConfigReader reader) throws Exception {
         byte[] originalBytes = Files.readAllBytes(ORIGINAL);
 
-        PoiPosConfigReader reader = new PoiPosConfigReader();
         PosConfigSource source = reader.read(new ByteArrayInputStream(originalBytes));
         ItemCatalog updatedHandyCatalog = applyHandyScenario(source.getHandyCatalog());
         PosConfig config = PosConfig.fromSource(source);
@@ -78,6 +89,133 @@ class ExcelGoldenRegressionTest {
         assertOrUpdateGolden("handy-edits.snap.txt", snapshotWorkbook(exported));
     }
 
+    @ParameterizedTest
+    @MethodSource("readers")
+    void export_with_recorded_layout_matches_golden_snapshot(PosConfigReader reader) throws Exception {
+        byte[] originalBytes = Files.readAllBytes(ORIGINAL);
+
+        PosConfigSource source = reader.read(new ByteArrayInputStream(originalBytes));
+        WorkbookLayout layout = source.getWorkbookLayout();
+        assertEquals(
+                Set.of(
+                        "PresetMenuMaster",
+                        "PresetMenuButtonMaster",
+                        "ItemMaster",
+                        "MDHierarchyMaster",
+                        "POSItemMaster",
+                        "CategoryMaster",
+                        "ItemCategoryMaster"
+                ),
+                layout.getSheets().keySet()
+        );
+        assertTrue(layout.findSheet("ItemMaster").getColumns().containsKey("UnitPrice"));
+
+        ItemCatalog updatedHandyCatalog = applyHandyScenario(source.getHandyCatalog());
+        PoiPosConfigExporter exporter = new PoiPosConfigExporter();
+        byte[] exported = exporter.export(
+                originalBytes,
+                PosConfig.fromSource(source),
+                updatedHandyCatalog,
+                null,
+                layout
+        );
+
+        assertOrUpdateGolden("handy-edits.snap.txt", snapshotWorkbook(exported));
+    }
+
+    @Test
+    void streaming_reader_matches_dom_reader() throws Exception {
+        byte[] originalBytes = Files.readAllBytes(ORIGINAL);
+
+        PosConfigSource dom = new PoiPosConfigReader().read(new ByteArrayInputStream(originalBytes));
+        PosConfigSource streaming = new PoiStreamingPosConfigReader().read(new ByteArrayInputStream(originalBytes));
+
+        assertEquals(describeSource(dom), describeSource(streaming));
+    }
+
+    @ParameterizedTest
+    @MethodSource("readers")
+    void selective_read_returns_only_requested_parts(PosConfigReader reader) throws Exception {
+        byte[] originalBytes = Files.readAllBytes(ORIGINAL);
+
+        PosConfigSource full = reader.read(new ByteArrayInputStream(originalBytes));
+        PosConfigSource handyOnly = reader.read(
+                new ByteArrayInputStream(originalBytes),
+                EnumSet.of(PosConfigReader.Part.HANDY_CATALOG)
+        );
+
+        assertTrue(handyOnly.getCategories().isEmpty());
+        assertTrue(handyOnly.getPageButtons().isEmpty());
+        assertTrue(handyOnly.getItemCatalog().getCategories().isEmpty());
+        List<String> expected = new ArrayList<>();
+        describeCatalog("handy", full.getHandyCatalog(), expected);
+        List<String> actual = new ArrayList<>();
+        describeCatalog("handy", handyOnly.getHandyCatalog(), actual);
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest
+    @MethodSource("readers")
+    void sheet_errors_surface_as_illegal_argument(PosConfigReader reader) throws Exception {
+        byte[] brokenBytes;
+        try (Workbook wb = new XSSFWorkbook(Files.newInputStream(ORIGINAL))) {
+            Sheet itemSheet = wb.getSheet("ItemMaster");
+            for (Row row : itemSheet) {
+                for (Cell cell : row) {
+                    if (cell.getCellType() == CellType.STRING && "UnitPrice".equals(cell.getStringCellValue())) {
+                        cell.setCellValue("UnitPriceRenamed");
+                    }
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            wb.write(out);
+            brokenBytes = out.toByteArray();
+        }
+
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> reader.read(new ByteArrayInputStream(brokenBytes))
+        );
+        assertTrue(ex.getMessage().contains("UnitPrice"), ex.getMessage());
+    }
+
+    static Stream<PosConfigReader> readers() {
+        return Stream.of(new PoiPosConfigReader(), new PoiStreamingPosConfigReader());
+    }
+
+    private static List<String> describeSource(PosConfigSource source) {
+        List<String> lines = new ArrayList<>();
+        for (PosConfig.Category category : source.getCategories()) {
+            lines.add("category|" + category.getPageNumber() + "|" + category.getCols() + "|" + category.getRows()
+                    + "|" + category.getName() + "|" + category.getStyleKey());
+        }
+        for (PosConfigSource.PageButton pageButton : source.getPageButtons()) {
+            PosConfig.Button button = pageButton.getButton();
+            lines.add("button|" + pageButton.getPageNumber() + "|" + button.getCol() + "|" + button.getRow()
+                    + "|" + button.getLabel() + "|" + button.getStyleKey() + "|" + button.getItemCode()
+                    + "|" + button.getUnitPrice() + "|" + button.getButtonId());
+        }
+        describeCatalog("item", source.getItemCatalog(), lines);
+        describeCatalog("handy", source.getHandyCatalog(), lines);
+        for (ItemMasterCatalog.Item item : source.getItemMasterCatalog().getItems()) {
+            lines.add("master|" + item.getItemCode() + "|" + item.getItemNamePrint() + "|" + item.getUnitPrice()
+                    + "|" + item.getCostPrice() + "|" + item.getBasePrice());
+        }
+        new TreeMap<>(source.getWorkbookLayout().getSheets()).forEach((sheetName, header) ->
+                lines.add("layout|" + sheetName + "|" + header.getHeaderRow() + "|" + new TreeMap<>(header.getColumns())));
+        return lines;
+    }
+
+    private static void describeCatalog(String prefix, ItemCatalog catalog, List<String> lines) {
+        for (ItemCatalog.Category category : catalog.getCategories()) {
+            lines.add(prefix + "|" + category.getCode() + "|" + category.getDescription());
+            for (ItemCatalog.Item item : category.getItems()) {
+                lines.add(prefix + "|" + category.getCode() + "|" + item.getItemCode() + "|" + item.getItemName()
+                        + "|" + item.getUnitPrice());
+            }
+        }
+    }
+
     private static PosConfig applyPosScenario(PosConfig config) {
         SwapCandidate candidate = findSwapCandidate(config);
         PosConfig updated = config.updateUnitPrice(
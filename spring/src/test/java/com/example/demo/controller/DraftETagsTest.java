@@ -0,0 +1,30 @@
+package com.example.demo.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DraftETagsTest {
+
+    @Test
+    void if_match_keeps_every_listed_version() {
+        assertEquals(Set.of(3L, 4L), DraftETags.parseIfMatch("\"3\", \"4\""));
+        // 弱い ETag と読めないタグは一致しない
+        assertEquals(Set.of(4L), DraftETags.parseIfMatch("W/\"3\", \"x\", \"4\""));
+        assertEquals(Set.of(), DraftETags.parseIfMatch("W/\"3\""));
+        assertNull(DraftETags.parseIfMatch("\"3\", *"));
+        assertNull(DraftETags.parseIfMatch(null));
+    }
+
+    @Test
+    void if_none_match_uses_weak_comparison() {
+        assertTrue(DraftETags.matchesIfNoneMatch("\"3\", W/\"4\"", 4));
+        assertTrue(DraftETags.matchesIfNoneMatch("*", 4));
+        assertFalse(DraftETags.matchesIfNoneMatch("\"3\"", 4));
+    }
+}
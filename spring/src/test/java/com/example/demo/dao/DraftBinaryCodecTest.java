@@ -0,0 +1,280 @@
+package com.example.demo.dao;
+
+import com.example.demo.model.ItemCatalog;
+import com.example.demo.model.ItemMasterCatalog;
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.PosConfigSource;
+import com.example.demo.model.PosDraft;
+import com.example.demo.model.WorkbookContent;
+import com.example.demo.model.WorkbookLayout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DraftBinaryCodecTest {
+
+    private static final Path ORIGINAL = Path.of("..", "2026ウインターフェア.xlsx");
+    private static final boolean BENCHMARK = Boolean.getBoolean("benchmark");
+
+    @TempDir
+    Path storageDir;
+
+    @Test
+    void roundtrip_preserves_every_change_type() throws Exception {
+        PosDraft draft = draftWithEveryChangeType();
+
+        byte[] encoded = encode(draft, 42L);
+        DraftBinaryCodec.Decoded decoded = DraftBinaryCodec.readDraft(new ByteArrayInputStream(encoded));
+
+        assertEquals(42L, decoded.snapshotToken());
+        PosDraft restored = decoded.draft();
+        assertEquals(draft.getDraftId(), restored.getDraftId());
+        assertEquals(draft.getHistoryIndex(), restored.getHistoryIndex());
+        assertEquals(37L, restored.getVersion());
+        assertEquals(draft.getChangeRecords().size(), restored.getChangeRecords().size());
+        for (int i = 0; i < draft.getChangeRecords().size(); i++) {
+            assertEquals(
+                    draft.getChangeRecords().get(i).getChange().getClass(),
+                    restored.getChangeRecords().get(i).getChange().getClass()
+            );
+        }
+        assertEquals(
+                draft.getHistoryEntries().stream().map(e -> e.getAction() + "@" + e.getTimestamp()).toList(),
+                restored.getHistoryEntries().stream().map(e -> e.getAction() + "@" + e.getTimestamp()).toList()
+        );
+        assertArrayEquals(draft.getOriginalExcelBytes(), restored.getOriginalExcelBytes());
+        assertEquals(
+                draft.getWorkbookLayoutOrNull().findSheet("ItemMaster").getColumns(),
+                restored.getWorkbookLayoutOrNull().findSheet("ItemMaster").getColumns()
+        );
+        // 全フィールドを書き出しているので、再エンコード結果が一致すれば内容も一致している
+        assertArrayEquals(encoded, encode(restored, 42L));
+    }
+
+    @Test
+    void change_record_roundtrip_keeps_history_entry() throws Exception {
+        PosDraft.ChangeRecord record = PosDraft.ChangeRecord.restore(
+                new PosDraft.SwapButtonsChange(3, 1, 2, -1, 4),
+                new PosDraft.HistoryEntry("ボタン入れ替え", "2026-01-15T10:00:00+09:00")
+        );
+
+        byte[] encoded = DraftBinaryCodec.encodeChangeRecord(record);
+        PosDraft.ChangeRecord decoded = DraftBinaryCodec.decodeChangeRecord(new ByteArrayInputStream(encoded));
+
+        assertEquals("ボタン入れ替え", decoded.getEntry().getAction());
+        assertEquals("2026-01-15T10:00:00+09:00", decoded.getEntry().getTimestamp());
+        PosDraft.SwapButtonsChange change = (PosDraft.SwapButtonsChange) decoded.getChange();
+        assertEquals(List.of(3, 1, 2, -1, 4), List.of(
+                change.getPageNumber(),
+                change.getFromCol(),
+                change.getFromRow(),
+                change.getToCol(),
+                change.getToRow()
+        ));
+    }
+
+    @Test
+    void legacy_serialized_draft_is_migrated_on_load() throws Exception {
+        PosDraft draft = new PosDraft("dft_legacy", configWithLabel("A"), new byte[]{1, 2, 3})
+                .applyNewConfig(configWithLabel("B"), "編集");
+        Path legacyFile = storageDir.resolve("dft_legacy.ser");
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(legacyFile))) {
+            out.writeObject(draft);
+        }
+
+        InMemoryDraftRepository repository = new InMemoryDraftRepository(storageDir.toString(), true, 50, 0, Long.MAX_VALUE);
+        PosDraft loaded = repository.findById("dft_legacy").orElseThrow();
+
+        assertEquals("B", loaded.getConfig().getPage(1).getButtons().get(0).getLabel());
+        assertEquals(1, loaded.getHistoryIndex());
+        assertArrayEquals(new byte[]{1, 2, 3}, loaded.getOriginalExcelBytes());
+        assertFalse(Files.exists(legacyFile));
+        assertTrue(Files.exists(storageDir.resolve("dft_legacy.draft")));
+
+        PosDraft reloaded = new InMemoryDraftRepository(storageDir.toString(), true, 50, 0, Long.MAX_VALUE)
+                .findById("dft_legacy")
+                .orElseThrow();
+        assertEquals("A", reloaded.undo().getConfig().getPage(1).getButtons().get(0).getLabel());
+    }
+
+    @Test
+    void benchmark_binary_codec_against_java_serialization() throws Exception {
+        assumeTrue(BENCHMARK, "run with -Dbenchmark=true");
+
+        byte[] excelBytes = Files.readAllBytes(ORIGINAL);
+        PosConfigSource source = new PoiPosConfigReader().read(new ByteArrayInputStream(excelBytes));
+        PosConfig config = PosConfig.fromSource(source);
+        PosDraft draft = new PosDraft(
+                "dft_bench",
+                config,
+                excelBytes,
+                source.getItemCatalog(),
+                source.getHandyCatalog(),
+                source.getItemMasterCatalog(),
+                source.getWorkbookLayout(),
+                "インポート"
+        );
+        int pageNumber = config.getCategories().get(0).getPageNumber();
+        for (int i = 0; i < 99; i++) {
+            draft = i % 3 == 0
+                    ? draft.applyNewConfig(draft.getConfig(), "編集" + i)
+                    : draft.applyChange(new PosDraft.SwapButtonsChange(pageNumber, 1, 1, 2, 1), "入れ替え" + i);
+        }
+
+        int rounds = 20;
+        for (int warmup = 0; warmup < 5; warmup++) {
+            decode(encode(draft, 1L));
+            javaDeserialize(javaSerialize(draft));
+        }
+        long binaryEncode = 0;
+        long binaryDecode = 0;
+        long javaEncode = 0;
+        long javaDecode = 0;
+        byte[] binary = null;
+        byte[] java = null;
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            binary = encode(draft, 1L);
+            long t1 = System.nanoTime();
+            decode(binary);
+            long t2 = System.nanoTime();
+            java = javaSerialize(draft);
+            long t3 = System.nanoTime();
+            javaDeserialize(java);
+            long t4 = System.nanoTime();
+            binaryEncode += t1 - t0;
+            binaryDecode += t2 - t1;
+            javaEncode += t3 - t2;
+            javaDecode += t4 - t3;
+        }
+        int workbookSize = excelBytes.length;
+        System.out.printf(
+                "binary: encode %.2f ms, decode %.2f ms, %d bytes (%d without workbook)%n"
+                        + "java:   encode %.2f ms, decode %.2f ms, %d bytes (%d without workbook)%n",
+                binaryEncode / 1e6 / rounds,
+                binaryDecode / 1e6 / rounds,
+                binary.length,
+                binary.length - workbookSize,
+                javaEncode / 1e6 / rounds,
+                javaDecode / 1e6 / rounds,
+                java.length,
+                java.length - workbookSize
+        );
+        assertTrue(binary.length < java.length);
+    }
+
+    // PosDraft の Change 実装をすべて含む履歴を持つドラフト（検証はしないので restore で組み立てる）
+    private static PosDraft draftWithEveryChangeType() {
+        PosConfig.Button button = new PosConfig.Button(2, 3, "スフレ", 5, "ITEM01", "450", "BTN01");
+        PosConfig.Category category = new PosConfig.Category(1, 4, 5, "ケーキ", 2);
+        PosConfig.Page page = new PosConfig.Page(1, 4, 5, List.of(button));
+        ItemCatalog.Item item = new ItemCatalog.Item("ITEM01", "スフレ", "450");
+        ItemCatalog.Category itemCategory = new ItemCatalog.Category("C01", "ケーキ", List.of(item));
+        ItemMasterCatalog.Item before = new ItemMasterCatalog.Item("ITEM01", "スフレ", "450", "200", "450");
+        ItemMasterCatalog.Item after = new ItemMasterCatalog.Item("ITEM01", "スフレ", "480", "200", "480");
+
+        List<PosDraft.Change> changes = List.of(
+                new PosDraft.SwapButtonsChange(1, 2, 3, 1, 1),
+                new PosDraft.AddButtonChange(1, button),
+                new PosDraft.DeleteButtonChange(1, button),
+                new PosDraft.UpdateUnitPriceChange(1, "BTN01", "450", "480"),
+                new PosDraft.UpdateItemMasterItemChange(before, after),
+                new PosDraft.AddCategoryChange(category),
+                new PosDraft.DeleteCategoryChange(category, page),
+                new PosDraft.UpdateCategoryGridChange(1, 4, 5, 6, 5),
+                new PosDraft.SwapCategoriesChange(1, 2),
+                new PosDraft.ReorderHandyItemsChange("C01", 0, 1),
+                new PosDraft.DeleteHandyItemChange("C01", 0, item),
+                new PosDraft.AddHandyItemChange("C01", 0, item),
+                new PosDraft.AddHandyCategoryChange(0, itemCategory),
+                new PosDraft.DeleteHandyCategoryChange(0, itemCategory),
+                new PosDraft.ReorderHandyCategoriesChange(0, 1),
+                new PosDraft.SwapHandyCategoriesChange("C01", "C02"),
+                new PosDraft.SnapshotReplaceChange(configWithLabel("A"), configWithLabel("B")),
+                PosDraft.ConfigDiffChange.between(configWithLabel("A"), configWithLabel("B").addCategory("NEW", 1, 1, 1)),
+                new PosDraft.CompositeChange(List.of(
+                        new PosDraft.SwapButtonsChange(1, 2, 3, 1, 1),
+                        new PosDraft.UpdateUnitPriceChange(1, "BTN01", "450", "480")
+                ))
+        );
+        assertEquals(changeTypesOf(PosDraft.class), changes.stream().map(Object::getClass).collect(Collectors.toSet()));
+
+        List<PosDraft.ChangeRecord> records = changes.stream()
+                .map(change -> PosDraft.ChangeRecord.restore(
+                        change,
+                        new PosDraft.HistoryEntry(change.getClass().getSimpleName(), "2026-01-15T10:00:00+09:00")
+                ))
+                .toList();
+        return PosDraft.restore(
+                "dft_codec",
+                configWithLabel("A"),
+                WorkbookContent.of(new byte[]{9, 8, 7}),
+                new ItemCatalog(List.of(itemCategory)),
+                new ItemCatalog(List.of(itemCategory)),
+                new ItemMasterCatalog(List.of(before)),
+                new WorkbookLayout(Map.of("ItemMaster", new WorkbookLayout.SheetHeader(2, Map.of("ItemCode", 0)))),
+                new PosDraft.HistoryEntry("インポート", "2026-01-15T09:00:00+09:00"),
+                records,
+                12,
+                37L
+        );
+    }
+
+    private static Set<Class<?>> changeTypesOf(Class<?> owner) {
+        return Arrays.stream(owner.getDeclaredClasses())
+                .filter(PosDraft.Change.class::isAssignableFrom)
+                .filter(type -> !type.isInterface())
+                .collect(Collectors.toSet());
+    }
+
+    private static byte[] encode(PosDraft draft, long snapshotToken) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DraftBinaryCodec.writeDraft(draft, snapshotToken, buffer);
+        return buffer.toByteArray();
+    }
+
+    private static PosDraft decode(byte[] bytes) throws Exception {
+        return DraftBinaryCodec.readDraft(new ByteArrayInputStream(bytes)).draft();
+    }
+
+    private static byte[] javaSerialize(PosDraft draft) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(draft);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static PosDraft javaDeserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (PosDraft) in.readObject();
+        }
+    }
+
+    private static PosConfig configWithLabel(String label) {
+        PosConfig.Category category = new PosConfig.Category(1, 1, 1, "PAGE", 1);
+        PosConfig.Button button = new PosConfig.Button(1, 1, label, 1, "ITEM01", "100", "BTN01");
+        PosConfig.Page page = new PosConfig.Page(1, 1, 1, List.of(button));
+        Map<Integer, PosConfig.Page> pages = new LinkedHashMap<>();
+        pages.put(1, page);
+        return new PosConfig(List.of(category), pages);
+    }
+}
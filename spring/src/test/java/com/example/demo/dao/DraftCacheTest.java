@@ -0,0 +1,95 @@
+package com.example.demo.dao;
+
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.PosDraft;
+import com.example.demo.service.port.DraftCacheMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DraftCacheTest {
+
+    @Test
+    void evicts_least_recently_used_draft_when_over_budget() {
+        PosDraft first = draft("dft_1", 1_000);
+        PosDraft second = draft("dft_2", 1_000);
+        PosDraft third = draft("dft_3", 1_000);
+        long weight = DraftSizeEstimator.estimate(first);
+        DraftCache cache = new DraftCache(weight * 2);
+
+        cache.put(first);
+        cache.put(second);
+        assertSame(first, cache.get("dft_1"));
+        cache.put(third);
+
+        assertTrue(cache.contains("dft_1"));
+        assertFalse(cache.contains("dft_2"));
+        assertTrue(cache.contains("dft_3"));
+        assertNull(cache.get("dft_2"));
+
+        DraftCacheMetrics.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.evictions());
+        assertEquals(2, stats.size());
+        assertEquals(weight * 2, stats.residentBytes());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void keeps_latest_draft_even_if_it_exceeds_budget() {
+        DraftCache cache = new DraftCache(10);
+
+        cache.put(draft("dft_1", 100));
+        cache.put(draft("dft_2", 100));
+
+        assertFalse(cache.contains("dft_1"));
+        assertTrue(cache.contains("dft_2"));
+    }
+
+    @Test
+    void replacing_a_draft_returns_previous_version_and_reweighs() {
+        DraftCache cache = new DraftCache(Long.MAX_VALUE);
+        PosDraft small = draft("dft_1", 10);
+        PosDraft large = draft("dft_1", 10_000);
+
+        assertNull(cache.put(small));
+        assertSame(small, cache.put(large));
+        assertEquals(DraftSizeEstimator.estimate(large), cache.stats().residentBytes());
+    }
+
+    @Test
+    void estimate_counts_pages_shared_with_history_once() {
+        PosDraft draft = draft("dft_1", 0);
+        PosDraft edited = draft;
+        for (int i = 0; i < 10; i++) {
+            // 空のページを足す編集。既存のページは履歴と共有される
+            edited = edited.applyNewConfig(edited.getConfig().addCategory("追加" + i, 1, 1, 1), "編集" + i);
+        }
+
+        long base = DraftSizeEstimator.estimate(draft);
+        long withHistory = DraftSizeEstimator.estimate(edited);
+        assertTrue(withHistory > base);
+        assertTrue(withHistory < base * 2);
+    }
+
+    private static PosDraft draft(String draftId, int workbookBytes) {
+        PosConfig.Category category = new PosConfig.Category(1, 5, 5, "PAGE", 1);
+        List<PosConfig.Button> buttons = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            buttons.add(new PosConfig.Button((i - 1) % 5 + 1, (i - 1) / 5 + 1, "商品" + i, 1, "ITEM" + i, "100", "BTN" + i));
+        }
+        Map<Integer, PosConfig.Page> pages = new LinkedHashMap<>();
+        pages.put(1, new PosConfig.Page(1, 5, 5, List.copyOf(buttons)));
+        return new PosDraft(draftId, new PosConfig(List.of(category), pages), new byte[workbookBytes]);
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.demo.dao;
+
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.PosDraft;
+import com.example.demo.service.port.DraftRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DraftCommandExecutorTest {
+    private static final boolean BENCHMARK = Boolean.getBoolean("benchmark");
+
+    @Test
+    void concurrent_updates_of_one_draft_are_all_applied() throws Exception {
+        FakeStore store = new FakeStore(0);
+        store.put(draft("dft_1"));
+        DraftCommandExecutor executor = new DraftCommandExecutor(store, 4);
+
+        int threads = 8;
+        int updatesPerThread = 200;
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < updatesPerThread; i++) {
+                executor.submit("dft_1", draft -> draft.withVersion(draft.getVersion() + 1)).orElseThrow();
+            }
+        });
+
+        assertEquals(threads * updatesPerThread, store.load("dft_1").getVersion());
+        assertTrue(store.saves.get() <= threads * updatesPerThread);
+    }
+
+    @Test
+    void queued_updates_of_one_draft_are_saved_as_one_batch() throws Exception {
+        FakeStore store = new FakeStore(0);
+        store.put(draft("dft_1"));
+        DraftCommandExecutor executor = new DraftCommandExecutor(store, 4);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Optional<PosDraft>>> results = new ArrayList<>();
+            synchronized (executor.lockFor("dft_1")) {
+                for (int i = 0; i < 3; i++) {
+                    results.add(pool.submit(() -> executor.submit(
+                            "dft_1",
+                            draft -> draft.withVersion(draft.getVersion() + 1)
+                    )));
+                }
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (executor.queuedCount("dft_1") < 3) {
+                    assertTrue(System.nanoTime() < deadline, "updates were not queued");
+                    Thread.onSpinWait();
+                }
+            }
+
+            List<Long> versions = new ArrayList<>();
+            for (Future<Optional<PosDraft>> result : results) {
+                versions.add(result.get(10, TimeUnit.SECONDS).orElseThrow().getVersion());
+            }
+            versions.sort(null);
+            // 呼び出し元それぞれに、自分の更新を適用した時点の版が返る
+            assertEquals(List.of(1L, 2L, 3L), versions);
+            assertEquals(3, store.load("dft_1").getVersion());
+            assertEquals(1, store.saves.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void failing_update_is_rejected_alone() {
+        FakeStore store = new FakeStore(0);
+        store.put(draft("dft_1"));
+        DraftCommandExecutor executor = new DraftCommandExecutor(store, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> executor.submit("dft_1", draft -> {
+            throw new IllegalArgumentException("invalid edit");
+        }));
+        assertEquals(0, store.saves.get());
+
+        PosDraft updated = executor.submit("dft_1", draft -> draft.withVersion(7)).orElseThrow();
+        assertEquals(7, updated.getVersion());
+        assertEquals(1, store.saves.get());
+        assertTrue(executor.submit("dft_missing", draft -> draft.withVersion(1)).isEmpty());
+    }
+
+    @Test
+    void benchmark_update_contention() throws Exception {
+        assumeTrue(BENCHMARK, "run with -Dbenchmark=true");
+
+        int threads = 8;
+        int updatesPerThread = 500;
+        // 1回の保存で待つ時間（ジャーナルへの追記と同期書き込み相当）
+        long saveNanos = TimeUnit.MICROSECONDS.toNanos(200);
+        for (int drafts : new int[]{1, 8}) {
+            for (String strategy : List.of("cas-retry", "global-lock", "executor")) {
+                for (int round = 0; round < 2; round++) {
+                    FakeStore store = new FakeStore(saveNanos);
+                    for (int i = 0; i < drafts; i++) {
+                        store.put(draft("dft_" + i));
+                    }
+                    Updater updater = updater(strategy, store);
+                    AtomicInteger mutations = new AtomicInteger();
+                    long started = System.nanoTime();
+                    runConcurrently(threads, () -> {
+                        for (int i = 0; i < updatesPerThread; i++) {
+                            String draftId = "dft_" + (i + Thread.currentThread().getId()) % drafts;
+                            updater.update(draftId, draft -> {
+                                mutations.incrementAndGet();
+                                return draft.withVersion(draft.getVersion() + 1);
+                            });
+                        }
+                    });
+                    long elapsed = System.nanoTime() - started;
+                    if (round == 0) {
+                        continue;
+                    }
+                    int total = threads * updatesPerThread;
+                    System.out.printf(
+                            "%d draft(s), %-11s: %,8.0f updates/s, %d saves, %d mutations for %d updates%n",
+                            drafts,
+                            strategy,
+                            total / (elapsed / 1e9),
+                            store.saves.get(),
+                            mutations.get(),
+                            total
+                    );
+                }
+            }
+        }
+    }
+
+    private interface Updater {
+        void update(String draftId, UnaryOperator<PosDraft> mutation);
+    }
+
+    private static Updater updater(String strategy, FakeStore store) {
+        switch (strategy) {
+            case "cas-retry": {
+                DraftRepository repository = new DraftRepository() {
+                    @Override
+                    public void save(PosDraft draft) {
+                        store.save(draft);
+                    }
+
+                    @Override
+                    public boolean save(PosDraft draft, long expectedVersion) {
+                        // ドラフトごとのロックで比較と保存だけを原子的にする（読み取りと適用はロックの外）
+                        synchronized (store.lockFor(draft.getDraftId())) {
+                            return DraftRepository.super.save(draft, expectedVersion);
+                        }
+                    }
+
+                    @Override
+                    public Optional<PosDraft> findById(String draftId) {
+                        return Optional.ofNullable(store.load(draftId));
+                    }
+                };
+                return repository::update;
+            }
+            case "global-lock": {
+                Object lock = new Object();
+                return (draftId, mutation) -> {
+                    synchronized (lock) {
+                        store.save(mutation.apply(store.load(draftId)));
+                    }
+                };
+            }
+            default: {
+                DraftCommandExecutor executor = new DraftCommandExecutor(store, 64);
+                return executor::submit;
+            }
+        }
+    }
+
+    private static void runConcurrently(int threads, Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static PosDraft draft(String draftId) {
+        PosConfig.Category category = new PosConfig.Category(1, 5, 5, "PAGE", 1);
+        List<PosConfig.Button> buttons = new ArrayList<>();
+        buttons.add(new PosConfig.Button(1, 1, "商品1", 1, "ITEM1", "100", "BTN1"));
+        Map<Integer, PosConfig.Page> pages = new LinkedHashMap<>();
+        pages.put(1, new PosConfig.Page(1, 5, 5, List.copyOf(buttons)));
+        return new PosDraft(draftId, new PosConfig(List.of(category), pages), new byte[0]);
+    }
+
+    private static final class FakeStore implements DraftCommandExecutor.Store {
+        private final Map<String, PosDraft> drafts = new ConcurrentHashMap<>();
+        private final Map<String, Object> locks = new ConcurrentHashMap<>();
+        private final AtomicInteger saves = new AtomicInteger();
+        private final long saveNanos;
+
+        private FakeStore(long saveNanos) {
+            this.saveNanos = saveNanos;
+        }
+
+        private void put(PosDraft draft) {
+            drafts.put(draft.getDraftId(), draft);
+        }
+
+        private Object lockFor(String draftId) {
+            return locks.computeIfAbsent(draftId, key -> new Object());
+        }
+
+        @Override
+        public PosDraft load(String draftId) {
+            return drafts.get(draftId);
+        }
+
+        @Override
+        public void save(PosDraft draft) {
+            if (saveNanos > 0) {
+                LockSupport.parkNanos(saveNanos);
+            }
+            drafts.put(draft.getDraftId(), draft);
+            saves.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.dao;
+
+import com.example.demo.dao.ExcelSupport.ExcelUtil;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ExcelSupportTest {
+
+    private static final boolean BENCHMARK = Boolean.getBoolean("benchmark");
+
+    @Test
+    void str_matches_dataFormatter_for_every_cell_kind() throws Exception {
+        try (Workbook wb = new XSSFWorkbook()) {
+            Sheet sheet = wb.createSheet("cells");
+            CellStyle twoDecimals = wb.createCellStyle();
+            twoDecimals.setDataFormat(wb.createDataFormat().getFormat("0.00"));
+            CellStyle thousands = wb.createCellStyle();
+            thousands.setDataFormat(wb.createDataFormat().getFormat("#,##0"));
+            CellStyle date = wb.createCellStyle();
+            date.setDataFormat(wb.createDataFormat().getFormat("yyyy/mm/dd"));
+
+            Row row = sheet.createRow(0);
+            int c = 0;
+            row.createCell(c++).setCellValue("  スフレ  ");
+            row.createCell(c++).setCellValue("");
+            row.createCell(c++);
+            for (double value : new double[]{
+                    0, -0.0, 1, -1, 1200, 1200.5, 0.1, 9_999_999_999d, 1e10, 12_345_678_901d,
+                    4_901_234_567_890d, 1e-11, 123456.789
+            }) {
+                row.createCell(c++).setCellValue(value);
+            }
+            Cell formatted = row.createCell(c++);
+            formatted.setCellValue(1200);
+            formatted.setCellStyle(twoDecimals);
+            Cell grouped = row.createCell(c++);
+            grouped.setCellValue(1234567);
+            grouped.setCellStyle(thousands);
+            Cell dated = row.createCell(c++);
+            dated.setCellValue(LocalDate.of(2026, 1, 15));
+            dated.setCellStyle(date);
+            row.createCell(c++).setCellValue(true);
+            row.createCell(c++).setCellFormula("D1+E1*2");
+            row.createCell(c++).setCellFormula("\"A\"&\"B\"");
+            row.createCell(c++).setCellFormula("1/3");
+
+            ExcelUtil u = new ExcelUtil(wb);
+            DataFormatter fmt = new DataFormatter(Locale.ROOT);
+            FormulaEvaluator eval = wb.getCreationHelper().createFormulaEvaluator();
+            for (Cell cell : row) {
+                assertEquals(
+                        fmt.formatCellValue(cell, eval).trim(),
+                        u.str(cell),
+                        "cell " + cell.getAddress()
+                );
+            }
+        }
+    }
+
+    @Test
+    void benchmark_str_per_million_cells() throws Exception {
+        assumeTrue(BENCHMARK, "run with -Dbenchmark=true");
+
+        int rows = 100_000;
+        int cols = 5;
+        try (Workbook wb = new XSSFWorkbook()) {
+            Sheet sheet = wb.createSheet("bench");
+            for (int r = 0; r < rows; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(String.valueOf(100_000 + r));
+                row.createCell(1).setCellValue("商品" + r);
+                row.createCell(2).setCellValue(100 + r % 900);
+                row.createCell(3).setCellValue(r % 7);
+                row.createCell(4).setCellValue(r % 3 == 0 ? "" : "x");
+            }
+
+            ExcelUtil u = new ExcelUtil(wb);
+            DataFormatter fmt = new DataFormatter(Locale.ROOT);
+            FormulaEvaluator eval = wb.getCreationHelper().createFormulaEvaluator();
+            for (int warmup = 0; warmup < 3; warmup++) {
+                readAll(sheet, cell -> u.str(cell));
+                readAll(sheet, cell -> fmt.formatCellValue(cell, eval).trim());
+            }
+
+            long fastNanos = readAll(sheet, cell -> u.str(cell));
+            long formatterNanos = readAll(sheet, cell -> fmt.formatCellValue(cell, eval).trim());
+            double million = rows * cols / 1_000_000d;
+            System.out.printf(
+                    "ExcelUtil.str: %.1f ms per million cells, DataFormatter: %.1f ms per million cells (x%.1f)%n",
+                    fastNanos / 1e6 / million,
+                    formatterNanos / 1e6 / million,
+                    (double) formatterNanos / fastNanos
+            );
+        }
+    }
+
+    private static long readAll(Sheet sheet, Function<Cell, String> reader) {
+        long start = System.nanoTime();
+        int length = 0;
+        for (Row row : sheet) {
+            for (Cell cell : row) {
+                length += reader.apply(cell).length();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(length > 0);
+        return elapsed;
+    }
+}
@@ -0,0 +1,382 @@
+package com.example.demo.dao;
+
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.PosDraft;
+import com.example.demo.model.WorkbookContent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryDraftRepositoryTest {
+
+    @TempDir
+    Path storageDir;
+
+    @Test
+    void edits_are_journaled_and_replayed_on_restart() throws Exception {
+        InMemoryDraftRepository repository = repository(50);
+        PosDraft draft = new PosDraft("dft_journal", configWithLabel("A"), new byte[]{1, 2, 3});
+        repository.save(draft);
+        Path snapshot = storageDir.resolve("dft_journal.draft");
+        byte[] snapshotBytes = Files.readAllBytes(snapshot);
+
+        PosDraft edited = draft.applyNewConfig(configWithLabel("B"), "編集1");
+        repository.save(edited);
+        edited = edited.applyNewConfig(configWithLabel("C"), "編集2");
+        repository.save(edited);
+        edited = edited.undo();
+        repository.save(edited);
+
+        assertArrayEquals(snapshotBytes, Files.readAllBytes(snapshot));
+        assertTrue(Files.exists(storageDir.resolve("dft_journal.journal")));
+
+        PosDraft restored = repository(50).findById("dft_journal").orElseThrow();
+        assertEquals("B", labelOf(restored.getConfig()));
+        assertEquals(1, restored.getHistoryIndex());
+        assertEquals(
+                List.of("インポート", "編集1", "編集2"),
+                restored.getHistoryEntries().stream().map(PosDraft.HistoryEntry::getAction).toList()
+        );
+        assertEquals(edited.getHistoryEntries().get(2).getTimestamp(), restored.getHistoryEntries().get(2).getTimestamp());
+        assertEquals("C", labelOf(restored.redo().getConfig()));
+        assertArrayEquals(new byte[]{1, 2, 3}, restored.getOriginalExcelBytes());
+        // 起動時の再生でスナップショットにまとめられる
+        assertFalse(Files.exists(storageDir.resolve("dft_journal.journal")));
+    }
+
+    @Test
+    void journal_is_compacted_into_snapshot() throws Exception {
+        InMemoryDraftRepository repository = repository(2);
+        PosDraft draft = new PosDraft("dft_compact", configWithLabel("A"), new byte[]{1});
+        repository.save(draft);
+
+        Path journal = storageDir.resolve("dft_compact.journal");
+        draft = draft.applyNewConfig(configWithLabel("B"), "編集1");
+        repository.save(draft);
+        draft = draft.applyNewConfig(configWithLabel("C"), "編集2");
+        repository.save(draft);
+        assertTrue(Files.exists(journal));
+
+        draft = draft.applyNewConfig(configWithLabel("D"), "編集3");
+        repository.save(draft);
+        assertFalse(Files.exists(journal));
+
+        PosDraft restored = repository(2).findById("dft_compact").orElseThrow();
+        assertEquals("D", labelOf(restored.getConfig()));
+        assertEquals(3, restored.getHistoryIndex());
+    }
+
+    @Test
+    void torn_journal_tail_is_ignored() throws Exception {
+        InMemoryDraftRepository repository = repository(50);
+        PosDraft draft = new PosDraft("dft_torn", configWithLabel("A"), new byte[]{1});
+        repository.save(draft);
+        draft = draft.applyNewConfig(configWithLabel("B"), "編集1");
+        repository.save(draft);
+
+        Files.write(
+                storageDir.resolve("dft_torn.journal"),
+                new byte[]{0, 0, 1, 0, 7},
+                StandardOpenOption.APPEND
+        );
+
+        PosDraft restored = repository(50).findById("dft_torn").orElseThrow();
+        assertEquals("B", labelOf(restored.getConfig()));
+        assertEquals(1, restored.getHistoryIndex());
+    }
+
+    @Test
+    void edits_from_a_failed_journal_append_are_written_by_the_next_save() throws Exception {
+        InMemoryDraftRepository repository = repository(50);
+        PosDraft draft = new PosDraft("dft_failed", configWithLabel("A"), new byte[]{1});
+        repository.save(draft);
+
+        // ジャーナルの場所にディレクトリを置いて追記を失敗させる
+        Path journal = storageDir.resolve("dft_failed.journal");
+        Files.createDirectory(journal);
+        PosDraft edited = draft.applyNewConfig(configWithLabel("B"), "編集1");
+        assertThrows(IllegalStateException.class, () -> repository.save(edited));
+        assertEquals("A", labelOf(repository.findById("dft_failed").orElseThrow().getConfig()));
+
+        Files.delete(journal);
+        repository.save(edited.applyNewConfig(configWithLabel("C"), "編集2"));
+
+        PosDraft restored = repository(50).findById("dft_failed").orElseThrow();
+        assertEquals("C", labelOf(restored.getConfig()));
+        assertEquals(
+                List.of("インポート", "編集1", "編集2"),
+                restored.getHistoryEntries().stream().map(PosDraft.HistoryEntry::getAction).toList()
+        );
+        assertEquals("B", labelOf(restored.undo().getConfig()));
+    }
+
+    @Test
+    void stale_journal_is_not_replayed_onto_newer_snapshot() throws Exception {
+        InMemoryDraftRepository repository = repository(50);
+        PosDraft draft = new PosDraft("dft_stale", configWithLabel("A"), new byte[]{1});
+        repository.save(draft);
+        draft = draft.applyNewConfig(configWithLabel("B"), "編集1");
+        repository.save(draft);
+        Path journal = storageDir.resolve("dft_stale.journal");
+        byte[] staleJournal = Files.readAllBytes(journal);
+
+        // 履歴削除はスナップショットを書き直す。古いジャーナルが消える前に落ちた状態を再現する
+        draft = draft.clearHistory();
+        repository.save(draft);
+        Files.write(journal, staleJournal);
+
+        PosDraft restored = repository(50).findById("dft_stale").orElseThrow();
+        assertEquals("B", labelOf(restored.getConfig()));
+        assertEquals(1, restored.getHistoryEntries().size());
+    }
+
+    @Test
+    void drafts_are_indexed_at_startup_and_loaded_on_first_lookup() throws Exception {
+        InMemoryDraftRepository repository = repository(50);
+        repository.save(new PosDraft("dft_lazy", configWithLabel("A"), new byte[]{1}));
+        Files.write(storageDir.resolve("dft_broken.draft"), new byte[]{1, 2, 3});
+
+        InMemoryDraftRepository restarted = repository(50);
+        assertFalse(restarted.isLoaded("dft_lazy"));
+
+        assertEquals("A", labelOf(restarted.findById("dft_lazy").orElseThrow().getConfig()));
+        assertTrue(restarted.isLoaded("dft_lazy"));
+        assertTrue(restarted.findById("dft_broken").isEmpty());
+        assertTrue(restarted.findById("dft_missing").isEmpty());
+    }
+
+    @Test
+    void warm_up_loads_most_recently_modified_drafts() throws Exception {
+        InMemoryDraftRepository repository = repository(50);
+        repository.save(new PosDraft("dft_old", configWithLabel("A"), new byte[]{1}));
+        repository.save(new PosDraft("dft_new", configWithLabel("B"), new byte[]{1}));
+        Files.setLastModifiedTime(storageDir.resolve("dft_old.draft"), FileTime.fromMillis(1_000L));
+        Files.setLastModifiedTime(storageDir.resolve("dft_new.draft"), FileTime.fromMillis(2_000L));
+
+        InMemoryDraftRepository restarted = repository(50);
+        restarted.warmUp(1);
+
+        assertTrue(restarted.isLoaded("dft_new"));
+        assertFalse(restarted.isLoaded("dft_old"));
+    }
+
+    @Test
+    void evicted_draft_is_reloaded_from_disk() {
+        InMemoryDraftRepository repository = new InMemoryDraftRepository(storageDir.toString(), true, 50, 0, 1);
+        PosDraft first = new PosDraft("dft_first", configWithLabel("A"), new byte[]{1});
+        repository.save(first);
+        repository.save(first.applyNewConfig(configWithLabel("B"), "編集1"));
+        repository.save(new PosDraft("dft_second", configWithLabel("C"), new byte[]{1}));
+
+        assertFalse(repository.isLoaded("dft_first"));
+        PosDraft reloaded = repository.findById("dft_first").orElseThrow();
+        assertEquals("B", labelOf(reloaded.getConfig()));
+        assertEquals("A", labelOf(reloaded.undo().getConfig()));
+        // dft_second の保存で dft_first、再読込で dft_second が追い出される
+        assertEquals(2, repository.getDraftCacheStats().evictions());
+    }
+
+    @Test
+    void write_behind_coalesces_edits_into_one_flush() throws Exception {
+        InMemoryDraftRepository repository = writeBehindRepository(Long.MAX_VALUE);
+        PosDraft draft = new PosDraft("dft_behind", configWithLabel("A"), new byte[]{1});
+        repository.save(draft);
+        assertFalse(Files.exists(storageDir.resolve("dft_behind.draft")));
+
+        repository.flush();
+        Path snapshot = storageDir.resolve("dft_behind.draft");
+        byte[] snapshotBytes = Files.readAllBytes(snapshot);
+
+        // 編集・undo・分岐をまとめて1回で書く
+        draft = draft.applyNewConfig(configWithLabel("B"), "編集1");
+        repository.save(draft);
+        draft = draft.applyNewConfig(configWithLabel("C"), "編集2");
+        repository.save(draft);
+        draft = draft.undo();
+        repository.save(draft);
+        draft = draft.applyNewConfig(configWithLabel("D"), "編集3");
+        repository.save(draft);
+        assertEquals("D", labelOf(repository.findById("dft_behind").orElseThrow().getConfig()));
+        assertFalse(Files.exists(storageDir.resolve("dft_behind.journal")));
+
+        repository.flush();
+        assertArrayEquals(snapshotBytes, Files.readAllBytes(snapshot));
+        assertTrue(Files.exists(storageDir.resolve("dft_behind.journal")));
+
+        PosDraft restored = repository(50).findById("dft_behind").orElseThrow();
+        assertEquals("D", labelOf(restored.getConfig()));
+        assertEquals(
+                List.of("インポート", "編集1", "編集3"),
+                restored.getHistoryEntries().stream().map(PosDraft.HistoryEntry::getAction).toList()
+        );
+        assertEquals("B", labelOf(restored.undo().getConfig()));
+    }
+
+    @Test
+    void write_behind_flushes_pending_drafts_on_close() {
+        InMemoryDraftRepository repository = writeBehindRepository(Long.MAX_VALUE);
+        PosDraft draft = new PosDraft("dft_close", configWithLabel("A"), new byte[]{1});
+        repository.save(draft);
+        repository.save(draft.applyNewConfig(configWithLabel("B"), "編集1"));
+
+        repository.close();
+
+        PosDraft restored = repository(50).findById("dft_close").orElseThrow();
+        assertEquals("B", labelOf(restored.getConfig()));
+        assertEquals(1, restored.getHistoryIndex());
+    }
+
+    @Test
+    void write_behind_keeps_evicted_unflushed_draft_visible() {
+        InMemoryDraftRepository repository = new InMemoryDraftRepository(
+                storageDir.toString(), true, 50, 0, 1, true, Long.MAX_VALUE, false
+        );
+        repository.save(new PosDraft("dft_first", configWithLabel("A"), new byte[]{1}));
+        repository.save(new PosDraft("dft_second", configWithLabel("B"), new byte[]{1}));
+
+        assertFalse(repository.isLoaded("dft_first"));
+        assertEquals("A", labelOf(repository.findById("dft_first").orElseThrow().getConfig()));
+        repository.close();
+    }
+
+    @Test
+    void write_behind_keeps_draft_evicted_during_flush_visible() throws Exception {
+        InMemoryDraftRepository repository = new InMemoryDraftRepository(
+                storageDir.toString(), true, 50, 0, 1, true, Long.MAX_VALUE, false
+        );
+        repository.save(new PosDraft("dft_first", configWithLabel("A"), new byte[]{1}));
+
+        Thread flush;
+        synchronized (repository.fileLock()) {
+            flush = new Thread(repository::flush);
+            flush.start();
+            while (flush.getState() != Thread.State.BLOCKED) {
+                Thread.onSpinWait();
+            }
+            // 書込み待ちの間に追い出されても、まだ書いていない最新版を返す
+            repository.save(new PosDraft("dft_second", configWithLabel("B"), new byte[]{1}));
+            assertFalse(repository.isLoaded("dft_first"));
+            assertEquals("A", labelOf(repository.findById("dft_first").orElseThrow().getConfig()));
+        }
+        flush.join();
+
+        repository.close();
+        InMemoryDraftRepository restarted = repository(50);
+        assertEquals("A", labelOf(restarted.findById("dft_first").orElseThrow().getConfig()));
+        assertEquals("B", labelOf(restarted.findById("dft_second").orElseThrow().getConfig()));
+    }
+
+    @Test
+    void drafts_from_the_same_workbook_share_one_mapped_blob() throws Exception {
+        byte[] workbook = new byte[4096];
+        workbook[0] = 42;
+        InMemoryDraftRepository repository = repository(50);
+        repository.save(new PosDraft("dft_a", configWithLabel("A"), workbook));
+        repository.save(new PosDraft("dft_b", configWithLabel("B"), workbook));
+
+        String hash = WorkbookContent.sha256Hex(workbook);
+        assertTrue(Files.exists(storageDir.resolve("blobs").resolve(hash)));
+        assertTrue(Files.size(storageDir.resolve("dft_a.draft")) < workbook.length);
+
+        InMemoryDraftRepository restarted = repository(50);
+        PosDraft a = restarted.findById("dft_a").orElseThrow();
+        PosDraft b = restarted.findById("dft_b").orElseThrow();
+        assertTrue(a.getOriginalWorkbook().isMapped());
+        assertSame(a.getOriginalWorkbook(), b.getOriginalWorkbook());
+        assertArrayEquals(workbook, b.getOriginalExcelBytes());
+        assertArrayEquals(workbook, b.getOriginalWorkbook().openStream().readAllBytes());
+    }
+
+    @Test
+    void unreferenced_blobs_are_collected_at_startup() throws Exception {
+        InMemoryDraftRepository repository = repository(50);
+        repository.save(new PosDraft("dft_kept", configWithLabel("A"), new byte[]{1, 2}));
+        Path kept = storageDir.resolve("blobs").resolve(WorkbookContent.sha256Hex(new byte[]{1, 2}));
+        Path orphan = storageDir.resolve("blobs").resolve(WorkbookContent.sha256Hex(new byte[]{3}));
+        Files.write(orphan, new byte[]{3});
+
+        repository(50);
+
+        assertTrue(Files.exists(kept));
+        assertFalse(Files.exists(orphan));
+    }
+
+    @Test
+    void draft_with_embedded_workbook_is_moved_to_blob_on_load() throws Exception {
+        PosDraft draft = new PosDraft("dft_embedded", configWithLabel("A"), new byte[]{7, 7, 7});
+        Path snapshot = storageDir.resolve("dft_embedded.draft");
+        try (OutputStream out = Files.newOutputStream(snapshot)) {
+            DraftBinaryCodec.writeDraft(draft, 1L, out);
+        }
+
+        PosDraft loaded = repository(50).findById("dft_embedded").orElseThrow();
+
+        assertTrue(loaded.getOriginalWorkbook().isMapped());
+        assertArrayEquals(new byte[]{7, 7, 7}, loaded.getOriginalExcelBytes());
+        try (InputStream in = Files.newInputStream(snapshot)) {
+            assertEquals(WorkbookContent.sha256Hex(new byte[]{7, 7, 7}), DraftBinaryCodec.readBlobHash(in));
+        }
+    }
+
+    @Test
+    void version_survives_journal_replay_and_compare_and_set_rejects_stale_saves() {
+        InMemoryDraftRepository repository = repository(50);
+        PosDraft draft = new PosDraft("dft_version", configWithLabel("A"), new byte[]{1, 2, 3});
+        repository.save(draft);
+
+        PosDraft edited = draft
+                .applyNewConfig(configWithLabel("B"), "編集1")
+                .applyNewConfig(configWithLabel("C"), "編集2");
+        assertTrue(repository.save(edited, 0));
+        // 2段戻るジャンプも版は1つだけ進む。ジャーナルの再生でも同じ版になる
+        PosDraft jumped = edited.jumpToHistoryIndex(0);
+        assertTrue(repository.save(jumped, 2));
+        assertFalse(repository.save(edited.undo(), 2), "stale version must not overwrite");
+        // 履歴位置が同じに戻る操作は版だけをジャーナルに書く
+        assertTrue(repository.save(jumped.redo().undo(), 3));
+
+        PosDraft restored = repository(50).findById("dft_version").orElseThrow();
+        assertEquals(5, restored.getVersion());
+        assertEquals("A", labelOf(restored.getConfig()));
+        assertFalse(repository.save(draft, 0));
+    }
+
+    private InMemoryDraftRepository writeBehindRepository(long flushIntervalMillis) {
+        return new InMemoryDraftRepository(
+                storageDir.toString(), true, 50, 0, Long.MAX_VALUE, true, flushIntervalMillis, true
+        );
+    }
+
+    private InMemoryDraftRepository repository(int compactEvery) {
+        return new InMemoryDraftRepository(storageDir.toString(), true, compactEvery, 0, Long.MAX_VALUE);
+    }
+
+    private static PosConfig configWithLabel(String label) {
+        PosConfig.Category category = new PosConfig.Category(1, 1, 1, "PAGE", 1);
+        PosConfig.Button button = new PosConfig.Button(1, 1, label, 1, "ITEM01", "100", "BTN01");
+        PosConfig.Page page = new PosConfig.Page(1, 1, 1, List.of(button));
+        Map<Integer, PosConfig.Page> pages = new LinkedHashMap<>();
+        pages.put(1, page);
+        return new PosConfig(List.of(category), pages);
+    }
+
+    private static String labelOf(PosConfig config) {
+        return config.getPage(1).getButtons().get(0).getLabel();
+    }
+}
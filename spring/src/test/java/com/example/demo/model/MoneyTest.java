@@ -0,0 +1,35 @@
+package com.example.demo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    void parses_plain_decimals_once_and_keeps_their_scale() {
+        Money price = Money.parse(" 1,200.50 ");
+        assertEquals(120050, price.getMinorUnits());
+        assertEquals(2, price.getScale());
+        assertEquals("1200.50", price.toPlainString());
+        assertEquals(1200.5, price.toDouble());
+
+        assertEquals("0.05", Money.parse("0.05").toPlainString());
+        assertEquals("100", Money.parse("0100").toPlainString());
+        assertEquals(Double.parseDouble("0.1"), Money.parse("0.1").toDouble());
+        assertEquals(Double.parseDouble("9223372036854775807"), Money.parse("9223372036854775807").toDouble());
+    }
+
+    @Test
+    void rejects_what_the_former_regex_rejected() {
+        for (String text : List.of("", " ", ",", "-1", "+1", ".5", "1.", "1.2.3", "¥100", "1e3", "１００", "9223372036854775808")) {
+            assertNull(Money.parseOrNull(text), text);
+        }
+        assertNull(Money.parseOrNull(null));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("abc"));
+    }
+}
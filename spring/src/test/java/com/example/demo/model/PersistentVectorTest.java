@@ -0,0 +1,101 @@
+package com.example.demo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PersistentVectorTest {
+
+    @Test
+    void random_edits_match_array_list_and_leave_older_versions_untouched() {
+        Random random = new Random(42);
+        List<Integer> expected = new ArrayList<>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<PersistentVector<Integer>> versions = new ArrayList<>();
+        List<List<Integer>> snapshots = new ArrayList<>();
+
+        for (int step = 0; step < 5_000; step++) {
+            int op = random.nextInt(10);
+            if (expected.isEmpty() || op < 4) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, step);
+                vector = vector.insert(index, step);
+            } else if (op < 6) {
+                int index = random.nextInt(expected.size());
+                expected.remove(index);
+                vector = vector.removeAt(index);
+            } else if (op < 8) {
+                int index = random.nextInt(expected.size());
+                expected.set(index, -step);
+                vector = vector.replace(index, -step);
+            } else if (op == 8) {
+                int count = random.nextInt(expected.size() + 1);
+                expected = new ArrayList<>(expected.subList(0, expected.size() - count / 4));
+                vector = vector.take(vector.size() - count / 4);
+            } else {
+                int count = random.nextInt(expected.size() + 1) / 4;
+                expected = new ArrayList<>(expected.subList(count, expected.size()));
+                vector = vector.drop(count);
+            }
+            if (step % 500 == 0) {
+                versions.add(vector);
+                snapshots.add(List.copyOf(expected));
+            }
+        }
+
+        assertEquals(expected, vector);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), vector.get(i));
+        }
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(snapshots.get(i), versions.get(i));
+        }
+    }
+
+    @Test
+    void search_copy_and_serialization() throws Exception {
+        PersistentVector<Integer> vector = PersistentVector.copyOf(List.of(10, 20, 30));
+        assertSame(vector, PersistentVector.copyOf(vector));
+        assertEquals(1, vector.search(value -> Integer.compare(value, 20)));
+        assertEquals(-3, vector.search(value -> Integer.compare(value, 25)));
+        assertThrows(UnsupportedOperationException.class, () -> vector.add(40));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(3));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(vector);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(List.of(10, 20, 30), in.readObject());
+        }
+    }
+
+    @Test
+    void sorted_map_keeps_key_order_and_shares_unchanged_versions() {
+        PersistentSortedMap<Integer, String> map = PersistentSortedMap.<Integer, String>empty()
+                .with(3, "c")
+                .with(1, "a")
+                .with(2, "b");
+        assertEquals(List.of(1, 2, 3), List.copyOf(map.keySet()));
+        assertEquals("b", map.get(2));
+
+        PersistentSortedMap<Integer, String> removed = map.without(2);
+        assertEquals(List.of(1, 3), List.copyOf(removed.keySet()));
+        assertEquals("b", map.get(2));
+        assertSame(removed, removed.without(2));
+        String a = map.get(1);
+        assertSame(map, map.with(1, a));
+        assertEquals(Map.of(1, "a", 2, "b", 3, "c"), map);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PosConfigButtonIndexTest {
+
+    @Test
+    void price_and_item_rewrites_rebuild_only_pages_holding_the_item() {
+        PosConfig config = config();
+
+        PosConfig repriced = config.updateUnitPrice(1, "BTN-1", "150");
+        assertEquals("150", repriced.getPage(1).findButton("BTN-1").getUnitPrice());
+        assertEquals("150", repriced.getPage(3).findButton("BTN-4").getUnitPrice());
+        assertEquals("120", repriced.getPage(1).findButton("BTN-2").getUnitPrice());
+        assertSame(config.getPage(2), repriced.getPage(2));
+
+        PosConfig rewritten = repriced.rewriteItem("ITEM01", "ITEM09", "200");
+        assertEquals("ITEM09", rewritten.getPage(3).findButton("BTN-4").getItemCode());
+        assertSame(repriced.getPage(2), rewritten.getPage(2));
+        assertSame(rewritten, rewritten.rewriteItem("ITEM01", "ITEM09", "200"));
+
+        // 索引も新しい itemCode に付け替わっている
+        PosConfig again = rewritten.updateUnitPrice(3, "BTN-4", "210");
+        assertEquals("210", again.getPage(1).findButton("BTN-1").getUnitPrice());
+        assertNotSame(rewritten.getPage(1), again.getPage(1));
+        assertSame(rewritten.getPage(2), again.getPage(2));
+    }
+
+    @Test
+    void index_follows_added_and_deleted_buttons() {
+        PosConfig config = config().deleteButton(3, "BTN-4");
+
+        PosConfig repriced = config.updateUnitPrice(1, "BTN-1", "150");
+        assertSame(config.getPage(3), repriced.getPage(3));
+
+        PosConfig added = config.addButton(2, 2, 1, "Latte", 1, "ITEM02", "180", "BTN-5");
+        // 別ページでも同じ buttonId は使えない
+        assertThrows(IllegalArgumentException.class, () -> added.addButton(3, 2, 1, "Latte", 1, "ITEM02", "180", "BTN-5"));
+        PosConfig teaRepriced = added.updateUnitPrice(2, "BTN-5", "190");
+        assertEquals("190", teaRepriced.getPage(1).findButton("BTN-2").getUnitPrice());
+        assertSame(added.getPage(3), teaRepriced.getPage(3));
+
+        PosConfig deleted = added.deleteButton(2, "BTN-5");
+        assertEquals(0, deleted.getPage(2).getButtons().stream()
+                .filter(b -> "ITEM02".equals(b.getItemCode())).count());
+        assertThrows(IllegalArgumentException.class, () -> deleted.updateUnitPrice(2, "BTN-5", "190"));
+    }
+
+    private static PosConfig config() {
+        Map<Integer, PosConfig.Page> pages = new LinkedHashMap<>();
+        pages.put(1, new PosConfig.Page(1, 3, 2, List.of(
+                new PosConfig.Button(1, 1, "Coffee", 1, "ITEM01", "100", "BTN-1"),
+                new PosConfig.Button(2, 1, "Tea", 1, "ITEM02", "120", "BTN-2")
+        )));
+        pages.put(2, new PosConfig.Page(2, 3, 2, List.of(
+                new PosConfig.Button(1, 1, "Cake", 1, "ITEM03", "300", "BTN-3")
+        )));
+        pages.put(3, new PosConfig.Page(3, 3, 2, List.of(
+                new PosConfig.Button(1, 1, "Coffee", 1, "ITEM01", "100", "BTN-4")
+        )));
+        List<PosConfig.Category> categories = List.of(
+                new PosConfig.Category(1, 3, 2, "PAGE1", 1),
+                new PosConfig.Category(2, 3, 2, "PAGE2", 1),
+                new PosConfig.Category(3, 3, 2, "PAGE3", 1)
+        );
+        return new PosConfig(categories, pages);
+    }
+}
@@ -5,8 +5,10 @@ import org.junit.jupiter.api.Test;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class PosConfigCategorySwapTest {
 
@@ -58,4 +60,65 @@ class PosConfigCategorySwapTest {
         assertEquals("B1", swappedPage1.getButtons().get(0).getLabel());
         assertEquals("A1", swappedPage2.getButtons().get(0).getLabel());
     }
+
+    @Test
+    void category_edits_keep_page_number_order_and_share_untouched_pages() {
+        Map<Integer, PosConfig.Page> pages = new LinkedHashMap<>();
+        for (int pageNumber = 1; pageNumber <= 4; pageNumber++) {
+            pages.put(pageNumber, new PosConfig.Page(pageNumber, 2, 1, List.of()));
+        }
+        // Excel 側で同じ PageNumber の行が重複していても並びを保つ
+        PosConfig config = new PosConfig(List.of(
+                new PosConfig.Category(1, 2, 1, "A", 1),
+                new PosConfig.Category(2, 2, 1, "B", 1),
+                new PosConfig.Category(2, 2, 1, "B2", 1),
+                new PosConfig.Category(3, 2, 1, "C", 1),
+                new PosConfig.Category(4, 2, 1, "D", 1)
+        ), pages);
+
+        PosConfig swapped = config.swapCategories(2, 4);
+        assertEquals(List.of("A@1", "D@2", "C@3", "B@4", "B2@4"), describe(swapped));
+        assertSame(config.getPage(3), swapped.getPage(3));
+
+        PosConfig deleted = swapped.deleteCategory(4);
+        assertEquals(List.of("A@1", "D@2", "C@3"), describe(deleted));
+        PosConfig restored = deleted.deleteCategory(2)
+                .restoreCategory(swapped.getCategories().get(1), swapped.getPage(2));
+        assertEquals(List.of("A@1", "D@2", "C@3"), describe(restored));
+        assertEquals(List.of(1, 2, 3), List.copyOf(restored.getPagesByPageNumber().keySet()));
+
+        PosConfig added = restored.addCategory("E", 2, 1, 1);
+        assertEquals(List.of("A@1", "D@2", "C@3", "E@4"), describe(added));
+        assertSame(restored.getPage(1), added.getPage(1));
+    }
+
+    @Test
+    void unsorted_categories_are_put_in_page_number_order() {
+        Map<Integer, PosConfig.Page> pages = new LinkedHashMap<>();
+        for (int pageNumber = 1; pageNumber <= 3; pageNumber++) {
+            pages.put(pageNumber, new PosConfig.Page(pageNumber, 2, 1, List.of()));
+        }
+        PosConfig config = new PosConfig(List.of(
+                new PosConfig.Category(3, 2, 1, "C", 1),
+                new PosConfig.Category(1, 2, 1, "A", 1),
+                new PosConfig.Category(2, 2, 1, "B", 1),
+                new PosConfig.Category(1, 2, 1, "A2", 1)
+        ), pages);
+
+        assertEquals(List.of("A@1", "A2@1", "B@2", "C@3"), describe(config));
+        assertEquals(List.of("A@1", "A2@1", "B@2", "C@3", "D@4"), describe(config.addCategory("D", 2, 1, 1)));
+        assertEquals(List.of("A@1", "A2@1", "C@3"), describe(config.deleteCategory(2)));
+
+        PosConfig replaced = config.withChangedParts(
+                List.of(new PosConfig.Category(2, 2, 1, "B", 1), new PosConfig.Category(1, 2, 1, "A", 1)),
+                Set.of(3),
+                Map.of()
+        );
+        assertEquals(List.of("A@1", "B@2"), describe(replaced));
+        assertEquals(List.of("A@1", "B@2", "E@3"), describe(replaced.addCategory("E", 2, 1, 1)));
+    }
+
+    private static List<String> describe(PosConfig config) {
+        return config.getCategories().stream().map(c -> c.getName() + "@" + c.getPageNumber()).toList();
+    }
 }
@@ -0,0 +1,71 @@
+package com.example.demo.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PosConfigPageIndexTest {
+
+    @Test
+    void lookups_follow_each_new_page_version() {
+        PosConfig.Page page = new PosConfig.Page(1, 3, 2, List.of(
+                new PosConfig.Button(1, 1, "Coffee", 1, "ITEM01", "100", "BTN-1"),
+                new PosConfig.Button(3, 2, "Tea", 1, "ITEM02", "120", "BTN-2")
+        ));
+
+        assertEquals("BTN-1", page.findButtonAt(1, 1).getButtonId());
+        assertSame(page.getButtons().get(1), page.findButton("BTN-2"));
+        assertTrue(page.isOccupied(3, 2));
+        assertFalse(page.isOccupied(2, 1));
+        assertNull(page.findButton("BTN-9"));
+
+        PosConfig.Page swapped = page.swapButtons(1, 1, 3, 2);
+        assertEquals("BTN-2", swapped.findButtonAt(1, 1).getButtonId());
+        assertEquals("BTN-1", swapped.findButtonAt(3, 2).getButtonId());
+        assertEquals(3, swapped.findButton("BTN-1").getCol());
+        // 元のページの索引は変わらない
+        assertEquals("BTN-1", page.findButtonAt(1, 1).getButtonId());
+
+        PosConfig.Page moved = swapped.swapButtons(1, 1, 2, 1);
+        assertFalse(moved.isOccupied(1, 1));
+        assertEquals("BTN-2", moved.findButtonAt(2, 1).getButtonId());
+
+        PosConfig.Page deleted = moved.deleteButton("BTN-2");
+        assertFalse(deleted.isOccupied(2, 1));
+        assertEquals("BTN-1", deleted.findButtonAt(3, 2).getButtonId());
+        assertThrows(IllegalArgumentException.class, () -> deleted.addButton(
+                new PosConfig.Button(3, 2, "Latte", 1, "ITEM03", "180", "BTN-3")
+        ));
+    }
+
+    @Test
+    void buttons_outside_the_grid_can_still_be_found_and_index_is_rebuilt_after_deserialization() throws Exception {
+        PosConfig.Page page = new PosConfig.Page(1, 2, 2, List.of(
+                new PosConfig.Button(5, 1, "Legacy", 1, "ITEM01", "100", "BTN-1")
+        ));
+        assertEquals("BTN-1", page.findButtonAt(5, 1).getButtonId());
+        assertEquals(2, page.swapButtons(5, 1, 2, 2).findButtonAt(2, 2).getCol());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(page);
+        }
+        PosConfig.Page restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (PosConfig.Page) in.readObject();
+        }
+        assertEquals("BTN-1", restored.findButton("BTN-1").getButtonId());
+        assertTrue(restored.isOccupied(5, 1));
+    }
+}
@@ -6,13 +6,16 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PosDraftHistoryTest {
@@ -139,6 +142,200 @@ class PosDraftHistoryTest {
         PosDraft undone = restored.undo();
         assertEquals("B", labelOf(undone.getConfig()));
         assertEquals(1, undone.getHistoryIndex());
+        assertArrayEquals(new byte[]{1}, restored.getOriginalExcelBytes());
+        assertSame(restored.getOriginalWorkbook(), undone.getOriginalWorkbook());
+    }
+
+    @Test
+    void history_transitions_share_original_workbook() {
+        byte[] excelBytes = {1, 2, 3};
+        PosDraft draft = new PosDraft("dft_test", configWithLabel("A"), excelBytes);
+        excelBytes[0] = 9;
+
+        WorkbookContent original = draft.getOriginalWorkbook();
+        PosDraft edited = draft
+                .applyNewConfig(configWithLabel("B"), "追加")
+                .applyNewConfig(configWithLabel("C"), "削除");
+
+        assertSame(original, edited.getOriginalWorkbook());
+        assertSame(original, edited.undo().getOriginalWorkbook());
+        assertSame(original, edited.jumpToHistoryIndex(0).redo().getOriginalWorkbook());
+        assertSame(original, edited.clearHistory().getOriginalWorkbook());
+        assertArrayEquals(new byte[]{1, 2, 3}, edited.getOriginalExcelBytes());
+        assertTrue(original.asReadOnlyBuffer().isReadOnly());
+        assertEquals(WorkbookContent.sha256Hex(new byte[]{1, 2, 3}), original.getContentHash());
+    }
+
+    @Test
+    void version_increments_once_per_history_operation() {
+        PosDraft draft = new PosDraft("dft_test", configWithLabel("A"), new byte[]{1});
+        assertEquals(0, draft.getVersion());
+
+        PosDraft edited = draft
+                .applyNewConfig(configWithLabel("B"), "追加")
+                .applyNewConfig(configWithLabel("C"), "削除");
+        assertEquals(2, edited.getVersion());
+        assertEquals(3, edited.undo().getVersion());
+        assertEquals(4, edited.undo().redo().getVersion());
+        assertEquals(3, edited.jumpToHistoryIndex(0).getVersion(), "a jump is one operation");
+        assertSame(edited, edited.jumpToHistoryIndex(2));
+        assertEquals(3, edited.clearHistory().getVersion());
+
+        // カタログのキャッシュは版を変えない
+        ItemCatalog catalog = new ItemCatalog(List.of());
+        assertEquals(2, edited.withItemCatalog(catalog).withHandyCatalog(catalog).getVersion());
+    }
+
+    @Test
+    void checkpointed_jumps_match_stepwise_undo_after_history_is_trimmed() {
+        PosDraft draft = new PosDraft("dft_test", configWithLabel("A"), new byte[]{1})
+                .withHistoryPolicy(new HistoryPolicy(100, 0, 10, 16));
+        for (int price = 1; price <= 150; price++) {
+            draft = draft.applyChange(
+                    new PosDraft.UpdateUnitPriceChange(1, "BTN01", price == 1 ? "100" : String.valueOf(price - 1), String.valueOf(price)),
+                    "価格変更"
+            );
+        }
+        // 上限を超えた古い 51 件は切り捨て済み。位置 i は i + 51 件目の編集の後
+        assertEquals(99, draft.getHistoryIndex());
+
+        PosDraft stepwise = draft;
+        for (int index = 98; index >= 0; index--) {
+            stepwise = stepwise.undo();
+            PosDraft jumped = draft.jumpToHistoryIndex(index);
+            assertEquals(unitPriceOf(stepwise.getConfig()), unitPriceOf(jumped.getConfig()), "index " + index);
+            assertEquals(String.valueOf(index + 51), unitPriceOf(jumped.getConfig()));
+            assertEquals(draft.getVersion() + 1, jumped.getVersion());
+        }
+        PosDraft back = draft.jumpToHistoryIndex(3).jumpToHistoryIndex(97);
+        assertEquals("148", unitPriceOf(back.getConfig()));
+        assertEquals(HistoryPolicy.DEFAULT, new PosDraft("dft_test", configWithLabel("A"), new byte[]{1}).getHistoryPolicy());
+    }
+
+    @Test
+    void history_retention_is_limited_by_entry_count_and_estimated_bytes() {
+        PosDraft byCount = priceEdits(new HistoryPolicy(5, 0, 10, 16), 10);
+        assertEquals(4, byCount.getChangeRecords().size());
+        assertEquals(5, byCount.getHistoryEntries().size());
+        assertEquals("6", unitPriceOf(byCount.jumpToHistoryIndex(0).getConfig()));
+
+        // 時刻や価格の桁数で1件の大きさが少し揺れるので、3件半の予算にする
+        long budget = priceEdits(HistoryPolicy.DEFAULT, 1).getHistoryBytes() * 7 / 2;
+        PosDraft byBytes = priceEdits(new HistoryPolicy(100, budget, 10, 16), 10);
+        assertEquals(3, byBytes.getChangeRecords().size());
+        assertTrue(byBytes.getHistoryBytes() <= budget);
+        assertEquals("7", unitPriceOf(byBytes.jumpToHistoryIndex(0).getConfig()));
+
+        // 1件で予算を超えても、最後の編集は取り消せるように残す
+        PosDraft tiny = priceEdits(new HistoryPolicy(100, 1, 10, 16), 3);
+        assertEquals(1, tiny.getChangeRecords().size());
+        assertEquals("2", unitPriceOf(tiny.undo().getConfig()));
+    }
+
+    @Test
+    void config_edits_are_recorded_as_diffs_of_the_changed_parts() {
+        PosConfig initial = manyPages(50);
+        PosConfig edited = initial.swapButtons(3, 1, 1, 2, 1).addCategory("NEW", 2, 1, 1);
+
+        PosDraft draft = new PosDraft("dft_test", initial, new byte[]{1}).applyNewConfig(edited, "編集");
+        PosDraft.ConfigDiffChange diff = (PosDraft.ConfigDiffChange) draft.getChangeRecords().get(0).getChange();
+        assertEquals(List.of(3), List.copyOf(diff.getBeforePages().keySet()));
+        assertEquals(List.of(3, 51), List.copyOf(diff.getAfterPages().keySet()));
+        assertEquals(50, diff.getBeforeCategories().size());
+        assertEquals(51, diff.getAfterCategories().size());
+
+        PosConfig undone = draft.undo().getConfig();
+        assertEquals(initial.getCategories(), undone.getCategories());
+        assertEquals(initial.getPagesByPageNumber(), undone.getPagesByPageNumber());
+        PosConfig redone = draft.undo().redo().getConfig();
+        assertEquals(edited.getCategories(), redone.getCategories());
+        assertEquals(edited.getPagesByPageNumber(), redone.getPagesByPageNumber());
+
+        // 古い形式の差し替えを渡しても、差分にして残す。大きさは設定全体ではなく変えたページで決まる
+        PosConfig large = manyPages(500);
+        PosDraft small = new PosDraft("dft_test", initial, new byte[]{1})
+                .applyChange(new PosDraft.SnapshotReplaceChange(initial, initial.swapButtons(3, 1, 1, 2, 1)), "編集");
+        PosDraft big = new PosDraft("dft_test", large, new byte[]{1})
+                .applyChange(new PosDraft.SnapshotReplaceChange(large, large.swapButtons(3, 1, 1, 2, 1)), "編集");
+        assertTrue(big.getChangeRecords().get(0).getChange() instanceof PosDraft.ConfigDiffChange);
+        assertTrue(big.getHistoryBytes() < small.getHistoryBytes() + 100);
+        assertEquals("B3", big.getConfig().getPage(3).getButtons().get(0).getLabel());
+    }
+
+    @Test
+    void repeated_edits_are_coalesced_and_no_op_edits_are_skipped() {
+        PosDraft draft = new PosDraft("dft_test", configWithLabel("A"), new byte[]{1}, null, handyCatalog("A", "B", "C"))
+                .withHistoryPolicy(new HistoryPolicy(100, 0, 10, 16, 60_000));
+
+        PosDraft priced = draft
+                .applyChange(new PosDraft.UpdateUnitPriceChange(1, "BTN01", "100", "110"), "価格変更")
+                .applyChange(new PosDraft.UpdateUnitPriceChange(1, "BTN01", "110", "120"), "価格変更");
+        assertEquals(1, priced.getChangeRecords().size());
+        assertEquals(2, priced.getVersion());
+        assertEquals("120", unitPriceOf(priced.getConfig()));
+        assertEquals("100", unitPriceOf(priced.undo().getConfig()));
+
+        PosDraft dragged = priced
+                .applyChange(new PosDraft.ReorderHandyItemsChange("HCAT", 0, 1), "ハンディ商品並び替え")
+                .applyChange(new PosDraft.ReorderHandyItemsChange("HCAT", 1, 2), "ハンディ商品並び替え");
+        assertEquals(2, dragged.getChangeRecords().size());
+        assertEquals(List.of("B", "C", "A"), handyItemCodes(dragged));
+        assertEquals(List.of("A", "B", "C"), handyItemCodes(dragged.undo()));
+
+        // 何も変えない編集は履歴にも版にも残さない
+        assertSame(dragged, dragged.applyChange(new PosDraft.SwapButtonsChange(1, 1, 1, 1, 1), "ボタン入れ替え"));
+        assertSame(dragged, dragged.applyChange(new PosDraft.UpdateUnitPriceChange(1, "BTN01", "120", "120"), "価格変更"));
+
+        // redo できる状態からの編集はまとめない
+        PosDraft afterUndo = dragged.undo()
+                .applyChange(new PosDraft.UpdateUnitPriceChange(1, "BTN01", "120", "130"), "価格変更");
+        assertEquals(2, afterUndo.getChangeRecords().size());
+        assertEquals("120", unitPriceOf(afterUndo.undo().getConfig()));
+    }
+
+    @Test
+    void coalesced_edits_that_cancel_out_drop_the_last_record() {
+        PosDraft draft = new PosDraft("dft_test", configWithLabel("A"), new byte[]{1}, null, handyCatalog("A", "B", "C"))
+                .withHistoryPolicy(new HistoryPolicy(100, 0, 10, 16, 60_000));
+
+        PosDraft priced = draft
+                .applyChange(new PosDraft.UpdateUnitPriceChange(1, "BTN01", "100", "110"), "価格変更")
+                .applyChange(new PosDraft.UpdateUnitPriceChange(1, "BTN01", "110", "100"), "価格変更");
+        assertTrue(priced.getChangeRecords().isEmpty());
+        assertFalse(priced.canUndo());
+        assertEquals(2, priced.getVersion());
+        assertEquals("100", unitPriceOf(priced.getConfig()));
+
+        PosDraft dragged = priced
+                .applyChange(new PosDraft.UpdateUnitPriceChange(1, "BTN01", "100", "120"), "価格変更")
+                .applyChange(new PosDraft.ReorderHandyItemsChange("HCAT", 0, 1), "ハンディ商品並び替え")
+                .applyChange(new PosDraft.ReorderHandyItemsChange("HCAT", 1, 0), "ハンディ商品並び替え");
+        assertEquals(1, dragged.getChangeRecords().size());
+        assertEquals(List.of("A", "B", "C"), handyItemCodes(dragged));
+        assertEquals("100", unitPriceOf(dragged.undo().getConfig()));
+    }
+
+    @Test
+    void jumps_keep_a_catalog_loaded_after_the_checkpoints_were_taken() {
+        PosDraft draft = new PosDraft("dft_test", configWithLabel("A"), new byte[]{1});
+        for (int price = 1; price <= 20; price++) {
+            draft = draft.applyChange(
+                    new PosDraft.UpdateUnitPriceChange(1, "BTN01", price == 1 ? "100" : String.valueOf(price - 1), String.valueOf(price)),
+                    "価格変更"
+            );
+        }
+        ItemCatalog handyCatalog = new ItemCatalog(List.of(new ItemCatalog.Category(
+                "HCAT",
+                "Handy Category",
+                List.of(new ItemCatalog.Item("A", "A", "100"), new ItemCatalog.Item("B", "B", "200"))
+        )));
+        PosDraft reordered = draft.withHandyCatalog(handyCatalog)
+                .applyChange(new PosDraft.ReorderHandyItemsChange("HCAT", 0, 1), "ハンディ商品並び替え");
+
+        PosDraft jumped = reordered.jumpToHistoryIndex(1);
+        assertEquals("1", unitPriceOf(jumped.getConfig()));
+        assertEquals(List.of("A", "B"), handyItemCodes(jumped));
+        assertEquals(List.of("B", "A"), handyItemCodes(jumped.jumpToHistoryIndex(21)));
     }
 
     @Test
@@ -193,11 +390,45 @@ class PosDraftHistoryTest {
         return new PosConfig(List.of(category), pages);
     }
 
+    private static PosConfig manyPages(int pageCount) {
+        List<PosConfig.Category> categories = new ArrayList<>();
+        Map<Integer, PosConfig.Page> pages = new LinkedHashMap<>();
+        for (int pageNumber = 1; pageNumber <= pageCount; pageNumber++) {
+            categories.add(new PosConfig.Category(pageNumber, 2, 1, "PAGE" + pageNumber, 1));
+            PosConfig.Button button = new PosConfig.Button(1, 1, "B" + pageNumber, 1, "ITEM" + pageNumber, "100", "BTN" + pageNumber);
+            pages.put(pageNumber, new PosConfig.Page(pageNumber, 2, 1, List.of(button)));
+        }
+        return new PosConfig(categories, pages);
+    }
+
     private static String labelOf(PosConfig config) {
         PosConfig.Page page = config.getPage(1);
         return page.getButtons().get(0).getLabel();
     }
 
+    private static PosDraft priceEdits(HistoryPolicy policy, int count) {
+        PosDraft draft = new PosDraft("dft_test", configWithLabel("A"), new byte[]{1}).withHistoryPolicy(policy);
+        for (int price = 1; price <= count; price++) {
+            draft = draft.applyChange(
+                    new PosDraft.UpdateUnitPriceChange(1, "BTN01", price == 1 ? "100" : String.valueOf(price - 1), String.valueOf(price)),
+                    "価格変更"
+            );
+        }
+        return draft;
+    }
+
+    private static String unitPriceOf(PosConfig config) {
+        return config.getPage(1).getButtons().get(0).getUnitPrice();
+    }
+
+    private static ItemCatalog handyCatalog(String... itemCodes) {
+        List<ItemCatalog.Item> items = new ArrayList<>();
+        for (String itemCode : itemCodes) {
+            items.add(new ItemCatalog.Item(itemCode, itemCode, "100"));
+        }
+        return new ItemCatalog(List.of(new ItemCatalog.Category("HCAT", "Handy Category", items)));
+    }
+
     private static List<String> handyItemCodes(PosDraft draft) {
         ItemCatalog handyCatalog = draft.getHandyCatalogOrNull();
         assertNotNull(handyCatalog);
@@ -0,0 +1,121 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ItemCatalog;
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.PosConfigSource;
+import com.example.demo.model.PosDraft;
+import com.example.demo.service.port.DraftRepository;
+import com.example.demo.service.port.PosConfigReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApplyDraftBatchServiceTest {
+
+    @Test
+    void applyBatch_saves_all_operations_once_as_one_history_entry() {
+        FakeDraftRepository repository = new FakeDraftRepository();
+        ApplyDraftBatchService service = new ApplyDraftBatchService(repository, new UnusedReader());
+        PosDraft draft = new PosDraft("dft_test", initialConfig(), new byte[]{1, 2, 3}, catalog());
+        repository.save(draft);
+        repository.saveCount = 0;
+
+        PosDraft updated = service.applyBatch("dft_test", List.of(
+                new DraftOperation.SwapButtons(1, 1, 1, 2, 1),
+                new DraftOperation.DeleteButton(1, "BTN-2"),
+                // 入れ替えと削除で空いたマスに追加する
+                new DraftOperation.AddButton(1, 1, 1, "C01", "ITEM02"),
+                new DraftOperation.UpdateUnitPrice(1, "BTN-1", "150")
+        ));
+
+        assertEquals(1, repository.saveCount);
+        List<PosConfig.Button> buttons = updated.getConfig().getPage(1).getButtons();
+        assertEquals(2, buttons.size());
+        PosConfig.Button moved = buttons.stream().filter(b -> "BTN-1".equals(b.getButtonId())).findFirst().orElseThrow();
+        assertEquals(2, moved.getCol());
+        assertEquals("150", moved.getUnitPrice());
+        PosConfig.Button added = buttons.stream().filter(b -> "ITEM02".equals(b.getItemCode())).findFirst().orElseThrow();
+        assertEquals(1, added.getCol());
+
+        assertEquals(draft.getHistoryEntries().size() + 1, updated.getHistoryEntries().size());
+        assertEquals("一括編集 (4件)", updated.getHistoryEntries().get(updated.getHistoryIndex()).getAction());
+        assertEquals(describe(draft.getConfig().getPage(1)), describe(updated.undo().getConfig().getPage(1)));
+    }
+
+    @Test
+    void applyBatch_rejects_whole_batch_when_an_operation_is_invalid() {
+        FakeDraftRepository repository = new FakeDraftRepository();
+        ApplyDraftBatchService service = new ApplyDraftBatchService(repository, new UnusedReader());
+        PosDraft draft = new PosDraft("dft_test", initialConfig(), new byte[]{1, 2, 3});
+        repository.save(draft);
+        repository.saveCount = 0;
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> service.applyBatch(
+                "dft_test",
+                List.of(
+                        new DraftOperation.DeleteButton(1, "BTN-2"),
+                        // 直前の操作で削除済み
+                        new DraftOperation.UpdateUnitPrice(1, "BTN-2", "150")
+                )
+        ));
+
+        assertTrue(ex.getMessage().startsWith("operations[1]: "), ex.getMessage());
+        assertEquals(0, repository.saveCount);
+        assertSame(draft, repository.findById("dft_test").orElseThrow());
+    }
+
+    private static List<String> describe(PosConfig.Page page) {
+        return page.getButtons().stream()
+                .map(b -> b.getButtonId() + "@" + b.getCol() + "," + b.getRow() + ":" + b.getUnitPrice())
+                .sorted()
+                .toList();
+    }
+
+    private static PosConfig initialConfig() {
+        PosConfig.Category category = new PosConfig.Category(1, 3, 2, "PAGE1", 1);
+        PosConfig.Button coffee = new PosConfig.Button(1, 1, "Coffee", 1, "ITEM01", "100", "BTN-1");
+        PosConfig.Button tea = new PosConfig.Button(2, 1, "Tea", 1, "ITEM03", "120", "BTN-2");
+        PosConfig.Page page = new PosConfig.Page(1, 3, 2, List.of(coffee, tea));
+        Map<Integer, PosConfig.Page> pages = new LinkedHashMap<>();
+        pages.put(1, page);
+        return new PosConfig(List.of(category), pages);
+    }
+
+    private static ItemCatalog catalog() {
+        ItemCatalog.Item latte = new ItemCatalog.Item("ITEM02", "Latte", "180");
+        return new ItemCatalog(List.of(new ItemCatalog.Category("C01", "Drinks", List.of(latte))));
+    }
+
+    private static class UnusedReader implements PosConfigReader {
+        @Override
+        public PosConfigSource read(InputStream in) {
+            throw new AssertionError("catalog should already be cached on the draft");
+        }
+    }
+
+    private static class FakeDraftRepository implements DraftRepository {
+        private final Map<String, PosDraft> store = new HashMap<>();
+        private int saveCount;
+
+        @Override
+        public void save(PosDraft draft) {
+            store.put(draft.getDraftId(), draft);
+            saveCount++;
+        }
+
+        @Override
+        public Optional<PosDraft> findById(String draftId) {
+            return Optional.ofNullable(store.get(draftId));
+        }
+    }
+}
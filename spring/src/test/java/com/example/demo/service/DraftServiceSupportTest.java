@@ -5,79 +5,77 @@ import com.example.demo.model.ItemMasterCatalog;
 import com.example.demo.model.PosConfig;
 import com.example.demo.model.PosConfigSource;
 import com.example.demo.model.PosDraft;
+import com.example.demo.service.exception.DraftConflictException;
+import com.example.demo.service.exception.PreconditionFailedException;
 import com.example.demo.service.port.DraftRepository;
 import com.example.demo.service.port.PosConfigReader;
+import com.example.demo.service.port.PosConfigReader.Part;
 import org.junit.jupiter.api.Test;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class DraftServiceSupportTest {
 
     @Test
-    void loadItemThenHandy_parsesExcelOnlyOnce_andCachesBothCatalogs() {
+    void normalizeUnitPrice_keepsTheDigitsAsWritten() {
+        assertEquals("0100", DraftServiceSupport.normalizeUnitPrice(" 0,100 "));
+        assertEquals("100.50", DraftServiceSupport.normalizeUnitPrice("100.50"));
+        assertThrows(IllegalArgumentException.class, () -> DraftServiceSupport.normalizeUnitPrice("¥100"));
+        assertThrows(IllegalArgumentException.class, () -> DraftServiceSupport.normalizeUnitPrice(" , "));
+    }
+
+    @Test
+    void loadItemCatalog_readsOnlyItemSheets_andCachesItemAndItemMasterCatalogs() {
         FakeDraftRepository repository = new FakeDraftRepository();
         CountingReader reader = new CountingReader();
 
         PosDraft draft = new PosDraft("dft_test", emptyConfig(), new byte[]{1, 2, 3});
         repository.save(draft);
-
-        ItemCatalog itemCatalog = new ItemCatalog(List.of(
-                new ItemCatalog.Category("SRC", "Source", List.of(new ItemCatalog.Item("1001", "A", "100")))
-        ));
-        ItemCatalog handyCatalog = new ItemCatalog(List.of(
-                new ItemCatalog.Category("HCAT", "Handy", List.of(new ItemCatalog.Item("2001", "B", "200")))
-        ));
-        ItemMasterCatalog itemMasterCatalog = new ItemMasterCatalog(List.of(
-                new ItemMasterCatalog.Item("1001", "A", "100", "60", "90")
-        ));
-        reader.source = new PosConfigSource(List.of(), List.of(), itemCatalog, handyCatalog, itemMasterCatalog);
+        reader.source = fullSource();
 
         ItemCatalog loadedItem = DraftServiceSupport.loadItemCatalog(draft, reader, repository);
-        ItemCatalog loadedHandy = DraftServiceSupport.loadHandyCatalog(draft, reader, repository);
+        ItemCatalog loadedAgain = DraftServiceSupport.loadItemCatalog(draft, reader, repository);
 
         assertEquals(1, reader.readCount, "Excel should be parsed only once");
+        assertEquals(EnumSet.of(Part.ITEM_CATALOG, Part.ITEM_MASTER_CATALOG), reader.requestedParts.get(0));
         assertEquals("1001", loadedItem.getCategories().get(0).getItems().get(0).getItemCode());
-        assertEquals("2001", loadedHandy.getCategories().get(0).getItems().get(0).getItemCode());
+        assertEquals("1001", loadedAgain.getCategories().get(0).getItems().get(0).getItemCode());
 
         PosDraft persisted = repository.findById("dft_test").orElseThrow();
         assertNotNull(persisted.getItemCatalogOrNull(), "itemCatalog should be cached");
-        assertNotNull(persisted.getHandyCatalogOrNull(), "handyCatalog should be cached");
         assertNotNull(persisted.getItemMasterCatalogOrNull(), "itemMasterCatalog should be cached");
+        assertNull(persisted.getHandyCatalogOrNull(), "handyCatalog was not requested");
     }
 
     @Test
-    void loadHandyThenItem_parsesExcelOnlyOnce_andCachesBothCatalogs() {
+    void loadHandyCatalog_readsOnlyHandySheets() {
         FakeDraftRepository repository = new FakeDraftRepository();
         CountingReader reader = new CountingReader();
 
         PosDraft draft = new PosDraft("dft_test", emptyConfig(), new byte[]{1, 2, 3});
         repository.save(draft);
-
-        ItemCatalog itemCatalog = new ItemCatalog(List.of(
-                new ItemCatalog.Category("SRC", "Source", List.of(new ItemCatalog.Item("1001", "A", "100")))
-        ));
-        ItemCatalog handyCatalog = new ItemCatalog(List.of(
-                new ItemCatalog.Category("HCAT", "Handy", List.of(new ItemCatalog.Item("2001", "B", "200")))
-        ));
-        ItemMasterCatalog itemMasterCatalog = new ItemMasterCatalog(List.of(
-                new ItemMasterCatalog.Item("1001", "A", "100", "60", "90")
-        ));
-        reader.source = new PosConfigSource(List.of(), List.of(), itemCatalog, handyCatalog, itemMasterCatalog);
+        reader.source = fullSource();
 
         ItemCatalog loadedHandy = DraftServiceSupport.loadHandyCatalog(draft, reader, repository);
         ItemCatalog loadedItem = DraftServiceSupport.loadItemCatalog(draft, reader, repository);
 
-        assertEquals(1, reader.readCount, "Excel should be parsed only once");
+        assertEquals(2, reader.readCount, "each catalog reads only its own sheets");
         assertEquals("2001", loadedHandy.getCategories().get(0).getItems().get(0).getItemCode());
         assertEquals("1001", loadedItem.getCategories().get(0).getItems().get(0).getItemCode());
+        assertEquals(EnumSet.of(Part.HANDY_CATALOG, Part.ITEM_MASTER_CATALOG), reader.requestedParts.get(0));
 
         PosDraft persisted = repository.findById("dft_test").orElseThrow();
         assertNotNull(persisted.getItemCatalogOrNull(), "itemCatalog should be cached");
@@ -86,13 +84,136 @@ class DraftServiceSupportTest {
     }
 
     @Test
-    void loadItemMasterThenItem_parsesExcelOnlyOnce_andCachesAllCatalogs() {
+    void loadItemMasterCatalog_readsOnlyItemMasterSheet() {
         FakeDraftRepository repository = new FakeDraftRepository();
         CountingReader reader = new CountingReader();
 
         PosDraft draft = new PosDraft("dft_test", emptyConfig(), new byte[]{1, 2, 3});
         repository.save(draft);
+        reader.source = fullSource();
+
+        ItemMasterCatalog loadedItemMaster = DraftServiceSupport.loadItemMasterCatalog(draft, reader, repository);
+        DraftServiceSupport.loadItemMasterCatalog(draft, reader, repository);
+
+        assertEquals(1, reader.readCount, "Excel should be parsed only once");
+        assertEquals(EnumSet.of(Part.ITEM_MASTER_CATALOG), reader.requestedParts.get(0));
+        assertEquals("1001", loadedItemMaster.getItems().get(0).getItemCode());
+
+        PosDraft persisted = repository.findById("dft_test").orElseThrow();
+        assertNotNull(persisted.getItemMasterCatalogOrNull(), "itemMasterCatalog should be cached");
+        assertNull(persisted.getItemCatalogOrNull(), "itemCatalog was not requested");
+        assertNull(persisted.getHandyCatalogOrNull(), "handyCatalog was not requested");
+    }
+
+    @Test
+    void saveDraftWithChange_replaysOnlyTheChange_whenAnotherEditWasSavedFirst() {
+        FakeDraftRepository repository = new FakeDraftRepository();
+        PosDraft draft = new PosDraft("dft_test", emptyConfig(), new byte[]{1, 2, 3});
+        repository.save(draft);
+        // 読んでから保存するまでの間に、別タブの編集が先に保存される
+        repository.beforeNextCompareAndSet = () -> repository.save(draft.applyChange(addCategory(1), "別タブ"));
+
+        PosDraft saved = DraftServiceSupport.saveDraftWithChange(repository, draft, addCategory(2), "追加");
+
+        assertEquals(2, saved.getVersion());
+        assertEquals(List.of(1, 2), pageNumbers(saved));
+        assertEquals(List.of("インポート", "別タブ", "追加"), actions(saved));
+        assertEquals(saved, repository.findById("dft_test").orElseThrow());
+    }
+
+    @Test
+    void saveDraftWithChange_conflicts_whenTheChangeNoLongerApplies() {
+        FakeDraftRepository repository = new FakeDraftRepository();
+        PosDraft draft = new PosDraft("dft_test", emptyConfig(), new byte[]{1, 2, 3});
+        repository.save(draft);
+        repository.beforeNextCompareAndSet = () -> repository.save(draft.applyChange(addCategory(1), "別タブ"));
+
+        DraftConflictException ex = assertThrows(
+                DraftConflictException.class,
+                () -> DraftServiceSupport.saveDraftWithChange(repository, draft, addCategory(1), "追加")
+        );
+
+        assertEquals(1, ex.getCurrentVersion());
+        assertEquals(List.of("インポート", "別タブ"), actions(repository.findById("dft_test").orElseThrow()));
+    }
+
+    @Test
+    void saveDraftWithChange_withIfMatch_failsInsteadOfReplaying() {
+        FakeDraftRepository repository = new FakeDraftRepository();
+        PosDraft draft = new PosDraft("dft_test", emptyConfig(), new byte[]{1, 2, 3});
+        repository.save(draft);
+        repository.beforeNextCompareAndSet = () -> repository.save(draft.applyChange(addCategory(1), "別タブ"));
+
+        try (DraftVersionScope scope = DraftVersionScope.open(0L)) {
+            PreconditionFailedException ex = assertThrows(
+                    PreconditionFailedException.class,
+                    () -> DraftServiceSupport.saveDraftWithChange(repository, draft, addCategory(2), "追加")
+            );
+            assertEquals(1, ex.getCurrentVersion());
+        }
+        assertEquals(List.of(1), pageNumbers(repository.findById("dft_test").orElseThrow()));
+
+        try (DraftVersionScope scope = DraftVersionScope.open(1L)) {
+            PosDraft latest = DraftServiceSupport.requireDraft(repository, "dft_test");
+            DraftServiceSupport.saveDraftWithChange(repository, latest, addCategory(2), "追加");
+            assertEquals(2, scope.getVersion(), "ETag of the response");
+        }
+    }
+
+    @Test
+    void saveDraftWithChange_withSeveralIfMatchVersions_succeedsWhenAnyMatches() {
+        FakeDraftRepository repository = new FakeDraftRepository();
+        repository.save(new PosDraft("dft_test", emptyConfig(), new byte[]{1, 2, 3}).applyChange(addCategory(1), "追加"));
+
+        // If-Match: "0", "1" で現在の版が 1
+        try (DraftVersionScope scope = DraftVersionScope.openAnyOf(Set.of(0L, 1L))) {
+            PosDraft latest = DraftServiceSupport.requireDraft(repository, "dft_test");
+            DraftServiceSupport.saveDraftWithChange(repository, latest, addCategory(2), "追加");
+            assertEquals(2, scope.getVersion(), "ETag of the response");
+        }
+
+        try (DraftVersionScope scope = DraftVersionScope.openAnyOf(Set.of(0L, 1L))) {
+            PreconditionFailedException ex = assertThrows(
+                    PreconditionFailedException.class,
+                    () -> DraftServiceSupport.requireDraft(repository, "dft_test")
+            );
+            assertEquals(2, ex.getCurrentVersion());
+        }
+        try (DraftVersionScope scope = DraftVersionScope.openAnyOf(Set.of())) {
+            assertThrows(PreconditionFailedException.class, () -> DraftServiceSupport.requireDraft(repository, "dft_test"));
+        }
+    }
+
+    @Test
+    void saveIfUnchanged_rejectsUndoOfAStaleVersion() {
+        FakeDraftRepository repository = new FakeDraftRepository();
+        PosDraft stale = new PosDraft("dft_test", emptyConfig(), new byte[]{1, 2, 3})
+                .applyChange(addCategory(1), "追加");
+        repository.save(stale);
+        repository.save(stale.applyChange(addCategory(2), "別タブ"));
+
+        DraftConflictException ex = assertThrows(
+                DraftConflictException.class,
+                () -> DraftServiceSupport.saveIfUnchanged(repository, stale, stale.undo())
+        );
+
+        assertEquals(2, ex.getCurrentVersion());
+        assertEquals(List.of(1, 2), pageNumbers(repository.findById("dft_test").orElseThrow()));
+    }
 
+    private static PosDraft.Change addCategory(int pageNumber) {
+        return new PosDraft.AddCategoryChange(new PosConfig.Category(pageNumber, 2, 1, "P" + pageNumber, 1));
+    }
+
+    private static List<Integer> pageNumbers(PosDraft draft) {
+        return draft.getConfig().getCategories().stream().map(PosConfig.Category::getPageNumber).toList();
+    }
+
+    private static List<String> actions(PosDraft draft) {
+        return draft.getHistoryEntries().stream().map(PosDraft.HistoryEntry::getAction).toList();
+    }
+
+    private static PosConfigSource fullSource() {
         ItemCatalog itemCatalog = new ItemCatalog(List.of(
                 new ItemCatalog.Category("SRC", "Source", List.of(new ItemCatalog.Item("1001", "A", "100")))
         ));
@@ -102,19 +223,7 @@ class DraftServiceSupportTest {
         ItemMasterCatalog itemMasterCatalog = new ItemMasterCatalog(List.of(
                 new ItemMasterCatalog.Item("1001", "A", "100", "60", "90")
         ));
-        reader.source = new PosConfigSource(List.of(), List.of(), itemCatalog, handyCatalog, itemMasterCatalog);
-
-        ItemMasterCatalog loadedItemMaster = DraftServiceSupport.loadItemMasterCatalog(draft, reader, repository);
-        ItemCatalog loadedItem = DraftServiceSupport.loadItemCatalog(draft, reader, repository);
-
-        assertEquals(1, reader.readCount, "Excel should be parsed only once");
-        assertEquals("1001", loadedItemMaster.getItems().get(0).getItemCode());
-        assertEquals("1001", loadedItem.getCategories().get(0).getItems().get(0).getItemCode());
-
-        PosDraft persisted = repository.findById("dft_test").orElseThrow();
-        assertNotNull(persisted.getItemCatalogOrNull(), "itemCatalog should be cached");
-        assertNotNull(persisted.getHandyCatalogOrNull(), "handyCatalog should be cached");
-        assertNotNull(persisted.getItemMasterCatalogOrNull(), "itemMasterCatalog should be cached");
+        return new PosConfigSource(List.of(), List.of(), itemCatalog, handyCatalog, itemMasterCatalog);
     }
 
     private static PosConfig emptyConfig() {
@@ -123,6 +232,17 @@ class DraftServiceSupportTest {
 
     private static class FakeDraftRepository implements DraftRepository {
         private final Map<String, PosDraft> store = new HashMap<>();
+        private Runnable beforeNextCompareAndSet;
+
+        @Override
+        public boolean save(PosDraft draft, long expectedVersion) {
+            Runnable concurrentEdit = beforeNextCompareAndSet;
+            beforeNextCompareAndSet = null;
+            if (concurrentEdit != null) {
+                concurrentEdit.run();
+            }
+            return DraftRepository.super.save(draft, expectedVersion);
+        }
 
         @Override
         public void save(PosDraft draft) {
@@ -139,9 +259,17 @@ class DraftServiceSupportTest {
         private PosConfigSource source;
         private int readCount;
 
+        private final List<Set<Part>> requestedParts = new ArrayList<>();
+
         @Override
         public PosConfigSource read(InputStream in) {
+            return read(in, Part.all());
+        }
+
+        @Override
+        public PosConfigSource read(InputStream in, Set<Part> parts) {
             readCount += 1;
+            requestedParts.add(parts);
             return source;
         }
     }
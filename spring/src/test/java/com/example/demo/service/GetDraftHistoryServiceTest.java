@@ -0,0 +1,96 @@
+package com.example.demo.service;
+
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.PosDraft;
+import com.example.demo.service.exception.DraftConflictException;
+import com.example.demo.service.port.DraftRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GetDraftHistoryServiceTest {
+
+    @Test
+    void history_pages_walk_from_newest_to_initial_entry() {
+        FakeDraftRepository repository = new FakeDraftRepository();
+        GetDraftHistoryService service = new GetDraftHistoryService(repository);
+        PosDraft draft = new PosDraft("dft_test", initialConfig("L0"), new byte[]{1});
+        for (int i = 1; i <= 4; i++) {
+            draft = draft.applyNewConfig(initialConfig("L" + i), "編集" + i);
+        }
+        repository.save(draft);
+
+        GetDraftHistoryUseCase.HistoryPage first = service.getHistoryPage("dft_test", null, 2);
+        assertEquals(3, first.fromIndex());
+        assertEquals(5, first.toIndex());
+        assertEquals("4-3", first.nextCursor());
+        assertEquals("編集4", first.draft().getHistoryEntry(4).getAction());
+
+        GetDraftHistoryUseCase.HistoryPage second = service.getHistoryPage("dft_test", first.nextCursor(), 2);
+        assertEquals(1, second.fromIndex());
+        assertEquals("4-1", second.nextCursor());
+
+        GetDraftHistoryUseCase.HistoryPage last = service.getHistoryPage("dft_test", second.nextCursor(), 2);
+        assertEquals(0, last.fromIndex());
+        assertNull(last.nextCursor());
+        assertEquals("インポート", last.draft().getHistoryEntry(0).getAction());
+
+        assertThrows(IllegalArgumentException.class, () -> service.getHistoryPage("dft_test", null, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.getHistoryPage("dft_test", "4--1", 10));
+        assertThrows(IllegalArgumentException.class, () -> service.getHistoryPage("dft_test", "3", 10));
+    }
+
+    @Test
+    void cursor_is_rejected_once_the_history_changed() {
+        FakeDraftRepository repository = new FakeDraftRepository();
+        GetDraftHistoryService service = new GetDraftHistoryService(repository);
+        PosDraft draft = new PosDraft("dft_test", initialConfig("L0"), new byte[]{1});
+        for (int i = 1; i <= 4; i++) {
+            draft = draft.applyNewConfig(initialConfig("L" + i), "編集" + i);
+        }
+        repository.save(draft);
+        String cursor = service.getHistoryPage("dft_test", null, 2).nextCursor();
+
+        // undo してからの編集で位置 3 以降の中身が入れ替わる
+        draft = draft.jumpToHistoryIndex(1).applyNewConfig(initialConfig("X"), "別の編集");
+        repository.save(draft);
+
+        DraftConflictException ex = assertThrows(
+                DraftConflictException.class,
+                () -> service.getHistoryPage("dft_test", cursor, 2)
+        );
+        assertEquals(draft.getVersion(), ex.getCurrentVersion());
+        assertEquals("別の編集", service.getHistoryPage("dft_test", null, 2).draft().getHistoryEntry(2).getAction());
+    }
+
+    private static PosConfig initialConfig(String label) {
+        PosConfig.Category category = new PosConfig.Category(1, 1, 1, "PAGE1", 1);
+        PosConfig.Button button = new PosConfig.Button(1, 1, label, 1, "ITEM01", "100", "BTN-1");
+        PosConfig.Page page = new PosConfig.Page(1, 1, 1, List.of(button));
+        Map<Integer, PosConfig.Page> pages = new LinkedHashMap<>();
+        pages.put(1, page);
+        return new PosConfig(List.of(category), pages);
+    }
+
+    private static class FakeDraftRepository implements DraftRepository {
+        private final Map<String, PosDraft> store = new HashMap<>();
+
+        @Override
+        public void save(PosDraft draft) {
+            store.put(draft.getDraftId(), draft);
+        }
+
+        @Override
+        public Optional<PosDraft> findById(String draftId) {
+            return Optional.ofNullable(store.get(draftId));
+        }
+    }
+}
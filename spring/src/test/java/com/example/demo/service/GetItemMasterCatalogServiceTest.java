@@ -18,6 +18,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 class GetItemMasterCatalogServiceTest {
 
@@ -49,9 +50,9 @@ class GetItemMasterCatalogServiceTest {
         assertEquals("1001", second.getItems().get(0).getItemCode());
 
         PosDraft persisted = repository.findById("dft_test").orElseThrow();
-        assertNotNull(persisted.getItemCatalogOrNull(), "itemCatalog should be cached");
-        assertNotNull(persisted.getHandyCatalogOrNull(), "handyCatalog should be cached");
         assertNotNull(persisted.getItemMasterCatalogOrNull(), "itemMasterCatalog should be cached");
+        assertNull(persisted.getItemCatalogOrNull(), "itemCatalog was not requested");
+        assertNull(persisted.getHandyCatalogOrNull(), "handyCatalog was not requested");
     }
 
     private static PosConfig emptyConfig() {
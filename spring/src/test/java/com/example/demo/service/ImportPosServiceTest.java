@@ -0,0 +1,99 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ItemCatalog;
+import com.example.demo.model.ItemMasterCatalog;
+import com.example.demo.model.PosConfig;
+import com.example.demo.model.PosConfigSource;
+import com.example.demo.model.PosDraft;
+import com.example.demo.service.command.ImportPosCommand;
+import com.example.demo.service.port.DraftRepository;
+import com.example.demo.service.port.PosConfigReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ImportPosServiceTest {
+
+    @Test
+    void importExcel_reusesParsedWorkbook_forSameBytes() {
+        FakeDraftRepository repository = new FakeDraftRepository();
+        CountingReader reader = new CountingReader();
+        ImportParseCache cache = new ImportParseCache(4);
+        ImportPosService service = new ImportPosService(reader, repository, cache);
+
+        PosDraft first = service.importExcel(new ImportPosCommand(new byte[]{1, 2, 3}));
+        PosDraft second = service.importExcel(new ImportPosCommand(new byte[]{1, 2, 3}));
+
+        assertEquals(1, reader.readCount, "same workbook should be parsed only once");
+        assertNotEquals(first.getDraftId(), second.getDraftId());
+        assertSame(first.getConfig(), second.getConfig());
+        assertEquals("1001", second.getItemMasterCatalogOrNull().getItems().get(0).getItemCode());
+
+        ImportParseCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    void parseCache_evictsLeastRecentlyUsedEntry() {
+        FakeDraftRepository repository = new FakeDraftRepository();
+        CountingReader reader = new CountingReader();
+        ImportParseCache cache = new ImportParseCache(2);
+        ImportPosService service = new ImportPosService(reader, repository, cache);
+
+        service.importExcel(new ImportPosCommand(new byte[]{1}));
+        service.importExcel(new ImportPosCommand(new byte[]{2}));
+        service.importExcel(new ImportPosCommand(new byte[]{1}));
+        service.importExcel(new ImportPosCommand(new byte[]{3}));
+        service.importExcel(new ImportPosCommand(new byte[]{1}));
+        service.importExcel(new ImportPosCommand(new byte[]{2}));
+
+        assertEquals(4, reader.readCount, "{2} should have been evicted by {3}");
+        ImportParseCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(4, stats.misses());
+        assertEquals(2, stats.evictions());
+        assertEquals(2, stats.size());
+    }
+
+    private static class FakeDraftRepository implements DraftRepository {
+        private final Map<String, PosDraft> store = new HashMap<>();
+
+        @Override
+        public void save(PosDraft draft) {
+            store.put(draft.getDraftId(), draft);
+        }
+
+        @Override
+        public Optional<PosDraft> findById(String draftId) {
+            return Optional.ofNullable(store.get(draftId));
+        }
+    }
+
+    private static class CountingReader implements PosConfigReader {
+        private int readCount;
+
+        @Override
+        public PosConfigSource read(InputStream in) {
+            readCount += 1;
+            return new PosConfigSource(
+                    List.of(new PosConfig.Category(1, 5, 5, "Page1", 1)),
+                    List.of(),
+                    ItemCatalog.empty(),
+                    ItemCatalog.empty(),
+                    new ItemMasterCatalog(List.of(
+                            new ItemMasterCatalog.Item("1001", "A", "100", "60", "90")
+                    ))
+            );
+        }
+    }
+}